@@ -40,6 +40,8 @@ CREATE TABLE crime_reports (
     blurred_latitude DOUBLE,
     blurred_longitude DOUBLE,
     etl_id INT,
+    -- map range queries: date range first, lat/lon filtered inside the index
+    INDEX idx_crime_reports_datetime_lat_lon (report_datetime, blurred_latitude, blurred_longitude),
     FOREIGN KEY (etl_id) REFERENCES etl_runs(etl_id)
         ON UPDATE CASCADE ON DELETE SET NULL
 );
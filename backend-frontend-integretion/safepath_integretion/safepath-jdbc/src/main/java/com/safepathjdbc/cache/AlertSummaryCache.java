@@ -0,0 +1,307 @@
+package com.safepathjdbc.cache;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.safepathjdbc.dao.CrimeReportDao;
+import com.safepathjdbc.dao.UserAlertDao;
+import com.safepathjdbc.model.CrimeReport;
+import com.safepathjdbc.model.SafetySummary;
+import com.safepathjdbc.model.UserAlert;
+import com.safepathjdbc.util.ConnectionManager;
+
+/**
+ * Safety page summaries per alert for the standard day windows ({@link #WINDOWS}).
+ * For each alert that was viewed, the reports inside its circle from the longest window are loaded
+ * once and kept newest first, so every window is a prefix of that list. Summaries are built from
+ * the prefix on first read and reused until a report enters or leaves the window.
+ * <p>
+ * {@link CrimeReportDao} reports its writes: a report inside a cached circle is added, moved or
+ * removed in place instead of reloading the alert. {@link UserAlertDao} reports alert changes,
+ * which drop the alert's entry and the user's first-alert lookup.
+ * <p>
+ * The backend's ETL, the realtime ingest and the backend's alert API write the same tables without
+ * telling this cache. At most every {@link #RECHECK_MILLIS} a read compares a watermark of those
+ * tables (row counts, highest ids, latest alert update) with the last one and drops everything
+ * when it moved, and an entry is not served after {@link #MAX_AGE_MILLIS}, which covers in-place
+ * report updates the watermark cannot see. The DAO writes move the watermark as well, which costs
+ * one extra reload per check at most.
+ */
+public final class AlertSummaryCache {
+
+    public static final int[] WINDOWS = {7, 30, 90};
+
+    private static final int MAX_DAYS = WINDOWS[WINDOWS.length - 1];
+    private static final int MAX_ENTRIES = 10_000;
+    static final long RECHECK_MILLIS = 30_000;
+    static final long MAX_AGE_MILLIS = 10 * 60_000;
+    private static final String WATERMARK_SQL = "SELECT (SELECT COUNT(*) FROM crime_reports), "
+        + "(SELECT MAX(etl_id) FROM crime_reports), (SELECT COUNT(*) FROM report_offenses), "
+        + "(SELECT MAX(offense_id) FROM report_offenses), (SELECT COUNT(*) FROM user_alerts), "
+        + "(SELECT MAX(alert_id) FROM user_alerts), (SELECT MAX(updated_at) FROM user_alerts)";
+    private static final UserAlert NO_ALERT = new UserAlert();
+    private static final Comparator<CrimeReport> NEWEST_FIRST =
+        Comparator.comparing(CrimeReport::getReportDatetime).reversed();
+
+    private static final AlertSummaryCache INSTANCE = new AlertSummaryCache();
+
+    private final Map<Integer, UserAlert> firstAlertByUser = new ConcurrentHashMap<>();
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    // bumped by every write notification, tells a load that it may have missed one
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicBoolean checking = new AtomicBoolean();
+    private volatile Object[] watermark;
+    private volatile long nextCheck;
+
+    private AlertSummaryCache() {
+    }
+
+    public static AlertSummaryCache getInstance() {
+        return INSTANCE;
+    }
+
+    public static boolean isStandardWindow(int days) {
+        for (int w : WINDOWS) {
+            if (w == days) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * First alert of the user (lowest id), as the safety page uses it; null if the user has none.
+     */
+    public UserAlert firstAlert(int userId) throws SQLException {
+        checkWatermark();
+        UserAlert alert = firstAlertByUser.get(userId);
+        if (alert == null) {
+            long before = writes.get();
+            List<UserAlert> alerts = new UserAlertDao().findByUserId(userId);
+            alert = alerts.isEmpty() ? NO_ALERT : alerts.get(0);
+            if (writes.get() == before) {
+                trim(firstAlertByUser);
+                firstAlertByUser.put(userId, alert);
+            }
+        }
+        return alert == NO_ALERT ? null : alert;
+    }
+
+    /**
+     * Summary of the alert's circle over a standard window.
+     */
+    public SafetySummary summary(UserAlert alert, int days) throws SQLException {
+        if (!isStandardWindow(days)) {
+            throw new IllegalArgumentException("Not a cached window: " + days);
+        }
+        checkWatermark();
+        Entry entry = entries.get(alert.getAlertId());
+        if (entry != null && System.currentTimeMillis() - entry.loadedAt >= MAX_AGE_MILLIS) {
+            entries.remove(alert.getAlertId(), entry);
+            entry = null;
+        }
+        if (entry == null) {
+            long before = writes.get();
+            entry = new Entry(alert, new CrimeReportDao().searchByGeoAndTime(
+                alert.getCenterLat(), alert.getCenterLon(), alert.getRadiusM(), MAX_DAYS));
+            if (writes.get() == before) {
+                trim(entries);
+                Entry raced = entries.putIfAbsent(alert.getAlertId(), entry);
+                entry = raced != null ? raced : entry;
+            }
+        }
+        return entry.summary(days, LocalDateTime.now());
+    }
+
+    public void onReportWritten(CrimeReport r) {
+        writes.incrementAndGet();
+        for (Entry entry : entries.values()) {
+            entry.put(r);
+        }
+    }
+
+    public void onReportDeleted(String reportNumber) {
+        writes.incrementAndGet();
+        for (Entry entry : entries.values()) {
+            entry.remove(reportNumber);
+        }
+    }
+
+    /**
+     * An alert was created, updated or deleted.
+     */
+    public void onAlertChanged(Integer alertId, Integer userId) {
+        writes.incrementAndGet();
+        if (alertId != null) {
+            entries.remove(alertId);
+            firstAlertByUser.values().removeIf(a -> alertId.equals(a.getAlertId()));
+        }
+        if (userId != null) {
+            firstAlertByUser.remove(userId);
+        }
+    }
+
+    public void invalidate() {
+        writes.incrementAndGet();
+        entries.clear();
+        firstAlertByUser.clear();
+    }
+
+    /**
+     * Makes the next read compare the watermark, for tests.
+     */
+    void recheckNow() {
+        nextCheck = 0;
+    }
+
+    /**
+     * Drops everything if the tables changed since the last check. Only one caller checks at a
+     * time, the others go on with the cached data.
+     */
+    private void checkWatermark() throws SQLException {
+        if (System.currentTimeMillis() < nextCheck || !checking.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Object[] current = readWatermark();
+            if (watermark != null && !Arrays.equals(current, watermark)) {
+                invalidate();
+            }
+            watermark = current;
+            nextCheck = System.currentTimeMillis() + RECHECK_MILLIS;
+        } finally {
+            checking.set(false);
+        }
+    }
+
+    private static Object[] readWatermark() throws SQLException {
+        try (Connection c = ConnectionManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(WATERMARK_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            Object[] mark = new Object[rs.getMetaData().getColumnCount()];
+            for (int i = 0; i < mark.length; i++) {
+                mark[i] = rs.getObject(i + 1);
+            }
+            return mark;
+        }
+    }
+
+    private static void trim(Map<Integer, ?> map) {
+        // views come from a small set of users; a full map is simply started over
+        if (map.size() >= MAX_ENTRIES) {
+            map.clear();
+        }
+    }
+
+    /**
+     * Reports of one alert's circle within the longest window, newest first, plus the summaries
+     * built from them.
+     */
+    private static final class Entry {
+        final double lat;
+        final double lon;
+        final double radiusKm;
+        final long loadedAt = System.currentTimeMillis();
+        final List<CrimeReport> reports;
+        final SafetySummary[] summaries = new SafetySummary[WINDOWS.length];
+        // a summary is rebuilt once its oldest report leaves the window
+        final LocalDateTime[] validUntil = new LocalDateTime[WINDOWS.length];
+
+        Entry(UserAlert alert, List<CrimeReport> loaded) {
+            this.lat = alert.getCenterLat();
+            this.lon = alert.getCenterLon();
+            this.radiusKm = alert.getRadiusM() / 1000.0;
+            this.reports = new ArrayList<>(loaded.size());
+            for (CrimeReport r : loaded) {
+                if (r.getReportDatetime() != null) {
+                    reports.add(r);
+                }
+            }
+            reports.sort(NEWEST_FIRST);
+        }
+
+        synchronized SafetySummary summary(int days, LocalDateTime now) {
+            int w = 0;
+            while (WINDOWS[w] != days) {
+                w++;
+            }
+            if (summaries[w] == null || !now.isBefore(validUntil[w])) {
+                LocalDateTime from = now.minusDays(days);
+                int end = 0;
+                while (end < reports.size() && !reports.get(end).getReportDatetime().isBefore(from)) {
+                    end++;
+                }
+                summaries[w] = SafetySummary.of(reports.subList(0, end));
+                validUntil[w] = end == 0 ? LocalDateTime.MAX : reports.get(end - 1).getReportDatetime().plusDays(days);
+            }
+            return summaries[w];
+        }
+
+        synchronized void put(CrimeReport r) {
+            CrimeReport previous = removeReport(r.getReportNumber());
+            if (r.getReportDatetime() == null || r.getBlurredLatitude() == null || r.getBlurredLongitude() == null
+                    || r.getReportDatetime().isBefore(LocalDateTime.now().minusDays(MAX_DAYS))
+                    || CrimeReportDao.haversine(lat, lon, r.getBlurredLatitude(), r.getBlurredLongitude()) > radiusKm) {
+                return;
+            }
+            CrimeReport copy = copy(r);
+            if (copy.getOffenseType() == null && previous != null) {
+                // offenses are not written through the DAO
+                copy.setOffenseType(previous.getOffenseType());
+            }
+            int at = 0;
+            while (at < reports.size() && NEWEST_FIRST.compare(reports.get(at), copy) <= 0) {
+                at++;
+            }
+            reports.add(at, copy);
+            clear();
+        }
+
+        synchronized void remove(String reportNumber) {
+            removeReport(reportNumber);
+        }
+
+        private CrimeReport removeReport(String reportNumber) {
+            for (int i = 0; i < reports.size(); i++) {
+                if (reports.get(i).getReportNumber().equals(reportNumber)) {
+                    clear();
+                    return reports.remove(i);
+                }
+            }
+            return null;
+        }
+
+        private void clear() {
+            for (int i = 0; i < summaries.length; i++) {
+                summaries[i] = null;
+            }
+        }
+
+        private static CrimeReport copy(CrimeReport r) {
+            CrimeReport copy = new CrimeReport();
+            copy.setReportNumber(r.getReportNumber());
+            copy.setReportDatetime(r.getReportDatetime());
+            copy.setPrecinct(r.getPrecinct());
+            copy.setSector(r.getSector());
+            copy.setBeat(r.getBeat());
+            copy.setMcppNeighborhood(r.getMcppNeighborhood());
+            copy.setBlurredAddress(r.getBlurredAddress());
+            copy.setBlurredLatitude(r.getBlurredLatitude());
+            copy.setBlurredLongitude(r.getBlurredLongitude());
+            copy.setOffenseType(r.getOffenseType());
+            return copy;
+        }
+    }
+}
@@ -1,18 +1,35 @@
 package com.safepathjdbc.dao;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
+import com.safepathjdbc.cache.AlertSummaryCache;
+import com.safepathjdbc.index.CompressedBitmap;
+import com.safepathjdbc.index.CrimeReportBitmapIndex;
+import com.safepathjdbc.index.CrimeReportBitmapIndex.Attribute;
 import com.safepathjdbc.model.CrimeReport;
 import com.safepathjdbc.util.ConnectionManager;
 
 public class CrimeReportDao {
+    // report numbers per IN list when reading the rows the bitmap index selected
+    private static final int FETCH_CHUNK = 500;
+
+    private final CrimeReportBitmapIndex index = CrimeReportBitmapIndex.getInstance();
+    private final AlertSummaryCache summaryCache = AlertSummaryCache.getInstance();
+
     public CrimeReport create(CrimeReport r) throws SQLException {
         String sql = "INSERT INTO crime_reports (report_number, report_datetime, precinct, sector, beat, mcpp_neighborhood, blurred_address, blurred_latitude, blurred_longitude) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
         try (Connection c = ConnectionManager.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
@@ -26,6 +43,8 @@ public class CrimeReportDao {
             if (r.getBlurredLatitude() == null) ps.setNull(8, Types.DOUBLE); else ps.setDouble(8, r.getBlurredLatitude());
             if (r.getBlurredLongitude() == null) ps.setNull(9, Types.DOUBLE); else ps.setDouble(9, r.getBlurredLongitude());
             ps.executeUpdate();
+            index.onCreated(r);
+            summaryCache.onReportWritten(r);
             return r;
         }
     }
@@ -95,7 +114,12 @@ public class CrimeReportDao {
             if (r.getBlurredLatitude() == null) ps.setNull(7, Types.DOUBLE); else ps.setDouble(7, r.getBlurredLatitude());
             if (r.getBlurredLongitude() == null) ps.setNull(8, Types.DOUBLE); else ps.setDouble(8, r.getBlurredLongitude());
             ps.setString(9, r.getReportNumber());
-            return ps.executeUpdate() > 0;
+            boolean updated = ps.executeUpdate() > 0;
+            if (updated) {
+                index.onUpdated(r);
+                summaryCache.onReportWritten(r);
+            }
+            return updated;
         }
     }
 
@@ -103,32 +127,103 @@ public class CrimeReportDao {
         String sql = "DELETE FROM crime_reports WHERE report_number = ?";
         try (Connection c = ConnectionManager.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, reportNumber);
-            return ps.executeUpdate() > 0;
+            boolean deleted = ps.executeUpdate() > 0;
+            if (deleted) {
+                index.onDeleted(reportNumber);
+                summaryCache.onReportDeleted(reportNumber);
+            }
+            return deleted;
         }
     }
 
     public List<CrimeReport> search(String reportNumber, String precinct, String neighborhood) throws SQLException {
-        StringBuilder sql = new StringBuilder("SELECT report_number, report_datetime, precinct, sector, beat, mcpp_neighborhood, blurred_address, blurred_latitude, blurred_longitude FROM crime_reports WHERE 1=1");
-        List<String> params = new ArrayList<>();
-        
-        if (reportNumber != null && !reportNumber.trim().isEmpty()) {
-            sql.append(" AND report_number LIKE ?");
-            params.add("%" + reportNumber.trim() + "%");
-        }
-        if (precinct != null && !precinct.trim().isEmpty()) {
-            sql.append(" AND precinct LIKE ?");
-            params.add("%" + precinct.trim() + "%");
-        }
-        if (neighborhood != null && !neighborhood.trim().isEmpty()) {
-            sql.append(" AND mcpp_neighborhood LIKE ?");
-            params.add("%" + neighborhood.trim() + "%");
+        return search(reportNumber, precinct, null, null, neighborhood, null, Integer.MAX_VALUE);
+    }
+
+    public List<CrimeReport> search(String reportNumber, String precinct, String sector, String beat,
+                                    String neighborhood, String offenseGroup) throws SQLException {
+        return search(reportNumber, precinct, sector, beat, neighborhood, offenseGroup, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Substring search over the categorical columns, answered from the bitmap index: every given
+     * attribute narrows the selection with an AND, the report number is checked while selecting.
+     * Newest first, like the SQL version it replaces; only the {@code limit} returned reports are
+     * read from the table.
+     */
+    public List<CrimeReport> search(String reportNumber, String precinct, String sector, String beat,
+                                    String neighborhood, String offenseGroup, int limit) throws SQLException {
+        CrimeReportBitmapIndex.State state = index.state();
+        CompressedBitmap selection = state.all();
+        selection = narrow(state, selection, Attribute.PRECINCT, precinct);
+        selection = narrow(state, selection, Attribute.SECTOR, sector);
+        selection = narrow(state, selection, Attribute.BEAT, beat);
+        selection = narrow(state, selection, Attribute.NEIGHBORHOOD, neighborhood);
+        selection = narrow(state, selection, Attribute.OFFENSE_GROUP, offenseGroup);
+
+        String number = reportNumber == null || reportNumber.trim().isEmpty()
+            ? null : reportNumber.trim().toUpperCase(Locale.ROOT);
+        return findByReportNumbers(state.newest(selection,
+            (id, time, lat, lon) -> number == null || (id != null && id.toUpperCase(Locale.ROOT).contains(number)),
+            limit));
+    }
+
+    private CompressedBitmap narrow(CrimeReportBitmapIndex.State state, CompressedBitmap selection,
+                                    Attribute attribute, String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return selection;
         }
-        sql.append(" ORDER BY report_datetime DESC");
-        
-        List<CrimeReport> out = new ArrayList<>();
+        return CompressedBitmap.and(selection, state.containing(attribute, text));
+    }
+
+    /**
+     * Receives the rows of {@link #forEachInRange} one at a time.
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        void accept(CrimeReport r) throws IOException;
+    }
+
+    /**
+     * The newest {@code limit} reports inside the bounding box and time range, newest first, handed
+     * to the handler while the result set is read so no list of the rows is built. Every bound is
+     * optional; a given bound excludes reports without a value for it. The date range and box are
+     * applied by idx_crime_reports_datetime_lat_lon, and the offense groups come from a per-row
+     * subquery, so no GROUP BY over the whole join is needed.
+     * <p>
+     * The pooled connection is held until the last row was handled, so a handler writing to a slow
+     * client holds it that long; the limit bounds how long that can be.
+     *
+     * @return number of rows handled
+     */
+    public int forEachInRange(Double minLat, Double maxLat, Double minLon, Double maxLon,
+                              LocalDateTime startTime, LocalDateTime endTime, int limit,
+                              RowHandler handler) throws SQLException, IOException {
+        StringBuilder sql = new StringBuilder(
+            "SELECT cr.report_number, cr.report_datetime, cr.precinct, cr.sector, cr.beat, cr.mcpp_neighborhood, cr.blurred_address, cr.blurred_latitude, cr.blurred_longitude, " +
+            "(SELECT GROUP_CONCAT(DISTINCT ot.offense_parent_group SEPARATOR ', ') " +
+            "FROM report_offenses ro JOIN offense_types ot ON ro.offense_code = ot.offense_code " +
+            "WHERE ro.report_number = cr.report_number) AS offense_types_agg " +
+            "FROM crime_reports cr WHERE 1 = 1"
+        );
+        List<Object> params = new ArrayList<>();
+        if (startTime != null) { sql.append(" AND cr.report_datetime >= ?"); params.add(Timestamp.valueOf(startTime)); }
+        if (endTime != null) { sql.append(" AND cr.report_datetime <= ?"); params.add(Timestamp.valueOf(endTime)); }
+        if (minLat != null) { sql.append(" AND cr.blurred_latitude >= ?"); params.add(minLat); }
+        if (maxLat != null) { sql.append(" AND cr.blurred_latitude <= ?"); params.add(maxLat); }
+        if (minLon != null) { sql.append(" AND cr.blurred_longitude >= ?"); params.add(minLon); }
+        if (maxLon != null) { sql.append(" AND cr.blurred_longitude <= ?"); params.add(maxLon); }
+        sql.append(" ORDER BY cr.report_datetime DESC LIMIT ?");
+        params.add(limit);
+
+        int count = 0;
         try (Connection c = ConnectionManager.getConnection(); PreparedStatement ps = c.prepareStatement(sql.toString())) {
             for (int i = 0; i < params.size(); i++) {
-                ps.setString(i + 1, params.get(i));
+                ps.setObject(i + 1, params.get(i));
+            }
+            if (c.getMetaData().getDatabaseProductName().contains("MySQL")) {
+                // Connector/J streams row by row instead of buffering the whole result
+                ps.setFetchSize(Integer.MIN_VALUE);
             }
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
@@ -141,13 +236,15 @@ public class CrimeReportDao {
                     r.setBeat(rs.getString("beat"));
                     r.setMcppNeighborhood(rs.getString("mcpp_neighborhood"));
                     r.setBlurredAddress(rs.getString("blurred_address"));
-                    double lat = rs.getDouble("blurred_latitude"); r.setBlurredLatitude(rs.wasNull() ? null : lat);
-                    double lon = rs.getDouble("blurred_longitude"); r.setBlurredLongitude(rs.wasNull() ? null : lon);
-                    out.add(r);
+                    double rlat = rs.getDouble("blurred_latitude"); r.setBlurredLatitude(rs.wasNull() ? null : rlat);
+                    double rlon = rs.getDouble("blurred_longitude"); r.setBlurredLongitude(rs.wasNull() ? null : rlon);
+                    r.setOffenseType(rs.getString("offense_types_agg"));
+                    handler.accept(r);
+                    count++;
                 }
             }
         }
-        return out;
+        return count;
     }
 
     public List<CrimeReport> searchByGeoAndTime(Double centerLat, Double centerLon, Integer radiusM, Integer daysBack) throws SQLException {
@@ -176,7 +273,8 @@ public class CrimeReportDao {
             "AND cr.blurred_latitude BETWEEN ? AND ? AND cr.blurred_longitude BETWEEN ? AND ?"
         );
         if (daysBack != null && daysBack > 0) {
-            sql.append(" AND cr.report_datetime >= DATE_SUB(CURRENT_TIMESTAMP(), INTERVAL ? DAY)");
+            // cut off by the app's clock, the same one the summary cache ages its windows with
+            sql.append(" AND cr.report_datetime >= ?");
         }
         sql.append(" GROUP BY cr.report_number, cr.report_datetime, cr.precinct, cr.sector, cr.beat, cr.mcpp_neighborhood, cr.blurred_address, cr.blurred_latitude, cr.blurred_longitude ");
         sql.append(" ORDER BY cr.report_datetime DESC");
@@ -188,7 +286,7 @@ public class CrimeReportDao {
             ps.setDouble(3, minLon);
             ps.setDouble(4, maxLon);
             if (daysBack != null && daysBack > 0) {
-                ps.setInt(5, daysBack);
+                ps.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now().minusDays(daysBack)));
             }
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
@@ -220,93 +318,86 @@ public class CrimeReportDao {
         return filtered;
     }
 
+    /**
+     * Reports with any of the offense groups inside the radius and time range, at most {@code limit}.
+     * The offense group selection comes from the bitmap index and radius and time are checked on its
+     * columns, newest first; only the returned reports are read from the table.
+     */
     public List<CrimeReport> getCrimesByFilter(double lat, double lon, int radiusInMeters, List<String> crimeTypes, java.time.LocalDateTime startTime, java.time.LocalDateTime endTime, int limit) throws SQLException {
-        // Use GROUP_CONCAT to aggregate offense types for each report
-        StringBuilder sql = new StringBuilder("SELECT cr.*, GROUP_CONCAT(ot.offense_parent_group SEPARATOR ', ') as offense_types_agg ");
-        sql.append("FROM crime_reports cr ");
-        sql.append("LEFT JOIN report_offenses ro ON cr.report_number = ro.report_number ");
-        sql.append("LEFT JOIN offense_types ot ON ro.offense_code = ot.offense_code ");
-        sql.append("WHERE 1=1 ");
-
-        if (radiusInMeters > 0) {
-            // Spherical Law of Cosines: d = R * ACOS(SIN(lat1)*SIN(lat2) + COS(lat1)*COS(lat2)*COS(lon2-lon1))
-            // R = 6371000 meters
-            sql.append("AND (6371000 * ACOS(SIN(RADIANS(?)) * SIN(RADIANS(cr.blurred_latitude)) + COS(RADIANS(?)) * COS(RADIANS(cr.blurred_latitude)) * COS(RADIANS(cr.blurred_longitude) - RADIANS(?)))) <= ? ");
-        }
-
-        if (crimeTypes != null && !crimeTypes.isEmpty()) {
-            // We need to filter by having AT LEAST ONE of the requested crime types
-            // Since we are grouping, we can use HAVING or filter in WHERE before grouping.
-            // Filtering in WHERE is more efficient.
-            // Note: The LEFT JOIN above effectively becomes an INNER JOIN for the matching rows if we filter on the joined table here.
-            // However, to ensure we get the report even if it has other offenses, we should be careful.
-            // But the requirement is usually "show reports that contain these crimes".
-            sql.append("AND ot.offense_parent_group IN (");
-            for (int i = 0; i < crimeTypes.size(); i++) {
-                sql.append(i == 0 ? "?" : ", ?");
-            }
-            sql.append(") ");
-        }
-
-        if (startTime != null) {
-            sql.append("AND cr.report_datetime >= ? ");
-        }
-        if (endTime != null) {
-            sql.append("AND cr.report_datetime <= ? ");
-        }
-
-        sql.append("GROUP BY cr.report_number ");
-        sql.append("LIMIT ?");
-
-        try (Connection c = ConnectionManager.getConnection(); PreparedStatement ps = c.prepareStatement(sql.toString())) {
-            int idx = 1;
+        CrimeReportBitmapIndex.State state = index.state();
+        CompressedBitmap selection = crimeTypes != null && !crimeTypes.isEmpty()
+            ? state.matchingAny(Attribute.OFFENSE_GROUP, crimeTypes)
+            : state.all();
+        double radiusKm = radiusInMeters / 1000.0;
+        long from = startTime == null ? 0 : startTime.toEpochSecond(ZoneOffset.UTC);
+        long to = endTime == null ? 0 : endTime.toEpochSecond(ZoneOffset.UTC);
+        return findByReportNumbers(state.newest(selection, (id, time, rlat, rlon) -> {
             if (radiusInMeters > 0) {
-                ps.setDouble(idx++, lat);
-                ps.setDouble(idx++, lat);
-                ps.setDouble(idx++, lon);
-                ps.setInt(idx++, radiusInMeters);
-            }
-            if (crimeTypes != null && !crimeTypes.isEmpty()) {
-                for (String type : crimeTypes) {
-                    ps.setString(idx++, type);
+                if (Double.isNaN(rlat) || Double.isNaN(rlon) || haversine(lat, lon, rlat, rlon) > radiusKm) {
+                    return false;
                 }
             }
-            if (startTime != null) {
-                ps.setTimestamp(idx++, Timestamp.valueOf(startTime));
+            if (startTime != null && (time == CrimeReportBitmapIndex.NO_TIME || time < from)) {
+                return false;
             }
-            if (endTime != null) {
-                ps.setTimestamp(idx++, Timestamp.valueOf(endTime));
+            if (endTime != null && (time == CrimeReportBitmapIndex.NO_TIME || time > to)) {
+                return false;
             }
-            ps.setInt(idx++, limit);
+            return true;
+        }, limit));
+    }
 
-            try (ResultSet rs = ps.executeQuery()) {
-                List<CrimeReport> list = new ArrayList<>();
-                while (rs.next()) {
-                    CrimeReport r = new CrimeReport();
-                    r.setReportNumber(rs.getString("report_number"));
-                    Timestamp ts = rs.getTimestamp("report_datetime");
-                    r.setReportDatetime(ts == null ? null : ts.toLocalDateTime());
-                    r.setPrecinct(rs.getString("precinct"));
-                    r.setSector(rs.getString("sector"));
-                    r.setBeat(rs.getString("beat"));
-                    r.setMcppNeighborhood(rs.getString("mcpp_neighborhood"));
-                    r.setBlurredAddress(rs.getString("blurred_address"));
-                    double rLat = rs.getDouble("blurred_latitude");
-                    r.setBlurredLatitude(rs.wasNull() ? null : rLat);
-                    double rLon = rs.getDouble("blurred_longitude");
-                    r.setBlurredLongitude(rs.wasNull() ? null : rLon);
-                    
-                    // Set the aggregated offense types
-                    r.setOffenseType(rs.getString("offense_types_agg"));
-                    
-                    list.add(r);
+    /**
+     * The reports with the given numbers, in the given order; numbers no longer in the table are skipped.
+     */
+    private List<CrimeReport> findByReportNumbers(List<String> reportNumbers) throws SQLException {
+        Map<String, CrimeReport> found = new HashMap<>();
+        try (Connection c = ConnectionManager.getConnection()) {
+            for (int from = 0; from < reportNumbers.size(); from += FETCH_CHUNK) {
+                List<String> chunk = reportNumbers.subList(from, Math.min(reportNumbers.size(), from + FETCH_CHUNK));
+                String sql = "SELECT cr.report_number, cr.report_datetime, cr.precinct, cr.sector, cr.beat, cr.mcpp_neighborhood, cr.blurred_address, cr.blurred_latitude, cr.blurred_longitude, " +
+                    "(SELECT GROUP_CONCAT(DISTINCT ot.offense_parent_group SEPARATOR ', ') " +
+                    "FROM report_offenses ro JOIN offense_types ot ON ro.offense_code = ot.offense_code " +
+                    "WHERE ro.report_number = cr.report_number) AS offense_types_agg " +
+                    "FROM crime_reports cr WHERE cr.report_number IN (" + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            CrimeReport r = new CrimeReport();
+                            r.setReportNumber(rs.getString("report_number"));
+                            Timestamp ts = rs.getTimestamp("report_datetime");
+                            r.setReportDatetime(ts == null ? null : ts.toLocalDateTime());
+                            r.setPrecinct(rs.getString("precinct"));
+                            r.setSector(rs.getString("sector"));
+                            r.setBeat(rs.getString("beat"));
+                            r.setMcppNeighborhood(rs.getString("mcpp_neighborhood"));
+                            r.setBlurredAddress(rs.getString("blurred_address"));
+                            double rlat = rs.getDouble("blurred_latitude"); r.setBlurredLatitude(rs.wasNull() ? null : rlat);
+                            double rlon = rs.getDouble("blurred_longitude"); r.setBlurredLongitude(rs.wasNull() ? null : rlon);
+                            r.setOffenseType(rs.getString("offense_types_agg"));
+                            found.put(r.getReportNumber(), r);
+                        }
+                    }
                 }
-                return list;
             }
         }
+        List<CrimeReport> out = new ArrayList<>(found.size());
+        for (String reportNumber : reportNumbers) {
+            CrimeReport r = found.get(reportNumber);
+            if (r != null) {
+                out.add(r);
+            }
+        }
+        return out;
     }
 
-    private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+    /**
+     * Great-circle distance in km.
+     */
+    public static double haversine(double lat1, double lon1, double lat2, double lon2) {
         double R = 6371.0; // km
         double dLat = Math.toRadians(lat2 - lat1);
         double dLon = Math.toRadians(lon2 - lon1);
@@ -1,5 +1,6 @@
 package com.safepathjdbc.dao;
 
+import com.safepathjdbc.cache.AlertSummaryCache;
 import com.safepathjdbc.model.UserAlert;
 import com.safepathjdbc.util.ConnectionManager;
 
@@ -8,6 +9,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class UserAlertDao {
+    private final AlertSummaryCache summaryCache = AlertSummaryCache.getInstance();
+
     public UserAlert create(UserAlert a) throws SQLException {
         String sql = "INSERT INTO user_alerts (user_id, radius_m, center_lat, center_lon, crime_type_filter, active_flag) VALUES (?, ?, ?, ?, ?, ?)";
         try (Connection c = ConnectionManager.getConnection(); PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
@@ -19,6 +22,7 @@ public class UserAlertDao {
             if (a.getActiveFlag() == null) ps.setNull(6, Types.BOOLEAN); else ps.setBoolean(6, a.getActiveFlag());
             ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) { if (rs.next()) a.setAlertId(rs.getInt(1)); }
+            summaryCache.onAlertChanged(a.getAlertId(), a.getUserId());
             return a;
         }
     }
@@ -101,7 +105,9 @@ public class UserAlertDao {
             ps.setString(5, a.getCrimeTypeFilter());
             if (a.getActiveFlag() == null) ps.setNull(6, Types.BOOLEAN); else ps.setBoolean(6, a.getActiveFlag());
             ps.setInt(7, a.getAlertId());
-            return ps.executeUpdate() > 0;
+            boolean updated = ps.executeUpdate() > 0;
+            summaryCache.onAlertChanged(a.getAlertId(), a.getUserId());
+            return updated;
         }
     }
 
@@ -109,7 +115,9 @@ public class UserAlertDao {
         String sql = "DELETE FROM user_alerts WHERE alert_id = ?";
         try (Connection c = ConnectionManager.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setLong(1, id);
-            return ps.executeUpdate() > 0;
+            boolean deleted = ps.executeUpdate() > 0;
+            summaryCache.onAlertChanged(id.intValue(), null);
+            return deleted;
         }
     }
 }
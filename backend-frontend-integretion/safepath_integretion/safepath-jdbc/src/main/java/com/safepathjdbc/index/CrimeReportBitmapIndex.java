@@ -0,0 +1,532 @@
+package com.safepathjdbc.index;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.safepathjdbc.model.CrimeReport;
+import com.safepathjdbc.util.ConnectionManager;
+
+/**
+ * In-memory bitmap index over all crime reports for multi-attribute filtering.
+ * Every report gets a dense ordinal; for each categorical attribute and each of its values a
+ * {@link CompressedBitmap} holds the ordinals of the matching reports. A filter is a handful of
+ * AND / OR operations on those bitmaps followed by a pass over the surviving ordinals. Only what
+ * the filters need is kept per ordinal: report number, time, coordinates and the attribute values;
+ * callers read the rows of the few reports they return from the database.
+ * Values are compared case-insensitively, like MySQL's default collation.
+ * <p>
+ * The index loads itself on first use; {@link com.safepathjdbc.dao.CrimeReportDao} reports its
+ * writes so it stays in sync without reloading, and an updated report keeps its ordinal.
+ * The tables are also written by the backend's ETL and by the import scripts, so at most every
+ * {@link #RECHECK_MILLIS} a query compares a watermark of both tables (row counts, highest
+ * etl_id and offense_id) with the one of the last load, and reloads when it moved. In-place
+ * updates do not move the watermark; the index is reloaded after {@link #MAX_AGE_MILLIS} anyway.
+ * A reload is built next to the current data and swapped in, queries keep running meanwhile.
+ */
+public final class CrimeReportBitmapIndex {
+
+    public enum Attribute {
+        OFFENSE_GROUP, PRECINCT, SECTOR, BEAT, NEIGHBORHOOD
+    }
+
+    static final long RECHECK_MILLIS = 30_000;
+    static final long MAX_AGE_MILLIS = 10 * 60_000;
+
+    private static final String WATERMARK_SQL = "SELECT (SELECT COUNT(*) FROM crime_reports), "
+        + "(SELECT MAX(etl_id) FROM crime_reports), (SELECT COUNT(*) FROM report_offenses), "
+        + "(SELECT MAX(offense_id) FROM report_offenses)";
+    // positions in the watermark
+    private static final int REPORT_COUNT = 0;
+
+    private static final CrimeReportBitmapIndex INSTANCE = new CrimeReportBitmapIndex();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private State state;
+    // watermark the data corresponds to, including the DAO writes applied since the load
+    private long[] watermark;
+    private long loadedAt;
+    private volatile long nextCheck;
+    private volatile boolean loaded;
+
+    private CrimeReportBitmapIndex() {
+    }
+
+    public static CrimeReportBitmapIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * The current reports and bitmaps. A reload swaps in a new state, so a query takes the state
+     * once and runs all its steps on it: ordinals of one state mean nothing in another.
+     */
+    public State state() throws SQLException {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return state;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void onCreated(CrimeReport r) {
+        put(r, true);
+    }
+
+    public void onUpdated(CrimeReport r) {
+        put(r, false);
+    }
+
+    public void onDeleted(String reportNumber) {
+        if (!loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = state.ordinals.get(reportNumber);
+            if (ordinal != null && state.live.contains(ordinal)) {
+                // the ordinal stays reserved for the report number
+                state.removeValues(ordinal);
+                state.live.remove(ordinal);
+            }
+            watermark[REPORT_COUNT]--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops everything; the next query reloads from the database.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Makes the next query compare the watermark, for tests.
+     */
+    void recheckNow() {
+        nextCheck = 0;
+    }
+
+    /**
+     * Applies a report written through the DAO. A known report number keeps its ordinal, its old
+     * values are cleared from the bitmaps first.
+     */
+    private void put(CrimeReport r, boolean inserted) {
+        if (!loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = state.ordinals.get(r.getReportNumber());
+            if (ordinal == null) {
+                state.append(r, null);
+            } else {
+                // offenses are not written through the DAO, an updated report keeps the groups it had
+                String[] groups = state.groups[ordinal];
+                state.removeValues(ordinal);
+                state.set(ordinal, r, groups == null ? null : Arrays.asList(groups));
+            }
+            if (inserted) {
+                watermark[REPORT_COUNT]++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() throws SQLException {
+        if (loaded) {
+            if (System.currentTimeMillis() >= nextCheck) {
+                refreshIfStale();
+            }
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                long[] mark = readWatermark();
+                swap(load(), mark);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reloads if the tables were written by someone else. Only one caller checks at a time, the
+     * others go on with the current data.
+     */
+    private void refreshIfStale() throws SQLException {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            if (now < nextCheck) {
+                return;
+            }
+            long[] mark = readWatermark();
+            boolean stale;
+            lock.readLock().lock();
+            try {
+                stale = !Arrays.equals(mark, watermark) || now - loadedAt >= MAX_AGE_MILLIS;
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (stale) {
+                // DAO writes during the load move the watermark past this one and load again
+                State fresh = load();
+                lock.writeLock().lock();
+                try {
+                    swap(fresh, mark);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } else {
+                nextCheck = now + RECHECK_MILLIS;
+            }
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    private void swap(State fresh, long[] mark) {
+        state = fresh;
+        watermark = mark;
+        loadedAt = System.currentTimeMillis();
+        nextCheck = loadedAt + RECHECK_MILLIS;
+        loaded = true;
+    }
+
+    private static long[] readWatermark() throws SQLException {
+        try (Connection c = ConnectionManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(WATERMARK_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return new long[] {rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)};
+        }
+    }
+
+    private State load() throws SQLException {
+        long started = System.currentTimeMillis();
+        State s = new State();
+
+        Map<String, Set<String>> groups = new HashMap<>();
+        String offenseSql = "SELECT ro.report_number, ot.offense_parent_group FROM report_offenses ro "
+            + "JOIN offense_types ot ON ro.offense_code = ot.offense_code "
+            + "WHERE ot.offense_parent_group IS NOT NULL";
+        String reportSql = "SELECT report_number, report_datetime, precinct, sector, beat, mcpp_neighborhood, "
+            + "blurred_latitude, blurred_longitude FROM crime_reports";
+        try (Connection c = ConnectionManager.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement(offenseSql); ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    groups.computeIfAbsent(rs.getString(1), k -> new LinkedHashSet<>()).add(rs.getString(2));
+                }
+            }
+            try (PreparedStatement ps = c.prepareStatement(reportSql); ResultSet rs = ps.executeQuery()) {
+                CrimeReport r = new CrimeReport();
+                while (rs.next()) {
+                    r.setReportNumber(rs.getString("report_number"));
+                    Timestamp ts = rs.getTimestamp("report_datetime");
+                    r.setReportDatetime(ts == null ? null : ts.toLocalDateTime());
+                    r.setPrecinct(rs.getString("precinct"));
+                    r.setSector(rs.getString("sector"));
+                    r.setBeat(rs.getString("beat"));
+                    r.setMcppNeighborhood(rs.getString("mcpp_neighborhood"));
+                    double lat = rs.getDouble("blurred_latitude"); r.setBlurredLatitude(rs.wasNull() ? null : lat);
+                    double lon = rs.getDouble("blurred_longitude"); r.setBlurredLongitude(rs.wasNull() ? null : lon);
+                    s.append(r, groups.get(r.getReportNumber()));
+                }
+            }
+        }
+        System.out.println("CrimeReportBitmapIndex: loaded " + s.reportNumbers.size() + " reports in "
+            + (System.currentTimeMillis() - started) + " ms");
+        return s;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Receives the report number, time and coordinates of a selected report; see
+     * {@link State#newest}.
+     */
+    @FunctionalInterface
+    public interface RowFilter {
+        /**
+         * @param epochSecond report time as UTC epoch seconds of the local datetime, {@link #NO_TIME} without one
+         * @param lat latitude, NaN without one
+         * @param lon longitude, NaN without one
+         */
+        boolean test(String reportNumber, long epochSecond, double lat, double lon);
+    }
+
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    // attributes with one value per report, the offense groups are kept apart
+    private static final Attribute[] SINGLE_VALUED = {
+        Attribute.PRECINCT, Attribute.SECTOR, Attribute.BEAT, Attribute.NEIGHBORHOOD
+    };
+
+    /**
+     * One load of the reports and their bitmaps, kept up to date with the DAO writes until the next
+     * reload replaces it. Per ordinal only the columns the filters read are kept, in arrays; the
+     * ordinal of a deleted report leaves the live bitmap.
+     */
+    public final class State {
+        final List<String> reportNumbers = new ArrayList<>();
+        final Map<String, Integer> ordinals = new HashMap<>();
+        final Map<Attribute, Map<String, CompressedBitmap>> bitmaps = new EnumMap<>(Attribute.class);
+        final CompressedBitmap live = new CompressedBitmap();
+        // normalized values share one instance, the same ones that key the bitmaps
+        private final Map<String, String> dictionary = new HashMap<>();
+        long[] times = new long[0];
+        double[] lats = new double[0];
+        double[] lons = new double[0];
+        // normalized values of SINGLE_VALUED by ordinal
+        String[][] values = new String[0][];
+        String[][] groups = new String[0][];
+
+        State() {
+            for (Attribute a : Attribute.values()) {
+                bitmaps.put(a, new HashMap<>());
+            }
+        }
+
+        /**
+         * Reports that have any of the given values, exact match.
+         */
+        public CompressedBitmap matchingAny(Attribute attribute, Collection<String> values) {
+            lock.readLock().lock();
+            try {
+                Map<String, CompressedBitmap> byValue = bitmaps.get(attribute);
+                List<CompressedBitmap> parts = new ArrayList<>();
+                for (String value : values) {
+                    CompressedBitmap b = byValue.get(normalize(value));
+                    if (b != null) {
+                        parts.add(b);
+                    }
+                }
+                return CompressedBitmap.and(CompressedBitmap.or(parts), live);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Reports whose value contains the text, the equivalent of {@code LIKE '%text%'}.
+         * The attribute dictionaries are small, so this ORs the bitmaps of the matching values.
+         */
+        public CompressedBitmap containing(Attribute attribute, String text) {
+            String needle = normalize(text);
+            lock.readLock().lock();
+            try {
+                List<CompressedBitmap> parts = new ArrayList<>();
+                for (Map.Entry<String, CompressedBitmap> e : bitmaps.get(attribute).entrySet()) {
+                    if (e.getKey().contains(needle)) {
+                        parts.add(e.getValue());
+                    }
+                }
+                return CompressedBitmap.and(CompressedBitmap.or(parts), live);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Every report currently in the table.
+         */
+        public CompressedBitmap all() {
+            lock.readLock().lock();
+            try {
+                return live.copy();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Report numbers of the newest {@code limit} reports of the bitmap that pass the filter,
+         * newest first; reports without a time come last. Only the kept ones are held on to: a
+         * heap of the limit's size, oldest on top.
+         */
+        public List<String> newest(CompressedBitmap selection, RowFilter filter, int limit) {
+            lock.readLock().lock();
+            try {
+                int[] heap = new int[Math.min(limit, selection.cardinality())];
+                int[] size = {0};
+                selection.forEach(ordinal -> {
+                    if (!filter.test(reportNumbers.get(ordinal), times[ordinal], lats[ordinal], lons[ordinal])) {
+                        return;
+                    }
+                    if (size[0] < heap.length) {
+                        heap[size[0]] = ordinal;
+                        siftUp(heap, size[0]++);
+                    } else if (heap.length > 0 && newer(ordinal, heap[0])) {
+                        heap[0] = ordinal;
+                        siftDown(heap, size[0]);
+                    }
+                });
+                // popping the oldest first fills the list from the back
+                String[] out = new String[size[0]];
+                for (int n = size[0]; n > 0; n--) {
+                    out[n - 1] = reportNumbers.get(heap[0]);
+                    heap[0] = heap[n - 1];
+                    siftDown(heap, n - 1);
+                }
+                return Arrays.asList(out);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Newer report first; equal times keep the load order.
+         */
+        private boolean newer(int a, int b) {
+            return times[a] != times[b] ? times[a] > times[b] : a < b;
+        }
+
+        private void siftUp(int[] heap, int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!newer(heap[parent], heap[i])) {
+                    return;
+                }
+                swap(heap, parent, i);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int[] heap, int size) {
+            int i = 0;
+            while (true) {
+                int oldest = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                    if (newer(heap[oldest], heap[child])) {
+                        oldest = child;
+                    }
+                }
+                if (oldest == i) {
+                    return;
+                }
+                swap(heap, i, oldest);
+                i = oldest;
+            }
+        }
+
+        private void swap(int[] heap, int i, int j) {
+            int t = heap[i];
+            heap[i] = heap[j];
+            heap[j] = t;
+        }
+
+        void append(CrimeReport r, Collection<String> offenseGroups) {
+            int ordinal = reportNumbers.size();
+            reportNumbers.add(r.getReportNumber());
+            ordinals.put(r.getReportNumber(), ordinal);
+            if (ordinal >= times.length) {
+                int n = Math.max(16, times.length * 2);
+                times = Arrays.copyOf(times, n);
+                lats = Arrays.copyOf(lats, n);
+                lons = Arrays.copyOf(lons, n);
+                values = Arrays.copyOf(values, n);
+                groups = Arrays.copyOf(groups, n);
+            }
+            set(ordinal, r, offenseGroups);
+        }
+
+        void set(int ordinal, CrimeReport r, Collection<String> offenseGroups) {
+            times[ordinal] = r.getReportDatetime() == null ? NO_TIME : r.getReportDatetime().toEpochSecond(ZoneOffset.UTC);
+            lats[ordinal] = r.getBlurredLatitude() == null ? Double.NaN : r.getBlurredLatitude();
+            lons[ordinal] = r.getBlurredLongitude() == null ? Double.NaN : r.getBlurredLongitude();
+            String[] v = {
+                addValue(Attribute.PRECINCT, r.getPrecinct(), ordinal),
+                addValue(Attribute.SECTOR, r.getSector(), ordinal),
+                addValue(Attribute.BEAT, r.getBeat(), ordinal),
+                addValue(Attribute.NEIGHBORHOOD, r.getMcppNeighborhood(), ordinal)
+            };
+            values[ordinal] = v;
+            List<String> g = new ArrayList<>();
+            if (offenseGroups != null) {
+                for (String group : offenseGroups) {
+                    String key = addValue(Attribute.OFFENSE_GROUP, group, ordinal);
+                    if (key != null) {
+                        g.add(key);
+                    }
+                }
+            }
+            groups[ordinal] = g.isEmpty() ? null : g.toArray(new String[0]);
+            live.add(ordinal);
+        }
+
+        /**
+         * Clears the ordinal from the bitmaps of the values its report has now.
+         */
+        void removeValues(int ordinal) {
+            String[] v = values[ordinal];
+            if (v != null) {
+                for (int i = 0; i < SINGLE_VALUED.length; i++) {
+                    removeValue(SINGLE_VALUED[i], v[i], ordinal);
+                }
+            }
+            if (groups[ordinal] != null) {
+                for (String group : groups[ordinal]) {
+                    removeValue(Attribute.OFFENSE_GROUP, group, ordinal);
+                }
+            }
+            values[ordinal] = null;
+        }
+
+        /**
+         * @return the normalized value, null for none
+         */
+        private String addValue(Attribute attribute, String value, int ordinal) {
+            if (value == null || value.trim().isEmpty()) {
+                return null;
+            }
+            String key = dictionary.computeIfAbsent(normalize(value), k -> k);
+            bitmaps.get(attribute).computeIfAbsent(key, k -> new CompressedBitmap()).add(ordinal);
+            return key;
+        }
+
+        private void removeValue(Attribute attribute, String key, int ordinal) {
+            if (key == null) {
+                return;
+            }
+            Map<String, CompressedBitmap> byValue = bitmaps.get(attribute);
+            CompressedBitmap b = byValue.get(key);
+            if (b != null) {
+                b.remove(ordinal);
+                if (b.isEmpty()) {
+                    byValue.remove(key);
+                }
+            }
+        }
+    }
+}
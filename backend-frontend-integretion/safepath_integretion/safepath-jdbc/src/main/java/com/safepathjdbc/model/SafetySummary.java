@@ -0,0 +1,69 @@
+package com.safepathjdbc.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What the safety page shows for an area and time window: the reports, their count, the top
+ * neighbourhoods and the recommendation text. Immutable.
+ */
+public class SafetySummary {
+    private static final int TOP_NEIGHBORHOODS = 5;
+
+    private final List<CrimeReport> reports;
+    private final List<Map.Entry<String, Long>> topNeighborhoods;
+    private final String recommendation;
+
+    private SafetySummary(List<CrimeReport> reports, List<Map.Entry<String, Long>> topNeighborhoods,
+                          String recommendation) {
+        this.reports = reports;
+        this.topNeighborhoods = topNeighborhoods;
+        this.recommendation = recommendation;
+    }
+
+    public static SafetySummary of(List<CrimeReport> reports) {
+        Map<String, Long> byNeighborhood = new HashMap<>();
+        for (CrimeReport r : reports) {
+            if (r.getMcppNeighborhood() != null && !r.getMcppNeighborhood().isBlank()) {
+                byNeighborhood.merge(r.getMcppNeighborhood(), 1L, Long::sum);
+            }
+        }
+        List<Map.Entry<String, Long>> top = byNeighborhood.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .limit(TOP_NEIGHBORHOODS)
+            .map(e -> Map.entry(e.getKey(), e.getValue()))
+            .toList();
+        return new SafetySummary(Collections.unmodifiableList(new ArrayList<>(reports)), top,
+            buildRecommendation(reports, top));
+    }
+
+    public List<CrimeReport> getReports() { return reports; }
+
+    public int getTotalCount() { return reports.size(); }
+
+    public List<Map.Entry<String, Long>> getTopNeighborhoods() { return topNeighborhoods; }
+
+    public String getRecommendation() { return recommendation; }
+
+    private static String buildRecommendation(List<CrimeReport> reports, List<Map.Entry<String, Long>> topNeighborhoods) {
+        if (reports == null || reports.isEmpty()) {
+            return "No recent incidents in the selected area and time window. This area appears low risk.";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("Found ").append(reports.size()).append(" incidents nearby. ");
+        if (!topNeighborhoods.isEmpty()) {
+            sb.append("Higher activity in: ");
+            for (int i = 0; i < topNeighborhoods.size(); i++) {
+                Map.Entry<String, Long> e = topNeighborhoods.get(i);
+                if (i > 0) sb.append(", ");
+                sb.append(e.getKey()).append(" (").append(e.getValue()).append(")");
+            }
+            sb.append(". ");
+        }
+        sb.append("Recommendation: avoid peak areas above, prefer routes along better-lit main roads, and consider widening distance from hotspots by 1-2 blocks.");
+        return sb.toString();
+    }
+}
@@ -16,6 +16,7 @@ import java.util.Map;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 import com.safepathjdbc.dao.CrimeReportDao;
 import com.safepathjdbc.model.CrimeReport;
 import com.safepathjdbc.util.ConnectionManager;
@@ -29,6 +30,12 @@ import jakarta.servlet.http.HttpServletResponse;
 
 @WebServlet(urlPatterns = {"/crimeReports", "/crime-report"})
 public class CrimeReportServlet extends HttpServlet {
+    // rows of action=range unless the request asks for fewer or more (up to the max)
+    private static final int RANGE_DEFAULT_LIMIT = 5000;
+    private static final int RANGE_MAX_LIMIT = 20000;
+    // newest matches shown by the search form
+    private static final int SEARCH_LIMIT = 1000;
+
     private final CrimeReportDao dao = new CrimeReportDao();
     private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
 
@@ -62,51 +69,55 @@ public class CrimeReportServlet extends HttpServlet {
                 LocalDateTime startTime = parseDateTime(req.getParameter("start_date"));
                 LocalDateTime endTime = parseDateTime(req.getParameter("end_date"));
 
-                List<CrimeReport> all = dao.findAll();
-                List<Map<String, Object>> results = new ArrayList<>();
-
-                for (CrimeReport r : all) {
-                    boolean ok = true;
-
-                    // 时间过滤
-                    if (startTime != null && r.getReportDatetime() != null &&
-                            r.getReportDatetime().isBefore(startTime)) ok = false;
-                    if (endTime != null && r.getReportDatetime() != null &&
-                            r.getReportDatetime().isAfter(endTime)) ok = false;
-
-                    // 经纬度过滤
-                    if (minLat != null && r.getBlurredLatitude() != null &&
-                            r.getBlurredLatitude() < minLat) ok = false;
-                    if (maxLat != null && r.getBlurredLatitude() != null &&
-                            r.getBlurredLatitude() > maxLat) ok = false;
-                    if (minLon != null && r.getBlurredLongitude() != null &&
-                            r.getBlurredLongitude() < minLon) ok = false;
-                    if (maxLon != null && r.getBlurredLongitude() != null &&
-                            r.getBlurredLongitude() > maxLon) ok = false;
-
-                    if (ok) {
-                        Map<String, Object> obj = new HashMap<>();
-                        obj.put("reportNumber", r.getReportNumber());
-                        obj.put("crimeType", r.getOffenseType() != null ? r.getOffenseType() : "Unknown");
-                        obj.put("description",
-                                r.getBlurredAddress() != null ? r.getBlurredAddress() :
-                                        (r.getMcppNeighborhood() != null ? r.getMcppNeighborhood() : "No description"));
-                        obj.put("latitude", r.getBlurredLatitude());
-                        obj.put("longitude", r.getBlurredLongitude());
-                        obj.put("precinct", r.getPrecinct());
-                        obj.put("sector", r.getSector());
-                        obj.put("beat", r.getBeat());
-                        obj.put("neighborhood", r.getMcppNeighborhood());
-                        obj.put("reportDatetime",
-                                r.getReportDatetime() != null ? r.getReportDatetime().toString() : null);
-
-                        results.add(obj);
-                    }
+                int limit;
+                try {
+                    String limitParam = req.getParameter("limit");
+                    limit = limitParam == null || limitParam.isEmpty() ? RANGE_DEFAULT_LIMIT : Integer.parseInt(limitParam);
+                } catch (NumberFormatException e) {
+                    limit = -1;
+                }
+                if (limit < 1 || limit > RANGE_MAX_LIMIT) {
+                    resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "limit must be between 1 and " + RANGE_MAX_LIMIT);
+                    return;
                 }
 
+                // Only the newest rows in view are read, and each is written as soon as it is read.
+                // One row more than the limit is read to tell whether the view holds more; as the rows
+                // are already out by then, that is reported in the "truncated" field after them.
+                // Once the first rows have gone out the status is 200; a database error after that
+                // aborts the response, and the client sees an unterminated object, not a short valid one.
                 resp.setContentType("application/json");
                 resp.setCharacterEncoding("UTF-8");
-                resp.getWriter().print(gson.toJson(results));
+                JsonWriter out = new JsonWriter(resp.getWriter());
+                out.setIndent("  ");
+                out.setSerializeNulls(false);
+                out.beginObject();
+                out.name("crimes").beginArray();
+                int maxRows = limit;
+                int[] written = {0};
+                int read = dao.forEachInRange(minLat, maxLat, minLon, maxLon, startTime, endTime, limit + 1, r -> {
+                    if (written[0] == maxRows) {
+                        return;
+                    }
+                    written[0]++;
+                    out.beginObject();
+                    out.name("reportNumber").value(r.getReportNumber());
+                    out.name("crimeType").value(r.getOffenseType() != null ? r.getOffenseType() : "Unknown");
+                    out.name("description").value(r.getBlurredAddress() != null ? r.getBlurredAddress() :
+                            (r.getMcppNeighborhood() != null ? r.getMcppNeighborhood() : "No description"));
+                    out.name("latitude").value(r.getBlurredLatitude());
+                    out.name("longitude").value(r.getBlurredLongitude());
+                    out.name("precinct").value(r.getPrecinct());
+                    out.name("sector").value(r.getSector());
+                    out.name("beat").value(r.getBeat());
+                    out.name("neighborhood").value(r.getMcppNeighborhood());
+                    out.name("reportDatetime").value(r.getReportDatetime() != null ? r.getReportDatetime().toString() : null);
+                    out.endObject();
+                });
+                out.endArray();
+                out.name("truncated").value(read > limit);
+                out.endObject();
+                out.flush();
                 return;
             }
 
@@ -169,7 +180,11 @@ public class CrimeReportServlet extends HttpServlet {
                 List<CrimeReport> list = dao.search(
                     searchReportNumber != null ? searchReportNumber.trim() : null,
                     searchPrecinct != null ? searchPrecinct.trim() : null,
-                    searchNeighborhood != null ? searchNeighborhood.trim() : null
+                    null,
+                    null,
+                    searchNeighborhood != null ? searchNeighborhood.trim() : null,
+                    null,
+                    SEARCH_LIMIT
                 );
                 req.setAttribute("reports", list);
                 req.setAttribute("searchReportNumber", searchReportNumber != null ? searchReportNumber.trim() : "");
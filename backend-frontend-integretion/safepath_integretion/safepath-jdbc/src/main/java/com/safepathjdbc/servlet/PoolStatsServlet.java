@@ -0,0 +1,28 @@
+package com.safepathjdbc.servlet;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.safepathjdbc.util.ConnectionManager;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Connection pool counters as JSON: active, idle, total and waiting connections, checkouts,
+ * timeouts and wait times.
+ */
+@WebServlet(urlPatterns = "/pool-stats")
+public class PoolStatsServlet extends HttpServlet {
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        resp.getWriter().print(gson.toJson(ConnectionManager.getPoolStats()));
+    }
+}
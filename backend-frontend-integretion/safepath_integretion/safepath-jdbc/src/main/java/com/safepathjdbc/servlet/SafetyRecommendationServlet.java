@@ -1,8 +1,8 @@
 package com.safepathjdbc.servlet;
 
+import com.safepathjdbc.cache.AlertSummaryCache;
 import com.safepathjdbc.dao.CrimeReportDao;
-import com.safepathjdbc.dao.UserAlertDao;
-import com.safepathjdbc.model.CrimeReport;
+import com.safepathjdbc.model.SafetySummary;
 import com.safepathjdbc.model.UserAlert;
 
 import jakarta.servlet.ServletException;
@@ -13,14 +13,11 @@ import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
 import java.sql.SQLException;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @WebServlet(urlPatterns = "/safety")
 public class SafetyRecommendationServlet extends HttpServlet {
     private final CrimeReportDao crimeDao = new CrimeReportDao();
-    private final UserAlertDao alertDao = new UserAlertDao();
+    private final AlertSummaryCache summaryCache = AlertSummaryCache.getInstance();
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
@@ -30,14 +27,16 @@ public class SafetyRecommendationServlet extends HttpServlet {
             String lonParam = req.getParameter("centerLon");
             String radiusParam = req.getParameter("radiusM");
             String daysParam = req.getParameter("days");
+            boolean areaGiven = latParam != null || lonParam != null || radiusParam != null;
 
             // Prefill from user's first alert if only userId is provided
+            UserAlert alert = null;
             if ((latParam == null || lonParam == null || radiusParam == null) && userIdParam != null && !userIdParam.isEmpty()) {
                 try {
                     int uid = Integer.parseInt(userIdParam);
-                    List<UserAlert> alerts = alertDao.findByUserId(uid);
-                    if (!alerts.isEmpty()) {
-                        UserAlert a = alerts.get(0);
+                    UserAlert a = summaryCache.firstAlert(uid);
+                    if (a != null) {
+                        alert = a;
                         if (latParam == null && a.getCenterLat() != null) latParam = a.getCenterLat().toString();
                         if (lonParam == null && a.getCenterLon() != null) lonParam = a.getCenterLon().toString();
                         if (radiusParam == null && a.getRadiusM() != null) radiusParam = a.getRadiusM().toString();
@@ -49,9 +48,17 @@ public class SafetyRecommendationServlet extends HttpServlet {
             Double lon = parseDouble(lonParam);
             Integer radius = parseInt(radiusParam);
             Integer days = parseInt(daysParam);
+            int window = days == null ? 30 : days;
 
-            List<CrimeReport> reports = crimeDao.searchByGeoAndTime(lat, lon, radius, days == null ? 30 : days);
-            req.setAttribute("reports", reports);
+            // The area is exactly the alert's circle: served from the per-alert cache
+            SafetySummary summary;
+            if (alert != null && !areaGiven && alert.getCenterLat() != null && alert.getCenterLon() != null
+                    && alert.getRadiusM() != null && AlertSummaryCache.isStandardWindow(window)) {
+                summary = summaryCache.summary(alert, window);
+            } else {
+                summary = SafetySummary.of(crimeDao.searchByGeoAndTime(lat, lon, radius, window));
+            }
+            req.setAttribute("reports", summary.getReports());
             req.setAttribute("centerLat", latParam);
             req.setAttribute("centerLon", lonParam);
             req.setAttribute("radiusM", radiusParam);
@@ -59,18 +66,9 @@ public class SafetyRecommendationServlet extends HttpServlet {
             req.setAttribute("userId", userIdParam);
 
             // Simple insights
-            Map<String, Long> byNeighborhood = reports.stream()
-                .filter(r -> r.getMcppNeighborhood() != null && !r.getMcppNeighborhood().isBlank())
-                .collect(Collectors.groupingBy(CrimeReport::getMcppNeighborhood, Collectors.counting()));
-            List<Map.Entry<String, Long>> topNeighborhoods = byNeighborhood.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(5).collect(Collectors.toList());
-            req.setAttribute("topNeighborhoods", topNeighborhoods);
-            req.setAttribute("totalCount", reports.size());
-
-            // Recommendation text (very simple heuristic)
-            String recommendation = buildRecommendation(reports, topNeighborhoods);
-            req.setAttribute("recommendation", recommendation);
+            req.setAttribute("topNeighborhoods", summary.getTopNeighborhoods());
+            req.setAttribute("totalCount", summary.getTotalCount());
+            req.setAttribute("recommendation", summary.getRecommendation());
 
             req.getRequestDispatcher("/WEB-INF/jsp/safety.jsp").forward(req, resp);
         } catch (SQLException e) {
@@ -84,25 +82,4 @@ public class SafetyRecommendationServlet extends HttpServlet {
     private static Integer parseInt(String s) {
         try { return s == null || s.isBlank() ? null : Integer.valueOf(s.trim()); } catch (Exception e) { return null; }
     }
-
-    private static String buildRecommendation(List<CrimeReport> reports, List<Map.Entry<String, Long>> topNeighborhoods) {
-        if (reports == null || reports.isEmpty()) {
-            return "No recent incidents in the selected area and time window. This area appears low risk.";
-        }
-        StringBuilder sb = new StringBuilder();
-        sb.append("Found ").append(reports.size()).append(" incidents nearby. ");
-        if (!topNeighborhoods.isEmpty()) {
-            sb.append("Higher activity in: ");
-            for (int i = 0; i < topNeighborhoods.size(); i++) {
-                Map.Entry<String, Long> e = topNeighborhoods.get(i);
-                if (i > 0) sb.append(", ");
-                sb.append(e.getKey()).append(" (").append(e.getValue()).append(")");
-            }
-            sb.append(". ");
-        }
-        sb.append("Recommendation: avoid peak areas above, prefer routes along better-lit main roads, and consider widening distance from hotspots by 1-2 blocks.");
-        return sb.toString();
-    }
 }
-
-
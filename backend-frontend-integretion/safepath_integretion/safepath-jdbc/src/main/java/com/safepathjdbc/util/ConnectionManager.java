@@ -4,14 +4,37 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * Pooled connections for the DAOs.
+ * The pool is bounded (jdbc.pool.max-size), closes connections idle for longer than
+ * jdbc.pool.idle-timeout-ms down to jdbc.pool.min-idle, validates connections before handing them
+ * out and pings idle ones every jdbc.pool.keepalive-ms, and reports connections held for longer than
+ * jdbc.pool.leak-detection-ms with the stack trace of the caller that borrowed them (logged through
+ * SLF4J, which logback writes to the console). The pool is also registered as a JMX bean; {@link #getPoolStats()} adds how long callers waited for a connection.
+ */
 public class ConnectionManager {
     private static String url;
     private static String username;
     private static String password;
+    private static final HikariDataSource dataSource;
+
+    private static final LongAdder checkouts = new LongAdder();
+    private static final LongAdder waitNanos = new LongAdder();
+    private static final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private static final AtomicLong timeouts = new AtomicLong();
 
     static {
         Properties props = new Properties();
@@ -50,6 +73,10 @@ public class ConnectionManager {
                 if (props.getProperty("jdbc.password") == null) {
                     props.setProperty("jdbc.password", appProps.getProperty("jdbc.password", ""));
                 }
+                // pool settings
+                for (String key : appProps.stringPropertyNames()) {
+                    props.putIfAbsent(key, appProps.getProperty(key));
+                }
             }
         } catch (Exception e) {
             System.out.println("Could not load application.properties from classpath: " + e.getMessage());
@@ -80,21 +107,121 @@ public class ConnectionManager {
         System.out.println("URL: " + url);
         System.out.println("Username: " + username);
 
-        // Load MySQL driver
+        // Load the JDBC driver, MySQL unless jdbc.driver names another one
+        String driver = props.getProperty("jdbc.driver", "com.mysql.cj.jdbc.Driver");
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            System.out.println("MySQL Driver loaded successfully");
+            Class.forName(driver);
+            System.out.println("JDBC Driver loaded successfully: " + driver);
         } catch (ClassNotFoundException e) {
-            throw new RuntimeException("MySQL Driver not found", e);
+            throw new RuntimeException("JDBC Driver not found: " + driver, e);
         }
 
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("safepath-jdbc");
+        config.setDriverClassName(driver);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(intProperty(props, "jdbc.pool.max-size", 10));
+        config.setMinimumIdle(intProperty(props, "jdbc.pool.min-idle", 2));
+        config.setIdleTimeout(longProperty(props, "jdbc.pool.idle-timeout-ms", 300_000));
+        config.setMaxLifetime(longProperty(props, "jdbc.pool.max-lifetime-ms", 1_800_000));
+        config.setKeepaliveTime(longProperty(props, "jdbc.pool.keepalive-ms", 120_000));
+        config.setConnectionTimeout(longProperty(props, "jdbc.pool.connection-timeout-ms", 10_000));
+        config.setValidationTimeout(longProperty(props, "jdbc.pool.validation-timeout-ms", 3_000));
+        config.setLeakDetectionThreshold(longProperty(props, "jdbc.pool.leak-detection-ms", 120_000));
+        // start even if the database is not up yet, like the DriverManager version did
+        config.setInitializationFailTimeout(-1);
+        config.setRegisterMbeans(true);
+        // the DAOs prepare the same few statements over and over
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        dataSource = new HikariDataSource(config);
+
+        System.out.println("Connection pool: max " + config.getMaximumPoolSize() + ", min idle " + config.getMinimumIdle());
         System.out.println("========================================");
     }
 
+    public static DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Borrows a connection from the pool; closing it returns it.
+     */
     public static Connection getConnection() throws SQLException {
-        System.out.println("Connecting to MySQL...");
-        Connection conn = DriverManager.getConnection(url, username, password);
-        System.out.println("MySQL connection established successfully");
-        return conn;
+        long started = System.nanoTime();
+        try {
+            Connection conn = dataSource.getConnection();
+            long waited = System.nanoTime() - started;
+            checkouts.increment();
+            waitNanos.add(waited);
+            maxWaitNanos.accumulate(waited);
+            return conn;
+        } catch (SQLTransientConnectionException e) {
+            // no connection became free within the connection timeout
+            timeouts.incrementAndGet();
+            throw e;
+        }
+    }
+
+    public static PoolStats getPoolStats() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        PoolStats s = new PoolStats();
+        s.maxSize = dataSource.getMaximumPoolSize();
+        if (pool != null) {
+            s.active = pool.getActiveConnections();
+            s.idle = pool.getIdleConnections();
+            s.total = pool.getTotalConnections();
+            s.waiting = pool.getThreadsAwaitingConnection();
+        }
+        s.checkouts = checkouts.sum();
+        s.timeouts = timeouts.get();
+        s.avgWaitMillis = s.checkouts == 0 ? 0 : waitNanos.sum() / (double) s.checkouts / 1_000_000.0;
+        s.maxWaitMillis = maxWaitNanos.get() / 1_000_000.0;
+        return s;
+    }
+
+    /**
+     * Closes all pooled connections, on webapp shutdown.
+     */
+    public static void shutdown() {
+        dataSource.close();
+    }
+
+    private static int intProperty(Properties props, String key, int defaultValue) {
+        String v = props.getProperty(key);
+        return v == null || v.isBlank() ? defaultValue : Integer.parseInt(v.trim());
+    }
+
+    private static long longProperty(Properties props, String key, long defaultValue) {
+        String v = props.getProperty(key);
+        return v == null || v.isBlank() ? defaultValue : Long.parseLong(v.trim());
+    }
+
+    /**
+     * Point-in-time pool counters; wait times cover every checkout since startup.
+     */
+    public static class PoolStats {
+        private int maxSize;
+        private int active;
+        private int idle;
+        private int total;
+        private int waiting;
+        private long checkouts;
+        private long timeouts;
+        private double avgWaitMillis;
+        private double maxWaitMillis;
+
+        public int getMaxSize() { return maxSize; }
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getTotal() { return total; }
+        public int getWaiting() { return waiting; }
+        public long getCheckouts() { return checkouts; }
+        public long getTimeouts() { return timeouts; }
+        public double getAvgWaitMillis() { return avgWaitMillis; }
+        public double getMaxWaitMillis() { return maxWaitMillis; }
     }
 }
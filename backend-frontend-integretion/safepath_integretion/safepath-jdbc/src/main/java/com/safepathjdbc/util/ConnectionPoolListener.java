@@ -0,0 +1,16 @@
+package com.safepathjdbc.util;
+
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+/**
+ * Closes the connection pool when the webapp stops, so a redeploy does not leave connections open.
+ */
+@WebListener
+public class ConnectionPoolListener implements ServletContextListener {
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        ConnectionManager.shutdown();
+    }
+}
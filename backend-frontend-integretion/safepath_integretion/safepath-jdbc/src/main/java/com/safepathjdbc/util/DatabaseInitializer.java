@@ -109,7 +109,8 @@ public class DatabaseInitializer {
                 } else {
                     System.out.println("DatabaseInitializer: Database tables already exist. Skipping initialization.");
                 }
-                
+
+                ensureIndexes(conn);
                 initialized = true;
             } catch (Exception e) {
                 System.err.println("DatabaseInitializer: Error initializing database: " + e.getMessage());
@@ -120,6 +121,32 @@ public class DatabaseInitializer {
         }
     }
     
+    /**
+     * Adds indexes introduced after a database was created; the init script only runs on an empty
+     * database. A failure is logged and leaves the queries working, only slower.
+     */
+    private static void ensureIndexes(Connection conn) {
+        String check = "SELECT COUNT(*) FROM information_schema.statistics "
+            + "WHERE table_schema = DATABASE() AND table_name = 'crime_reports' AND index_name = ?";
+        String index = "idx_crime_reports_datetime_lat_lon";
+        try (java.sql.PreparedStatement ps = conn.prepareStatement(check)) {
+            ps.setString(1, index);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getInt(1) > 0) {
+                    return;
+                }
+            }
+            System.out.println("DatabaseInitializer: Creating index " + index + "...");
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE INDEX " + index
+                    + " ON crime_reports (report_datetime, blurred_latitude, blurred_longitude)");
+            }
+            System.out.println("DatabaseInitializer: Created index " + index);
+        } catch (SQLException e) {
+            System.err.println("DatabaseInitializer: Could not create index " + index + ": " + e.getMessage());
+        }
+    }
+
     private static void createUsersTableDirectly(Connection conn) throws SQLException {
         try (Statement stmt = conn.createStatement()) {
             // Create users table
@@ -142,7 +169,8 @@ public class DatabaseInitializer {
                                     "mcpp_neighborhood VARCHAR(100), " +
                                     "blurred_address VARCHAR(255), " +
                                     "blurred_latitude DOUBLE, " +
-                                    "blurred_longitude DOUBLE" +
+                                    "blurred_longitude DOUBLE, " +
+                                    "INDEX idx_crime_reports_datetime_lat_lon (report_datetime, blurred_latitude, blurred_longitude)" +
                                     ")";
             stmt.execute(crimeReportsSql);
             System.out.println("DatabaseInitializer: Created crime_reports table");
@@ -79,11 +79,17 @@ export async function loadCrimeByRange(minLat, maxLat, minLon, maxLon, days = 30
             console.error("❌ Error response:", errorText);
             return [];
         }
-        let data = await res.json();
+        const body = await res.json();
+        let data = body.crimes || [];
         console.log("✅ Received", data.length, "crimes");
         
         // Apply client-side filters if any
         data = applyClientSideFilters(data);
+        // the server only sends the newest crimes of a crowded view
+        if (body.truncated) {
+            console.warn("⚠️ Only the newest", body.crimes.length, "crimes in view were returned");
+            data.truncated = true;
+        }
         
         if (data.length === 0) {
             console.warn("⚠️ No crimes found in the specified range");
@@ -409,6 +415,14 @@ export function renderCrimeList(crimes) {
 
     container.innerHTML = "";
 
+    if (crimes.truncated) {
+        const notice = document.createElement("div");
+        notice.className = "alert-item";
+        notice.style.color = "#b45309";
+        notice.textContent = "Showing only the newest crimes in this area. Zoom in to see all of them.";
+        container.appendChild(notice);
+    }
+
     crimes.forEach(c => {
         const div = document.createElement("div");
         div.className = "alert-item";
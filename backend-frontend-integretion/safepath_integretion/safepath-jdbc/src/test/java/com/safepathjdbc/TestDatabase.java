@@ -0,0 +1,101 @@
+package com.safepathjdbc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import com.safepathjdbc.cache.AlertSummaryCache;
+import com.safepathjdbc.index.CrimeReportBitmapIndex;
+import com.safepathjdbc.util.ConnectionManager;
+
+/**
+ * The in-memory H2 database of the tests (see src/test/resources/application.properties).
+ * Writes made here bypass the DAOs, like the backend's ETL and the import scripts do.
+ */
+public final class TestDatabase {
+
+    private static boolean created;
+
+    private TestDatabase() {
+    }
+
+    /**
+     * Creates the schema on first use, empties the tables and drops the in-memory indexes.
+     */
+    public static synchronized void reset() throws SQLException, IOException {
+        try (Connection c = ConnectionManager.getConnection(); Statement st = c.createStatement()) {
+            if (!created) {
+                for (String sql : schemaStatements()) {
+                    if (!sql.isBlank()) {
+                        st.execute(sql);
+                    }
+                }
+                created = true;
+            }
+            st.execute("DELETE FROM report_offenses");
+            st.execute("DELETE FROM offense_types");
+            st.execute("DELETE FROM crime_reports");
+            st.execute("DELETE FROM user_alerts");
+            st.execute("DELETE FROM users");
+        }
+        CrimeReportBitmapIndex.getInstance().invalidate();
+        AlertSummaryCache.getInstance().invalidate();
+    }
+
+    public static void insertReport(String reportNumber, LocalDateTime when, String precinct, String neighborhood,
+                                    double lat, double lon) throws SQLException {
+        String sql = "INSERT INTO crime_reports (report_number, report_datetime, precinct, mcpp_neighborhood, "
+            + "blurred_latitude, blurred_longitude) VALUES (?, ?, ?, ?, ?, ?)";
+        try (Connection c = ConnectionManager.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, reportNumber);
+            ps.setTimestamp(2, Timestamp.valueOf(when));
+            ps.setString(3, precinct);
+            ps.setString(4, neighborhood);
+            ps.setDouble(5, lat);
+            ps.setDouble(6, lon);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Adds an offense of the given parent group to a report; the offense type is named after the group.
+     */
+    public static void insertOffense(String reportNumber, String group) throws SQLException {
+        String code = "T" + Math.abs(group.hashCode() % 1_000_000);
+        try (Connection c = ConnectionManager.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement(
+                    "MERGE INTO offense_types (offense_code, offense_name, offense_parent_group) KEY (offense_code) VALUES (?, ?, ?)")) {
+                ps.setString(1, code);
+                ps.setString(2, group);
+                ps.setString(3, group);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = c.prepareStatement(
+                    "INSERT INTO report_offenses (report_number, offense_code, offense_date) VALUES (?, ?, ?)")) {
+                ps.setString(1, reportNumber);
+                ps.setString(2, code);
+                ps.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private static String[] schemaStatements() throws IOException {
+        try (InputStream in = TestDatabase.class.getClassLoader().getResourceAsStream("init_schema_if_not_exists.sql")) {
+            String script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            StringBuilder sql = new StringBuilder();
+            for (String line : script.split("\n")) {
+                if (!line.trim().startsWith("--")) {
+                    sql.append(line).append('\n');
+                }
+            }
+            return sql.toString().split(";\\s*\n");
+        }
+    }
+}
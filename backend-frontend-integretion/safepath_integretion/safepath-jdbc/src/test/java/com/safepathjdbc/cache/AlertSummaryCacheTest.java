@@ -0,0 +1,116 @@
+package com.safepathjdbc.cache;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.safepathjdbc.TestDatabase;
+import com.safepathjdbc.dao.CrimeReportDao;
+import com.safepathjdbc.dao.UserAlertDao;
+import com.safepathjdbc.model.CrimeReport;
+import com.safepathjdbc.model.UserAlert;
+import com.safepathjdbc.util.ConnectionManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlertSummaryCacheTest {
+
+    private final AlertSummaryCache cache = AlertSummaryCache.getInstance();
+    private final CrimeReportDao reports = new CrimeReportDao();
+    private final UserAlertDao alerts = new UserAlertDao();
+    private int userId;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        TestDatabase.reset();
+        LocalDateTime now = LocalDateTime.now();
+        TestDatabase.insertReport("R-1", now.minusDays(1), "NORTH", "Fremont", 47.651, -122.350);
+        TestDatabase.insertReport("R-2", now.minusDays(20), "NORTH", "Fremont", 47.652, -122.351);
+        TestDatabase.insertReport("R-3", now.minusDays(2), "SOUTH", "Georgetown", 47.545, -122.320);
+        try (Connection c = ConnectionManager.getConnection(); PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO users (email, password_hash) VALUES ('a@example.com', 'x')", Statement.RETURN_GENERATED_KEYS)) {
+            ps.executeUpdate();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                rs.next();
+                userId = rs.getInt(1);
+            }
+        }
+        UserAlert alert = new UserAlert();
+        alert.setUserId(userId);
+        alert.setRadiusM(2_000);
+        alert.setCenterLat(47.651);
+        alert.setCenterLon(-122.350);
+        alert.setActiveFlag(true);
+        alerts.create(alert);
+    }
+
+    @Test
+    public void reportWritesThroughTheDaoUpdateTheSummaries() throws Exception {
+        UserAlert alert = cache.firstAlert(userId);
+        assertEquals(List.of("R-1"), numbers(cache.summary(alert, 7)));
+        assertEquals(List.of("R-1", "R-2"), numbers(cache.summary(alert, 30)));
+
+        CrimeReport created = new CrimeReport();
+        created.setReportNumber("R-4");
+        created.setReportDatetime(LocalDateTime.now());
+        created.setMcppNeighborhood("Fremont");
+        created.setBlurredLatitude(47.650);
+        created.setBlurredLongitude(-122.349);
+        reports.create(created);
+        assertEquals(List.of("R-4", "R-1"), numbers(cache.summary(alert, 7)));
+
+        // moved out of the circle
+        CrimeReport moved = reports.findById("R-1");
+        moved.setBlurredLatitude(47.545);
+        moved.setBlurredLongitude(-122.320);
+        assertTrue(reports.update(moved));
+        assertEquals(List.of("R-4"), numbers(cache.summary(alert, 7)));
+
+        assertTrue(reports.delete("R-2"));
+        assertEquals(List.of("R-4"), numbers(cache.summary(alert, 30)));
+    }
+
+    @Test
+    public void alertWritesThroughTheDaoDropTheCachedAlert() throws Exception {
+        UserAlert alert = cache.firstAlert(userId);
+        assertEquals(1, cache.summary(alert, 7).getTotalCount());
+
+        alert.setCenterLat(47.545);
+        alert.setCenterLon(-122.320);
+        assertTrue(alerts.update(alert));
+        UserAlert updated = cache.firstAlert(userId);
+        assertEquals(47.545, updated.getCenterLat());
+        assertEquals(List.of("R-3"), numbers(cache.summary(updated, 7)));
+
+        assertTrue(alerts.delete(alert.getAlertId().longValue()));
+        assertNull(cache.firstAlert(userId));
+    }
+
+    @Test
+    public void writesOfOtherAppsAreSeenAfterTheRecheck() throws Exception {
+        UserAlert alert = cache.firstAlert(userId);
+        assertEquals(List.of("R-1"), numbers(cache.summary(alert, 7)));
+
+        TestDatabase.insertReport("R-5", LocalDateTime.now(), "NORTH", "Fremont", 47.651, -122.351);
+        // served from the cache until the watermark is compared again
+        assertEquals(List.of("R-1"), numbers(cache.summary(alert, 7)));
+        cache.recheckNow();
+        assertEquals(List.of("R-5", "R-1"), numbers(cache.summary(alert, 7)));
+
+        try (Connection c = ConnectionManager.getConnection(); Statement st = c.createStatement()) {
+            st.executeUpdate("DELETE FROM user_alerts");
+        }
+        cache.recheckNow();
+        assertNull(cache.firstAlert(userId));
+    }
+
+    private static List<String> numbers(com.safepathjdbc.model.SafetySummary summary) {
+        return summary.getReports().stream().map(CrimeReport::getReportNumber).toList();
+    }
+}
@@ -0,0 +1,105 @@
+package com.safepathjdbc.dao;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.safepathjdbc.TestDatabase;
+import com.safepathjdbc.model.CrimeReport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CrimeReportDaoTest {
+
+    private final CrimeReportDao dao = new CrimeReportDao();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        TestDatabase.reset();
+        LocalDateTime now = LocalDateTime.now();
+        TestDatabase.insertReport("R-1", now.minusDays(1), "NORTH", "Fremont", 47.651, -122.350);
+        TestDatabase.insertReport("R-2", now.minusDays(2), "NORTH", "Wallingford", 47.661, -122.335);
+        TestDatabase.insertReport("R-3", now.minusDays(20), "SOUTH", "Georgetown", 47.545, -122.320);
+        TestDatabase.insertOffense("R-1", "LARCENY-THEFT");
+        TestDatabase.insertOffense("R-1", "ASSAULT OFFENSES");
+        TestDatabase.insertOffense("R-3", "LARCENY-THEFT");
+    }
+
+    @Test
+    public void searchNarrowsByEveryGivenAttribute() throws Exception {
+        assertEquals(List.of("R-1", "R-2"), numbers(dao.search(null, "nor", null)));
+        assertEquals(List.of("R-2"), numbers(dao.search(null, "north", "walling")));
+        assertEquals(List.of("R-1", "R-3"), numbers(dao.search(null, null, null, null, null, "larceny")));
+        assertEquals(List.of("R-3"), numbers(dao.search("r-3", null, null)));
+        assertTrue(dao.search(null, "EAST", null).isEmpty());
+        // newest first
+        assertEquals(List.of("R-1", "R-2", "R-3"), numbers(dao.search(null, null, null)));
+        // the limit keeps the newest
+        assertEquals(List.of("R-1", "R-2"), numbers(dao.search(null, null, null, null, null, null, 2)));
+    }
+
+    @Test
+    public void crimesByFilterMatchOffenseGroupRadiusAndTime() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(List.of("R-1", "R-3"), numbers(dao.getCrimesByFilter(47.6, -122.33, 0,
+            List.of("LARCENY-THEFT"), null, null, 100)));
+        // 10 km around Fremont leaves Georgetown out
+        assertEquals(List.of("R-1"), numbers(dao.getCrimesByFilter(47.651, -122.350, 10_000,
+            List.of("larceny-theft", "ROBBERY"), null, null, 100)));
+        assertEquals(List.of("R-1", "R-2"), numbers(dao.getCrimesByFilter(47.6, -122.33, 0,
+            null, now.minusDays(7), now, 100)));
+        assertEquals(1, dao.getCrimesByFilter(47.6, -122.33, 0, null, null, null, 1).size());
+        assertTrue(dao.getCrimesByFilter(47.6, -122.33, 0, List.of("ROBBERY"), null, null, 100).isEmpty());
+    }
+
+    @Test
+    public void writesThroughTheDaoAreSearchableRightAway() throws Exception {
+        assertEquals(List.of("R-1", "R-2"), numbers(dao.search(null, "north", null)));
+
+        CrimeReport created = new CrimeReport();
+        created.setReportNumber("R-4");
+        created.setReportDatetime(LocalDateTime.now());
+        created.setPrecinct("NORTH");
+        created.setMcppNeighborhood("Ballard");
+        dao.create(created);
+        assertEquals(List.of("R-4", "R-1", "R-2"), numbers(dao.search(null, "north", null)));
+
+        CrimeReport moved = dao.findById("R-1");
+        moved.setPrecinct("WEST");
+        assertTrue(dao.update(moved));
+        assertEquals(List.of("R-4", "R-2"), numbers(dao.search(null, "north", null)));
+        assertEquals(List.of("R-1"), numbers(dao.search(null, "west", null)));
+        // offenses are not written through the DAO and stay with the report
+        assertEquals(List.of("R-1"), numbers(dao.search(null, "west", null, null, null, "assault")));
+
+        assertTrue(dao.delete("R-2"));
+        assertEquals(List.of("R-4"), numbers(dao.search(null, "north", null)));
+    }
+
+    @Test
+    public void rangeRowsAreHandedOutNewestFirstUpToTheLimit() throws Exception {
+        List<String> handled = new ArrayList<>();
+        assertEquals(2, dao.forEachInRange(47.6, 47.7, -122.4, -122.3, null, null, 10,
+            r -> handled.add(r.getReportNumber())));
+        assertEquals(List.of("R-1", "R-2"), handled);
+
+        handled.clear();
+        assertEquals(2, dao.forEachInRange(null, null, null, null, null, null, 2, r -> handled.add(r.getReportNumber())));
+        assertEquals(List.of("R-1", "R-2"), handled);
+
+        handled.clear();
+        dao.forEachInRange(null, null, null, null, LocalDateTime.now().minusDays(30), LocalDateTime.now().minusDays(10),
+            10, r -> {
+                handled.add(r.getReportNumber());
+                assertEquals("LARCENY-THEFT", r.getOffenseType());
+            });
+        assertEquals(List.of("R-3"), handled);
+    }
+
+    private static List<String> numbers(List<CrimeReport> reports) {
+        return reports.stream().map(CrimeReport::getReportNumber).toList();
+    }
+}
@@ -0,0 +1,72 @@
+package com.safepathjdbc.index;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.safepathjdbc.TestDatabase;
+import com.safepathjdbc.dao.CrimeReportDao;
+import com.safepathjdbc.index.CrimeReportBitmapIndex.Attribute;
+import com.safepathjdbc.model.CrimeReport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CrimeReportBitmapIndexTest {
+
+    private final CrimeReportBitmapIndex index = CrimeReportBitmapIndex.getInstance();
+    private final CrimeReportDao dao = new CrimeReportDao();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        TestDatabase.reset();
+        TestDatabase.insertReport("B-1", LocalDateTime.now().minusDays(1), "NORTH", "Fremont", 47.651, -122.350);
+    }
+
+    @Test
+    public void rowsWrittenByOthersAreLoadedOnTheNextCheck() throws Exception {
+        assertEquals(1, index.state().all().cardinality());
+
+        TestDatabase.insertReport("B-2", LocalDateTime.now(), "SOUTH", "Georgetown", 47.545, -122.320);
+        TestDatabase.insertOffense("B-1", "ROBBERY");
+        // within the recheck interval the loaded data is served
+        assertEquals(1, index.state().all().cardinality());
+
+        index.recheckNow();
+        CrimeReportBitmapIndex.State state = index.state();
+        assertEquals(2, state.all().cardinality());
+        assertEquals(1, state.matchingAny(Attribute.OFFENSE_GROUP, List.of("robbery")).cardinality());
+        assertEquals(1, state.containing(Attribute.PRECINCT, "sou").cardinality());
+    }
+
+    @Test
+    public void daoWritesDoNotTriggerAReload() throws Exception {
+        CrimeReportBitmapIndex.State loaded = index.state();
+        CrimeReport r = new CrimeReport();
+        r.setReportNumber("B-3");
+        r.setReportDatetime(LocalDateTime.now());
+        r.setPrecinct("EAST");
+        dao.create(r);
+        dao.delete("B-3");
+
+        index.recheckNow();
+        assertSame(loaded, index.state());
+    }
+
+    @Test
+    public void updatesKeepTheOrdinalOfTheReport() throws Exception {
+        CrimeReportBitmapIndex.State state = index.state();
+        CrimeReport r = dao.findById("B-1");
+        for (String precinct : List.of("EAST", "WEST", "SOUTH")) {
+            r.setPrecinct(precinct);
+            assertTrue(dao.update(r));
+        }
+
+        assertEquals(1, state.reportNumbers.size());
+        assertEquals(1, state.all().cardinality());
+        assertEquals(1, state.containing(Attribute.PRECINCT, "south").cardinality());
+        assertTrue(state.containing(Attribute.PRECINCT, "east").isEmpty());
+        assertFalse(state.bitmaps.get(Attribute.PRECINCT).containsKey("NORTH"));
+    }
+}
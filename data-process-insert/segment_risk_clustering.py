@@ -8,6 +8,7 @@ and stores the results back into the `street_segment_risk` table.
 
 from __future__ import annotations
 
+import json
 import logging
 import os
 from dataclasses import dataclass
@@ -46,6 +47,19 @@ logging.basicConfig(
 LOGGER = logging.getLogger("segment_risk_clustering")
 
 
+def emit_progress(stage: str, percent: int, rows: int | None = None, total: int | None = None) -> None:
+    """
+    Print a machine readable progress line on stdout.
+    RiskScoreUpdateServiceImpl parses lines starting with "PROGRESS " and streams them to the admin UI.
+    """
+    payload = {"stage": stage, "percent": int(percent)}
+    if rows is not None:
+        payload["rows"] = int(rows)
+    if total is not None:
+        payload["total"] = int(total)
+    print("PROGRESS " + json.dumps(payload), flush=True)
+
+
 # ---------------------------------------------------------------------------
 # Configuration
 # ---------------------------------------------------------------------------
@@ -98,8 +112,10 @@ MODEL_VERSION = os.getenv("SEGMENT_RISK_MODEL_VERSION", "kmeans_c1_v1")
 LOOKBACK_DAYS = int(os.getenv("SEGMENT_RISK_LOOKBACK_DAYS", "90"))
 RECENT_WINDOW_DAYS = int(os.getenv("SEGMENT_RISK_RECENT_DAYS", "30"))
 N_CLUSTERS = int(os.getenv("SEGMENT_RISK_NUM_CLUSTERS", "3"))
-# Batch size for submission: avoid holding locks for a long time, reduce the impact on queries
-BATCH_SIZE = int(os.getenv("SEGMENT_RISK_BATCH_SIZE", "100"))
+# Rows per executemany call when loading the shadow table (readers never see it, so batches can be large)
+BATCH_SIZE = int(os.getenv("SEGMENT_RISK_BATCH_SIZE", "5000"))
+# Number of previous street_segment_risk versions kept after a publish
+KEEP_VERSIONS = int(os.getenv("SEGMENT_RISK_KEEP_VERSIONS", "1"))
 EARTH_RADIUS_METERS = 6_371_000
 
 
@@ -136,8 +152,19 @@ CREATE TABLE IF NOT EXISTS street_segment_risk (
 """
 
 
-UPSERT_SQL = """
-INSERT INTO street_segment_risk (
+SHADOW_TABLE = "street_segment_risk_shadow"
+BACKUP_TABLE_PREFIX = "street_segment_risk_v"
+
+
+# same definition as the live table; the foreign key keeps its auto-generated
+# name pattern so InnoDB renames it together with the table
+CREATE_SHADOW_TABLE_SQL = CREATE_TABLE_SQL.replace(
+    "CREATE TABLE IF NOT EXISTS street_segment_risk", f"CREATE TABLE {SHADOW_TABLE}"
+)
+
+
+INSERT_SHADOW_SQL = f"""
+INSERT INTO {SHADOW_TABLE} (
     unitid,
     cluster_id,
     risk_label,
@@ -150,16 +177,6 @@ INSERT INTO street_segment_risk (
     updated_at
 )
 VALUES (%s, %s, %s, %s, %s, %s, %s, %s, %s, %s)
-ON DUPLICATE KEY UPDATE
-    cluster_id = VALUES(cluster_id),
-    risk_label = VALUES(risk_label),
-    risk_score = VALUES(risk_score),
-    incident_density = VALUES(incident_density),
-    night_fraction = VALUES(night_fraction),
-    last_90d_incidents = VALUES(last_90d_incidents),
-    model_version = VALUES(model_version),
-    override_reason = VALUES(override_reason),
-    updated_at = VALUES(updated_at)
 """
 
 
@@ -184,7 +201,44 @@ def fetch_segments(conn: MySQLConnection) -> pd.DataFrame:
     return df
 
 
+def fetch_segment_counts(
+    conn: MySQLConnection, window_start: datetime, recent_cutoff: datetime
+) -> pd.DataFrame:
+    """
+    Per-segment incident counts of the reports the backend already snapped to a
+    segment (crime_reports.unitid), aggregated in SQL on the unitid index.
+    """
+    query = """
+    SELECT
+        cr.unitid,
+        COUNT(*) AS incidents_90d,
+        SUM(HOUR(ro.offense_date) IN (22, 23, 0, 1, 2, 3, 4, 5)) AS night_incidents,
+        SUM(ro.offense_date >= %s) AS recent_incidents,
+        SUM(ro.offense_date < %s) AS previous_incidents
+    FROM report_offenses ro
+    INNER JOIN crime_reports cr ON ro.report_number = cr.report_number
+    WHERE cr.unitid IS NOT NULL
+      AND ro.offense_date >= %s
+    GROUP BY cr.unitid
+    """
+    df = pd.read_sql(
+        query,
+        conn,
+        params=[recent_cutoff, recent_cutoff, window_start],
+    )
+    return df.astype({
+        "incidents_90d": float,
+        "night_incidents": float,
+        "recent_incidents": float,
+        "previous_incidents": float,
+    })
+
+
 def fetch_incidents(conn: MySQLConnection, window_start: datetime) -> pd.DataFrame:
+    """
+    Located incidents whose report has no stored segment yet (not backfilled, or
+    no segment within the backend's match radius); these are matched here.
+    """
     query = """
     SELECT
         cr.report_number,
@@ -195,6 +249,7 @@ def fetch_incidents(conn: MySQLConnection, window_start: datetime) -> pd.DataFra
     INNER JOIN crime_reports cr ON ro.report_number = cr.report_number
     WHERE cr.blurred_latitude IS NOT NULL
       AND cr.blurred_longitude IS NOT NULL
+      AND cr.unitid IS NULL
       AND ro.offense_date >= %s
     """
     df = pd.read_sql(
@@ -214,7 +269,7 @@ def fetch_incidents(conn: MySQLConnection, window_start: datetime) -> pd.DataFra
 
 
 def assign_incidents_to_segments(
-    segments: pd.DataFrame, incidents: pd.DataFrame
+    segments: pd.DataFrame, incidents: pd.DataFrame, now: datetime
 ) -> pd.DataFrame:
     if incidents.empty or segments.empty:
         return pd.DataFrame(
@@ -238,7 +293,6 @@ def assign_incidents_to_segments(
     incident_times = incidents["offense_date"]
     night_mask = incident_times.dt.hour.isin([22, 23, 0, 1, 2, 3, 4, 5])
 
-    now = datetime.utcnow()
     recent_cutoff = now - timedelta(days=RECENT_WINDOW_DAYS)
     previous_cutoff = now - timedelta(days=LOOKBACK_DAYS)
 
@@ -258,7 +312,7 @@ def assign_incidents_to_segments(
 
 
 def build_feature_frame(
-    segments: pd.DataFrame, assignments: pd.DataFrame
+    segments: pd.DataFrame, assignments: pd.DataFrame, stored_counts: pd.DataFrame
 ) -> pd.DataFrame:
     agg = assignments.groupby("unitid").agg(
         incidents_90d=("unitid", "size"),
@@ -266,6 +320,8 @@ def build_feature_frame(
         recent_incidents=("is_recent", "sum"),
         previous_incidents=("is_previous", "sum"),
     )
+    if not stored_counts.empty:
+        agg = agg.add(stored_counts.set_index("unitid"), fill_value=0.0)
     features = segments.merge(
         agg, how="left", left_on="unitid", right_index=True)
     for col in ["incidents_90d", "night_incidents", "recent_incidents", "previous_incidents"]:
@@ -355,23 +411,31 @@ def cluster_segments(features: pd.DataFrame) -> pd.DataFrame:
 # ---------------------------------------------------------------------------
 
 
-def persist_results(conn: MySQLConnection, features: pd.DataFrame, batch_size: int = 100) -> None:
+def persist_results(conn: MySQLConnection, features: pd.DataFrame, batch_size: int = BATCH_SIZE) -> None:
     """
-    Batch submission of updates, avoid holding locks for a long time, reduce the impact on queries
-    
+    Publish a new set of risk scores without touching the live table until the end.
+
+    The rows are bulk loaded into a shadow table that no reader sees, then the
+    shadow table replaces `street_segment_risk` with a single atomic RENAME TABLE,
+    so route and safety queries never wait on the batch writes. The previous
+    table is kept as a versioned backup and old backups are dropped afterwards.
+
     Args:
         conn: database connection
-        features: data to be updated
-        batch_size: number of records to process per batch (default 100, can be adjusted according to the data volume)
+        features: data to be published
+        batch_size: number of rows sent per executemany call
     """
     now = datetime.now(timezone.utc)
     total_rows = len(features)
     cursor = conn.cursor()
-    
+
     try:
+        # make sure the live table exists so the rename below always has both sides
         cursor.execute(CREATE_TABLE_SQL)
-        
-        # batch processing, submit each batch once, avoid holding locks for a long time
+        cursor.execute(f"DROP TABLE IF EXISTS {SHADOW_TABLE}")
+        cursor.execute(CREATE_SHADOW_TABLE_SQL)
+        conn.commit()
+
         for i in range(0, total_rows, batch_size):
             batch = features.iloc[i:i + batch_size]
             rows = [
@@ -389,11 +453,11 @@ def persist_results(conn: MySQLConnection, features: pd.DataFrame, batch_size: i
                 )
                 for row in batch.itertuples(index=False)
             ]
-            
-            # execute and immediately commit, release locks
-            cursor.executemany(UPSERT_SQL, rows)
-            conn.commit()
-            
+
+            cursor.executemany(INSERT_SHADOW_SQL, rows)
+            done = i + len(batch)
+            emit_progress("persist", 50 + 45 * done // max(total_rows, 1), rows=done, total=total_rows)
+
             # output progress (for display on the frontend)
             progress = int((i + len(batch)) / total_rows * 100) if total_rows > 0 else 100
             LOGGER.info(
@@ -402,7 +466,19 @@ def persist_results(conn: MySQLConnection, features: pd.DataFrame, batch_size: i
                 total_rows,
                 progress
             )
-            
+        conn.commit()
+
+        # swap both names in one statement; readers see either the old or the new table
+        emit_progress("publish", 97, rows=total_rows, total=total_rows)
+        backup_table = f"{BACKUP_TABLE_PREFIX}{now.strftime('%Y%m%d%H%M%S')}"
+        cursor.execute(
+            f"RENAME TABLE street_segment_risk TO {backup_table}, "
+            f"{SHADOW_TABLE} TO street_segment_risk"
+        )
+        LOGGER.info("Published %d risk rows, previous scores kept in %s", total_rows, backup_table)
+
+        drop_old_versions(cursor, KEEP_VERSIONS)
+
     except Exception as e:
         conn.rollback()
         LOGGER.error("Error updating data: %s", e)
@@ -411,6 +487,20 @@ def persist_results(conn: MySQLConnection, features: pd.DataFrame, batch_size: i
         cursor.close()
 
 
+def drop_old_versions(cursor, keep: int) -> None:
+    """Drop backup tables left by earlier publishes, keeping the newest `keep`."""
+    cursor.execute(
+        "SELECT table_name FROM information_schema.tables "
+        "WHERE table_schema = DATABASE() AND table_name LIKE %s",
+        (BACKUP_TABLE_PREFIX.replace("_", "\\_") + "%",),
+    )
+    # the timestamp suffix sorts chronologically
+    backups = sorted((row[0] for row in cursor.fetchall()), reverse=True)
+    for table in backups[max(keep, 0):]:
+        cursor.execute(f"DROP TABLE IF EXISTS {table}")
+        LOGGER.info("Dropped old risk version %s", table)
+
+
 # ---------------------------------------------------------------------------
 # Main entry point
 # ---------------------------------------------------------------------------
@@ -426,27 +516,37 @@ def main() -> None:
     )
 
     with get_connection(cfg) as conn:
-        window_start = datetime.now(
-            timezone.utc) - timedelta(days=LOOKBACK_DAYS)
+        # offense dates are stored as naive UTC datetimes
+        now = datetime.now(timezone.utc).replace(tzinfo=None)
+        window_start = now - timedelta(days=LOOKBACK_DAYS)
+        emit_progress("load_segments", 5)
         segments = fetch_segments(conn)
         LOGGER.info("Loaded %s street segments.", len(segments))
 
+        emit_progress("load_incidents", 15)
+        stored_counts = fetch_segment_counts(
+            conn, window_start, now - timedelta(days=RECENT_WINDOW_DAYS))
         incidents = fetch_incidents(conn, window_start)
-        LOGGER.info("Loaded %s crime incidents since %s.",
+        LOGGER.info("Loaded %s pre-assigned incidents on %s segments and %s unassigned incidents since %s.",
+                    int(stored_counts["incidents_90d"].sum()), len(stored_counts),
                     len(incidents), window_start.date())
 
-        assignments = assign_incidents_to_segments(segments, incidents)
-        LOGGER.info("Mapped incidents to %s segments.",
+        emit_progress("assign", 30, total=len(incidents))
+        assignments = assign_incidents_to_segments(segments, incidents, now)
+        LOGGER.info("Mapped unassigned incidents to %s segments.",
                     assignments["unitid"].nunique())
 
-        feature_frame = build_feature_frame(segments, assignments)
+        emit_progress("features", 40, rows=len(assignments), total=len(incidents))
+        feature_frame = build_feature_frame(segments, assignments, stored_counts)
         if feature_frame.empty:
             LOGGER.warning("No features computed; skipping clustering.")
             return
 
+        emit_progress("cluster", 45, total=len(feature_frame))
         clustered = cluster_segments(feature_frame)
         persist_results(conn, clustered, batch_size=BATCH_SIZE)
         LOGGER.info("Persisted risk scores for %s segments.", len(clustered))
+        emit_progress("done", 100, rows=len(clustered), total=len(clustered))
 
 
 if __name__ == "__main__":
@@ -18,12 +18,15 @@ SET default_storage_engine=INNODB;
 -- //////////////////////////////////////////////////////
 -- Delete from the table with the strongest foreign key dependency first
 -- //////////////////////////////////////////////////////
+DROP TABLE IF EXISTS job_leases;
 DROP TABLE IF EXISTS user_alerts;
 DROP TABLE IF EXISTS users;
+DROP TABLE IF EXISTS segment_incident_counters;
 DROP TABLE IF EXISTS street_segment_risk;
 DROP TABLE IF EXISTS street_segments;
 DROP TABLE IF EXISTS intersections;
 DROP TABLE IF EXISTS realtime_incidents;
+DROP TABLE IF EXISTS crime_staging;
 DROP TABLE IF EXISTS report_offenses;
 DROP TABLE IF EXISTS offense_types;
 DROP TABLE IF EXISTS crime_reports;
@@ -47,8 +50,14 @@ CREATE TABLE etl_runs (
     run_time DATETIME NOT NULL,
     record_count INT,
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    mode VARCHAR(20) COMMENT 'FULL or INCREMENTAL',
+    status VARCHAR(20) COMMENT 'RUNNING, SUCCEEDED or FAILED; NULL for runs of the Python scripts',
+    finished_at DATETIME,
+    watermark_datetime DATETIME COMMENT 'Latest record time of the source after this run',
+    watermark_record_id BIGINT COMMENT 'Highest record id of the source after this run',
     FOREIGN KEY (source_id) REFERENCES sources(source_id)
-        ON UPDATE CASCADE ON DELETE CASCADE
+        ON UPDATE CASCADE ON DELETE CASCADE,
+    INDEX idx_etl_runs_source_status (source_id, status, etl_id)
 );
 
 -- //////////////////////////////////////////////////////
@@ -64,9 +73,13 @@ CREATE TABLE crime_reports (
     blurred_address VARCHAR(255),
     blurred_latitude DOUBLE,
     blurred_longitude DOUBLE,
+    unitid VARCHAR(50) COMMENT 'Nearest street segment, assigned by the backend',
+    snapped_distance_m DOUBLE COMMENT 'Distance to the segment midpoint; NULL = not matched yet, -1 = none within range',
     etl_id INT,
     FOREIGN KEY (etl_id) REFERENCES etl_runs(etl_id)
-        ON UPDATE CASCADE ON DELETE SET NULL
+        ON UPDATE CASCADE ON DELETE SET NULL,
+    INDEX idx_crime_reports_datetime_number (report_datetime, report_number),
+    INDEX idx_crime_reports_unitid_datetime (unitid, report_datetime)
 );
 
 CREATE TABLE offense_types (
@@ -92,7 +105,33 @@ CREATE TABLE report_offenses (
     FOREIGN KEY (etl_id) REFERENCES etl_runs(etl_id)
         ON UPDATE CASCADE ON DELETE SET NULL,
     INDEX idx_report_number (report_number),
-    INDEX idx_offense_code (offense_code)
+    INDEX idx_offense_code (offense_code),
+    -- Natural key of an offense; remove duplicates left by older loads before adding it:
+    -- DELETE o1 FROM report_offenses o1 JOIN report_offenses o2 ON o1.report_number = o2.report_number
+    --   AND o1.offense_code = o2.offense_code AND o1.offense_date = o2.offense_date AND o1.offense_id > o2.offense_id;
+    UNIQUE KEY uk_report_offenses_natural (report_number, offense_code, offense_date)
+);
+
+-- Unindexed staging table of the Java ETL: rows are bulk loaded here (LOAD DATA LOCAL INFILE)
+-- and merged into the tables above with set-based statements at the end of each run
+CREATE TABLE crime_staging (
+    etl_id INT NOT NULL,
+    seq BIGINT NOT NULL COMMENT 'Row order in the file, the last row of a report wins',
+    report_number VARCHAR(50) NOT NULL,
+    report_datetime DATETIME,
+    offense_code VARCHAR(10) NOT NULL,
+    offense_date DATETIME,
+    offense_name VARCHAR(100),
+    offense_parent_group VARCHAR(100),
+    group_a_b CHAR(1),
+    crime_against_category VARCHAR(50),
+    precinct VARCHAR(100),
+    sector VARCHAR(10),
+    beat VARCHAR(10),
+    mcpp_neighborhood VARCHAR(100),
+    blurred_address VARCHAR(255),
+    blurred_latitude DOUBLE,
+    blurred_longitude DOUBLE
 );
 
 -- //////////////////////////////////////////////////////
@@ -108,7 +147,8 @@ CREATE TABLE realtime_incidents (
     report_location VARCHAR(255),
     source_id INT,
     FOREIGN KEY (source_id) REFERENCES sources(source_id)
-        ON UPDATE CASCADE ON DELETE SET NULL
+        ON UPDATE CASCADE ON DELETE SET NULL,
+    INDEX idx_realtime_incidents_event_datetime (event_datetime)
 );
 
 -- //////////////////////////////////////////////////////
@@ -159,6 +199,18 @@ CREATE TABLE street_segment_risk (
         ON UPDATE CASCADE ON DELETE CASCADE
 );
 
+-- running incident counts maintained by the incremental risk updater
+CREATE TABLE segment_incident_counters (
+    unitid VARCHAR(50) PRIMARY KEY,
+    incidents_90d INT NOT NULL,
+    night_incidents INT NOT NULL,
+    recent_incidents INT NOT NULL,
+    previous_incidents INT NOT NULL,
+    updated_at DATETIME NOT NULL,
+    FOREIGN KEY (unitid) REFERENCES street_segments(unitid)
+        ON UPDATE CASCADE ON DELETE CASCADE
+);
+
 -- //////////////////////////////////////////////////////
 -- App Users & Alerts
 -- //////////////////////////////////////////////////////
@@ -177,8 +229,20 @@ CREATE TABLE user_alerts (
     center_lon DOUBLE,
     crime_type_filter VARCHAR(100),
     active_flag BOOLEAN DEFAULT TRUE,
+    -- IMMEDIATE, HOURLY or DAILY
+    digest_mode VARCHAR(10) NOT NULL DEFAULT 'IMMEDIATE',
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (user_id) REFERENCES users(user_id)
         ON UPDATE CASCADE ON DELETE CASCADE
-);
\ No newline at end of file
+);
+
+-- //////////////////////////////////////////////////////
+-- Background Jobs
+-- //////////////////////////////////////////////////////
+CREATE TABLE job_leases (
+    job_name VARCHAR(100) PRIMARY KEY,
+    owner_id VARCHAR(255),
+    lease_until DATETIME,
+    last_success_at DATETIME
+);
@@ -0,0 +1,69 @@
+package com.safepath.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.safepath.event.CrimeReportsIngestedEvent;
+import com.safepath.event.RealtimeIncidentsIngestedEvent;
+import com.safepath.index.AlertGeofenceIndex;
+import com.safepath.service.AlertMatchService;
+
+/**
+ * Loads the alert geofence index after startup, reloads it when other apps changed the alerts, and
+ * matches every batch of new crime reports and realtime incidents against the active alerts
+ */
+@Component
+public class AlertMatchListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertMatchListener.class);
+
+    private final AlertGeofenceIndex index;
+    private final AlertMatchService alertMatchService;
+
+    public AlertMatchListener(AlertGeofenceIndex index, AlertMatchService alertMatchService) {
+        this.index = index;
+        this.alertMatchService = alertMatchService;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            index.reload();
+        } catch (Exception e) {
+            logger.error("Failed to load the alert geofence index", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${safepath.alerts.geofence.check-seconds:60}",
+        initialDelayString = "${safepath.alerts.geofence.check-seconds:60}",
+        timeUnit = TimeUnit.SECONDS)
+    public void reloadIfChanged() {
+        try {
+            if (index.reloadIfChanged()) {
+                logger.debug("Alert geofence index caught up with alert changes made outside this app");
+            }
+        } catch (Exception e) {
+            logger.error("Failed to check the alert geofence index", e);
+        }
+    }
+
+    @Async
+    @EventListener
+    public void onCrimeReportsIngested(CrimeReportsIngestedEvent event) {
+        alertMatchService.matchReports(event.getReports());
+    }
+
+    @Async
+    @EventListener
+    public void onRealtimeIncidentsIngested(RealtimeIncidentsIngestedEvent event) {
+        alertMatchService.matchIncidents(event.getIncidents());
+    }
+}
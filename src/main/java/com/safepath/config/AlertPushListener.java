@@ -0,0 +1,53 @@
+package com.safepath.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.safepath.event.AlertsMatchedEvent;
+import com.safepath.service.AlertDigestService;
+import com.safepath.service.AlertPushHub;
+
+/**
+ * Forwards alert matches to the push streams, or to the digest buffers for alerts in digest mode,
+ * delivers due digests, keeps idle streams alive with heartbeats and closes stalled ones
+ */
+@Component
+public class AlertPushListener {
+
+    private final AlertPushHub hub;
+    private final AlertDigestService digestService;
+
+    public AlertPushListener(AlertPushHub hub, AlertDigestService digestService) {
+        this.hub = hub;
+        this.digestService = digestService;
+    }
+
+    // only queues the events, the writes happen on the push executor
+    @EventListener
+    public void onAlertsMatched(AlertsMatchedEvent event) {
+        hub.publish(digestService.defer(event.getMatches()));
+    }
+
+    // one tick per minute of the digest wheel, catches up on missed minutes
+    @Scheduled(fixedDelay = 60, initialDelay = 60, timeUnit = TimeUnit.SECONDS)
+    public void flushDigests() {
+        digestService.flushDue(System.currentTimeMillis());
+    }
+
+    @Scheduled(fixedDelayString = "${safepath.alerts.push.heartbeat-seconds:25}",
+        initialDelayString = "${safepath.alerts.push.heartbeat-seconds:25}",
+        timeUnit = TimeUnit.SECONDS)
+    public void heartbeat() {
+        hub.heartbeat();
+    }
+
+    @Scheduled(fixedDelayString = "${safepath.alerts.push.send-timeout-seconds:10}",
+        initialDelayString = "${safepath.alerts.push.send-timeout-seconds:10}",
+        timeUnit = TimeUnit.SECONDS)
+    public void closeStalled() {
+        hub.closeStalled();
+    }
+}
@@ -0,0 +1,78 @@
+package com.safepath.config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.safepath.event.CrimeReportsChangedEvent;
+import com.safepath.event.CrimeReportsIngestedEvent;
+import com.safepath.service.CrimeStatsService;
+
+/**
+ * Loads the columnar crime snapshot after startup and rebuilds it periodically. Ingested, updated
+ * and deleted reports mark the snapshot stale; a stale snapshot is rebuilt on the next short check,
+ * an unchanged one only after the full refresh interval (it also picks up writes of other applications)
+ */
+@Component
+public class CrimeColumnStoreListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrimeColumnStoreListener.class);
+
+    private final CrimeStatsService crimeStatsService;
+    private final long refreshIntervalMillis;
+    private final AtomicBoolean stale = new AtomicBoolean();
+    private volatile long loadedAt;
+
+    public CrimeColumnStoreListener(CrimeStatsService crimeStatsService,
+                                    @Value("${safepath.crime-stats.refresh-interval-minutes:15}") long refreshIntervalMinutes) {
+        this.crimeStatsService = crimeStatsService;
+        this.refreshIntervalMillis = TimeUnit.MINUTES.toMillis(refreshIntervalMinutes);
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    @EventListener
+    public void onCrimeReportsIngested(CrimeReportsIngestedEvent event) {
+        stale.set(true);
+    }
+
+    @EventListener
+    public void onCrimeReportsChanged(CrimeReportsChangedEvent event) {
+        stale.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${safepath.crime-stats.stale-check-seconds:60}",
+        initialDelayString = "${safepath.crime-stats.stale-check-seconds:60}",
+        timeUnit = TimeUnit.SECONDS)
+    public void refresh() {
+        if (loadedAt == 0) {
+            return;
+        }
+        if (stale.get() || System.currentTimeMillis() - loadedAt >= refreshIntervalMillis) {
+            reload();
+        }
+    }
+
+    private void reload() {
+        stale.set(false);
+        try {
+            crimeStatsService.reload();
+            loadedAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            stale.set(true);
+            logger.error("Failed to load the columnar crime snapshot", e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.safepath.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.safepath.index.CrimeSpatioTemporalIndex;
+import com.safepath.service.CrimeCountService;
+
+/**
+ * Rebuilds the crime count cube periodically once the crime index is loaded; the rebuild is
+ * skipped if the index did not change and the day did not roll over
+ */
+@Component
+public class CrimeCountListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrimeCountListener.class);
+
+    private final CrimeCountService crimeCountService;
+    private final CrimeSpatioTemporalIndex index;
+
+    public CrimeCountListener(CrimeCountService crimeCountService, CrimeSpatioTemporalIndex index) {
+        this.crimeCountService = crimeCountService;
+        this.index = index;
+    }
+
+    @Scheduled(fixedDelayString = "${safepath.crime-counts.refresh-interval-seconds:60}",
+        initialDelayString = "${safepath.crime-counts.refresh-interval-seconds:60}",
+        timeUnit = TimeUnit.SECONDS)
+    public void refresh() {
+        if (!index.isLoaded()) {
+            return;
+        }
+        try {
+            crimeCountService.refreshIfStale();
+        } catch (Exception e) {
+            logger.error("Failed to build the crime count cube", e);
+        }
+    }
+}
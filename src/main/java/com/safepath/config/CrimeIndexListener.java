@@ -0,0 +1,106 @@
+package com.safepath.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.safepath.event.CrimeReportsChangedEvent;
+import com.safepath.event.CrimeReportsIngestedEvent;
+import com.safepath.index.CrimeSpatioTemporalIndex;
+import com.safepath.model.CrimeReport;
+import com.safepath.service.HeatmapTileService;
+
+/**
+ * Keeps the crime spatio-temporal index current: loads it after startup, applies new, updated and
+ * deleted reports, reloads it when other applications wrote the tables and drops weeks that left
+ * the retention window once a day. Heatmap tiles rendered from the index are invalidated once the
+ * index has the change
+ */
+@Component
+public class CrimeIndexListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrimeIndexListener.class);
+
+    private final CrimeSpatioTemporalIndex index;
+    private final HeatmapTileService heatmapTileService;
+
+    public CrimeIndexListener(CrimeSpatioTemporalIndex index, HeatmapTileService heatmapTileService) {
+        this.index = index;
+        this.heatmapTileService = heatmapTileService;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            index.reload();
+            heatmapTileService.clear();
+        } catch (Exception e) {
+            logger.error("Failed to load the crime spatio-temporal index", e);
+        }
+    }
+
+    @Async
+    @EventListener
+    public void onCrimeReportsIngested(CrimeReportsIngestedEvent event) {
+        // before the first load the reports are picked up by the load itself
+        if (index.isLoaded()) {
+            index.add(event.getReports());
+        }
+        heatmapTileService.invalidate(event.getReports());
+    }
+
+    @Async
+    @EventListener
+    public void onCrimeReportsChanged(CrimeReportsChangedEvent event) {
+        if (!index.isLoaded()) {
+            return;
+        }
+        List<CrimeSpatioTemporalIndex.Hit> previous = new ArrayList<>();
+        if (!event.getUpdated().isEmpty()) {
+            previous.addAll(index.update(event.getUpdated()));
+        }
+        if (!event.getDeletedReportNumbers().isEmpty()) {
+            previous.addAll(index.remove(event.getDeletedReportNumbers()));
+        }
+        heatmapTileService.invalidate(event.getUpdated());
+        heatmapTileService.invalidate(previous.stream().map(CrimeIndexListener::location).toList());
+    }
+
+    @Scheduled(fixedDelayString = "${safepath.crime-index.check-seconds:60}",
+        initialDelayString = "${safepath.crime-index.check-seconds:60}",
+        timeUnit = TimeUnit.SECONDS)
+    public void reloadIfChanged() {
+        try {
+            if (index.reloadIfChanged()) {
+                heatmapTileService.clear();
+            }
+        } catch (Exception e) {
+            logger.error("Failed to reload the crime spatio-temporal index", e);
+        }
+    }
+
+    @Scheduled(cron = "${safepath.crime-index.expiry-cron:0 10 0 * * *}")
+    public void expire() {
+        if (index.isLoaded()) {
+            index.expire();
+            heatmapTileService.clear();
+        }
+    }
+
+    private static CrimeReport location(CrimeSpatioTemporalIndex.Hit hit) {
+        CrimeReport report = new CrimeReport();
+        report.setReportNumber(hit.reportNumber);
+        report.setBlurredLatitude(hit.latitude);
+        report.setBlurredLongitude(hit.longitude);
+        return report;
+    }
+}
@@ -0,0 +1,69 @@
+package com.safepath.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.safepath.model.EtlRun;
+import com.safepath.service.CrimeEtlService;
+import com.safepath.service.EtlRunService;
+import com.safepath.service.RealtimeEtlService;
+
+/**
+ * Refreshes the crime and realtime sources on their sources.refresh_interval: every check starts
+ * an incremental run for each source whose last run is older than its interval. The runs
+ * themselves execute on the task executor; each holds a job lease of its source, so only one node
+ * of the cluster runs a source at a time and the others skip it.
+ */
+@Component
+public class EtlScheduleListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(EtlScheduleListener.class);
+
+    private final EtlRunService etlRunService;
+    private final CrimeEtlService crimeEtlService;
+    private final RealtimeEtlService realtimeEtlService;
+    private final boolean enabled;
+
+    public EtlScheduleListener(EtlRunService etlRunService,
+                               CrimeEtlService crimeEtlService,
+                               RealtimeEtlService realtimeEtlService,
+                               @Value("${safepath.etl.schedule.enabled:true}") boolean enabled) {
+        this.etlRunService = etlRunService;
+        this.crimeEtlService = crimeEtlService;
+        this.realtimeEtlService = realtimeEtlService;
+        this.enabled = enabled;
+    }
+
+    @Scheduled(fixedDelayString = "${safepath.etl.schedule.check-seconds:60}",
+        initialDelayString = "${safepath.etl.schedule.check-seconds:60}",
+        timeUnit = TimeUnit.SECONDS)
+    public void refreshDueSources() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (etlRunService.isDue(CrimeEtlService.SPD_SOURCE_NAME)) {
+                crimeEtlService.startSpdCrimeIngest(EtlRun.Mode.INCREMENTAL);
+            }
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            // a run is in progress on this or another node, or there is no export to read yet
+            logger.debug("Scheduled SPD crime ETL not started: {}", e.getMessage());
+        } catch (Exception e) {
+            logger.error("Scheduled SPD crime ETL failed to start", e);
+        }
+        try {
+            if (etlRunService.isDue(RealtimeEtlService.REALTIME_SOURCE_NAME)) {
+                realtimeEtlService.startRealtimeIngest(EtlRun.Mode.INCREMENTAL);
+            }
+        } catch (IllegalStateException e) {
+            logger.debug("Scheduled realtime ETL not started: {}", e.getMessage());
+        } catch (Exception e) {
+            logger.error("Scheduled realtime ETL failed to start", e);
+        }
+    }
+}
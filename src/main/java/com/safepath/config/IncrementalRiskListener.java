@@ -0,0 +1,71 @@
+package com.safepath.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.safepath.event.CrimeReportsIngestedEvent;
+import com.safepath.event.RiskModelRefreshedEvent;
+import com.safepath.service.IncrementalRiskService;
+
+/**
+ * Feeds the incremental risk updater: builds the counters after startup, applies new reports,
+ * reloads centroids after batch runs and expires old counts once a day
+ */
+@Component
+public class IncrementalRiskListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalRiskListener.class);
+
+    private final IncrementalRiskService incrementalRiskService;
+
+    @Value("${safepath.risk-score.incremental.enabled:true}")
+    private boolean enabled;
+
+    public IncrementalRiskListener(IncrementalRiskService incrementalRiskService) {
+        this.incrementalRiskService = incrementalRiskService;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            logger.info("Incremental risk updates are disabled (safepath.risk-score.incremental.enabled=false)");
+            return;
+        }
+        try {
+            incrementalRiskService.rebuild();
+        } catch (Exception e) {
+            logger.error("Failed to initialise incremental risk counters", e);
+        }
+    }
+
+    @Async
+    @EventListener
+    public void onCrimeReportsIngested(CrimeReportsIngestedEvent event) {
+        if (enabled) {
+            incrementalRiskService.applyReports(event.getReports());
+        }
+    }
+
+    @Async
+    @EventListener
+    public void onRiskModelRefreshed(RiskModelRefreshedEvent event) {
+        if (enabled) {
+            logger.info("Batch risk update {} finished, reloading cluster centroids", event.getTaskId());
+            incrementalRiskService.reloadModel();
+        }
+    }
+
+    @Scheduled(cron = "${safepath.risk-score.incremental.expiry-cron:0 5 0 * * *}")
+    public void expireWindow() {
+        if (enabled) {
+            incrementalRiskService.expireWindow();
+        }
+    }
+}
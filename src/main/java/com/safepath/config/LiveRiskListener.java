@@ -0,0 +1,43 @@
+package com.safepath.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import com.safepath.event.RealtimeIncidentsIngestedEvent;
+import com.safepath.service.LiveRiskService;
+
+/**
+ * Feeds the live risk overlay: seeds it from recent realtime incidents after startup and adds
+ * every batch of newly ingested incidents
+ */
+@Component
+public class LiveRiskListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveRiskListener.class);
+
+    private final LiveRiskService liveRiskService;
+
+    public LiveRiskListener(LiveRiskService liveRiskService) {
+        this.liveRiskService = liveRiskService;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            liveRiskService.rebuild();
+        } catch (Exception e) {
+            logger.error("Failed to seed the live risk overlay", e);
+        }
+    }
+
+    // runs on the realtime writer: one nearest segment lookup and one counter update per incident
+    @EventListener
+    public void onRealtimeIncidentsIngested(RealtimeIncidentsIngestedEvent event) {
+        liveRiskService.applyIncidents(event.getIncidents());
+    }
+}
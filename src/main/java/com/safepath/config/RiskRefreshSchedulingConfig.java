@@ -0,0 +1,50 @@
+package com.safepath.config;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import com.safepath.service.RiskRefreshCoordinator;
+
+/**
+ * Periodic risk score refresh triggers
+ * Both triggers are optional and go through {@link RiskRefreshCoordinator}, so a cron run
+ * and a fixed-rate run that fire together result in a single update
+ */
+@Configuration
+public class RiskRefreshSchedulingConfig implements SchedulingConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RiskRefreshSchedulingConfig.class);
+
+    private final RiskRefreshCoordinator refreshCoordinator;
+
+    // empty disables the cron trigger
+    @Value("${safepath.risk-score.schedule.cron:}")
+    private String cron;
+
+    // 0 disables the fixed-rate trigger
+    @Value("${safepath.risk-score.schedule.fixed-rate-minutes:0}")
+    private long fixedRateMinutes;
+
+    public RiskRefreshSchedulingConfig(RiskRefreshCoordinator refreshCoordinator) {
+        this.refreshCoordinator = refreshCoordinator;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        if (cron != null && !cron.isBlank()) {
+            registrar.addCronTask(() -> refreshCoordinator.requestRefresh("cron"), cron);
+            logger.info("Risk score refresh scheduled with cron '{}'", cron);
+        }
+        if (fixedRateMinutes > 0) {
+            Duration rate = Duration.ofMinutes(fixedRateMinutes);
+            registrar.addFixedRateTask(() -> refreshCoordinator.requestRefresh("fixed-rate"), rate);
+            logger.info("Risk score refresh scheduled every {} minutes", fixedRateMinutes);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.safepath.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.safepath.event.RiskModelRefreshedEvent;
+import com.safepath.service.RiskTileService;
+
+/**
+ * Keeps the risk tile pyramid in sync with street_segment_risk: builds it after startup and after each
+ * batch run, and periodically picks up incremental re-scoring (the rebuild is skipped if nothing changed)
+ */
+@Component
+public class RiskTileListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(RiskTileListener.class);
+
+    private final RiskTileService riskTileService;
+
+    public RiskTileListener(RiskTileService riskTileService) {
+        this.riskTileService = riskTileService;
+    }
+
+    @Async
+    @EventListener({ApplicationReadyEvent.class, RiskModelRefreshedEvent.class})
+    public void onRiskDataChanged() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${safepath.tiles.refresh-interval-minutes:10}",
+        initialDelayString = "${safepath.tiles.refresh-interval-minutes:10}",
+        timeUnit = TimeUnit.MINUTES)
+    public void refresh() {
+        rebuild();
+    }
+
+    private void rebuild() {
+        try {
+            riskTileService.rebuild();
+        } catch (Exception e) {
+            logger.error("Failed to build the risk tile pyramid", e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.safepath.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Thread pools for background work
+ * The scheduler only fires triggers; long running jobs are handed to the executor
+ * so they never block other scheduled tasks
+ */
+@Configuration
+public class SchedulingConfig {
+
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(
+            @Value("${safepath.scheduler.pool-size:2}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("safepath-scheduler-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(false);
+        return scheduler;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor taskExecutor(
+            @Value("${safepath.executor.core-pool-size:4}") int corePoolSize,
+            @Value("${safepath.executor.max-pool-size:8}") int maxPoolSize,
+            @Value("${safepath.executor.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("safepath-task-");
+        return executor;
+    }
+
+    /**
+     * Writes alert stream events; a drain task is queued at most once per open stream, so the
+     * queue is bounded by the number of connections
+     */
+    @Bean
+    public ThreadPoolTaskExecutor alertPushExecutor(
+            @Value("${safepath.alerts.push.sender-threads:4}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("safepath-push-");
+        return executor;
+    }
+}
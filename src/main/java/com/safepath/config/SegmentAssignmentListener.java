@@ -0,0 +1,46 @@
+package com.safepath.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.safepath.service.SegmentAssignmentService;
+
+/**
+ * Snaps existing crime reports to street segments after startup and periodically picks up
+ * reports written outside the application, such as the rows of the Python ETL
+ */
+@Component
+public class SegmentAssignmentListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentAssignmentListener.class);
+
+    private final SegmentAssignmentService segmentAssignmentService;
+
+    public SegmentAssignmentListener(SegmentAssignmentService segmentAssignmentService) {
+        this.segmentAssignmentService = segmentAssignmentService;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        backfill();
+    }
+
+    @Scheduled(fixedDelayString = "${safepath.segments.backfill-interval-minutes:10}",
+        initialDelayString = "${safepath.segments.backfill-interval-minutes:10}",
+        timeUnit = TimeUnit.MINUTES)
+    public void backfill() {
+        try {
+            segmentAssignmentService.backfill();
+        } catch (Exception e) {
+            logger.error("Segment backfill failed", e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.safepath.controller;
+
+import com.safepath.dto.CrimeCountSummary;
+import com.safepath.service.CrimeCountService;
+import java.util.List;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/safety/crime-counts")
+public class CrimeCountController {
+
+    private final CrimeCountService service;
+
+    public CrimeCountController(CrimeCountService service) {
+        this.service = service;
+    }
+
+    /**
+     * Crime counts in a bounding box over the last days, with a breakdown per offense group
+     * GET /api/safety/crime-counts?west=-122.35&south=47.59&east=-122.32&north=47.62&days=30
+     */
+    @GetMapping
+    public ResponseEntity<CrimeCountSummary> summarize(
+        @RequestParam double west,
+        @RequestParam double south,
+        @RequestParam double east,
+        @RequestParam double north,
+        @RequestParam(defaultValue = "30") int days,
+        @RequestParam(required = false) List<String> group
+    ) {
+        try {
+            return ResponseEntity.ok(service.summarize(west, south, east, north, days, group));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Same as above for the circle around a point, counted at the exact radius
+     * GET /api/safety/crime-counts/near?lat=47.6&lon=-122.33&radius=500&days=30
+     */
+    @GetMapping("/near")
+    public ResponseEntity<CrimeCountSummary> summarizeNearby(
+        @RequestParam double lat,
+        @RequestParam double lon,
+        @RequestParam(defaultValue = "500") double radius,
+        @RequestParam(defaultValue = "30") int days,
+        @RequestParam(required = false) List<String> group
+    ) {
+        try {
+            return ResponseEntity.ok(service.summarizeNearby(lat, lon, radius, days, group));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -1,31 +1,109 @@
 package com.safepath.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.safepath.dto.CreateCrimeReportRequest;
 import com.safepath.dto.CrimeReportDto;
+import com.safepath.dto.CrimeReportPage;
+import com.safepath.dto.NearbyCrimeDto;
 import com.safepath.model.CrimeReport;
+import com.safepath.service.CrimeQueryService;
+import com.safepath.service.CrimeReportCursor;
 import com.safepath.service.CrimeReportService;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URI;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/crime-reports")
 public class CrimeReportController {
 
     private final CrimeReportService service;
+    private final CrimeQueryService crimeQueryService;
+    private final ObjectMapper objectMapper;
 
-    public CrimeReportController(CrimeReportService service) {
+    @Value("${safepath.crime-reports.max-page-size:500}")
+    private int maxPageSize;
+
+    public CrimeReportController(CrimeReportService service, CrimeQueryService crimeQueryService,
+                                 ObjectMapper objectMapper) {
         this.service = service;
+        this.crimeQueryService = crimeQueryService;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * All reports newest first as one JSON array, written incrementally while the reports are read
+     * in keyset chunks, so memory use stays constant regardless of the table size
+     */
     @GetMapping
-    public ResponseEntity<List<CrimeReportDto>> list() {
-        List<CrimeReport> list = service.findAll();
-        List<CrimeReportDto> dtoList = list.stream().map(this::toDto).toList();
-        return ResponseEntity.ok(dtoList);
+    public ResponseEntity<StreamingResponseBody> list() {
+        StreamingResponseBody body = out -> {
+            try (Stream<CrimeReport> reports = service.streamAll();
+                 JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                Iterator<CrimeReport> it = reports.iterator();
+                while (it.hasNext()) {
+                    json.writeObject(toDto(it.next()));
+                }
+                json.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Keyset pagination, newest first
+     * GET /api/crime-reports/page?size=100&cursor={nextCursor of the previous page}
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CrimeReportPage> page(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size) {
+        if (size <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        CrimeReportCursor position;
+        try {
+            position = cursor == null || cursor.isEmpty() ? null : CrimeReportCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        int limit = Math.min(size, maxPageSize);
+        List<CrimeReport> reports = service.findPage(position, limit);
+        String next = reports.size() == limit
+            ? CrimeReportCursor.after(reports.get(reports.size() - 1)).encode()
+            : null;
+        List<CrimeReportDto> items = reports.stream().map(this::toDto).toList();
+        return ResponseEntity.ok(new CrimeReportPage(items, next));
+    }
+
+    /**
+     * Reports around a point in the last days, newest first, served from the in-memory index
+     * GET /api/crime-reports/nearby?lat=47.6&lon=-122.33&radius=500&days=30&group=ASSAULT OFFENSES
+     */
+    @GetMapping("/nearby")
+    public ResponseEntity<List<NearbyCrimeDto>> nearby(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "500") double radius,
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(required = false) List<String> group,
+            @RequestParam(defaultValue = "200") int limit) {
+        try {
+            return ResponseEntity.ok(crimeQueryService.findNearby(lat, lon, radius, days, group,
+                Math.min(limit, maxPageSize)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{id}")
@@ -68,6 +146,8 @@ public class CrimeReportController {
         d.setBlurredAddress(c.getBlurredAddress());
         d.setBlurredLatitude(c.getBlurredLatitude());
         d.setBlurredLongitude(c.getBlurredLongitude());
+        d.setUnitid(c.getUnitid());
+        d.setSnappedDistanceM(c.getSnappedDistanceM());
         return d;
     }
 }
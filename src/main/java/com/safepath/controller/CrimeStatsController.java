@@ -0,0 +1,109 @@
+package com.safepath.controller;
+
+import com.safepath.dto.CrimeBreakdownDto;
+import com.safepath.dto.CrimeTrendDto;
+import com.safepath.index.CrimeColumnStore.Dimension;
+import com.safepath.index.CrimeColumnStore.Filter;
+import com.safepath.service.CrimeStatsService;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/crime-stats")
+public class CrimeStatsController {
+
+    private final CrimeStatsService service;
+
+    public CrimeStatsController(CrimeStatsService service) {
+        this.service = service;
+    }
+
+    /**
+     * Report counts grouped by hour, weekday-hour, neighborhood, precinct or offense-group
+     * GET /api/crime-stats/by-hour?days=90&precinct=EAST
+     * GET /api/crime-stats/by-neighborhood?from=2024-01-01T00:00:00&to=2024-06-30T23:59:59&group=ASSAULT%20OFFENSES
+     * GET /api/crime-stats/by-offense-group?south=47.59&west=-122.35&north=47.62&east=-122.32
+     */
+    @GetMapping("/by-{dimension}")
+    public ResponseEntity<CrimeBreakdownDto> breakdown(
+        @PathVariable String dimension,
+        @RequestParam(required = false) Integer days,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        @RequestParam(required = false) String precinct,
+        @RequestParam(required = false) String neighborhood,
+        @RequestParam(required = false) String group,
+        @RequestParam(required = false) Double south,
+        @RequestParam(required = false) Double west,
+        @RequestParam(required = false) Double north,
+        @RequestParam(required = false) Double east
+    ) {
+        try {
+            Filter filter = filter(days, from, to, precinct, neighborhood, group, south, west, north, east);
+            return ResponseEntity.ok(service.breakdown(dimension(dimension), filter));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Report counts of the last recentDays days against the recentDays before, per neighborhood,
+     * precinct or offense-group
+     * GET /api/crime-stats/trend?by=neighborhood&recentDays=30
+     */
+    @GetMapping("/trend")
+    public ResponseEntity<List<CrimeTrendDto>> trend(
+        @RequestParam(defaultValue = "neighborhood") String by,
+        @RequestParam(defaultValue = "30") int recentDays,
+        @RequestParam(required = false) String precinct,
+        @RequestParam(required = false) String neighborhood,
+        @RequestParam(required = false) String group,
+        @RequestParam(required = false) Double south,
+        @RequestParam(required = false) Double west,
+        @RequestParam(required = false) Double north,
+        @RequestParam(required = false) Double east
+    ) {
+        try {
+            Filter filter = filter(null, null, null, precinct, neighborhood, group, south, west, north, east);
+            return ResponseEntity.ok(service.trend(dimension(by), recentDays, filter));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static Dimension dimension(String name) {
+        // Enum.valueOf throws IllegalArgumentException for unknown names
+        return Dimension.valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+
+    private static Filter filter(Integer days, LocalDateTime from, LocalDateTime to,
+                                 String precinct, String neighborhood, String group,
+                                 Double south, Double west, Double north, Double east) {
+        if (days != null) {
+            if (days <= 0 || from != null) {
+                throw new IllegalArgumentException("days must be positive and cannot be combined with from");
+            }
+            from = LocalDateTime.now().minusDays(days);
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        Filter filter = new Filter(from, to, precinct, neighborhood, group);
+        boolean anyBound = south != null || west != null || north != null || east != null;
+        if (anyBound) {
+            if (south == null || west == null || north == null || east == null || south > north || west > east) {
+                throw new IllegalArgumentException("bounding box needs south <= north and west <= east");
+            }
+            filter = filter.withBounds(south, west, north, east);
+        }
+        return filter;
+    }
+}
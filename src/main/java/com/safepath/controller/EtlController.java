@@ -0,0 +1,86 @@
+package com.safepath.controller;
+
+import com.safepath.dto.TaskStatusResponse;
+import com.safepath.model.EtlRun;
+import com.safepath.service.CrimeEtlService;
+import com.safepath.service.RealtimeEtlService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Locale;
+
+/**
+ * Data ingestion controller
+ * Starts the Java ETL runs and reports their progress; the task id is the etl_runs id
+ */
+@RestController
+@RequestMapping("/api/admin/etl")
+@CrossOrigin(origins = {"http://localhost:9090", "http://127.0.0.1:9090"})
+public class EtlController {
+
+    private final CrimeEtlService crimeEtlService;
+    private final RealtimeEtlService realtimeEtlService;
+
+    public EtlController(CrimeEtlService crimeEtlService, RealtimeEtlService realtimeEtlService) {
+        this.crimeEtlService = crimeEtlService;
+        this.realtimeEtlService = realtimeEtlService;
+    }
+
+    /**
+     * Ingest the configured SPD crime CSV (safepath.etl.spd-crime.csv-path) in the background
+     * POST /api/admin/etl/spd-crime?mode=incremental
+     *
+     * @param mode incremental (only rows past the last watermark) or full
+     * @return 202 with the run status, 409 if a run is in progress, 400 if the file is missing or the mode unknown
+     */
+    @PostMapping("/spd-crime")
+    public ResponseEntity<TaskStatusResponse> ingestSpdCrime(
+            @RequestParam(defaultValue = "incremental") String mode) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(crimeEtlService.startSpdCrimeIngest(parseMode(mode)));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Fetch the Real-Time 911 feed (safepath.etl.realtime.url) in the background
+     * POST /api/admin/etl/realtime?mode=incremental
+     *
+     * @return 202 with the run status, 409 if a run is in progress, 400 if the mode is unknown
+     */
+    @PostMapping("/realtime")
+    public ResponseEntity<TaskStatusResponse> ingestRealtime(
+            @RequestParam(defaultValue = "incremental") String mode) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(realtimeEtlService.startRealtimeIngest(parseMode(mode)));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Status of a run started on this node
+     * GET /api/admin/etl/runs/{taskId}
+     */
+    @GetMapping("/runs/{taskId}")
+    public ResponseEntity<TaskStatusResponse> getRun(@PathVariable String taskId) {
+        TaskStatusResponse status = crimeEtlService.getStatus(taskId);
+        if (status == null) {
+            status = realtimeEtlService.getStatus(taskId);
+        }
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    private static EtlRun.Mode parseMode(String mode) {
+        return EtlRun.Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+    }
+}
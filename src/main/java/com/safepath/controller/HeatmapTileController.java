@@ -0,0 +1,73 @@
+package com.safepath.controller;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.safepath.index.HeatmapTile;
+import com.safepath.service.HeatmapTileService;
+
+/**
+ * Crime heatmap tiles in the XYZ scheme, rendered on the server from kernel density estimates
+ * The ETag changes whenever the tile is re-rendered, i.e. after new reports landed in or near it
+ */
+@RestController
+@RequestMapping("/api/safety/heatmap")
+@CrossOrigin(origins = {"http://localhost:9090", "http://127.0.0.1:9090"})
+public class HeatmapTileController {
+
+    /** 256x256 unsigned bytes, row major from the north-west corner */
+    public static final MediaType INTENSITY_MEDIA_TYPE = MediaType.parseMediaType("application/vnd.safepath.heatmap-intensity");
+
+    private final HeatmapTileService heatmapTileService;
+
+    @Value("${safepath.heatmap.max-age-seconds:60}")
+    private long maxAgeSeconds;
+
+    public HeatmapTileController(HeatmapTileService heatmapTileService) {
+        this.heatmapTileService = heatmapTileService;
+    }
+
+    /**
+     * GET /api/safety/heatmap/{z}/{x}/{y}?days=30&group=ASSAULT OFFENSES&format=png|raw
+     *
+     * @return the tile as PNG or as raw intensities, 404 outside the served zoom levels
+     */
+    @GetMapping("/{z}/{x}/{y}")
+    public ResponseEntity<byte[]> getTile(
+            @PathVariable int z,
+            @PathVariable int x,
+            @PathVariable int y,
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(required = false) List<String> group,
+            @RequestParam(defaultValue = "png") String format) {
+        boolean raw = "raw".equalsIgnoreCase(format);
+        if (!raw && !"png".equalsIgnoreCase(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+        HeatmapTile tile;
+        try {
+            tile = heatmapTileService.getTile(z, x, y, days, group);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (tile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+            .contentType(raw ? INTENSITY_MEDIA_TYPE : MediaType.IMAGE_PNG)
+            .eTag(tile.getVersion() + (raw ? "-raw" : "-png"))
+            .cacheControl(CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic())
+            .body(raw ? tile.intensities() : tile.png());
+    }
+}
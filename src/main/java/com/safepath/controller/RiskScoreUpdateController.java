@@ -2,8 +2,11 @@ package com.safepath.controller;
 
 import com.safepath.dto.TaskStatusResponse;
 import com.safepath.service.RiskScoreUpdateService;
+import com.safepath.service.TaskProgressStream;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * Risk score update controller
@@ -15,9 +18,11 @@ import org.springframework.web.bind.annotation.*;
 public class RiskScoreUpdateController {
 
     private final RiskScoreUpdateService updateService;
+    private final TaskProgressStream progressStream;
 
-    public RiskScoreUpdateController(RiskScoreUpdateService updateService) {
+    public RiskScoreUpdateController(RiskScoreUpdateService updateService, TaskProgressStream progressStream) {
         this.updateService = updateService;
+        this.progressStream = progressStream;
     }
 
     /**
@@ -63,5 +68,21 @@ public class RiskScoreUpdateController {
         }
         return ResponseEntity.ok(status);
     }
-}
 
+    /**
+     * Stream the task progress as Server-Sent Events instead of polling the status
+     * GET /api/admin/risk-score/stream/{taskId}
+     * Each "progress" event carries the task status (stage, percent, rows, ETA); the stream ends with the task
+     * 
+     * @param taskId task ID
+     * @return event stream
+     */
+    @GetMapping(path = "/stream/{taskId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamTaskStatus(@PathVariable String taskId) {
+        TaskStatusResponse status = updateService.getTaskStatus(taskId);
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(progressStream.subscribe(status));
+    }
+}
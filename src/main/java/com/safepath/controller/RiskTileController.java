@@ -0,0 +1,57 @@
+package com.safepath.controller;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.safepath.index.RiskTilePyramid;
+import com.safepath.service.RiskTileService;
+
+/**
+ * Segment risk map tiles in the XYZ scheme
+ * Tiles are pre-encoded in memory; the ETag is the pyramid version, so browsers and CDNs
+ * revalidate with If-None-Match and get 304 until the risk scores change
+ */
+@RestController
+@RequestMapping("/api/safety/tiles")
+@CrossOrigin(origins = {"http://localhost:9090", "http://127.0.0.1:9090"})
+public class RiskTileController {
+
+    public static final MediaType TILE_MEDIA_TYPE = MediaType.parseMediaType("application/vnd.safepath.risk-tile");
+
+    private final RiskTileService riskTileService;
+
+    @Value("${safepath.tiles.max-age-seconds:300}")
+    private long maxAgeSeconds;
+
+    public RiskTileController(RiskTileService riskTileService) {
+        this.riskTileService = riskTileService;
+    }
+
+    /**
+     * GET /api/safety/tiles/{z}/{x}/{y}
+     *
+     * @return the encoded tile, 404 outside the served zoom levels
+     */
+    @GetMapping("/{z}/{x}/{y}")
+    public ResponseEntity<byte[]> getTile(@PathVariable int z, @PathVariable int x, @PathVariable int y) {
+        RiskTilePyramid pyramid = riskTileService.getPyramid();
+        byte[] tile = pyramid.tile(z, x, y);
+        if (tile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+            .contentType(TILE_MEDIA_TYPE)
+            .eTag(pyramid.getVersion())
+            .cacheControl(CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic())
+            .body(tile);
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.safepath.dto.GoogleRouteRequest;
@@ -31,11 +32,13 @@ public class RouteRiskController {
      * Frontend can POST multiple candidate routes and get back which is safest.
      *
      * @param request Google Directions response with routes/legs/steps
+     * @param live blend the live overlay of recent 911 incidents into the scores
      * @return RouteRiskResponse with per-route and per-step risk scores
      */
     @PostMapping
-    public ResponseEntity<RouteRiskResponse> analyzeRouteRisk(@RequestBody GoogleRouteRequest request) {
-        RouteRiskResponse response = routeRiskService.analyzeRoutes(request);
+    public ResponseEntity<RouteRiskResponse> analyzeRouteRisk(@RequestBody GoogleRouteRequest request,
+                                                              @RequestParam(defaultValue = "false") boolean live) {
+        RouteRiskResponse response = routeRiskService.analyzeRoutes(request, live);
         return ResponseEntity.ok(response);
     }
 }
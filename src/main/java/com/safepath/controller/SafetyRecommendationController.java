@@ -1,6 +1,7 @@
 package com.safepath.controller;
 
 import com.safepath.dto.StreetSegmentRiskDto;
+import com.safepath.dto.ViewportRiskResponse;
 import com.safepath.service.SafetyRecommendationService;
 import java.util.List;
 import org.springframework.http.ResponseEntity;
@@ -20,9 +21,30 @@ public class SafetyRecommendationController {
         this.service = service;
     }
 
+    /**
+     * Zoom aware variant of the bounding box query for map views, see {@link ViewportRiskResponse}.
+     */
+    @GetMapping("/viewport")
+    public ResponseEntity<ViewportRiskResponse> findForViewport(
+        @RequestParam double west,
+        @RequestParam double south,
+        @RequestParam double east,
+        @RequestParam double north,
+        @RequestParam int zoom,
+        @RequestParam(defaultValue = "false") boolean live
+    ) {
+        return ResponseEntity.ok(service.getRisksForViewport(west, south, east, north, zoom, live));
+    }
+
+    /**
+     * With {@code live=true} the risk score is blended with the live overlay of recent 911 incidents.
+     */
     @GetMapping("/{unitid}")
-    public ResponseEntity<StreetSegmentRiskDto> getSegment(@PathVariable String unitid) {
-        return service.getRiskBySegment(unitid)
+    public ResponseEntity<StreetSegmentRiskDto> getSegment(
+        @PathVariable String unitid,
+        @RequestParam(defaultValue = "false") boolean live
+    ) {
+        return service.getRiskBySegment(unitid, live)
             .map(ResponseEntity::ok)
             .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -32,9 +54,10 @@ public class SafetyRecommendationController {
         @RequestParam double west,
         @RequestParam double south,
         @RequestParam double east,
-        @RequestParam double north
+        @RequestParam double north,
+        @RequestParam(defaultValue = "false") boolean live
     ) {
-        List<StreetSegmentRiskDto> list = service.getRisksByBoundingBox(west, south, east, north);
+        List<StreetSegmentRiskDto> list = service.getRisksByBoundingBox(west, south, east, north, live);
         return ResponseEntity.ok(list);
     }
 }
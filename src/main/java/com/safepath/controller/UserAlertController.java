@@ -1,13 +1,19 @@
 package com.safepath.controller;
 
 import com.safepath.dto.CreateUserAlertRequest;
+import com.safepath.dto.CrimeCountSummary;
 import com.safepath.dto.UserAlertDto;
 import com.safepath.model.AppUser;
 import com.safepath.model.UserAlert;
+import com.safepath.service.AlertPushHub;
+import com.safepath.service.AppUserService;
+import com.safepath.service.CrimeCountService;
 import com.safepath.service.UserAlertService;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.net.URI;
 import java.util.List;
@@ -17,9 +23,16 @@ import java.util.List;
 public class UserAlertController {
 
     private final UserAlertService service;
+    private final CrimeCountService crimeCountService;
+    private final AppUserService userService;
+    private final AlertPushHub pushHub;
 
-    public UserAlertController(UserAlertService service) {
+    public UserAlertController(UserAlertService service, CrimeCountService crimeCountService,
+                               AppUserService userService, AlertPushHub pushHub) {
         this.service = service;
+        this.crimeCountService = crimeCountService;
+        this.userService = userService;
+        this.pushHub = pushHub;
     }
 
     @PostMapping
@@ -33,11 +46,43 @@ public class UserAlertController {
         a.setCenterLon(req.getCenterLon());
         a.setCrimeTypeFilter(req.getCrimeTypeFilter());
         a.setActiveFlag(req.getActiveFlag());
+        if (req.getDigestMode() != null) {
+            a.setDigestMode(req.getDigestMode());
+        }
 
         UserAlert saved = service.create(a);
         return ResponseEntity.created(URI.create("/api/user-alerts/" + saved.getAlertId())).body(toDto(saved));
     }
 
+    /**
+     * Changes the center, radius, crime type filter or digest mode of an alert; fields left out of the body keep
+     * their value. userId and activeFlag are ignored (activeFlag defaults to true in the request),
+     * alerts are switched off with the deactivate endpoint
+     */
+    @PutMapping("/{id}")
+    public ResponseEntity<UserAlertDto> update(@PathVariable Integer id, @RequestBody CreateUserAlertRequest req) {
+        if (req.getRadiusM() != null && req.getRadiusM() <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        UserAlert changes = new UserAlert();
+        changes.setRadiusM(req.getRadiusM());
+        changes.setCenterLat(req.getCenterLat());
+        changes.setCenterLon(req.getCenterLon());
+        changes.setCrimeTypeFilter(req.getCrimeTypeFilter());
+        changes.setActiveFlag(null);
+        changes.setDigestMode(req.getDigestMode());
+        return service.update(id, changes)
+            .map(a -> ResponseEntity.ok(toDto(a)))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{id}/deactivate")
+    public ResponseEntity<UserAlertDto> deactivate(@PathVariable Integer id) {
+        return service.deactivate(id)
+            .map(a -> ResponseEntity.ok(toDto(a)))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<UserAlertDto>> listByUser(@PathVariable Integer userId) {
         List<UserAlert> list = service.findByUserId(userId);
@@ -45,6 +90,61 @@ public class UserAlertController {
         return ResponseEntity.ok(dtoList);
     }
 
+    /**
+     * Server-Sent Events stream of incidents matching the user's active alerts ("alert" events with
+     * an AlertNotificationDto). EventSource clients resume with the Last-Event-ID header after a
+     * reconnect; "dropped" and "reset" events tell them that events were lost and they should reload
+     */
+    @GetMapping(path = "/stream/{userId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(@PathVariable Integer userId,
+                                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Long after = null;
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                after = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        if (userService.findById(userId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(pushHub.subscribe(userId, after));
+    }
+
+    /**
+     * How many reports an existing alert would have matched over the last days
+     */
+    @GetMapping("/{id}/preview")
+    public ResponseEntity<CrimeCountSummary> preview(@PathVariable Integer id,
+                                                     @RequestParam(defaultValue = "30") int days) {
+        return service.findById(id)
+            .map(a -> previewOrBadRequest(a, days))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Preview of an alert before it is created
+     */
+    @PostMapping("/preview")
+    public ResponseEntity<CrimeCountSummary> previewDraft(@RequestBody CreateUserAlertRequest req,
+                                                          @RequestParam(defaultValue = "30") int days) {
+        UserAlert a = new UserAlert();
+        a.setRadiusM(req.getRadiusM());
+        a.setCenterLat(req.getCenterLat());
+        a.setCenterLon(req.getCenterLon());
+        a.setCrimeTypeFilter(req.getCrimeTypeFilter());
+        return previewOrBadRequest(a, days);
+    }
+
+    private ResponseEntity<CrimeCountSummary> previewOrBadRequest(UserAlert a, int days) {
+        try {
+            return ResponseEntity.ok(crimeCountService.previewAlert(a, days));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     private UserAlertDto toDto(UserAlert a) {
         if (a == null) return null;
         UserAlertDto d = new UserAlertDto();
@@ -55,6 +155,7 @@ public class UserAlertController {
         d.setCenterLon(a.getCenterLon());
         d.setCrimeTypeFilter(a.getCrimeTypeFilter());
         d.setActiveFlag(a.getActiveFlag());
+        d.setDigestMode(a.getDigestMode() != null ? a.getDigestMode() : UserAlert.DigestMode.IMMEDIATE);
         d.setCreatedAt(a.getCreatedAt());
         d.setUpdatedAt(a.getUpdatedAt());
         return d;
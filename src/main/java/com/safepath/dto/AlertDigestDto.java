@@ -0,0 +1,130 @@
+package com.safepath.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch of matches pushed to a user for the alerts in hourly or daily digest mode: one summary per
+ * alert with a match count, category counts and the most recent incidents.
+ */
+public class AlertDigestDto {
+    private long eventId;
+    private LocalDateTime generatedAt;
+    private int totalMatches;
+    private List<AlertSummary> alerts = new ArrayList<>();
+
+    public AlertDigestDto() {}
+
+    public static class AlertSummary {
+        private int alertId;
+        private String digestMode;
+        private int matchCount;
+        private LocalDateTime firstOccurredAt;
+        private LocalDateTime lastOccurredAt;
+        private double nearestMeters;
+        private Map<String, Integer> categories = new LinkedHashMap<>();
+        // newest first, alertIds and eventId are not set
+        private List<AlertNotificationDto> latest = new ArrayList<>();
+
+        public AlertSummary() {}
+
+        public int getAlertId() {
+            return alertId;
+        }
+
+        public void setAlertId(int alertId) {
+            this.alertId = alertId;
+        }
+
+        public String getDigestMode() {
+            return digestMode;
+        }
+
+        public void setDigestMode(String digestMode) {
+            this.digestMode = digestMode;
+        }
+
+        public int getMatchCount() {
+            return matchCount;
+        }
+
+        public void setMatchCount(int matchCount) {
+            this.matchCount = matchCount;
+        }
+
+        public LocalDateTime getFirstOccurredAt() {
+            return firstOccurredAt;
+        }
+
+        public void setFirstOccurredAt(LocalDateTime firstOccurredAt) {
+            this.firstOccurredAt = firstOccurredAt;
+        }
+
+        public LocalDateTime getLastOccurredAt() {
+            return lastOccurredAt;
+        }
+
+        public void setLastOccurredAt(LocalDateTime lastOccurredAt) {
+            this.lastOccurredAt = lastOccurredAt;
+        }
+
+        public double getNearestMeters() {
+            return nearestMeters;
+        }
+
+        public void setNearestMeters(double nearestMeters) {
+            this.nearestMeters = nearestMeters;
+        }
+
+        public Map<String, Integer> getCategories() {
+            return categories;
+        }
+
+        public void setCategories(Map<String, Integer> categories) {
+            this.categories = categories;
+        }
+
+        public List<AlertNotificationDto> getLatest() {
+            return latest;
+        }
+
+        public void setLatest(List<AlertNotificationDto> latest) {
+            this.latest = latest;
+        }
+    }
+
+    public long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(long eventId) {
+        this.eventId = eventId;
+    }
+
+    public LocalDateTime getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public void setGeneratedAt(LocalDateTime generatedAt) {
+        this.generatedAt = generatedAt;
+    }
+
+    public int getTotalMatches() {
+        return totalMatches;
+    }
+
+    public void setTotalMatches(int totalMatches) {
+        this.totalMatches = totalMatches;
+    }
+
+    public List<AlertSummary> getAlerts() {
+        return alerts;
+    }
+
+    public void setAlerts(List<AlertSummary> alerts) {
+        this.alerts = alerts;
+    }
+}
@@ -0,0 +1,98 @@
+package com.safepath.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One incident pushed to a user on the alert stream; matches of several alerts of the same user
+ * for the same incident are merged into one notification.
+ */
+public class AlertNotificationDto {
+    private long eventId;
+    private String source;
+    private String incidentId;
+    private String category;
+    private LocalDateTime occurredAt;
+    private double latitude;
+    private double longitude;
+    private List<Integer> alertIds = new ArrayList<>();
+    private double distanceMeters;
+
+    public AlertNotificationDto() {}
+
+    public long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(long eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public String getIncidentId() {
+        return incidentId;
+    }
+
+    public void setIncidentId(String incidentId) {
+        this.incidentId = incidentId;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(LocalDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    public List<Integer> getAlertIds() {
+        return alertIds;
+    }
+
+    public void setAlertIds(List<Integer> alertIds) {
+        this.alertIds = alertIds;
+    }
+
+    /**
+     * Distance to the center of the closest matching alert.
+     */
+    public double getDistanceMeters() {
+        return distanceMeters;
+    }
+
+    public void setDistanceMeters(double distanceMeters) {
+        this.distanceMeters = distanceMeters;
+    }
+}
@@ -1,5 +1,7 @@
 package com.safepath.dto;
 
+import com.safepath.model.UserAlert;
+
 import jakarta.validation.constraints.NotNull;
 
 public class CreateUserAlertRequest {
@@ -17,6 +19,9 @@ public class CreateUserAlertRequest {
 
     private Boolean activeFlag = Boolean.TRUE;
 
+    // IMMEDIATE when left out
+    private UserAlert.DigestMode digestMode;
+
     public CreateUserAlertRequest() {
     }
 
@@ -67,4 +72,12 @@ public class CreateUserAlertRequest {
     public void setActiveFlag(Boolean activeFlag) {
         this.activeFlag = activeFlag;
     }
+
+    public UserAlert.DigestMode getDigestMode() {
+        return digestMode;
+    }
+
+    public void setDigestMode(UserAlert.DigestMode digestMode) {
+        this.digestMode = digestMode;
+    }
 }
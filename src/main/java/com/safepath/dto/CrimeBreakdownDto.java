@@ -0,0 +1,75 @@
+package com.safepath.dto;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Crime report counts grouped by one dimension, computed on the columnar snapshot
+ */
+public class CrimeBreakdownDto {
+
+    private String dimension;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private long total;                // matching reports, including those without a value for the dimension
+    private Map<String, Long> counts = new LinkedHashMap<>();
+    private int rowsScanned;
+    private LocalDateTime snapshotAt;
+
+    public String getDimension() {
+        return dimension;
+    }
+
+    public void setDimension(String dimension) {
+        this.dimension = dimension;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public Map<String, Long> getCounts() {
+        return counts;
+    }
+
+    public void setCounts(Map<String, Long> counts) {
+        this.counts = counts;
+    }
+
+    public int getRowsScanned() {
+        return rowsScanned;
+    }
+
+    public void setRowsScanned(int rowsScanned) {
+        this.rowsScanned = rowsScanned;
+    }
+
+    public LocalDateTime getSnapshotAt() {
+        return snapshotAt;
+    }
+
+    public void setSnapshotAt(LocalDateTime snapshotAt) {
+        this.snapshotAt = snapshotAt;
+    }
+}
@@ -0,0 +1,105 @@
+package com.safepath.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Crime counts in a rectangle and date range, read from the precomputed count cube.
+ * The rectangle is widened to whole grid cells; the returned bounds are the ones actually counted.
+ * Counts around a point cover the exact circle and return its bounding box.
+ */
+public class CrimeCountSummary {
+
+    private double south;
+    private double west;
+    private double north;
+    private double east;
+    private LocalDate from;
+    private LocalDate to;
+    private int total;
+    private Integer matching;     // reports in the requested offense groups, null when no filter was given
+    private Map<String, Integer> byOffenseGroup = new LinkedHashMap<>();
+    private LocalDateTime asOf;
+
+    public double getSouth() {
+        return south;
+    }
+
+    public void setSouth(double south) {
+        this.south = south;
+    }
+
+    public double getWest() {
+        return west;
+    }
+
+    public void setWest(double west) {
+        this.west = west;
+    }
+
+    public double getNorth() {
+        return north;
+    }
+
+    public void setNorth(double north) {
+        this.north = north;
+    }
+
+    public double getEast() {
+        return east;
+    }
+
+    public void setEast(double east) {
+        this.east = east;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public Integer getMatching() {
+        return matching;
+    }
+
+    public void setMatching(Integer matching) {
+        this.matching = matching;
+    }
+
+    public Map<String, Integer> getByOffenseGroup() {
+        return byOffenseGroup;
+    }
+
+    public void setByOffenseGroup(Map<String, Integer> byOffenseGroup) {
+        this.byOffenseGroup = byOffenseGroup;
+    }
+
+    public LocalDateTime getAsOf() {
+        return asOf;
+    }
+
+    public void setAsOf(LocalDateTime asOf) {
+        this.asOf = asOf;
+    }
+}
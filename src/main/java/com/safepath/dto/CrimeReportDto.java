@@ -12,6 +12,8 @@ public class CrimeReportDto {
     private String blurredAddress;
     private Double blurredLatitude;
     private Double blurredLongitude;
+    private String unitid;
+    private Double snappedDistanceM;
 
     public CrimeReportDto() {}
 
@@ -86,4 +88,20 @@ public class CrimeReportDto {
     public void setBlurredLongitude(Double blurredLongitude) {
         this.blurredLongitude = blurredLongitude;
     }
+
+    public String getUnitid() {
+        return unitid;
+    }
+
+    public void setUnitid(String unitid) {
+        this.unitid = unitid;
+    }
+
+    public Double getSnappedDistanceM() {
+        return snappedDistanceM;
+    }
+
+    public void setSnappedDistanceM(Double snappedDistanceM) {
+        this.snappedDistanceM = snappedDistanceM;
+    }
 }
@@ -0,0 +1,35 @@
+package com.safepath.dto;
+
+import java.util.List;
+
+/**
+ * One page of crime reports, newest first
+ * Pass nextCursor back as the cursor parameter to get the following page; it is null on the last page
+ */
+public class CrimeReportPage {
+    private List<CrimeReportDto> items;
+    private String nextCursor;
+
+    public CrimeReportPage() {}
+
+    public CrimeReportPage(List<CrimeReportDto> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<CrimeReportDto> getItems() {
+        return items;
+    }
+
+    public void setItems(List<CrimeReportDto> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,54 @@
+package com.safepath.dto;
+
+/**
+ * Report counts of one key (neighborhood, precinct or offense group) in the recent window
+ * and in the window of the same length just before it
+ */
+public class CrimeTrendDto {
+
+    private String key;
+    private long recent;
+    private long previous;
+    private Double ratio;      // recent / previous, null when there was nothing in the previous window
+
+    public CrimeTrendDto() {}
+
+    public CrimeTrendDto(String key, long recent, long previous) {
+        this.key = key;
+        this.recent = recent;
+        this.previous = previous;
+        this.ratio = previous == 0 ? null : (double) recent / previous;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public long getRecent() {
+        return recent;
+    }
+
+    public void setRecent(long recent) {
+        this.recent = recent;
+    }
+
+    public long getPrevious() {
+        return previous;
+    }
+
+    public void setPrevious(long previous) {
+        this.previous = previous;
+    }
+
+    public Double getRatio() {
+        return ratio;
+    }
+
+    public void setRatio(Double ratio) {
+        this.ratio = ratio;
+    }
+}
@@ -0,0 +1,66 @@
+package com.safepath.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Crime report found by a radius + time window query
+ */
+public class NearbyCrimeDto {
+
+    private String reportNumber;
+    private LocalDateTime reportDatetime;
+    private Double latitude;
+    private Double longitude;
+    private double distanceMeters;
+    private List<String> offenseGroups = new ArrayList<>();
+
+    public String getReportNumber() {
+        return reportNumber;
+    }
+
+    public void setReportNumber(String reportNumber) {
+        this.reportNumber = reportNumber;
+    }
+
+    public LocalDateTime getReportDatetime() {
+        return reportDatetime;
+    }
+
+    public void setReportDatetime(LocalDateTime reportDatetime) {
+        this.reportDatetime = reportDatetime;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public double getDistanceMeters() {
+        return distanceMeters;
+    }
+
+    public void setDistanceMeters(double distanceMeters) {
+        this.distanceMeters = distanceMeters;
+    }
+
+    public List<String> getOffenseGroups() {
+        return offenseGroups;
+    }
+
+    public void setOffenseGroups(List<String> offenseGroups) {
+        this.offenseGroups = offenseGroups;
+    }
+}
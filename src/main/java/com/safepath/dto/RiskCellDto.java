@@ -0,0 +1,101 @@
+package com.safepath.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Aggregated risk of the street segments inside one grid cell
+ */
+public class RiskCellDto {
+
+    private double south;
+    private double west;
+    private double north;
+    private double east;
+    private Double latitude;      // centroid of the segment midpoints in the cell
+    private Double longitude;
+    private int segmentCount;
+    private Double maxRiskScore;
+    private Double meanRiskScore;
+    private Map<String, Integer> labelCounts = new LinkedHashMap<>();
+
+    public double getSouth() {
+        return south;
+    }
+
+    public void setSouth(double south) {
+        this.south = south;
+    }
+
+    public double getWest() {
+        return west;
+    }
+
+    public void setWest(double west) {
+        this.west = west;
+    }
+
+    public double getNorth() {
+        return north;
+    }
+
+    public void setNorth(double north) {
+        this.north = north;
+    }
+
+    public double getEast() {
+        return east;
+    }
+
+    public void setEast(double east) {
+        this.east = east;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    public void setSegmentCount(int segmentCount) {
+        this.segmentCount = segmentCount;
+    }
+
+    public Double getMaxRiskScore() {
+        return maxRiskScore;
+    }
+
+    public void setMaxRiskScore(Double maxRiskScore) {
+        this.maxRiskScore = maxRiskScore;
+    }
+
+    public Double getMeanRiskScore() {
+        return meanRiskScore;
+    }
+
+    public void setMeanRiskScore(Double meanRiskScore) {
+        this.meanRiskScore = meanRiskScore;
+    }
+
+    public Map<String, Integer> getLabelCounts() {
+        return labelCounts;
+    }
+
+    public void setLabelCounts(Map<String, Integer> labelCounts) {
+        this.labelCounts = labelCounts;
+    }
+}
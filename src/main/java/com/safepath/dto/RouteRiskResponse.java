@@ -76,6 +76,7 @@ public class RouteRiskResponse {
     public static class StepRisk {
         private double averageRiskScore;  // Mean of all sampled points in this step
         private String dominantRiskLabel;  // LOW, MEDIUM, or HIGH
+        private Double liveRiskScore;  // Mean live overlay score, only set when the live overlay was requested
 
         public StepRisk() {
         }
@@ -95,6 +96,14 @@ public class RouteRiskResponse {
         public void setDominantRiskLabel(String dominantRiskLabel) {
             this.dominantRiskLabel = dominantRiskLabel;
         }
+
+        public Double getLiveRiskScore() {
+            return liveRiskScore;
+        }
+
+        public void setLiveRiskScore(Double liveRiskScore) {
+            this.liveRiskScore = liveRiskScore;
+        }
     }
 }
 
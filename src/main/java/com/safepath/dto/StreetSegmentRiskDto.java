@@ -17,6 +17,33 @@ public class StreetSegmentRiskDto {
     private LocalDateTime updatedAt;
     private Double latitude;
     private Double longitude;
+    // live overlay score, only set when the live overlay was requested; riskScore is then the blended score
+    private Double liveRiskScore;
+
+    public StreetSegmentRiskDto() {
+    }
+
+    /**
+     * Constructor used by the JPQL constructor-expression projections in StreetSegmentRiskRepository.
+     */
+    public StreetSegmentRiskDto(String unitid, String streetName, String riskLabel, Double riskScore,
+                                Integer clusterId, Double incidentDensity, Double nightFraction,
+                                Integer last90dIncidents, String modelVersion, String overrideReason,
+                                LocalDateTime updatedAt, Double latitude, Double longitude) {
+        this.unitid = unitid;
+        this.streetName = streetName;
+        this.riskLabel = riskLabel;
+        this.riskScore = riskScore;
+        this.clusterId = clusterId;
+        this.incidentDensity = incidentDensity;
+        this.nightFraction = nightFraction;
+        this.last90dIncidents = last90dIncidents;
+        this.modelVersion = modelVersion;
+        this.overrideReason = overrideReason;
+        this.updatedAt = updatedAt;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
 
     public String getUnitid() {
         return unitid;
@@ -121,5 +148,12 @@ public class StreetSegmentRiskDto {
     public void setLongitude(Double longitude) {
         this.longitude = longitude;
     }
-}
 
+    public Double getLiveRiskScore() {
+        return liveRiskScore;
+    }
+
+    public void setLiveRiskScore(Double liveRiskScore) {
+        this.liveRiskScore = liveRiskScore;
+    }
+}
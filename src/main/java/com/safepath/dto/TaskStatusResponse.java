@@ -13,6 +13,10 @@ public class TaskStatusResponse {
     private LocalDateTime startTime;
     private LocalDateTime endTime;
     private String errorMessage;
+    private String stage;           // current step reported by the script
+    private Long rowsProcessed;
+    private Long totalRows;
+    private Long etaSeconds;        // estimated remaining time, null until known
 
     public enum TaskStatus {
         PENDING,    // Pending
@@ -87,5 +91,36 @@ public class TaskStatusResponse {
     public void setErrorMessage(String errorMessage) {
         this.errorMessage = errorMessage;
     }
-}
 
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public Long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    public void setRowsProcessed(Long rowsProcessed) {
+        this.rowsProcessed = rowsProcessed;
+    }
+
+    public Long getTotalRows() {
+        return totalRows;
+    }
+
+    public void setTotalRows(Long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public void setEtaSeconds(Long etaSeconds) {
+        this.etaSeconds = etaSeconds;
+    }
+}
@@ -1,5 +1,7 @@
 package com.safepath.dto;
 
+import com.safepath.model.UserAlert;
+
 import java.time.LocalDateTime;
 
 public class UserAlertDto {
@@ -10,6 +12,7 @@ public class UserAlertDto {
     private Double centerLon;
     private String crimeTypeFilter;
     private Boolean activeFlag;
+    private UserAlert.DigestMode digestMode;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -71,6 +74,14 @@ public class UserAlertDto {
         this.activeFlag = activeFlag;
     }
 
+    public UserAlert.DigestMode getDigestMode() {
+        return digestMode;
+    }
+
+    public void setDigestMode(UserAlert.DigestMode digestMode) {
+        this.digestMode = digestMode;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,73 @@
+package com.safepath.dto;
+
+import java.util.List;
+
+/**
+ * Risk data for a map viewport
+ * Zoomed out the segments are aggregated into grid cells, zoomed in the individual segments are returned
+ */
+public class ViewportRiskResponse {
+
+    private Mode mode;
+    private int zoom;
+    private Double cellSizeDegrees;   // cell width in degrees of longitude, only set in CELLS mode; heights follow Web Mercator
+    private boolean live;             // whether live scores are blended in, never in CELLS mode
+    private List<RiskCellDto> cells;
+    private List<StreetSegmentRiskDto> segments;
+
+    public enum Mode {
+        CELLS,      // aggregated grid cells
+        SEGMENTS    // individual segments
+    }
+
+    public ViewportRiskResponse() {
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public int getZoom() {
+        return zoom;
+    }
+
+    public void setZoom(int zoom) {
+        this.zoom = zoom;
+    }
+
+    public Double getCellSizeDegrees() {
+        return cellSizeDegrees;
+    }
+
+    public void setCellSizeDegrees(Double cellSizeDegrees) {
+        this.cellSizeDegrees = cellSizeDegrees;
+    }
+
+    public boolean isLive() {
+        return live;
+    }
+
+    public void setLive(boolean live) {
+        this.live = live;
+    }
+
+    public List<RiskCellDto> getCells() {
+        return cells;
+    }
+
+    public void setCells(List<RiskCellDto> cells) {
+        this.cells = cells;
+    }
+
+    public List<StreetSegmentRiskDto> getSegments() {
+        return segments;
+    }
+
+    public void setSegments(List<StreetSegmentRiskDto> segments) {
+        this.segments = segments;
+    }
+}
@@ -0,0 +1,265 @@
+package com.safepath.etl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Bulk load of one ETL run through the unindexed {@code crime_staging} table.
+ * Rows are streamed into the staging table with the fastest mechanism of the database
+ * ({@code LOAD DATA LOCAL INFILE} on MySQL, multi-row INSERTs otherwise) and then merged into
+ * {@code offense_types}, {@code crime_reports} and {@code report_offenses} with one set-based
+ * statement per table, so index maintenance and row locks happen once per run instead of per row.
+ * <p>
+ * Staged rows keep their file order in {@code seq}; the last row of a report carries its values.
+ * Offenses are deduplicated on (report number, offense code, offense date).
+ */
+public final class CrimeStaging {
+
+    public enum Dialect {
+        MYSQL,
+        STANDARD    // H2 and anything else with MERGE and IS DISTINCT FROM
+    }
+
+    public static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS crime_staging ("
+        + "etl_id INT NOT NULL, seq BIGINT NOT NULL, report_number VARCHAR(50) NOT NULL, report_datetime DATETIME, "
+        + "offense_code VARCHAR(10) NOT NULL, offense_date DATETIME, offense_name VARCHAR(100), "
+        + "offense_parent_group VARCHAR(100), group_a_b CHAR(1), crime_against_category VARCHAR(50), "
+        + "precinct VARCHAR(100), sector VARCHAR(10), beat VARCHAR(10), mcpp_neighborhood VARCHAR(100), "
+        + "blurred_address VARCHAR(255), blurred_latitude DOUBLE, blurred_longitude DOUBLE)";
+
+    private static final String COLUMNS = "etl_id, seq, report_number, report_datetime, offense_code, offense_date, "
+        + "offense_name, offense_parent_group, group_a_b, crime_against_category, precinct, sector, beat, "
+        + "mcpp_neighborhood, blurred_address, blurred_latitude, blurred_longitude";
+    private static final int COLUMN_COUNT = 17;
+
+    private static final DateTimeFormatter SQL_DATETIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // the latest staged row of every report of the run; two etl_id parameters
+    private static final String LATEST_REPORTS = "SELECT s.report_number, s.report_datetime, s.precinct, s.sector, "
+        + "s.beat, s.mcpp_neighborhood, s.blurred_address, s.blurred_latitude, s.blurred_longitude "
+        + "FROM crime_staging s JOIN (SELECT report_number, MAX(seq) AS seq FROM crime_staging WHERE etl_id = ? "
+        + "GROUP BY report_number) l ON l.report_number = s.report_number AND l.seq = s.seq WHERE s.etl_id = ?";
+
+    private static final String MERGE_OFFENSE_TYPES = "INSERT IGNORE INTO offense_types "
+        + "(offense_code, offense_name, offense_parent_group, group_a_b, crime_against_category) "
+        + "SELECT s.offense_code, COALESCE(MAX(s.offense_name), s.offense_code), MAX(s.offense_parent_group), "
+        + "MAX(s.group_a_b), MAX(s.crime_against_category) FROM crime_staging s "
+        + "LEFT JOIN offense_types t ON t.offense_code = s.offense_code "
+        + "WHERE s.etl_id = ? AND t.offense_code IS NULL GROUP BY s.offense_code";
+
+    private static final String MERGE_NEW_REPORTS = "INSERT IGNORE INTO crime_reports (report_number, report_datetime, "
+        + "precinct, sector, beat, mcpp_neighborhood, blurred_address, blurred_latitude, blurred_longitude, etl_id) "
+        + "SELECT x.report_number, x.report_datetime, x.precinct, x.sector, x.beat, x.mcpp_neighborhood, "
+        + "x.blurred_address, x.blurred_latitude, x.blurred_longitude, ? FROM (" + LATEST_REPORTS + ") x "
+        + "LEFT JOIN crime_reports c ON c.report_number = x.report_number WHERE c.report_number IS NULL";
+
+    private static final String MERGE_OFFENSES = "INSERT IGNORE INTO report_offenses "
+        + "(report_number, offense_code, offense_date, etl_id) "
+        + "SELECT DISTINCT s.report_number, s.offense_code, s.offense_date, ? FROM crime_staging s "
+        + "LEFT JOIN report_offenses o ON o.report_number = s.report_number AND o.offense_code = s.offense_code "
+        + "AND o.offense_date = s.offense_date "
+        + "WHERE s.etl_id = ? AND s.offense_date IS NOT NULL AND o.offense_id IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+    private final int etlId;
+    private final int rowsPerStatement;
+    private final Path loadFile;
+    private boolean loadDataRefused;
+    private long seq;
+
+    /**
+     * @param loadFile scratch file for LOAD DATA, or null to stage with INSERT statements
+     */
+    public CrimeStaging(JdbcTemplate jdbcTemplate, Dialect dialect, int etlId, int rowsPerStatement, Path loadFile) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.etlId = etlId;
+        this.rowsPerStatement = rowsPerStatement;
+        this.loadFile = dialect == Dialect.MYSQL ? loadFile : null;
+    }
+
+    /**
+     * Drops rows left behind by earlier runs that did not finish. Rows of runs that are still
+     * RUNNING in etl_runs are kept, they may belong to a run of another node.
+     */
+    public void clearStale() {
+        jdbcTemplate.update("DELETE FROM crime_staging WHERE etl_id <> ? AND etl_id NOT IN "
+            + "(SELECT etl_id FROM etl_runs WHERE status = 'RUNNING')", etlId);
+    }
+
+    /**
+     * Appends the records to the staging table. If the server refuses LOAD DATA (local_infile
+     * disabled), the run continues with INSERT statements.
+     *
+     * @throws IOException if the LOAD DATA file cannot be written
+     */
+    public void stage(List<SpdCrimeRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        if (loadFile != null && !loadDataRefused) {
+            long first = seq;
+            try {
+                loadData(records);
+                return;
+            } catch (DataAccessException e) {
+                // a refused LOAD DATA statement loads nothing
+                loadDataRefused = true;
+                seq = first;
+            }
+        }
+        List<Object[]> rows = new ArrayList<>(records.size());
+        for (SpdCrimeRecord r : records) {
+            rows.add(new Object[] {etlId, seq++, r.reportNumber, r.reportDatetime, r.offenseCode, r.offenseDate,
+                r.offenseName, r.offenseParentGroup, r.groupAB, r.crimeAgainstCategory, r.precinct, r.sector,
+                r.beat, r.mcppNeighborhood, r.blurredAddress, r.blurredLatitude, r.blurredLongitude});
+        }
+        MultiRowInsert.insert(jdbcTemplate, "INSERT INTO crime_staging (" + COLUMNS + ")", COLUMN_COUNT, rows,
+            rowsPerStatement);
+    }
+
+    /**
+     * @return true if the server refused LOAD DATA and the rows were staged with INSERTs
+     */
+    public boolean isLoadDataRefused() {
+        return loadDataRefused;
+    }
+
+    /**
+     * Merges the staged rows into the real tables and empties the staging rows of the run.
+     * Every statement commits on its own; each one is idempotent, so a failed run is repaired by
+     * the next one.
+     */
+    public Result merge() {
+        Result result = new Result();
+        result.offenseTypes = jdbcTemplate.update(MERGE_OFFENSE_TYPES, etlId);
+        // existing reports first, so the insert below only sees the new ones
+        result.updatedReportNumbers = jdbcTemplate.queryForList("SELECT c.report_number FROM crime_reports c JOIN ("
+            + LATEST_REPORTS + ") x ON x.report_number = c.report_number WHERE " + changedCondition(),
+            String.class, etlId, etlId);
+        result.updatedReports = jdbcTemplate.update(updateChangedReports(), etlId, etlId);
+        result.reports = jdbcTemplate.update(MERGE_NEW_REPORTS, etlId, etlId, etlId);
+        result.offenses = jdbcTemplate.update(MERGE_OFFENSES, etlId, etlId);
+        jdbcTemplate.update("DELETE FROM crime_staging WHERE etl_id = ?", etlId);
+        return result;
+    }
+
+    /**
+     * Updates reports whose staged values differ; a report that moved loses its snapped segment
+     * so that the segment backfill matches it again. The snap columns are assigned first because
+     * MySQL evaluates SET assignments left to right against the already updated row.
+     */
+    private String updateChangedReports() {
+        String moved = movedCondition();
+        String changed = changedCondition();
+        // MySQL's multi-table UPDATE needs qualified targets, MERGE takes plain column names
+        String t = dialect == Dialect.MYSQL ? "c." : "";
+        String set = t + "unitid = CASE WHEN " + moved + " THEN NULL ELSE c.unitid END, "
+            + t + "snapped_distance_m = CASE WHEN " + moved + " THEN NULL ELSE c.snapped_distance_m END, "
+            + t + "report_datetime = x.report_datetime, " + t + "precinct = x.precinct, "
+            + t + "sector = x.sector, " + t + "beat = x.beat, " + t + "mcpp_neighborhood = x.mcpp_neighborhood, "
+            + t + "blurred_address = x.blurred_address, " + t + "blurred_latitude = x.blurred_latitude, "
+            + t + "blurred_longitude = x.blurred_longitude";
+        if (dialect == Dialect.MYSQL) {
+            return "UPDATE crime_reports c JOIN (" + LATEST_REPORTS + ") x ON x.report_number = c.report_number "
+                + "SET " + set + " WHERE " + changed;
+        }
+        return "MERGE INTO crime_reports c USING (" + LATEST_REPORTS + ") x ON c.report_number = x.report_number "
+            + "WHEN MATCHED AND (" + changed + ") THEN UPDATE SET " + set;
+    }
+
+    private String movedCondition() {
+        return distinct("c.blurred_latitude", "x.blurred_latitude") + " OR "
+            + distinct("c.blurred_longitude", "x.blurred_longitude");
+    }
+
+    private String changedCondition() {
+        return distinct("c.report_datetime", "x.report_datetime") + " OR "
+            + distinct("c.precinct", "x.precinct") + " OR " + distinct("c.sector", "x.sector") + " OR "
+            + distinct("c.beat", "x.beat") + " OR " + distinct("c.mcpp_neighborhood", "x.mcpp_neighborhood") + " OR "
+            + distinct("c.blurred_address", "x.blurred_address") + " OR " + movedCondition();
+    }
+
+    private String distinct(String a, String b) {
+        return dialect == Dialect.MYSQL ? "NOT (" + a + " <=> " + b + ")" : a + " IS DISTINCT FROM " + b;
+    }
+
+    /**
+     * Writes the records in MySQL's default LOAD DATA format (tab separated, backslash escapes,
+     * \N for NULL) and loads the file in one statement.
+     */
+    private void loadData(List<SpdCrimeRecord> records) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(loadFile, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder(256);
+            for (SpdCrimeRecord r : records) {
+                line.setLength(0);
+                line.append(etlId).append('\t').append(seq++);
+                field(line, r.reportNumber);
+                field(line, r.reportDatetime);
+                field(line, r.offenseCode);
+                field(line, r.offenseDate);
+                field(line, r.offenseName);
+                field(line, r.offenseParentGroup);
+                field(line, r.groupAB);
+                field(line, r.crimeAgainstCategory);
+                field(line, r.precinct);
+                field(line, r.sector);
+                field(line, r.beat);
+                field(line, r.mcppNeighborhood);
+                field(line, r.blurredAddress);
+                field(line, r.blurredLatitude);
+                field(line, r.blurredLongitude);
+                out.append(line).append('\n');
+            }
+        }
+        String path = loadFile.toAbsolutePath().toString().replace('\\', '/').replace("'", "\\'");
+        jdbcTemplate.execute("LOAD DATA LOCAL INFILE '" + path + "' INTO TABLE crime_staging "
+            + "CHARACTER SET utf8mb4 (" + COLUMNS + ")");
+    }
+
+    private static void field(StringBuilder line, Object value) {
+        line.append('\t');
+        if (value == null) {
+            line.append("\\N");
+        } else if (value instanceof LocalDateTime) {
+            line.append(SQL_DATETIME.format((LocalDateTime) value));
+        } else if (value instanceof String) {
+            String s = (String) value;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '\\': line.append("\\\\"); break;
+                    case '\t': line.append("\\t"); break;
+                    case '\n': line.append("\\n"); break;
+                    case '\r': line.append("\\r"); break;
+                    default: line.append(c);
+                }
+            }
+        } else {
+            line.append(value);
+        }
+    }
+
+    /**
+     * Rows written by a merge.
+     */
+    public static final class Result {
+        public int offenseTypes;
+        public int reports;
+        public int updatedReports;
+        // selected right before the update, another writer may have changed some of them meanwhile
+        public List<String> updatedReportNumbers = List.of();
+        public int offenses;
+    }
+}
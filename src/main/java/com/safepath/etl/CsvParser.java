@@ -0,0 +1,83 @@
+package com.safepath.etl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 parser working directly on a byte range of a (mapped) buffer.
+ * Fields may be quoted, with {@code ""} as an escaped quote; empty fields become null.
+ * Only absolute reads are used, so several ranges of one buffer can be parsed at once.
+ */
+final class CsvParser {
+
+    private CsvParser() {
+    }
+
+    /**
+     * Parses the lines of {@code [from, to)} and adds one array per non-blank line to {@code out}.
+     */
+    static void parse(ByteBuffer buffer, int from, int to, List<String[]> out) {
+        List<String> fields = new ArrayList<>(24);
+        byte[] scratch = new byte[256];
+        int i = from;
+        while (i < to) {
+            fields.clear();
+            boolean lineEnded = false;
+            while (!lineEnded) {
+                int length = 0;
+                boolean quoted = i < to && buffer.get(i) == '"';
+                if (quoted) {
+                    i++;
+                    while (i < to) {
+                        byte b = buffer.get(i);
+                        if (b == '"') {
+                            if (i + 1 < to && buffer.get(i + 1) == '"') {
+                                scratch = append(scratch, length++, b);
+                                i += 2;
+                                continue;
+                            }
+                            i++;
+                            break;
+                        }
+                        if (b == '\n') {
+                            // unterminated quote, the record is cut at the line break
+                            break;
+                        }
+                        scratch = append(scratch, length++, b);
+                        i++;
+                    }
+                }
+                while (i < to) {
+                    byte b = buffer.get(i);
+                    if (b == ',' || b == '\n') {
+                        break;
+                    }
+                    if (b != '\r' || (i + 1 < to && buffer.get(i + 1) != '\n')) {
+                        scratch = append(scratch, length++, b);
+                    }
+                    i++;
+                }
+                fields.add(length == 0 ? null : new String(scratch, 0, length, StandardCharsets.UTF_8).trim());
+                if (i >= to || buffer.get(i) == '\n') {
+                    lineEnded = true;
+                }
+                i++;
+            }
+            if (fields.size() > 1 || fields.get(0) != null) {
+                out.add(fields.toArray(new String[0]));
+            }
+        }
+    }
+
+    private static byte[] append(byte[] scratch, int at, byte b) {
+        if (at == scratch.length) {
+            byte[] bigger = new byte[scratch.length * 2];
+            System.arraycopy(scratch, 0, bigger, 0, at);
+            scratch = bigger;
+        }
+        scratch[at] = b;
+        return scratch;
+    }
+}
@@ -0,0 +1,71 @@
+package com.safepath.etl;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Incident ids seen within a sliding time window, for deduplicating the realtime feed in memory.
+ * Ids are kept in arrival order and expire once their event time falls out of the window (or
+ * the window exceeds its size), so memory is bounded by the feed volume of the window. An id that
+ * is not in the window may still be stored, by another writer or before the window; the caller
+ * checks those against the database.
+ */
+public final class IncidentIdWindow {
+
+    private final long retentionMinutes;
+    private final int maxSize;
+    private final Map<String, LocalDateTime> ids = new LinkedHashMap<>();
+    private LocalDateTime horizon;
+
+    public IncidentIdWindow(long retentionMinutes, int maxSize) {
+        this.retentionMinutes = retentionMinutes;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return false if the id was already seen
+     */
+    public synchronized boolean add(String id, LocalDateTime eventDatetime) {
+        return ids.putIfAbsent(id, eventDatetime == null ? LocalDateTime.now() : eventDatetime) == null;
+    }
+
+    public synchronized boolean contains(String id) {
+        return ids.containsKey(id);
+    }
+
+    /**
+     * Declares that every stored incident after {@code from} has been added.
+     */
+    public synchronized void seeded(LocalDateTime from) {
+        horizon = from;
+    }
+
+    public synchronized boolean isSeeded() {
+        return horizon != null;
+    }
+
+    /**
+     * Drops ids older than the retention window, then the oldest ones beyond the size limit.
+     */
+    public synchronized void expire(LocalDateTime now) {
+        LocalDateTime cutoff = now.minusMinutes(retentionMinutes);
+        Iterator<Map.Entry<String, LocalDateTime>> it = ids.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, LocalDateTime> e = it.next();
+            if (ids.size() <= maxSize && !e.getValue().isBefore(cutoff)) {
+                break;
+            }
+            // incidents up to this time may no longer all be in the window
+            if (horizon == null || e.getValue().isAfter(horizon)) {
+                horizon = e.getValue();
+            }
+            it.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,158 @@
+package com.safepath.etl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a CSV file through a sliding memory-mapped window.
+ * Each window ends at a line break and is split into line-aligned slices that can be parsed in
+ * parallel, so memory use depends on the window size, not on the file size. Records must not
+ * contain line breaks inside quoted fields (the SPD export has none); such a record is split
+ * and shows up as two malformed rows.
+ */
+public final class MappedCsvReader implements Closeable {
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowBytes;
+    private final List<String> header;
+    private long position;
+
+    public MappedCsvReader(Path file, int windowBytes) throws IOException {
+        if (windowBytes <= 0) {
+            throw new IllegalArgumentException("windowBytes must be positive");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowBytes = windowBytes;
+        MappedByteBuffer first = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, windowBytes));
+        int start = hasBom(first) ? 3 : 0;
+        int end = indexOf(first, start, first.limit(), (byte) '\n');
+        if (end < 0 && first.limit() < size) {
+            throw new IOException("CSV header is longer than the read window");
+        }
+        end = end < 0 ? first.limit() : end;
+        List<String[]> rows = new ArrayList<>(1);
+        CsvParser.parse(first, start, end, rows);
+        this.header = rows.isEmpty() ? List.of() : List.of(rows.get(0));
+        this.position = Math.min(size, end + 1L);
+    }
+
+    public List<String> header() {
+        return header;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Maps the next window and splits it into up to {@code parts} slices at line breaks.
+     *
+     * @return the window, or null once the whole file was read
+     */
+    public Window next(int parts) throws IOException {
+        if (position >= size) {
+            return null;
+        }
+        long length = Math.min(windowBytes, size - position);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        int end = (int) length;
+        if (position + length < size) {
+            int lastBreak = lastIndexOf(buffer, end, (byte) '\n');
+            if (lastBreak < 0) {
+                throw new IOException("CSV line at byte " + position + " is longer than the read window");
+            }
+            end = lastBreak + 1;
+        }
+        int[] bounds = split(buffer, end, Math.max(1, parts));
+        position += end;
+        return new Window(buffer, bounds);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Line-aligned slice boundaries; slice i covers [bounds[i], bounds[i + 1]).
+     */
+    private static int[] split(MappedByteBuffer buffer, int end, int parts) {
+        List<Integer> bounds = new ArrayList<>(parts + 1);
+        bounds.add(0);
+        int target = Math.max(1, end / parts);
+        int from = 0;
+        while (from + target < end) {
+            int lineBreak = indexOf(buffer, from + target, end, (byte) '\n');
+            if (lineBreak < 0 || lineBreak + 1 >= end) {
+                break;
+            }
+            from = lineBreak + 1;
+            bounds.add(from);
+        }
+        bounds.add(end);
+        return bounds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static boolean hasBom(MappedByteBuffer b) {
+        return b.limit() >= 3 && b.get(0) == (byte) 0xEF && b.get(1) == (byte) 0xBB && b.get(2) == (byte) 0xBF;
+    }
+
+    private static int indexOf(MappedByteBuffer b, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (b.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(MappedByteBuffer b, int to, byte value) {
+        for (int i = to - 1; i >= 0; i--) {
+            if (b.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * One mapped window. The buffer is only read with absolute gets, so the slices can be
+     * parsed concurrently.
+     */
+    public static final class Window {
+        private final MappedByteBuffer buffer;
+        private final int[] bounds;
+
+        Window(MappedByteBuffer buffer, int[] bounds) {
+            this.buffer = buffer;
+            this.bounds = bounds;
+        }
+
+        public int slices() {
+            return bounds.length - 1;
+        }
+
+        public int bytes() {
+            return bounds[bounds.length - 1];
+        }
+
+        /**
+         * Parses slice {@code i} into {@code out}.
+         */
+        public void parse(int i, List<String[]> out) {
+            CsvParser.parse(buffer, bounds[i], bounds[i + 1], out);
+        }
+    }
+}
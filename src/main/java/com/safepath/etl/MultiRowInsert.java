@@ -0,0 +1,42 @@
+package com.safepath.etl;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Sends rows as multi-row {@code INSERT ... VALUES (...),(...)} statements, which MySQL executes
+ * far faster than the same number of single-row statements in a JDBC batch.
+ */
+public final class MultiRowInsert {
+
+    private MultiRowInsert() {
+    }
+
+    /**
+     * @param insert the statement up to the column list, e.g. {@code INSERT IGNORE INTO t (a, b)}
+     * @param columns number of values per row
+     * @param rowsPerStatement rows sent per statement
+     * @return the number of affected rows
+     */
+    public static int insert(JdbcTemplate jdbcTemplate, String insert, int columns, List<Object[]> rows,
+                              int rowsPerStatement) {
+        String group = "(" + "?,".repeat(columns - 1) + "?)";
+        int affected = 0;
+        for (int from = 0; from < rows.size(); from += rowsPerStatement) {
+            int to = Math.min(rows.size(), from + rowsPerStatement);
+            StringBuilder sql = new StringBuilder(insert.length() + 8 + (to - from) * (group.length() + 1));
+            sql.append(insert).append(" VALUES ");
+            Object[] args = new Object[(to - from) * columns];
+            for (int i = from; i < to; i++) {
+                if (i > from) {
+                    sql.append(',');
+                }
+                sql.append(group);
+                System.arraycopy(rows.get(i), 0, args, (i - from) * columns, columns);
+            }
+            affected += jdbcTemplate.update(sql.toString(), args);
+        }
+        return affected;
+    }
+}
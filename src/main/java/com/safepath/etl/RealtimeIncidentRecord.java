@@ -0,0 +1,213 @@
+package com.safepath.etl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One row of the Seattle Fire Real-Time 911 feed. Both the CSV export ("Incident Number",
+ * "Datetime" as "2024 Mar 01 10:15:00 PM") and the Socrata API ("incident_number", ISO datetime)
+ * are accepted, like the column renaming in etl_realtime.py.
+ */
+public final class RealtimeIncidentRecord {
+
+    private static final DateTimeFormatter EXPORT_FORMAT = new DateTimeFormatterBuilder()
+        .parseCaseInsensitive()
+        .appendPattern("yyyy MMM dd hh:mm:ss a")
+        .toFormatter(Locale.ENGLISH);
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    public final String incidentId;
+    public final String incidentType;
+    public final LocalDateTime eventDatetime;
+    public final String address;
+    public final double latitude;
+    public final double longitude;
+    public final String reportLocation;
+
+    private RealtimeIncidentRecord(String incidentId, String incidentType, LocalDateTime eventDatetime,
+                                   String address, double latitude, double longitude, String reportLocation) {
+        this.incidentId = incidentId;
+        this.incidentType = incidentType;
+        this.eventDatetime = eventDatetime;
+        this.address = address;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.reportLocation = reportLocation;
+    }
+
+    /**
+     * Receives the records of a feed as they are parsed.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        void accept(RealtimeIncidentRecord record) throws InterruptedException;
+    }
+
+    /**
+     * Streams a feed response: the input is parsed in chunks that end at a line break (like
+     * {@link MappedCsvReader}, records do not span lines), so records reach the sink while the rest
+     * of the response is still being received. Rows without incident number or coordinates are dropped.
+     *
+     * @return the number of data rows read, including dropped ones
+     */
+    public static long read(InputStream in, Sink sink) throws IOException, InterruptedException {
+        byte[] buf = new byte[CHUNK_BYTES];
+        int len = 0;
+        int scanned = 0;
+        boolean first = true;
+        Columns columns = null;
+        long rows = 0;
+        List<String[]> parsed = new ArrayList<>();
+        while (true) {
+            if (len == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            int n = in.read(buf, len, buf.length - len);
+            if (n < 0) {
+                break;
+            }
+            len += n;
+            int lastBreak = -1;
+            for (int i = len - 1; i >= scanned; i--) {
+                if (buf[i] == '\n') {
+                    lastBreak = i;
+                    break;
+                }
+            }
+            scanned = len;
+            if (lastBreak < 0) {
+                continue;
+            }
+            int start = first ? bomLength(buf, len) : 0;
+            first = false;
+            parsed.clear();
+            CsvParser.parse(ByteBuffer.wrap(buf), start, lastBreak + 1, parsed);
+            columns = emit(parsed, columns, sink);
+            rows += parsed.size();
+            // keep the incomplete last line for the next chunk
+            int rest = len - lastBreak - 1;
+            System.arraycopy(buf, lastBreak + 1, buf, 0, rest);
+            len = rest;
+            scanned = rest;
+        }
+        if (len > 0) {
+            parsed.clear();
+            CsvParser.parse(ByteBuffer.wrap(buf), first ? bomLength(buf, len) : 0, len, parsed);
+            columns = emit(parsed, columns, sink);
+            rows += parsed.size();
+        }
+        // the header is not a data row
+        return Math.max(0, rows - 1);
+    }
+
+    private static Columns emit(List<String[]> parsed, Columns columns, Sink sink) throws InterruptedException {
+        int from = 0;
+        if (columns == null) {
+            if (parsed.isEmpty()) {
+                return null;
+            }
+            columns = new Columns(parsed.get(0));
+            from = 1;
+        }
+        for (String[] fields : parsed.subList(from, parsed.size())) {
+            RealtimeIncidentRecord record = columns.record(fields);
+            if (record != null) {
+                sink.accept(record);
+            }
+        }
+        return columns;
+    }
+
+    private static int bomLength(byte[] buf, int len) {
+        return len >= 3 && (buf[0] & 0xff) == 0xEF && (buf[1] & 0xff) == 0xBB && (buf[2] & 0xff) == 0xBF ? 3 : 0;
+    }
+
+    /**
+     * Positions of the used columns, resolved from the header.
+     */
+    private static final class Columns {
+        final int id;
+        final int datetime;
+        final int type;
+        final int address;
+        final int latitude;
+        final int longitude;
+        final int location;
+
+        Columns(String[] names) {
+            List<String> header = new ArrayList<>();
+            for (String name : names) {
+                header.add(normalize(name));
+            }
+            id = required(header, "incidentnumber");
+            datetime = required(header, "datetime");
+            type = header.indexOf("type");
+            address = header.indexOf("address");
+            latitude = header.indexOf("latitude");
+            longitude = header.indexOf("longitude");
+            location = header.indexOf("reportlocation");
+        }
+
+        RealtimeIncidentRecord record(String[] fields) {
+            String incidentId = field(fields, id);
+            Double lat = number(field(fields, latitude));
+            Double lon = number(field(fields, longitude));
+            if (incidentId == null || lat == null || lon == null) {
+                return null;
+            }
+            return new RealtimeIncidentRecord(incidentId, field(fields, type), date(field(fields, datetime)),
+                field(fields, address), lat, lon, field(fields, location));
+        }
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    private static int required(List<String> header, String name) {
+        int i = header.indexOf(name);
+        if (i < 0) {
+            throw new IllegalArgumentException("Realtime feed has no " + name + " column: "
+                + Arrays.toString(header.toArray()));
+        }
+        return i;
+    }
+
+    private static String field(String[] fields, int i) {
+        return i >= 0 && i < fields.length ? fields[i] : null;
+    }
+
+    private static LocalDateTime date(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return value.indexOf('T') > 0
+                ? LocalDateTime.parse(value, DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+                : LocalDateTime.parse(value, EXPORT_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static Double number(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
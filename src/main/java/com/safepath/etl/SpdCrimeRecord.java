@@ -0,0 +1,159 @@
+package com.safepath.etl;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One row of the SPD Crime Data export, i.e. one offense of a report.
+ * Column names and the date format follow etl_spd_crime.py; unparseable dates and coordinates
+ * become null like {@code errors="coerce"} there.
+ */
+public final class SpdCrimeRecord {
+
+    // e.g. "2023 Jan 05 10:31:00 PM"
+    private static final DateTimeFormatter DATE_FORMAT = new DateTimeFormatterBuilder()
+        .parseCaseInsensitive()
+        .appendPattern("yyyy MMM dd hh:mm:ss a")
+        .toFormatter(Locale.ENGLISH);
+
+    public final String reportNumber;
+    // id of the offense row in the export, increasing with new offenses; null if the column is missing
+    public final Long offenseId;
+    public final LocalDateTime reportDatetime;
+    public final LocalDateTime offenseDate;
+    public final String offenseCode;
+    public final String offenseName;
+    public final String offenseParentGroup;
+    public final String groupAB;
+    public final String crimeAgainstCategory;
+    public final String blurredAddress;
+    public final Double blurredLatitude;
+    public final Double blurredLongitude;
+    public final String precinct;
+    public final String sector;
+    public final String beat;
+    public final String mcppNeighborhood;
+
+    /**
+     * Positions of the used columns in the export, resolved once from the header.
+     */
+    public static final class Columns {
+        final int reportNumber;
+        final int reportDatetime;
+        final int offenseId;
+        final int offenseDate;
+        final int offenseCode;
+        final int offenseName;
+        final int offenseParentGroup;
+        final int groupAB;
+        final int crimeAgainstCategory;
+        final int blurredAddress;
+        final int latitude;
+        final int longitude;
+        final int precinct;
+        final int sector;
+        final int beat;
+        final int neighborhood;
+
+        public Columns(List<String> header) {
+            reportNumber = required(header, "Report Number");
+            reportDatetime = required(header, "Report DateTime");
+            offenseId = header.indexOf("Offense ID");
+            offenseDate = required(header, "Offense Date");
+            offenseCode = required(header, "NIBRS_offense_code");
+            offenseName = header.indexOf("NIBRS Offense Code Description");
+            offenseParentGroup = header.indexOf("Offense Category");
+            groupAB = header.indexOf("NIBRS Group AB");
+            crimeAgainstCategory = header.indexOf("NIBRS Crime Against Category");
+            blurredAddress = header.indexOf("Block Address");
+            latitude = header.indexOf("Latitude");
+            longitude = header.indexOf("Longitude");
+            precinct = header.indexOf("Precinct");
+            sector = header.indexOf("Sector");
+            beat = header.indexOf("Beat");
+            neighborhood = header.indexOf("Neighborhood");
+        }
+
+        private static int required(List<String> header, String name) {
+            int i = header.indexOf(name);
+            if (i < 0) {
+                throw new IllegalArgumentException("SPD crime CSV has no \"" + name + "\" column");
+            }
+            return i;
+        }
+    }
+
+    private SpdCrimeRecord(String reportNumber, String offenseCode, String[] fields, Columns c) {
+        this.reportNumber = reportNumber;
+        this.offenseCode = offenseCode;
+        this.reportDatetime = date(field(fields, c.reportDatetime));
+        this.offenseId = id(field(fields, c.offenseId));
+        this.offenseDate = date(field(fields, c.offenseDate));
+        this.offenseName = field(fields, c.offenseName);
+        this.offenseParentGroup = field(fields, c.offenseParentGroup);
+        this.groupAB = field(fields, c.groupAB);
+        this.crimeAgainstCategory = field(fields, c.crimeAgainstCategory);
+        this.blurredAddress = field(fields, c.blurredAddress);
+        this.blurredLatitude = number(field(fields, c.latitude));
+        this.blurredLongitude = number(field(fields, c.longitude));
+        this.precinct = field(fields, c.precinct);
+        this.sector = field(fields, c.sector);
+        this.beat = field(fields, c.beat);
+        this.mcppNeighborhood = field(fields, c.neighborhood);
+    }
+
+    /**
+     * Maps a parsed row.
+     *
+     * @return the record, or null if the row has no report number or offense code
+     */
+    public static SpdCrimeRecord of(String[] fields, Columns c) {
+        String reportNumber = field(fields, c.reportNumber);
+        String offenseCode = field(fields, c.offenseCode);
+        if (reportNumber == null || offenseCode == null) {
+            return null;
+        }
+        return new SpdCrimeRecord(reportNumber, offenseCode, fields, c);
+    }
+
+    private static String field(String[] fields, int i) {
+        return i >= 0 && i < fields.length ? fields[i] : null;
+    }
+
+    private static LocalDateTime date(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value, DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static Long id(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Double number(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
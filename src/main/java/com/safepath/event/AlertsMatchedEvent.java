@@ -0,0 +1,107 @@
+package com.safepath.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.safepath.model.UserAlert;
+
+/**
+ * Published when new crime reports or realtime incidents fall inside the geofence of active user
+ * alerts. One match per alert and incident; delivery to the users is up to the listeners.
+ */
+public class AlertsMatchedEvent {
+
+    public enum Source {
+        CRIME_REPORT, REALTIME_INCIDENT
+    }
+
+    /**
+     * One incident inside one alert's circle that passed the alert's crime type filter.
+     */
+    public static class Match {
+        private final int alertId;
+        private final int userId;
+        private final Source source;
+        private final String incidentId;
+        private final String category;
+        private final LocalDateTime occurredAt;
+        private final double latitude;
+        private final double longitude;
+        private final double distanceMeters;
+        private final UserAlert.DigestMode digestMode;
+
+        public Match(int alertId, int userId, Source source, String incidentId, String category,
+                     LocalDateTime occurredAt, double latitude, double longitude, double distanceMeters,
+                     UserAlert.DigestMode digestMode) {
+            this.alertId = alertId;
+            this.userId = userId;
+            this.source = source;
+            this.incidentId = incidentId;
+            this.category = category;
+            this.occurredAt = occurredAt;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.distanceMeters = distanceMeters;
+            this.digestMode = digestMode;
+        }
+
+        public int getAlertId() {
+            return alertId;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public Source getSource() {
+            return source;
+        }
+
+        /**
+         * Report number or realtime incident id.
+         */
+        public String getIncidentId() {
+            return incidentId;
+        }
+
+        /**
+         * Offense groups of a report or the type of a realtime incident, may be null.
+         */
+        public String getCategory() {
+            return category;
+        }
+
+        public LocalDateTime getOccurredAt() {
+            return occurredAt;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public double getDistanceMeters() {
+            return distanceMeters;
+        }
+
+        /**
+         * Delivery mode of the alert at the time of the match.
+         */
+        public UserAlert.DigestMode getDigestMode() {
+            return digestMode;
+        }
+    }
+
+    private final List<Match> matches;
+
+    public AlertsMatchedEvent(List<Match> matches) {
+        this.matches = List.copyOf(matches);
+    }
+
+    public List<Match> getMatches() {
+        return matches;
+    }
+}
@@ -0,0 +1,38 @@
+package com.safepath.event;
+
+import java.util.List;
+
+import com.safepath.model.CrimeReport;
+
+/**
+ * Published after existing crime reports have been updated or deleted, either through
+ * {@code CrimeReportService} or an ingestion run. Updated reports carry their new values; they
+ * may have moved in time or space, so listeners drop what they derived from the old ones.
+ * New reports are published with {@link CrimeReportsIngestedEvent} instead.
+ */
+public class CrimeReportsChangedEvent {
+
+    private final List<CrimeReport> updated;
+    private final List<String> deletedReportNumbers;
+
+    public CrimeReportsChangedEvent(List<CrimeReport> updated, List<String> deletedReportNumbers) {
+        this.updated = List.copyOf(updated);
+        this.deletedReportNumbers = List.copyOf(deletedReportNumbers);
+    }
+
+    public static CrimeReportsChangedEvent updated(List<CrimeReport> reports) {
+        return new CrimeReportsChangedEvent(reports, List.of());
+    }
+
+    public static CrimeReportsChangedEvent deleted(List<String> reportNumbers) {
+        return new CrimeReportsChangedEvent(List.of(), reportNumbers);
+    }
+
+    public List<CrimeReport> getUpdated() {
+        return updated;
+    }
+
+    public List<String> getDeletedReportNumbers() {
+        return deletedReportNumbers;
+    }
+}
@@ -0,0 +1,23 @@
+package com.safepath.event;
+
+import java.util.List;
+
+import com.safepath.model.CrimeReport;
+
+/**
+ * Published after new crime reports have been written, either through
+ * {@code CrimeReportService.save} or a bulk ingestion run.
+ * Listeners use it to keep in-memory structures fresh without a full reload.
+ */
+public class CrimeReportsIngestedEvent {
+
+    private final List<CrimeReport> reports;
+
+    public CrimeReportsIngestedEvent(List<CrimeReport> reports) {
+        this.reports = List.copyOf(reports);
+    }
+
+    public List<CrimeReport> getReports() {
+        return reports;
+    }
+}
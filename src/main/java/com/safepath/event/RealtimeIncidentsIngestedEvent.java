@@ -0,0 +1,23 @@
+package com.safepath.event;
+
+import java.util.List;
+
+import com.safepath.model.RealtimeIncident;
+
+/**
+ * Published after new realtime 911 incidents have been written by the realtime ingestion.
+ * Only incidents that were not stored before are included. Listeners run on the writer of
+ * the ingestion, so slow consumers should hand the work off.
+ */
+public class RealtimeIncidentsIngestedEvent {
+
+    private final List<RealtimeIncident> incidents;
+
+    public RealtimeIncidentsIngestedEvent(List<RealtimeIncident> incidents) {
+        this.incidents = List.copyOf(incidents);
+    }
+
+    public List<RealtimeIncident> getIncidents() {
+        return incidents;
+    }
+}
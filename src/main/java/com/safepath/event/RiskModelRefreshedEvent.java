@@ -0,0 +1,26 @@
+package com.safepath.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published after a batch risk score update has finished writing
+ * {@code street_segment_risk}.
+ */
+public class RiskModelRefreshedEvent {
+
+    private final String taskId;
+    private final LocalDateTime completedAt;
+
+    public RiskModelRefreshedEvent(String taskId, LocalDateTime completedAt) {
+        this.taskId = taskId;
+        this.completedAt = completedAt;
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+}
@@ -0,0 +1,459 @@
+package com.safepath.index;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import com.safepath.model.UserAlert;
+import com.safepath.repository.UserAlertRepository;
+import com.safepath.util.GeoUtils;
+
+/**
+ * In-memory geofence index of the active user alerts.
+ * Every alert circle is registered in each cell of a uniform lat/lon grid that its bounding box
+ * overlaps, so matching a point only reads the member list of the cell it falls in and checks the
+ * distance to those few centers. Alerts whose circle covers more than {@value #MAX_CELLS} cells are
+ * kept in a separate list that every lookup checks, which keeps the grid small for the rare
+ * city-wide alert. Alert data lives in primitive arrays indexed by slot; slots of removed alerts are
+ * reused. {@link com.safepath.service.UserAlertService} reports every change of this app and moves
+ * the stored watermark (row count, highest id, latest update) along with it. The JSP app writes
+ * user_alerts directly, so {@link #reloadIfChanged()} compares the watermark of the table with the
+ * stored one: inserted or deleted rows reload the index, rows updated since the latest known update
+ * are re-read and applied in place.
+ */
+@Component
+public class AlertGeofenceIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertGeofenceIndex.class);
+
+    // ~550m x ~370m cells in Seattle
+    private static final double CELL_DEGREES = 0.005;
+    private static final int MAX_CELLS = 256;
+    private static final int LOAD_CHUNK = 5000;
+    // updates re-read before the latest known one, covers clock skew between the writers
+    private static final long UPDATE_OVERLAP_MINUTES = 5;
+
+    private final UserAlertRepository alertRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Value("${safepath.crime-counts.default-alert-radius-m:500}")
+    private int defaultRadiusMeters;
+
+    private State state = new State(0, 0, null);
+    // changes applied while a reload builds its state, replayed on it before the swap
+    private List<Consumer<State>> missed;
+    private volatile boolean loaded;
+
+    public AlertGeofenceIndex(UserAlertRepository alertRepository) {
+        this.alertRepository = alertRepository;
+    }
+
+    /**
+     * An alert whose circle contains the looked up point.
+     */
+    public static class Match {
+        public final int alertId;
+        public final int userId;
+        public final double distanceMeters;
+        public final UserAlert.DigestMode digestMode;
+        private final String[] filterTokens;
+
+        Match(int alertId, int userId, double distanceMeters, UserAlert.DigestMode digestMode,
+              String[] filterTokens) {
+            this.alertId = alertId;
+            this.userId = userId;
+            this.distanceMeters = distanceMeters;
+            this.digestMode = digestMode;
+            this.filterTokens = filterTokens;
+        }
+
+        public boolean hasFilter() {
+            return filterTokens != null;
+        }
+
+        /**
+         * Whether the crime type filter of the alert accepts an incident of the given categories:
+         * one of the comma separated tokens is contained in one of them, ignoring case, as in the
+         * alert preview. Alerts without a filter accept everything.
+         */
+        public boolean accepts(Collection<String> categories) {
+            if (filterTokens == null) {
+                return true;
+            }
+            for (String category : categories) {
+                if (category == null) {
+                    continue;
+                }
+                String c = category.toUpperCase(Locale.ROOT);
+                for (String token : filterTokens) {
+                    if (c.contains(token)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Reloads all active alerts from the database and swaps the index. The new data is built next
+     * to the current one; changes reported meanwhile are replayed on it.
+     */
+    public synchronized void reload() {
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            missed = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        State fresh;
+        try {
+            fresh = load();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                missed = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            missed.forEach(change -> change.accept(fresh));
+            missed = null;
+            state = fresh;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Alert geofence index loaded: {} alerts in {} cells, {} wide, in {} ms",
+            fresh.slots.size(), fresh.cells.size(), fresh.wideSlots.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Brings the index up to date with writes of other apps: reloads it if alerts were inserted or
+     * deleted, or applies the alerts updated since the latest known update.
+     *
+     * @return whether the index was reloaded or updated
+     */
+    public boolean reloadIfChanged() {
+        if (!loaded) {
+            return false;
+        }
+        long count;
+        long maxId;
+        LocalDateTime updatedAt;
+        lock.readLock().lock();
+        try {
+            count = state.count;
+            maxId = state.maxId;
+            updatedAt = state.updatedAt;
+        } finally {
+            lock.readLock().unlock();
+        }
+        Object[] current = alertRepository.findWatermark().get(0);
+        if (count != number(current[0]) || maxId != number(current[1])) {
+            reload();
+            return true;
+        }
+        LocalDateTime latest = (LocalDateTime) current[2];
+        if (latest == null || (updatedAt != null && !latest.isAfter(updatedAt))) {
+            return false;
+        }
+        if (updatedAt == null) {
+            // no update time known to start from
+            reload();
+            return true;
+        }
+        List<Object[]> rows = alertRepository.findUpdatedSince(updatedAt.minusMinutes(UPDATE_OVERLAP_MINUTES));
+        apply(s -> {
+            for (Object[] row : rows) {
+                s.remove((Integer) row[0]);
+                if (Boolean.TRUE.equals(row[7]) && row[1] != null && row[2] != null && row[3] != null) {
+                    s.insert(row);
+                }
+            }
+            s.moveUpdatedAt(latest);
+        });
+        logger.info("Applied {} alert updates made outside this app to the geofence index", rows.size());
+        return true;
+    }
+
+    /**
+     * Adds, moves or removes an alert according to its current state; inactive alerts and alerts
+     * without a center are removed. The alert counts as a new row of the watermark if its id is
+     * above the highest known one.
+     */
+    public void put(UserAlert alert) {
+        apply(s -> {
+            s.remove(alert.getAlertId());
+            if (Boolean.TRUE.equals(alert.getActiveFlag()) && alert.getCenterLat() != null
+                    && alert.getCenterLon() != null && alert.getUser() != null) {
+                s.insert(alert.getAlertId(), alert.getUser().getUserId(), alert.getCenterLat(), alert.getCenterLon(),
+                    alert.getRadiusM(), alert.getCrimeTypeFilter(), alert.getDigestMode());
+            }
+            if (alert.getAlertId() != null && alert.getAlertId() > s.maxId) {
+                s.count++;
+                s.maxId = alert.getAlertId();
+            }
+            s.moveUpdatedAt(alert.getUpdatedAt());
+        });
+    }
+
+    /**
+     * Active alerts whose circle contains the point; crime type filters are not applied, see
+     * {@link Match#accepts(Collection)}.
+     */
+    public List<Match> match(double lat, double lon) {
+        ensureLoaded();
+        List<Match> matches = new ArrayList<>(4);
+        lock.readLock().lock();
+        try {
+            State s = state;
+            IntList members = s.cells.get(pack(cellIndex(lat), cellIndex(lon)));
+            if (members != null) {
+                for (int i = 0; i < members.size(); i++) {
+                    s.check(members.get(i), lat, lon, matches);
+                }
+            }
+            for (int i = 0; i < s.wideSlots.size(); i++) {
+                s.check(s.wideSlots.get(i), lat, lon, matches);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return matches;
+    }
+
+    public int size() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return state.slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies a change to the index, and to the state a running reload builds.
+     */
+    private void apply(Consumer<State> change) {
+        lock.writeLock().lock();
+        try {
+            // before the first load the change is picked up by the load itself
+            if (loaded) {
+                change.accept(state);
+            }
+            if (missed != null) {
+                missed.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private State load() {
+        // taken first, a write that lands during the load moves the table past it and loads again
+        Object[] watermark = alertRepository.findWatermark().get(0);
+        State fresh = new State(number(watermark[0]), number(watermark[1]), (LocalDateTime) watermark[2]);
+        int after = 0;
+        while (true) {
+            List<Object[]> rows = alertRepository.findActiveAfter(after, Limit.of(LOAD_CHUNK));
+            if (rows.isEmpty()) {
+                break;
+            }
+            for (Object[] row : rows) {
+                fresh.insert(row);
+            }
+            after = (Integer) rows.get(rows.size() - 1)[0];
+        }
+        return fresh;
+    }
+
+    private static long number(Object value) {
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
+    private static String[] parseFilter(String filter) {
+        if (filter == null || filter.isBlank()) {
+            return null;
+        }
+        String[] tokens = Arrays.stream(filter.split(","))
+            .map(t -> t.trim().toUpperCase(Locale.ROOT))
+            .filter(t -> !t.isEmpty())
+            .toArray(String[]::new);
+        return tokens.length == 0 ? null : tokens;
+    }
+
+    private static long cellIndex(double degrees) {
+        return (long) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long pack(long row, long col) {
+        return (row << 32) ^ (col & 0xffffffffL);
+    }
+
+    /**
+     * The indexed alerts, plus the watermark of user_alerts they reflect.
+     */
+    private final class State {
+        int[] alertIds = new int[0];
+        int[] userIds = new int[0];
+        double[] lats = new double[0];
+        double[] lons = new double[0];
+        double[] radii = new double[0];
+        String[][] filters = new String[0][];
+        boolean[] wide = new boolean[0];
+        UserAlert.DigestMode[] digestModes = new UserAlert.DigestMode[0];
+        int slotCount;
+        final IntList freeSlots = new IntList();
+        final Map<Integer, Integer> slots = new HashMap<>();
+        final Map<Long, IntList> cells = new HashMap<>();
+        final IntList wideSlots = new IntList();
+        long count;
+        long maxId;
+        LocalDateTime updatedAt;
+
+        State(long count, long maxId, LocalDateTime updatedAt) {
+            this.count = count;
+            this.maxId = maxId;
+            this.updatedAt = updatedAt;
+        }
+
+        void moveUpdatedAt(LocalDateTime time) {
+            if (time != null && (updatedAt == null || time.isAfter(updatedAt))) {
+                updatedAt = time;
+            }
+        }
+
+        void check(int slot, double lat, double lon, List<Match> matches) {
+            double d = GeoUtils.haversineMeters(lat, lon, lats[slot], lons[slot]);
+            if (d <= radii[slot]) {
+                matches.add(new Match(alertIds[slot], userIds[slot], d, digestModes[slot], filters[slot]));
+            }
+        }
+
+        /**
+         * Inserts a [alertId, userId, centerLat, centerLon, radiusM, crimeTypeFilter, digestMode] row.
+         */
+        void insert(Object[] row) {
+            insert((Integer) row[0], (Integer) row[1], ((Number) row[2]).doubleValue(),
+                ((Number) row[3]).doubleValue(), (Integer) row[4], (String) row[5], (UserAlert.DigestMode) row[6]);
+        }
+
+        void insert(int alertId, int userId, double lat, double lon, Integer radiusM, String filter,
+                    UserAlert.DigestMode digestMode) {
+            int slot;
+            if (freeSlots.size() > 0) {
+                slot = freeSlots.removeLast();
+            } else {
+                slot = slotCount++;
+                grow(slotCount);
+            }
+            alertIds[slot] = alertId;
+            userIds[slot] = userId;
+            lats[slot] = lat;
+            lons[slot] = lon;
+            radii[slot] = radiusM != null && radiusM > 0 ? radiusM : defaultRadiusMeters;
+            filters[slot] = parseFilter(filter);
+            // rows from before the column existed
+            digestModes[slot] = digestMode != null ? digestMode : UserAlert.DigestMode.IMMEDIATE;
+            slots.put(alertId, slot);
+
+            long[] range = cellRange(slot);
+            long cellCount = (range[1] - range[0] + 1) * (range[3] - range[2] + 1);
+            wide[slot] = cellCount > MAX_CELLS;
+            if (wide[slot]) {
+                wideSlots.add(slot);
+                return;
+            }
+            for (long row = range[0]; row <= range[1]; row++) {
+                for (long col = range[2]; col <= range[3]; col++) {
+                    cells.computeIfAbsent(pack(row, col), k -> new IntList(4)).add(slot);
+                }
+            }
+        }
+
+        void remove(Integer alertId) {
+            Integer slot = alertId == null ? null : slots.remove(alertId);
+            if (slot == null) {
+                return;
+            }
+            if (wide[slot]) {
+                wideSlots.removeValue(slot);
+            } else {
+                long[] range = cellRange(slot);
+                for (long row = range[0]; row <= range[1]; row++) {
+                    for (long col = range[2]; col <= range[3]; col++) {
+                        long key = pack(row, col);
+                        IntList members = cells.get(key);
+                        if (members != null && members.removeValue(slot) && members.size() == 0) {
+                            cells.remove(key);
+                        }
+                    }
+                }
+            }
+            filters[slot] = null;
+            freeSlots.add(slot);
+        }
+
+        /**
+         * [minRow, maxRow, minCol, maxCol] of the cells overlapped by the bounding box of an alert.
+         */
+        long[] cellRange(int slot) {
+            double dLat = GeoUtils.metersToLatDegrees(radii[slot]);
+            double dLon = GeoUtils.metersToLonDegrees(radii[slot], lats[slot]);
+            return new long[] {
+                cellIndex(lats[slot] - dLat), cellIndex(lats[slot] + dLat),
+                cellIndex(lons[slot] - dLon), cellIndex(lons[slot] + dLon)
+            };
+        }
+
+        void grow(int capacity) {
+            if (capacity <= alertIds.length) {
+                return;
+            }
+            int n = Math.max(capacity, Math.max(16, alertIds.length * 2));
+            alertIds = Arrays.copyOf(alertIds, n);
+            userIds = Arrays.copyOf(userIds, n);
+            lats = Arrays.copyOf(lats, n);
+            lons = Arrays.copyOf(lons, n);
+            radii = Arrays.copyOf(radii, n);
+            filters = Arrays.copyOf(filters, n);
+            wide = Arrays.copyOf(wide, n);
+            digestModes = Arrays.copyOf(digestModes, n);
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package com.safepath.index;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import com.safepath.repository.CrimeReportRepository;
+import com.safepath.repository.ReportOffenseRepository;
+
+/**
+ * Read-optimized columnar snapshot of crime_reports joined with their offense parent groups,
+ * for analytical breakdowns (by hour, weekday, neighborhood, precinct, offense group).
+ * <p>
+ * There is one row per (report, offense group); a report without offenses has one row with no group.
+ * Columns are primitive arrays: epoch minutes as int, coordinates as float and the categorical
+ * columns dictionary-encoded as short. Aggregations are branch-light loops over contiguous row
+ * ranges, run in parallel on the common fork-join pool and merged at the end. Without an offense
+ * group filter only the first row of each report is counted, so counts are report counts; the
+ * offense group breakdown is the exception and counts every group of a report.
+ * <p>
+ * The snapshot is immutable; {@link #reload()} builds a new one and swaps it in. Callers that
+ * compare several aggregations take one {@link #snapshot()} and run them all against it.
+ */
+@Component
+public class CrimeColumnStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrimeColumnStore.class);
+
+    private static final int LOAD_CHUNK = 5000;
+    private static final int SCAN_CHUNK = 1 << 16;
+    /** Marks a missing report datetime in the minutes column. */
+    private static final int NO_TIME = Integer.MIN_VALUE;
+    // filter value that is not given: everything matches
+    private static final short ANY = -1;
+    // filter value that is given but unknown to the dictionary: nothing can match
+    private static final short UNKNOWN = -2;
+
+    public enum Dimension {
+        HOUR, WEEKDAY_HOUR, NEIGHBORHOOD, PRECINCT, OFFENSE_GROUP
+    }
+
+    private final CrimeReportRepository crimeReportRepository;
+    private final ReportOffenseRepository offenseRepository;
+
+    private volatile Snapshot snapshot;
+
+    public CrimeColumnStore(CrimeReportRepository crimeReportRepository,
+                            ReportOffenseRepository offenseRepository) {
+        this.crimeReportRepository = crimeReportRepository;
+        this.offenseRepository = offenseRepository;
+    }
+
+    /**
+     * Row filter; null fields match everything. Times and bounds are inclusive.
+     */
+    public static class Filter {
+        public final LocalDateTime from;
+        public final LocalDateTime to;
+        public final String precinct;
+        public final String neighborhood;
+        public final String offenseGroup;
+        // optional bounding box, all four set or none
+        public final Double south;
+        public final Double west;
+        public final Double north;
+        public final Double east;
+
+        public Filter(LocalDateTime from, LocalDateTime to, String precinct, String neighborhood, String offenseGroup) {
+            this(from, to, precinct, neighborhood, offenseGroup, null, null, null, null);
+        }
+
+        private Filter(LocalDateTime from, LocalDateTime to, String precinct, String neighborhood, String offenseGroup,
+                       Double south, Double west, Double north, Double east) {
+            this.from = from;
+            this.to = to;
+            this.precinct = precinct;
+            this.neighborhood = neighborhood;
+            this.offenseGroup = offenseGroup;
+            this.south = south;
+            this.west = west;
+            this.north = north;
+            this.east = east;
+        }
+
+        /**
+         * The same filter restricted to a bounding box; reports without coordinates no longer match.
+         */
+        public Filter withBounds(double south, double west, double north, double east) {
+            return new Filter(from, to, precinct, neighborhood, offenseGroup, south, west, north, east);
+        }
+
+        /**
+         * The same filter over another time range.
+         */
+        public Filter withTimes(LocalDateTime from, LocalDateTime to) {
+            return new Filter(from, to, precinct, neighborhood, offenseGroup, south, west, north, east);
+        }
+    }
+
+    /**
+     * Result of an aggregation: one count per key of the dimension, in key order.
+     */
+    public static class Breakdown {
+        public final String[] keys;
+        public final long[] counts;
+        /** Matching reports, including those without a value for the dimension. */
+        public final long total;
+        public final int rowsScanned;
+        public final LocalDateTime snapshotAt;
+
+        Breakdown(String[] keys, long[] counts, long total, int rowsScanned, LocalDateTime snapshotAt) {
+            this.keys = keys;
+            this.counts = counts;
+            this.total = total;
+            this.rowsScanned = rowsScanned;
+            this.snapshotAt = snapshotAt;
+        }
+    }
+
+    /**
+     * Reloads all reports and their offense groups and swaps the snapshot.
+     */
+    public synchronized void reload() {
+        long started = System.currentTimeMillis();
+        Builder builder = new Builder();
+        String after = "";
+        while (true) {
+            List<Object[]> rows = crimeReportRepository.findColumnsAfter(after, Limit.of(LOAD_CHUNK));
+            if (rows.isEmpty()) {
+                break;
+            }
+            Map<String, Set<String>> groups = new HashMap<>(rows.size() * 2);
+            List<String> numbers = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                numbers.add((String) row[0]);
+            }
+            for (Object[] row : offenseRepository.findOffenseGroups(numbers)) {
+                if (row[1] != null) {
+                    groups.computeIfAbsent((String) row[0], k -> new LinkedHashSet<>()).add((String) row[1]);
+                }
+            }
+            for (Object[] row : rows) {
+                builder.addReport(row, groups.get((String) row[0]));
+            }
+            after = (String) rows.get(rows.size() - 1)[0];
+        }
+        Snapshot s = builder.build();
+        snapshot = s;
+        logger.info("Crime column store loaded: {} rows, {} neighborhoods, {} precincts, {} offense groups in {} ms",
+            s.size, s.neighborhoodDict.size(), s.precinctDict.size(), s.groupDict.size(),
+            System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Counts matching reports per key of the dimension, on the current snapshot.
+     */
+    public Breakdown aggregate(Filter filter, Dimension dimension) {
+        return current().aggregate(filter, dimension);
+    }
+
+    /**
+     * The current snapshot; aggregations on it stay consistent with each other across reloads.
+     */
+    public Snapshot snapshot() {
+        return current();
+    }
+
+    public int size() {
+        return current().size;
+    }
+
+    private static short code(StringDictionary dict, String value) {
+        if (value == null || value.isBlank()) {
+            return ANY;
+        }
+        short code = dict.codeOf(value);
+        return code == StringDictionary.NONE ? UNKNOWN : code;
+    }
+
+    /**
+     * The scan kernel. Kept as one flat loop over primitive arrays with the dimension switch on a
+     * loop invariant, so the JIT can unswitch it and keep the body tight.
+     */
+    private static void scan(Snapshot s, int from, int to, int fromMinute, int toMinute,
+                             short precinct, short neighborhood, short group,
+                             boolean bounded, float south, float west, float north, float east,
+                             Dimension dimension, long[] out) {
+        final int[] minutes = s.minutes;
+        final float[] lats = s.lats;
+        final float[] lons = s.lons;
+        final short[] precincts = s.precincts;
+        final short[] neighborhoods = s.neighborhoods;
+        final short[] groups = s.groups;
+        final boolean[] firstOfReport = s.firstOfReport;
+        final int missing = out.length - 2;
+        final int reports = out.length - 1;
+        // a report counts once per offense group in that breakdown, once otherwise
+        final boolean everyRow = dimension == Dimension.OFFENSE_GROUP;
+        for (int i = from; i < to; i++) {
+            int minute = minutes[i];
+            if (minute < fromMinute || minute > toMinute) {
+                continue;
+            }
+            if (group >= 0 ? groups[i] != group : !(everyRow || firstOfReport[i])) {
+                continue;
+            }
+            if ((precinct >= 0 && precincts[i] != precinct) || (neighborhood >= 0 && neighborhoods[i] != neighborhood)) {
+                continue;
+            }
+            // NaN coordinates fail every comparison and drop out here
+            if (bounded && !(lats[i] >= south && lats[i] <= north && lons[i] >= west && lons[i] <= east)) {
+                continue;
+            }
+            int key;
+            switch (dimension) {
+                case HOUR:
+                    key = minute == NO_TIME ? missing : Math.floorMod(minute, 1440) / 60;
+                    break;
+                case WEEKDAY_HOUR:
+                    // 1970-01-01 was a Thursday; slot 0 is Monday 00:00
+                    key = minute == NO_TIME ? missing
+                        : (int) Math.floorMod(Math.floorDiv(minute, 1440) + 3, 7) * 24 + Math.floorMod(minute, 1440) / 60;
+                    break;
+                case NEIGHBORHOOD:
+                    key = neighborhoods[i] < 0 ? missing : neighborhoods[i];
+                    break;
+                case PRECINCT:
+                    key = precincts[i] < 0 ? missing : precincts[i];
+                    break;
+                default:
+                    key = groups[i] < 0 ? missing : groups[i];
+                    break;
+            }
+            out[key]++;
+            // with a group filter the matching row is the only one of its report
+            if (group >= 0 || firstOfReport[i]) {
+                out[reports]++;
+            }
+        }
+    }
+
+    private static long[] add(long[] a, long[] b) {
+        long[] sum = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            sum[i] = a[i] + b[i];
+        }
+        return sum;
+    }
+
+    private static String[] keysOf(Snapshot s, Dimension dimension) {
+        switch (dimension) {
+            case HOUR: {
+                String[] keys = new String[24];
+                for (int h = 0; h < 24; h++) {
+                    keys[h] = String.format("%02d", h);
+                }
+                return keys;
+            }
+            case WEEKDAY_HOUR: {
+                String[] days = {"MON", "TUE", "WED", "THU", "FRI", "SAT", "SUN"};
+                String[] keys = new String[168];
+                for (int d = 0; d < 7; d++) {
+                    for (int h = 0; h < 24; h++) {
+                        keys[d * 24 + h] = days[d] + "-" + String.format("%02d", h);
+                    }
+                }
+                return keys;
+            }
+            case NEIGHBORHOOD:
+                return decodeAll(s.neighborhoodDict);
+            case PRECINCT:
+                return decodeAll(s.precinctDict);
+            default:
+                return decodeAll(s.groupDict);
+        }
+    }
+
+    private static String[] decodeAll(StringDictionary dict) {
+        String[] keys = new String[dict.size()];
+        for (short c = 0; c < keys.length; c++) {
+            keys[c] = dict.decode(c);
+        }
+        return keys;
+    }
+
+    private static int toMinute(LocalDateTime when) {
+        return (int) Math.floorDiv(when.toEpochSecond(ZoneOffset.UTC), 60L);
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            reload();
+            s = snapshot;
+        }
+        return s;
+    }
+
+    /**
+     * One immutable load of the table. Its dictionaries fix the key order of every breakdown taken
+     * from it, so breakdowns of the same snapshot line up key by key.
+     */
+    public static final class Snapshot {
+        final int size;
+        final int[] minutes;
+        final float[] lats;
+        final float[] lons;
+        final short[] precincts;
+        final short[] neighborhoods;
+        final short[] groups;
+        final boolean[] firstOfReport;
+        final StringDictionary precinctDict;
+        final StringDictionary neighborhoodDict;
+        final StringDictionary groupDict;
+        final LocalDateTime loadedAt = LocalDateTime.now();
+
+        Snapshot(Builder b) {
+            size = b.size;
+            minutes = Arrays.copyOf(b.minutes, size);
+            lats = Arrays.copyOf(b.lats, size);
+            lons = Arrays.copyOf(b.lons, size);
+            precincts = Arrays.copyOf(b.precincts, size);
+            neighborhoods = Arrays.copyOf(b.neighborhoods, size);
+            groups = Arrays.copyOf(b.groups, size);
+            firstOfReport = Arrays.copyOf(b.firstOfReport, size);
+            precinctDict = b.precinctDict;
+            neighborhoodDict = b.neighborhoodDict;
+            groupDict = b.groupDict;
+        }
+
+        /**
+         * Counts matching reports per key of the dimension.
+         */
+        public Breakdown aggregate(Filter filter, Dimension dimension) {
+            String[] keys = keysOf(this, dimension);
+            int fromMinute = filter.from == null ? NO_TIME : toMinute(filter.from);
+            int toMinute = filter.to == null ? Integer.MAX_VALUE : toMinute(filter.to);
+            short precinct = code(precinctDict, filter.precinct);
+            short neighborhood = code(neighborhoodDict, filter.neighborhood);
+            short group = code(groupDict, filter.offenseGroup);
+            if (precinct == UNKNOWN || neighborhood == UNKNOWN || group == UNKNOWN || fromMinute > toMinute) {
+                return new Breakdown(keys, new long[keys.length], 0, 0, loadedAt);
+            }
+
+            int chunks = (size + SCAN_CHUNK - 1) / SCAN_CHUNK;
+            // two extra slots: matching rows without a value for the dimension, and matching reports
+            boolean bounded = filter.south != null;
+            float south = bounded ? filter.south.floatValue() : 0f;
+            float west = bounded ? filter.west.floatValue() : 0f;
+            float north = bounded ? filter.north.floatValue() : 0f;
+            float east = bounded ? filter.east.floatValue() : 0f;
+            long[] merged = IntStream.range(0, chunks).parallel()
+                .mapToObj(c -> {
+                    long[] local = new long[keys.length + 2];
+                    scan(this, c * SCAN_CHUNK, Math.min(size, (c + 1) * SCAN_CHUNK), fromMinute, toMinute,
+                        precinct, neighborhood, group, bounded, south, west, north, east, dimension, local);
+                    return local;
+                })
+                .reduce(new long[keys.length + 2], CrimeColumnStore::add);
+            return new Breakdown(keys, Arrays.copyOf(merged, keys.length), merged[keys.length + 1], size, loadedAt);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public LocalDateTime getLoadedAt() {
+            return loadedAt;
+        }
+    }
+
+    private static final class Builder {
+        int size;
+        int[] minutes = new int[1024];
+        float[] lats = new float[1024];
+        float[] lons = new float[1024];
+        short[] precincts = new short[1024];
+        short[] neighborhoods = new short[1024];
+        short[] groups = new short[1024];
+        boolean[] firstOfReport = new boolean[1024];
+        final StringDictionary precinctDict = new StringDictionary();
+        final StringDictionary neighborhoodDict = new StringDictionary();
+        final StringDictionary groupDict = new StringDictionary();
+
+        void addReport(Object[] row, Set<String> offenseGroups) {
+            LocalDateTime when = (LocalDateTime) row[1];
+            int minute = when == null ? NO_TIME : toMinute(when);
+            float lat = row[2] == null ? Float.NaN : ((Number) row[2]).floatValue();
+            float lon = row[3] == null ? Float.NaN : ((Number) row[3]).floatValue();
+            short precinct = precinctDict.encode((String) row[4]);
+            short neighborhood = neighborhoodDict.encode((String) row[5]);
+            if (offenseGroups == null || offenseGroups.isEmpty()) {
+                addRow(minute, lat, lon, precinct, neighborhood, StringDictionary.NONE, true);
+                return;
+            }
+            boolean first = true;
+            for (String group : offenseGroups) {
+                addRow(minute, lat, lon, precinct, neighborhood, groupDict.encode(group), first);
+                first = false;
+            }
+        }
+
+        private void addRow(int minute, float lat, float lon, short precinct, short neighborhood,
+                            short group, boolean first) {
+            if (size == minutes.length) {
+                int capacity = size * 2;
+                minutes = Arrays.copyOf(minutes, capacity);
+                lats = Arrays.copyOf(lats, capacity);
+                lons = Arrays.copyOf(lons, capacity);
+                precincts = Arrays.copyOf(precincts, capacity);
+                neighborhoods = Arrays.copyOf(neighborhoods, capacity);
+                groups = Arrays.copyOf(groups, capacity);
+                firstOfReport = Arrays.copyOf(firstOfReport, capacity);
+            }
+            minutes[size] = minute;
+            lats[size] = lat;
+            lons[size] = lon;
+            precincts[size] = precinct;
+            neighborhoods[size] = neighborhood;
+            groups[size] = group;
+            firstOfReport[size] = first;
+            size++;
+        }
+
+        Snapshot build() {
+            return new Snapshot(this);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.safepath.index;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Summed-area table of crime counts over (day, grid row, grid column), one layer for all
+ * reports and one per offense group. Each layer stores inclusive prefix sums, so the count
+ * in any block of cells and days is 8 array reads regardless of how many reports it covers.
+ * Counts are exact at cell resolution: a query rectangle is widened to the cells it touches.
+ * Instances are immutable once built.
+ */
+public class CrimeCountCube {
+
+    private final double south;
+    private final double west;
+    private final double cellDegrees;
+    private final int rows;
+    private final int cols;
+    private final long firstDay;
+    private final int days;
+    // layers[0] counts every report, layers[g + 1] the reports of offense group id g (null if empty)
+    private final int[][] layers;
+    private final long sourceVersion;
+    private final LocalDateTime builtAt;
+
+    private CrimeCountCube(double south, double west, double cellDegrees, int rows, int cols,
+                           long firstDay, int days, int[][] layers, long sourceVersion) {
+        this.south = south;
+        this.west = west;
+        this.cellDegrees = cellDegrees;
+        this.rows = rows;
+        this.cols = cols;
+        this.firstDay = firstDay;
+        this.days = days;
+        this.layers = layers;
+        this.sourceVersion = sourceVersion;
+        this.builtAt = LocalDateTime.now();
+    }
+
+    /**
+     * Builds the cube from every report of the index that falls inside the bounds and the
+     * {@code days} days ending with {@code lastDay}.
+     */
+    public static CrimeCountCube build(CrimeSpatioTemporalIndex index, double south, double west,
+                                       double north, double east, double cellDegrees,
+                                       LocalDate lastDay, int days) {
+        if (north <= south || east <= west || cellDegrees <= 0 || days <= 0) {
+            throw new IllegalArgumentException("invalid crime count grid");
+        }
+        long sourceVersion = index.version();
+        int rows = (int) Math.ceil((north - south) / cellDegrees);
+        int cols = (int) Math.ceil((east - west) / cellDegrees);
+        long firstDay = lastDay.toEpochDay() - days + 1;
+        int layerSize = (days + 1) * (rows + 1) * (cols + 1);
+        int[][] layers = new int[OffenseGroupDictionary.MAX_GROUPS + 1][];
+        layers[0] = new int[layerSize];
+
+        index.forEach((lat, lon, epochSecond, groupMask) -> {
+            int r = (int) Math.floor((lat - south) / cellDegrees);
+            int c = (int) Math.floor((lon - west) / cellDegrees);
+            long t = Math.floorDiv(epochSecond, 86_400L) - firstDay;
+            if (r < 0 || r >= rows || c < 0 || c >= cols || t < 0 || t >= days) {
+                return;
+            }
+            int offset = offset((int) t + 1, r + 1, c + 1, rows, cols);
+            layers[0][offset]++;
+            long mask = groupMask;
+            while (mask != 0) {
+                int g = Long.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+                if (layers[g + 1] == null) {
+                    layers[g + 1] = new int[layerSize];
+                }
+                layers[g + 1][offset]++;
+            }
+        });
+        for (int[] layer : layers) {
+            if (layer != null) {
+                accumulate(layer, days, rows, cols);
+            }
+        }
+        return new CrimeCountCube(south, west, cellDegrees, rows, cols, firstDay, days, layers, sourceVersion);
+    }
+
+    /**
+     * Number of reports in the cells touching the rectangle, between the two days inclusive.
+     *
+     * @param groupId offense group id from the index dictionary, -1 for all reports
+     */
+    public int count(double south, double west, double north, double east,
+                     LocalDate from, LocalDate to, int groupId) {
+        int[] layer = groupId < 0 ? layers[0]
+            : groupId < OffenseGroupDictionary.MAX_GROUPS ? layers[groupId + 1] : null;
+        if (layer == null) {
+            return 0;
+        }
+        int r0 = Math.max(0, (int) Math.floor((south - this.south) / cellDegrees));
+        int r1 = Math.min(rows - 1, (int) Math.floor((north - this.south) / cellDegrees));
+        int c0 = Math.max(0, (int) Math.floor((west - this.west) / cellDegrees));
+        int c1 = Math.min(cols - 1, (int) Math.floor((east - this.west) / cellDegrees));
+        long t0 = Math.max(0, from.toEpochDay() - firstDay);
+        long t1 = Math.min(days - 1, to.toEpochDay() - firstDay);
+        if (r0 > r1 || c0 > c1 || t0 > t1) {
+            return 0;
+        }
+        return blockSum(layer, (int) t0, r0, c0, (int) t1 + 1, r1 + 1, c1 + 1);
+    }
+
+    /**
+     * Ids of the offense groups that have at least one report in the cube.
+     */
+    public int[] groupIds() {
+        int n = 0;
+        for (int g = 1; g < layers.length; g++) {
+            if (layers[g] != null) {
+                n++;
+            }
+        }
+        int[] ids = new int[n];
+        int i = 0;
+        for (int g = 1; g < layers.length; g++) {
+            if (layers[g] != null) {
+                ids[i++] = g - 1;
+            }
+        }
+        return ids;
+    }
+
+    public LocalDate getFirstDay() {
+        return LocalDate.ofEpochDay(firstDay);
+    }
+
+    public LocalDate getLastDay() {
+        return LocalDate.ofEpochDay(firstDay + days - 1);
+    }
+
+    public long getSourceVersion() {
+        return sourceVersion;
+    }
+
+    public LocalDateTime getBuiltAt() {
+        return builtAt;
+    }
+
+    /**
+     * Southern edge of the cell containing the latitude, clamped to the grid.
+     */
+    public double snapSouth(double lat) {
+        return south + clamp(Math.floor((lat - south) / cellDegrees), rows - 1) * cellDegrees;
+    }
+
+    public double snapWest(double lon) {
+        return west + clamp(Math.floor((lon - west) / cellDegrees), cols - 1) * cellDegrees;
+    }
+
+    public double snapNorth(double lat) {
+        return south + (clamp(Math.floor((lat - south) / cellDegrees), rows - 1) + 1) * cellDegrees;
+    }
+
+    public double snapEast(double lon) {
+        return west + (clamp(Math.floor((lon - west) / cellDegrees), cols - 1) + 1) * cellDegrees;
+    }
+
+    private static double clamp(double cell, int max) {
+        return Math.max(0, Math.min(max, cell));
+    }
+
+    private int blockSum(int[] s, int t0, int r0, int c0, int t1, int r1, int c1) {
+        // inclusion-exclusion over the 8 corners; (t0, r0, c0) are exclusive lower bounds
+        return s[offset(t1, r1, c1, rows, cols)]
+            - s[offset(t0, r1, c1, rows, cols)]
+            - s[offset(t1, r0, c1, rows, cols)]
+            - s[offset(t1, r1, c0, rows, cols)]
+            + s[offset(t0, r0, c1, rows, cols)]
+            + s[offset(t0, r1, c0, rows, cols)]
+            + s[offset(t1, r0, c0, rows, cols)]
+            - s[offset(t0, r0, c0, rows, cols)];
+    }
+
+    private static void accumulate(int[] s, int days, int rows, int cols) {
+        for (int t = 1; t <= days; t++) {
+            for (int r = 1; r <= rows; r++) {
+                for (int c = 2; c <= cols; c++) {
+                    s[offset(t, r, c, rows, cols)] += s[offset(t, r, c - 1, rows, cols)];
+                }
+            }
+        }
+        for (int t = 1; t <= days; t++) {
+            for (int r = 2; r <= rows; r++) {
+                for (int c = 1; c <= cols; c++) {
+                    s[offset(t, r, c, rows, cols)] += s[offset(t, r - 1, c, rows, cols)];
+                }
+            }
+        }
+        for (int t = 2; t <= days; t++) {
+            for (int r = 1; r <= rows; r++) {
+                for (int c = 1; c <= cols; c++) {
+                    s[offset(t, r, c, rows, cols)] += s[offset(t - 1, r, c, rows, cols)];
+                }
+            }
+        }
+    }
+
+    private static int offset(int t, int r, int c, int rows, int cols) {
+        return (t * (rows + 1) + r) * (cols + 1) + c;
+    }
+}
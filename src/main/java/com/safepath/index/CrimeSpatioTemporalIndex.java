@@ -0,0 +1,651 @@
+package com.safepath.index;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import com.safepath.model.CrimeReport;
+import com.safepath.repository.CrimeReportRepository;
+import com.safepath.repository.ReportOffenseRepository;
+import com.safepath.util.GeoUtils;
+
+/**
+ * In-memory index of located crime reports for radius + time window queries.
+ * Reports are partitioned into weekly time buckets; inside a bucket they are kept in primitive
+ * arrays (coordinates, epoch seconds, offense group bit mask) and bucketed into a uniform lat/lon
+ * grid, so a query only touches the buckets of its time range and the cells around its circle.
+ * Offense groups are the parent groups of a report's offenses, encoded with {@link OffenseGroupDictionary}.
+ * <p>
+ * Writes of this app are applied through {@link #add}, {@link #update} and {@link #remove}. The
+ * Python ETL and the JSP app write the tables directly, so {@link #reloadIfChanged()} compares a
+ * watermark of crime_reports and report_offenses (row counts, highest etl_id and offense_id) with
+ * the one of the last load; reports added and removed here adjust it, so they do not trigger a
+ * reload themselves. In-place updates of other writers do not move the watermark, the index is
+ * reloaded after {@code safepath.crime-index.max-age-minutes} anyway.
+ */
+@Component
+public class CrimeSpatioTemporalIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrimeSpatioTemporalIndex.class);
+
+    // ~550m x ~370m cells in Seattle
+    private static final double CELL_DEGREES = 0.005;
+    private static final int BUCKET_DAYS = 7;
+    private static final int LOAD_CHUNK = 5000;
+    private static final int GROUP_QUERY_CHUNK = 1000;
+
+    // positions in the watermark
+    private static final int REPORT_COUNT = 0;
+    private static final int WATERMARK_SIZE = 4;
+
+    private final CrimeReportRepository crimeReportRepository;
+    private final ReportOffenseRepository offenseRepository;
+    private final OffenseGroupDictionary dictionary = new OffenseGroupDictionary();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 0 keeps all reports
+    @Value("${safepath.crime-index.retention-days:365}")
+    private int retentionDays;
+
+    @Value("${safepath.crime-index.max-age-minutes:60}")
+    private long maxAgeMinutes;
+
+    private State state = new State(new long[WATERMARK_SIZE]);
+    // changes applied while a reload reads the tables, replayed on the fresh state before the swap
+    private List<Consumer<State>> missed;
+    private volatile boolean loaded;
+    private volatile long loadedAt;
+    // bumped on every change, lets derived structures tell whether they are stale
+    private volatile long version;
+
+    public CrimeSpatioTemporalIndex(CrimeReportRepository crimeReportRepository,
+                                    ReportOffenseRepository offenseRepository) {
+        this.crimeReportRepository = crimeReportRepository;
+        this.offenseRepository = offenseRepository;
+    }
+
+    /**
+     * One indexed report matching a query.
+     */
+    public static class Hit {
+        public final String reportNumber;
+        public final LocalDateTime reportDatetime;
+        public final double latitude;
+        public final double longitude;
+        public final double distanceMeters;
+        public final long groupMask;
+
+        public Hit(String reportNumber, LocalDateTime reportDatetime, double latitude, double longitude,
+                   double distanceMeters, long groupMask) {
+            this.reportNumber = reportNumber;
+            this.reportDatetime = reportDatetime;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.distanceMeters = distanceMeters;
+            this.groupMask = groupMask;
+        }
+    }
+
+    /**
+     * Receives every indexed report, see {@link #forEach(EntryVisitor)}.
+     */
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(double latitude, double longitude, long epochSecond, long groupMask);
+    }
+
+    /**
+     * Reloads all reports in the retention window from the database and swaps the index. The new
+     * data is built next to the current one; changes applied meanwhile are replayed on it.
+     */
+    public synchronized void reload() {
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            missed = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        State fresh;
+        try {
+            // taken first: writes during the load move the table past it and load again
+            fresh = new State(readWatermark());
+            load(fresh);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                missed = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            missed.forEach(change -> change.accept(fresh));
+            missed = null;
+            state = fresh;
+            loaded = true;
+            loadedAt = System.currentTimeMillis();
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Crime index loaded: {} reports in {} weekly buckets, {} offense groups in {} ms",
+            fresh.size, fresh.buckets.size(), dictionary.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Reloads if the watermark of the tables moved since the last load or the data is older than
+     * the maximum age.
+     *
+     * @return whether the index was reloaded
+     */
+    public boolean reloadIfChanged() {
+        if (!loaded) {
+            return false;
+        }
+        long[] current;
+        lock.readLock().lock();
+        try {
+            current = state.watermark.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+        boolean expired = maxAgeMinutes > 0
+            && System.currentTimeMillis() - loadedAt >= TimeUnit.MINUTES.toMillis(maxAgeMinutes);
+        if (!expired && Arrays.equals(current, readWatermark())) {
+            return false;
+        }
+        reload();
+        return true;
+    }
+
+    /**
+     * Adds newly inserted reports with the offense groups stored for them. Reports without
+     * coordinates or datetime are not indexed, but every report counts as a new row of the
+     * watermark; a report that is already indexed is replaced.
+     *
+     * @return number of reports indexed
+     */
+    public int add(Collection<CrimeReport> reports) {
+        Map<String, Long> masks = offenseMasks(reports);
+        return apply(s -> {
+            s.watermark[REPORT_COUNT] += reports.size();
+            return s.put(reports, masks);
+        });
+    }
+
+    /**
+     * Replaces the entries of updated reports, which may have moved in time or space.
+     *
+     * @return the entries the reports had before
+     */
+    public List<Hit> update(Collection<CrimeReport> reports) {
+        Map<String, Long> masks = offenseMasks(reports);
+        return apply(s -> {
+            List<Hit> previous = s.remove(reports.stream().map(CrimeReport::getReportNumber).toList());
+            s.put(reports, masks);
+            return previous;
+        });
+    }
+
+    /**
+     * Removes deleted reports; every report number counts as a deleted row of the watermark.
+     *
+     * @return the entries the reports had
+     */
+    public List<Hit> remove(Collection<String> reportNumbers) {
+        return apply(s -> {
+            s.watermark[REPORT_COUNT] -= reportNumbers.size();
+            return s.remove(reportNumbers);
+        });
+    }
+
+    /**
+     * Drops the buckets that fell out of the retention window.
+     */
+    public void expire() {
+        if (retentionDays <= 0) {
+            return;
+        }
+        long oldest = bucketOf(LocalDate.now().minusDays(retentionDays).atStartOfDay().toEpochSecond(ZoneOffset.UTC));
+        lock.writeLock().lock();
+        try {
+            if (state.expire(oldest)) {
+                version++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reports within the radius and time range, newest first.
+     *
+     * @param groupMask offense groups to match (any of them), 0 for all reports
+     * @param limit maximum number of hits returned
+     */
+    public List<Hit> query(double lat, double lon, double radiusMeters, LocalDateTime from, LocalDateTime to,
+                           long groupMask, int limit) {
+        List<Hit> hits = new ArrayList<>();
+        scan(lat, lon, radiusMeters, from, to, groupMask, (bucket, i, distance) -> hits.add(new Hit(
+            bucket.ids[i],
+            LocalDateTime.ofEpochSecond(bucket.times[i], 0, ZoneOffset.UTC),
+            bucket.lats[i], bucket.lons[i], distance, bucket.masks[i])));
+        hits.sort(Comparator.comparing((Hit h) -> h.reportDatetime).reversed());
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    /**
+     * Number of reports within the radius and time range.
+     *
+     * @param groupMask offense groups to match (any of them), 0 for all reports
+     */
+    public int count(double lat, double lon, double radiusMeters, LocalDateTime from, LocalDateTime to,
+                     long groupMask) {
+        int[] count = new int[1];
+        scan(lat, lon, radiusMeters, from, to, groupMask, (bucket, i, distance) -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Visits every indexed report under the read lock.
+     */
+    public void forEach(EntryVisitor visitor) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            for (Bucket bucket : state.buckets.values()) {
+                for (int i = 0; i < bucket.size; i++) {
+                    visitor.visit(bucket.lats[i], bucket.lons[i], bucket.times[i], bucket.masks[i]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public OffenseGroupDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public int size() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return state.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public int getRetentionDays() {
+        return retentionDays;
+    }
+
+    @FunctionalInterface
+    private interface HitConsumer {
+        void accept(Bucket bucket, int index, double distanceMeters);
+    }
+
+    /**
+     * Visits the reports inside a bounding box and time range.
+     *
+     * @param groupMask offense groups to match (any of them), 0 for all reports
+     */
+    public void forEachInBounds(double south, double west, double north, double east,
+                                LocalDateTime from, LocalDateTime to, long groupMask, EntryVisitor visitor) {
+        scanBounds(south, west, north, east, from, to, groupMask, (bucket, i) ->
+            visitor.visit(bucket.lats[i], bucket.lons[i], bucket.times[i], bucket.masks[i]));
+    }
+
+    /**
+     * Visits the reports within the radius and time range.
+     *
+     * @param groupMask offense groups to match (any of them), 0 for all reports
+     */
+    public void forEachNearby(double lat, double lon, double radiusMeters, LocalDateTime from, LocalDateTime to,
+                              long groupMask, EntryVisitor visitor) {
+        scan(lat, lon, radiusMeters, from, to, groupMask, (bucket, i, distance) ->
+            visitor.visit(bucket.lats[i], bucket.lons[i], bucket.times[i], bucket.masks[i]));
+    }
+
+    @FunctionalInterface
+    private interface BucketVisitor {
+        void accept(Bucket bucket, int index);
+    }
+
+    private void scan(double lat, double lon, double radiusMeters, LocalDateTime from, LocalDateTime to,
+                      long groupMask, HitConsumer consumer) {
+        double dLat = GeoUtils.metersToLatDegrees(radiusMeters);
+        double dLon = GeoUtils.metersToLonDegrees(radiusMeters, lat);
+        scanBounds(lat - dLat, lon - dLon, lat + dLat, lon + dLon, from, to, groupMask, (bucket, i) -> {
+            double d = GeoUtils.haversineMeters(lat, lon, bucket.lats[i], bucket.lons[i]);
+            if (d <= radiusMeters) {
+                consumer.accept(bucket, i, d);
+            }
+        });
+    }
+
+    private void scanBounds(double south, double west, double north, double east,
+                            LocalDateTime from, LocalDateTime to, long groupMask, BucketVisitor visitor) {
+        ensureLoaded();
+        long fromSecond = from.toEpochSecond(ZoneOffset.UTC);
+        long toSecond = to.toEpochSecond(ZoneOffset.UTC);
+        long minRow = cellIndex(south);
+        long maxRow = cellIndex(north);
+        long minCol = cellIndex(west);
+        long maxCol = cellIndex(east);
+
+        lock.readLock().lock();
+        try {
+            for (long b = bucketOf(fromSecond); b <= bucketOf(toSecond); b++) {
+                Bucket bucket = state.buckets.get(b);
+                if (bucket == null) {
+                    continue;
+                }
+                for (long row = minRow; row <= maxRow; row++) {
+                    for (long col = minCol; col <= maxCol; col++) {
+                        IntList members = bucket.cells.get(pack(row, col));
+                        if (members == null) {
+                            continue;
+                        }
+                        for (int m = 0; m < members.size(); m++) {
+                            int i = members.get(m);
+                            long t = bucket.times[i];
+                            if (t < fromSecond || t > toSecond
+                                    || (groupMask != 0 && (bucket.masks[i] & groupMask) == 0)) {
+                                continue;
+                            }
+                            double lat = bucket.lats[i];
+                            double lon = bucket.lons[i];
+                            if (lat >= south && lat <= north && lon >= west && lon <= east) {
+                                visitor.accept(bucket, i);
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a change to the current data and, during a reload, records it for the fresh data.
+     */
+    private <T> T apply(Function<State, T> change) {
+        lock.writeLock().lock();
+        try {
+            if (missed != null) {
+                missed.add(change::apply);
+            }
+            // before the first load the change is picked up by the load itself
+            T result = change.apply(state);
+            version++;
+            return result;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load(State fresh) {
+        LocalDateTime since = retentionDays > 0
+            ? LocalDate.now().minusDays(retentionDays).atStartOfDay()
+            : LocalDateTime.of(1900, 1, 1, 0, 0);
+        String after = "";
+        while (true) {
+            List<Object[]> rows = crimeReportRepository.findLocatedAfter(after, since, Limit.of(LOAD_CHUNK));
+            if (rows.isEmpty()) {
+                break;
+            }
+            Map<String, Long> masks = new HashMap<>(rows.size() * 2);
+            for (Object[] row : rows) {
+                masks.put((String) row[0], 0L);
+            }
+            for (Object[] row : offenseRepository.findOffenseGroups(masks.keySet())) {
+                if (row[1] != null) {
+                    masks.merge((String) row[0], 1L << dictionary.register((String) row[1]), (a, b) -> a | b);
+                }
+            }
+            for (Object[] row : rows) {
+                fresh.put((String) row[0], (LocalDateTime) row[1], ((Number) row[2]).doubleValue(),
+                    ((Number) row[3]).doubleValue(), masks.get((String) row[0]));
+            }
+            after = (String) rows.get(rows.size() - 1)[0];
+        }
+    }
+
+    /**
+     * [report count, highest etl_id, offense count, highest offense_id]; null maxima count as 0.
+     */
+    private long[] readWatermark() {
+        Object[] reports = crimeReportRepository.findWatermark().get(0);
+        Object[] offenses = offenseRepository.findWatermark().get(0);
+        return new long[] {longValue(reports[0]), longValue(reports[1]), longValue(offenses[0]), longValue(offenses[1])};
+    }
+
+    private static long longValue(Object value) {
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    private Map<String, Long> offenseMasks(Collection<CrimeReport> reports) {
+        Map<String, Long> masks = new HashMap<>();
+        List<String> numbers = reports.stream().map(CrimeReport::getReportNumber).toList();
+        for (int from = 0; from < numbers.size(); from += GROUP_QUERY_CHUNK) {
+            List<String> chunk = numbers.subList(from, Math.min(numbers.size(), from + GROUP_QUERY_CHUNK));
+            for (Object[] row : offenseRepository.findOffenseGroups(chunk)) {
+                if (row[1] != null) {
+                    masks.merge((String) row[0], 1L << dictionary.register((String) row[1]), (a, b) -> a | b);
+                }
+            }
+        }
+        return masks;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    private static long bucketOf(long epochSecond) {
+        return Math.floorDiv(Math.floorDiv(epochSecond, 86_400L), (long) BUCKET_DAYS);
+    }
+
+    private static long cellIndex(double degrees) {
+        return (long) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long pack(long row, long col) {
+        return (row << 32) ^ (col & 0xffffffffL);
+    }
+
+    /**
+     * The indexed reports: weekly buckets and the bucket and slot of every report, plus the
+     * watermark of the tables they were loaded from.
+     */
+    private static final class State {
+        final Map<Long, Bucket> buckets = new HashMap<>();
+        // report number -> pack(bucket, slot)
+        final Map<String, Long> positions = new HashMap<>();
+        final long[] watermark;
+        int size;
+
+        State(long[] watermark) {
+            this.watermark = watermark;
+        }
+
+        /**
+         * Indexes reports, replacing their current entries; reports without coordinates or datetime
+         * are skipped.
+         */
+        int put(Collection<CrimeReport> reports, Map<String, Long> masks) {
+            int added = 0;
+            for (CrimeReport report : reports) {
+                if (report.getReportDatetime() == null || report.getBlurredLatitude() == null
+                        || report.getBlurredLongitude() == null) {
+                    continue;
+                }
+                remove(report.getReportNumber());
+                put(report.getReportNumber(), report.getReportDatetime(), report.getBlurredLatitude(),
+                    report.getBlurredLongitude(), masks.getOrDefault(report.getReportNumber(), 0L));
+                added++;
+            }
+            return added;
+        }
+
+        void put(String reportNumber, LocalDateTime datetime, double lat, double lon, long mask) {
+            long epochSecond = datetime.toEpochSecond(ZoneOffset.UTC);
+            long key = bucketOf(epochSecond);
+            int slot = buckets.computeIfAbsent(key, k -> new Bucket()).add(reportNumber, lat, lon, epochSecond, mask);
+            positions.put(reportNumber, pack(key, slot));
+            size++;
+        }
+
+        List<Hit> remove(Collection<String> reportNumbers) {
+            List<Hit> removed = new ArrayList<>();
+            for (String reportNumber : reportNumbers) {
+                Hit old = remove(reportNumber);
+                if (old != null) {
+                    removed.add(old);
+                }
+            }
+            return removed;
+        }
+
+        Hit remove(String reportNumber) {
+            Long position = positions.remove(reportNumber);
+            if (position == null) {
+                return null;
+            }
+            long key = position >> 32;
+            int slot = (int) (long) position;
+            Bucket bucket = buckets.get(key);
+            Hit old = new Hit(reportNumber, LocalDateTime.ofEpochSecond(bucket.times[slot], 0, ZoneOffset.UTC),
+                bucket.lats[slot], bucket.lons[slot], 0, bucket.masks[slot]);
+            String moved = bucket.remove(slot);
+            if (moved != null) {
+                positions.put(moved, pack(key, slot));
+            }
+            if (bucket.size == 0) {
+                buckets.remove(key);
+            }
+            size--;
+            return old;
+        }
+
+        boolean expire(long oldestBucket) {
+            return buckets.entrySet().removeIf(e -> {
+                if (e.getKey() >= oldestBucket) {
+                    return false;
+                }
+                Bucket bucket = e.getValue();
+                for (int i = 0; i < bucket.size; i++) {
+                    positions.remove(bucket.ids[i]);
+                }
+                size -= bucket.size;
+                return true;
+            });
+        }
+    }
+
+    /**
+     * Reports of one time bucket in parallel primitive arrays.
+     */
+    private static final class Bucket {
+        String[] ids = new String[16];
+        double[] lats = new double[16];
+        double[] lons = new double[16];
+        long[] times = new long[16];
+        long[] masks = new long[16];
+        int size;
+        final Map<Long, IntList> cells = new HashMap<>();
+
+        int add(String id, double lat, double lon, long epochSecond, long mask) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                lats = Arrays.copyOf(lats, capacity);
+                lons = Arrays.copyOf(lons, capacity);
+                times = Arrays.copyOf(times, capacity);
+                masks = Arrays.copyOf(masks, capacity);
+            }
+            ids[size] = id;
+            lats[size] = lat;
+            lons[size] = lon;
+            times[size] = epochSecond;
+            masks[size] = mask;
+            cells.computeIfAbsent(cellOf(lat, lon), k -> new IntList()).add(size);
+            return size++;
+        }
+
+        /**
+         * Removes the report in the slot by moving the last report into it.
+         *
+         * @return the id of the moved report, null if the slot was the last one
+         */
+        String remove(int slot) {
+            removeFromCell(slot);
+            int last = --size;
+            String moved = null;
+            if (slot != last) {
+                removeFromCell(last);
+                ids[slot] = ids[last];
+                lats[slot] = lats[last];
+                lons[slot] = lons[last];
+                times[slot] = times[last];
+                masks[slot] = masks[last];
+                cells.computeIfAbsent(cellOf(lats[slot], lons[slot]), k -> new IntList()).add(slot);
+                moved = ids[slot];
+            }
+            ids[last] = null;
+            return moved;
+        }
+
+        private void removeFromCell(int slot) {
+            long cell = cellOf(lats[slot], lons[slot]);
+            IntList members = cells.get(cell);
+            members.removeValue(slot);
+            if (members.size() == 0) {
+                cells.remove(cell);
+            }
+        }
+
+        private static long cellOf(double lat, double lon) {
+            return pack(cellIndex(lat), cellIndex(lon));
+        }
+    }
+}
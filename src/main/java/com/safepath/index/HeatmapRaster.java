@@ -0,0 +1,169 @@
+package com.safepath.index;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Kernel density raster of one heatmap tile.
+ * Points are given in tile pixel coordinates (they may lie outside the tile by up to the kernel
+ * radius, so densities continue across tile edges). Every point spreads a quartic kernel of weight 1
+ * at its center; the density is scaled so that {@code saturation} overlapping centers give full
+ * intensity. Rows are computed in parallel bands on a fork-join pool.
+ */
+public final class HeatmapRaster {
+
+    public static final int SIZE = 256;
+
+    // rows below which a band is computed directly instead of being split
+    private static final int BAND_ROWS = 16;
+
+    private final byte[] intensities;
+
+    private HeatmapRaster(byte[] intensities) {
+        this.intensities = intensities;
+    }
+
+    /**
+     * Computes the raster.
+     *
+     * @param xs point columns in tile pixels
+     * @param ys point rows in tile pixels
+     * @param count number of points used from the arrays
+     * @param radius kernel radius in pixels
+     * @param saturation density mapped to full intensity
+     */
+    public static HeatmapRaster compute(double[] xs, double[] ys, int count, int radius, double saturation,
+                                        ForkJoinPool pool) {
+        if (radius <= 0 || saturation <= 0) {
+            throw new IllegalArgumentException("radius and saturation must be positive");
+        }
+        // sort by row so every band can binary search the points that reach it
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(ys[a], ys[b]));
+        double[] px = new double[count];
+        double[] py = new double[count];
+        for (int i = 0; i < count; i++) {
+            px[i] = xs[order[i]];
+            py[i] = ys[order[i]];
+        }
+        byte[] out = new byte[SIZE * SIZE];
+        if (count > 0) {
+            pool.invoke(new Band(px, py, radius, 255.0 / saturation, out, 0, SIZE));
+        }
+        return new HeatmapRaster(out);
+    }
+
+    /**
+     * One byte per pixel, row major from the north-west corner, 0 = no density.
+     */
+    public byte[] intensities() {
+        return intensities;
+    }
+
+    /**
+     * Encodes the raster as a transparent PNG, colored from yellow (low) to red (high).
+     */
+    public byte[] toPng() {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        int[] argb = new int[SIZE * SIZE];
+        for (int i = 0; i < argb.length; i++) {
+            int v = intensities[i] & 0xff;
+            if (v == 0) {
+                continue;
+            }
+            int alpha = Math.min(255, 64 + v);
+            int green = 255 - v;
+            argb[i] = (alpha << 24) | (255 << 16) | (green << 8);
+        }
+        image.setRGB(0, 0, SIZE, SIZE, argb, 0, SIZE);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static final class Band extends RecursiveAction {
+
+        private final double[] px;
+        private final double[] py;
+        private final int radius;
+        private final double scale;
+        private final byte[] out;
+        private final int fromRow;
+        private final int toRow;
+
+        Band(double[] px, double[] py, int radius, double scale, byte[] out, int fromRow, int toRow) {
+            this.px = px;
+            this.py = py;
+            this.radius = radius;
+            this.scale = scale;
+            this.out = out;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow > BAND_ROWS) {
+                int mid = (fromRow + toRow) >>> 1;
+                invokeAll(new Band(px, py, radius, scale, out, fromRow, mid),
+                    new Band(px, py, radius, scale, out, mid, toRow));
+                return;
+            }
+            int rows = toRow - fromRow;
+            double[] density = new double[rows * SIZE];
+            double r2 = (double) radius * radius;
+            // pixel centers of this band are fromRow + 0.5 .. toRow - 0.5
+            for (int i = firstPoint(fromRow - radius); i < py.length && py[i] < toRow + radius; i++) {
+                double x = px[i];
+                double y = py[i];
+                int minRow = Math.max(fromRow, (int) Math.floor(y - radius));
+                int maxRow = Math.min(toRow - 1, (int) Math.ceil(y + radius));
+                int minCol = Math.max(0, (int) Math.floor(x - radius));
+                int maxCol = Math.min(SIZE - 1, (int) Math.ceil(x + radius));
+                for (int row = minRow; row <= maxRow; row++) {
+                    double dy = row + 0.5 - y;
+                    int base = (row - fromRow) * SIZE;
+                    for (int col = minCol; col <= maxCol; col++) {
+                        double dx = col + 0.5 - x;
+                        double d2 = dx * dx + dy * dy;
+                        if (d2 < r2) {
+                            double k = 1.0 - d2 / r2;
+                            density[base + col] += k * k;
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < density.length; i++) {
+                out[fromRow * SIZE + i] = (byte) Math.min(255, (int) Math.round(density[i] * scale));
+            }
+        }
+
+        private int firstPoint(double minY) {
+            int lo = 0;
+            int hi = py.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (py[mid] < minY) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
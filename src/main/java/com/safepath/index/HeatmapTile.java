@@ -0,0 +1,36 @@
+package com.safepath.index;
+
+/**
+ * Rendered heatmap tile with its version; the PNG encoding is produced on first use.
+ */
+public final class HeatmapTile {
+
+    private final String version;
+    private final HeatmapRaster raster;
+    private volatile byte[] png;
+
+    public HeatmapTile(String version, HeatmapRaster raster) {
+        this.version = version;
+        this.raster = raster;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * 256x256 intensities, one byte per pixel, see {@link HeatmapRaster#intensities()}.
+     */
+    public byte[] intensities() {
+        return raster.intensities();
+    }
+
+    public byte[] png() {
+        byte[] p = png;
+        if (p == null) {
+            p = raster.toPng();
+            png = p;
+        }
+        return p;
+    }
+}
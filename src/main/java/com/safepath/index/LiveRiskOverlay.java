@@ -0,0 +1,109 @@
+package com.safepath.index;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Exponentially decayed incident counters per street segment, indexed by segment ordinal.
+ * Each cell packs the time of its last update (seconds since the base of the overlay, high
+ * 32 bits) and the counter value at that time (float, low 32 bits) into one long, so an update
+ * is a compare-and-set of a single array element and a read is one volatile load followed by
+ * the decay to the current time. Writers never block each other and readers never retry.
+ */
+public class LiveRiskOverlay {
+
+    private static final class Cells {
+        final AtomicLongArray packed;
+        final long baseEpochSecond;
+
+        Cells(int segmentCount, long baseEpochSecond) {
+            this.packed = new AtomicLongArray(segmentCount);
+            this.baseEpochSecond = baseEpochSecond;
+        }
+    }
+
+    private final double decayPerSecond;
+
+    private volatile Cells cells = new Cells(0, 0);
+
+    public LiveRiskOverlay(double halfLifeMinutes) {
+        if (halfLifeMinutes <= 0) {
+            throw new IllegalArgumentException("halfLifeMinutes must be positive");
+        }
+        this.decayPerSecond = Math.log(2) / (halfLifeMinutes * 60.0);
+    }
+
+    /**
+     * Drops all counters and sizes the overlay for the given number of segments.
+     * Updates that race with a reset may land in the discarded cells.
+     */
+    public void reset(int segmentCount, long nowEpochSecond) {
+        cells = new Cells(segmentCount, nowEpochSecond);
+    }
+
+    /**
+     * Adds an incident of the given weight; incidents older than the last update of the
+     * segment are decayed to that time instead of moving it back.
+     *
+     * @return false if the ordinal is outside the overlay
+     */
+    public boolean add(int ordinal, long epochSecond, double weight) {
+        Cells c = cells;
+        if (ordinal < 0 || ordinal >= c.packed.length()) {
+            return false;
+        }
+        int time = relative(c, epochSecond);
+        while (true) {
+            long current = c.packed.get(ordinal);
+            int lastTime = timeOf(current);
+            double value = valueOf(current);
+            long next;
+            if (time >= lastTime) {
+                next = pack(time, value * decay((long) time - lastTime) + weight);
+            } else {
+                next = pack(lastTime, value + weight * decay((long) lastTime - time));
+            }
+            if (c.packed.compareAndSet(ordinal, current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Decayed counter of a segment at the given time; 0 for unknown ordinals.
+     */
+    public double value(int ordinal, long nowEpochSecond) {
+        Cells c = cells;
+        if (ordinal < 0 || ordinal >= c.packed.length()) {
+            return 0.0;
+        }
+        long current = c.packed.get(ordinal);
+        double value = valueOf(current);
+        long age = (long) relative(c, nowEpochSecond) - timeOf(current);
+        return age <= 0 ? value : value * decay(age);
+    }
+
+    public int segmentCount() {
+        return cells.packed.length();
+    }
+
+    private double decay(long seconds) {
+        return Math.exp(-decayPerSecond * seconds);
+    }
+
+    private static int relative(Cells c, long epochSecond) {
+        long seconds = epochSecond - c.baseEpochSecond;
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, seconds));
+    }
+
+    private static long pack(int time, double value) {
+        return ((long) time << 32) | (Float.floatToRawIntBits((float) value) & 0xffffffffL);
+    }
+
+    private static int timeOf(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    private static double valueOf(long packed) {
+        return Float.intBitsToFloat((int) packed);
+    }
+}
@@ -0,0 +1,85 @@
+package com.safepath.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps offense parent group names to small integer ids so the in-memory indexes can store
+ * the groups of a report as a bit mask. Ids are stable for the lifetime of the dictionary;
+ * groups beyond {@link #MAX_GROUPS} share the last id.
+ */
+public class OffenseGroupDictionary {
+
+    public static final int MAX_GROUPS = 64;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * @return the id of the group, registering it if it is new
+     */
+    public synchronized int register(String group) {
+        String key = normalize(group);
+        Integer id = ids.get(key);
+        if (id != null) {
+            return id;
+        }
+        int next = Math.min(names.size(), MAX_GROUPS - 1);
+        if (names.size() < MAX_GROUPS) {
+            names.add(key);
+        }
+        ids.put(key, next);
+        return next;
+    }
+
+    /**
+     * @return the id of the group, or -1 if it was never registered
+     */
+    public int idOf(String group) {
+        if (group == null) {
+            return -1;
+        }
+        Integer id = ids.get(normalize(group));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Bit mask matching any of the given groups; 0 if none of them is known.
+     */
+    public long maskOf(Collection<String> groups) {
+        long mask = 0L;
+        for (String group : groups) {
+            int id = idOf(group);
+            if (id >= 0) {
+                mask |= 1L << id;
+            }
+        }
+        return mask;
+    }
+
+    public synchronized List<String> namesOf(long mask) {
+        List<String> result = new ArrayList<>();
+        for (int id = 0; id < names.size(); id++) {
+            if ((mask & (1L << id)) != 0) {
+                result.add(names.get(id));
+            }
+        }
+        return result;
+    }
+
+    public synchronized List<String> names() {
+        return new ArrayList<>(names);
+    }
+
+    public synchronized int size() {
+        return names.size();
+    }
+
+    private static String normalize(String group) {
+        return group.trim().toUpperCase(Locale.ROOT);
+    }
+}
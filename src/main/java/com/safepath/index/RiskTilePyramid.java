@@ -0,0 +1,186 @@
+package com.safepath.index;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.safepath.util.GeoUtils;
+
+/**
+ * Immutable pyramid of pre-encoded segment risk tiles in the XYZ (Web Mercator) scheme.
+ * <p>
+ * Tile format, big-endian:
+ * <pre>
+ * magic    4 bytes  "SPRT"
+ * format   u8       1
+ * zoom     u8
+ * x        i32
+ * y        i32
+ * count    i32      number of features
+ * features 8 bytes each:
+ *   px     u16      position in the tile, 0..4095 from the west edge
+ *   py     u16      position in the tile, 0..4095 from the north edge
+ *   count  u16      segments merged into the feature (saturates at 65535)
+ *   score  u8       highest risk score of the merged segments, scaled to 0..255
+ *   label  u8       label of that segment: 0 LOW, 1 MEDIUM, 2 HIGH, 3 other
+ * </pre>
+ * Below the detail zoom, segments are merged on a 64x64 grid per tile and a feature sits at the
+ * mean position of its segments; at and above it every segment is its own feature.
+ */
+public final class RiskTilePyramid {
+
+    public static final int EXTENT = 4096;
+    public static final int FORMAT_VERSION = 1;
+    public static final int HEADER_BYTES = 18;
+    public static final int FEATURE_BYTES = 8;
+
+    public static final byte LABEL_LOW = 0;
+    public static final byte LABEL_MEDIUM = 1;
+    public static final byte LABEL_HIGH = 2;
+    public static final byte LABEL_OTHER = 3;
+
+    private static final byte[] MAGIC = {'S', 'P', 'R', 'T'};
+    private static final int MERGE_GRID = 64;
+
+    private final String version;
+    private final int minZoom;
+    private final int maxZoom;
+    private final Map<Long, byte[]> tiles;
+    private final long byteSize;
+
+    private RiskTilePyramid(String version, int minZoom, int maxZoom, Map<Long, byte[]> tiles) {
+        this.version = version;
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        this.tiles = tiles;
+        long bytes = 0;
+        for (byte[] tile : tiles.values()) {
+            bytes += tile.length;
+        }
+        this.byteSize = bytes;
+    }
+
+    /**
+     * Encodes all segments into tiles for every zoom level in [minZoom, maxZoom].
+     *
+     * @param detailZoom zoom level from which segments are no longer merged
+     */
+    public static RiskTilePyramid build(String version, double[] lats, double[] lons, double[] scores,
+                                        byte[] labels, int minZoom, int maxZoom, int detailZoom) {
+        if (minZoom < 0 || maxZoom > 22 || minZoom > maxZoom) {
+            throw new IllegalArgumentException("require 0 <= minZoom <= maxZoom <= 22");
+        }
+        Map<Long, byte[]> tiles = new HashMap<>();
+        for (int z = minZoom; z <= maxZoom; z++) {
+            int grid = z >= detailZoom ? EXTENT : MERGE_GRID;
+            int cellSize = EXTENT / grid;
+            // tile key -> cell key -> [sumPx, sumPy, count, maxScore, label]
+            Map<Long, Map<Integer, double[]>> byTile = new HashMap<>();
+            for (int i = 0; i < lats.length; i++) {
+                double fx = GeoUtils.lonToTileX(lons[i], z);
+                double fy = GeoUtils.latToTileY(lats[i], z);
+                long tx = (long) Math.floor(fx);
+                long ty = (long) Math.floor(fy);
+                if (tx < 0 || ty < 0 || tx >= (1L << z) || ty >= (1L << z)) {
+                    continue;
+                }
+                int px = Math.min(EXTENT - 1, (int) ((fx - tx) * EXTENT));
+                int py = Math.min(EXTENT - 1, (int) ((fy - ty) * EXTENT));
+                int cell = (px / cellSize) * grid + (py / cellSize);
+                double[] acc = byTile.computeIfAbsent(key(z, (int) tx, (int) ty), k -> new HashMap<>())
+                    .computeIfAbsent(cell, k -> new double[] {0, 0, 0, -1, LABEL_OTHER});
+                acc[0] += px;
+                acc[1] += py;
+                acc[2]++;
+                if (scores[i] > acc[3]) {
+                    acc[3] = scores[i];
+                    acc[4] = labels[i];
+                }
+            }
+            for (Map.Entry<Long, Map<Integer, double[]>> e : byTile.entrySet()) {
+                long k = e.getKey();
+                tiles.put(k, encode(z, tileX(k), tileY(k), e.getValue()));
+            }
+        }
+        return new RiskTilePyramid(version, minZoom, maxZoom, tiles);
+    }
+
+    /**
+     * @return the encoded tile, a header-only tile if nothing falls into it,
+     *         or null if the zoom level is not part of the pyramid
+     */
+    public byte[] tile(int z, int x, int y) {
+        if (z < minZoom || z > maxZoom || x < 0 || y < 0 || x >= (1 << z) || y >= (1 << z)) {
+            return null;
+        }
+        byte[] tile = tiles.get(key(z, x, y));
+        return tile != null ? tile : encode(z, x, y, Map.of());
+    }
+
+    public static byte labelCode(String label) {
+        if (label == null) {
+            return LABEL_OTHER;
+        }
+        switch (label) {
+            case "LOW":
+                return LABEL_LOW;
+            case "MEDIUM":
+                return LABEL_MEDIUM;
+            case "HIGH":
+                return LABEL_HIGH;
+            default:
+                return LABEL_OTHER;
+        }
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getMinZoom() {
+        return minZoom;
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    public int tileCount() {
+        return tiles.size();
+    }
+
+    public long byteSize() {
+        return byteSize;
+    }
+
+    private static byte[] encode(int z, int x, int y, Map<Integer, double[]> features) {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + features.size() * FEATURE_BYTES);
+        buf.put(MAGIC);
+        buf.put((byte) FORMAT_VERSION);
+        buf.put((byte) z);
+        buf.putInt(x);
+        buf.putInt(y);
+        buf.putInt(features.size());
+        for (double[] acc : features.values()) {
+            int count = (int) acc[2];
+            buf.putShort((short) Math.round(acc[0] / count));
+            buf.putShort((short) Math.round(acc[1] / count));
+            buf.putShort((short) Math.min(count, 0xffff));
+            buf.put((byte) Math.round(Math.max(0.0, Math.min(1.0, acc[3])) * 255));
+            buf.put((byte) acc[4]);
+        }
+        return buf.array();
+    }
+
+    private static long key(int z, int x, int y) {
+        return ((long) z << 58) | ((long) x << 29) | y;
+    }
+
+    private static int tileX(long key) {
+        return (int) ((key >>> 29) & ((1L << 29) - 1));
+    }
+
+    private static int tileY(long key) {
+        return (int) (key & ((1L << 29) - 1));
+    }
+}
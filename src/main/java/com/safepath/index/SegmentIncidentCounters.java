@@ -0,0 +1,146 @@
+package com.safepath.index;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+
+import com.safepath.util.GeoUtils;
+
+/**
+ * Running per-segment incident counters over a sliding day window.
+ * Each segment that has seen an incident owns a ring of daily buckets
+ * (total and night counts), so adding an incident is O(1) and expiring a day
+ * only touches segments that actually have counts.
+ * The windows mirror {@code build_feature_frame} in segment_risk_clustering.py:
+ * incidents in the lookback window, night incidents, the recent window and
+ * the previous (lookback minus recent) window.
+ */
+public class SegmentIncidentCounters {
+
+    /**
+     * Aggregated counts for one segment.
+     */
+    public static class Totals {
+        public final int incidents;
+        public final int nightIncidents;
+        public final int recentIncidents;
+        public final int previousIncidents;
+
+        public Totals(int incidents, int nightIncidents, int recentIncidents, int previousIncidents) {
+            this.incidents = incidents;
+            this.nightIncidents = nightIncidents;
+            this.recentIncidents = recentIncidents;
+            this.previousIncidents = previousIncidents;
+        }
+    }
+
+    private static final Totals EMPTY = new Totals(0, 0, 0, 0);
+
+    private final int lookbackDays;
+    private final int recentDays;
+
+    private int[][] totals = new int[0][];
+    private int[][] nights = new int[0][];
+    private long today;
+
+    public SegmentIncidentCounters(int lookbackDays, int recentDays) {
+        if (lookbackDays <= 0 || recentDays <= 0 || recentDays > lookbackDays) {
+            throw new IllegalArgumentException("require 0 < recentDays <= lookbackDays");
+        }
+        this.lookbackDays = lookbackDays;
+        this.recentDays = recentDays;
+    }
+
+    /**
+     * Drops all counts and sizes the counters for the given number of segments.
+     */
+    public synchronized void reset(int segmentCount, LocalDate currentDay) {
+        totals = new int[segmentCount][];
+        nights = new int[segmentCount][];
+        today = currentDay.toEpochDay();
+    }
+
+    /**
+     * Records one incident.
+     *
+     * @return false if the incident falls outside the window and was ignored
+     */
+    public synchronized boolean add(int ordinal, LocalDateTime when) {
+        long day = when.toLocalDate().toEpochDay();
+        if (day > today || day <= today - lookbackDays || ordinal < 0 || ordinal >= totals.length) {
+            return false;
+        }
+        if (totals[ordinal] == null) {
+            totals[ordinal] = new int[lookbackDays];
+            nights[ordinal] = new int[lookbackDays];
+        }
+        int slot = slot(day);
+        totals[ordinal][slot]++;
+        if (GeoUtils.isNightHour(when.getHour())) {
+            nights[ordinal][slot]++;
+        }
+        return true;
+    }
+
+    /**
+     * Moves the window forward to the given day, clearing the buckets that fall
+     * out of the lookback window.
+     *
+     * @return ordinals whose totals changed because of expiry or window shift
+     */
+    public synchronized BitSet advanceTo(LocalDate currentDay) {
+        long target = currentDay.toEpochDay();
+        BitSet changed = new BitSet();
+        if (target <= today) {
+            return changed;
+        }
+        for (int ordinal = 0; ordinal < totals.length; ordinal++) {
+            int[] t = totals[ordinal];
+            if (t == null) {
+                continue;
+            }
+            // any segment with counts changes: buckets expire or shift from recent to previous
+            changed.set(ordinal);
+            long steps = Math.min(target - today, lookbackDays);
+            for (long d = 1; d <= steps; d++) {
+                int slot = slot(today + d);
+                t[slot] = 0;
+                nights[ordinal][slot] = 0;
+            }
+        }
+        today = target;
+        return changed;
+    }
+
+    public synchronized Totals totals(int ordinal) {
+        if (ordinal < 0 || ordinal >= totals.length || totals[ordinal] == null) {
+            return EMPTY;
+        }
+        int[] t = totals[ordinal];
+        int[] n = nights[ordinal];
+        int incidents = 0;
+        int night = 0;
+        int recent = 0;
+        for (int age = 0; age < lookbackDays; age++) {
+            int slot = slot(today - age);
+            incidents += t[slot];
+            night += n[slot];
+            if (age < recentDays) {
+                recent += t[slot];
+            }
+        }
+        return new Totals(incidents, night, recent, incidents - recent);
+    }
+
+    public synchronized int segmentCount() {
+        return totals.length;
+    }
+
+    public int getLookbackDays() {
+        return lookbackDays;
+    }
+
+    private int slot(long epochDay) {
+        return (int) Math.floorMod(epochDay, (long) lookbackDays);
+    }
+}
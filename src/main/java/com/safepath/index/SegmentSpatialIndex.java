@@ -0,0 +1,213 @@
+package com.safepath.index;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.safepath.repository.StreetSegmentRepository;
+import com.safepath.util.GeoUtils;
+
+/**
+ * In-memory nearest street segment matcher.
+ * Segment midpoints are kept in primitive arrays and bucketed into a uniform
+ * lat/lon grid, so a lookup only inspects the handful of cells around a point
+ * instead of querying the database. Every segment gets a dense ordinal that
+ * other in-memory structures can use as an array index.
+ */
+@Component
+public class SegmentSpatialIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentSpatialIndex.class);
+
+    // ~550m x ~370m cells in Seattle
+    private static final double CELL_DEGREES = 0.005;
+
+    private final StreetSegmentRepository segmentRepository;
+
+    @Value("${safepath.segments.match-radius-m:500}")
+    private double defaultMatchRadiusMeters;
+
+    private volatile Snapshot snapshot;
+
+    public SegmentSpatialIndex(StreetSegmentRepository segmentRepository) {
+        this.segmentRepository = segmentRepository;
+    }
+
+    /**
+     * Result of a nearest segment lookup.
+     */
+    public static class Match {
+        public final int ordinal;
+        public final String unitid;
+        public final double distanceMeters;
+
+        public Match(int ordinal, String unitid, double distanceMeters) {
+            this.ordinal = ordinal;
+            this.unitid = unitid;
+            this.distanceMeters = distanceMeters;
+        }
+    }
+
+    /**
+     * Reloads all segment coordinates from the database and swaps the snapshot.
+     */
+    public synchronized void reload() {
+        List<Object[]> rows = segmentRepository.findAllCoordinates();
+        int n = rows.size();
+        String[] unitids = new String[n];
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        double[] lengths = new double[n];
+        Map<String, Integer> ordinals = new HashMap<>(n * 2);
+        Map<Long, int[]> cells = new HashMap<>();
+        Map<Long, Integer> cellSizes = new HashMap<>();
+
+        for (int i = 0; i < n; i++) {
+            Object[] row = rows.get(i);
+            unitids[i] = (String) row[0];
+            lats[i] = ((Number) row[1]).doubleValue();
+            lons[i] = ((Number) row[2]).doubleValue();
+            lengths[i] = row[3] == null ? Double.NaN : ((Number) row[3]).doubleValue();
+            ordinals.put(unitids[i], i);
+            cellSizes.merge(cellKey(lats[i], lons[i]), 1, Integer::sum);
+        }
+        for (Map.Entry<Long, Integer> e : cellSizes.entrySet()) {
+            cells.put(e.getKey(), new int[e.getValue()]);
+        }
+        Map<Long, Integer> fill = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            long key = cellKey(lats[i], lons[i]);
+            int pos = fill.merge(key, 1, Integer::sum) - 1;
+            cells.get(key)[pos] = i;
+        }
+
+        snapshot = new Snapshot(unitids, lats, lons, lengths, ordinals, cells);
+        logger.info("Segment spatial index loaded: {} segments in {} cells", n, cells.size());
+    }
+
+    /**
+     * Finds the nearest segment within the configured match radius.
+     *
+     * @return the match, or null if no segment is close enough
+     */
+    public Match nearest(double lat, double lon) {
+        return nearest(lat, lon, defaultMatchRadiusMeters);
+    }
+
+    /**
+     * Finds the nearest segment within the given radius.
+     *
+     * @return the match, or null if no segment is close enough
+     */
+    public Match nearest(double lat, double lon, double maxDistanceMeters) {
+        Snapshot s = current();
+        if (s.size() == 0) {
+            return null;
+        }
+        double dLat = GeoUtils.metersToLatDegrees(maxDistanceMeters);
+        double dLon = GeoUtils.metersToLonDegrees(maxDistanceMeters, lat);
+        long minRow = cellIndex(lat - dLat);
+        long maxRow = cellIndex(lat + dLat);
+        long minCol = cellIndex(lon - dLon);
+        long maxCol = cellIndex(lon + dLon);
+
+        int best = -1;
+        double bestDistance = maxDistanceMeters;
+        for (long row = minRow; row <= maxRow; row++) {
+            for (long col = minCol; col <= maxCol; col++) {
+                int[] members = s.cells.get(pack(row, col));
+                if (members == null) {
+                    continue;
+                }
+                for (int ordinal : members) {
+                    double d = GeoUtils.haversineMeters(lat, lon, s.lats[ordinal], s.lons[ordinal]);
+                    if (d <= bestDistance) {
+                        bestDistance = d;
+                        best = ordinal;
+                    }
+                }
+            }
+        }
+        return best < 0 ? null : new Match(best, s.unitids[best], bestDistance);
+    }
+
+    /**
+     * @return the dense ordinal of a segment, or -1 if unknown
+     */
+    public int ordinalOf(String unitid) {
+        Integer ordinal = current().ordinals.get(unitid);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public String unitidAt(int ordinal) {
+        return current().unitids[ordinal];
+    }
+
+    public double latitudeAt(int ordinal) {
+        return current().lats[ordinal];
+    }
+
+    public double longitudeAt(int ordinal) {
+        return current().lons[ordinal];
+    }
+
+    /**
+     * @return the segment length in meters, or NaN if not recorded
+     */
+    public double lengthAt(int ordinal) {
+        return current().lengths[ordinal];
+    }
+
+    public int size() {
+        return current().size();
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            reload();
+            s = snapshot;
+        }
+        return s;
+    }
+
+    private static long cellKey(double lat, double lon) {
+        return pack(cellIndex(lat), cellIndex(lon));
+    }
+
+    private static long cellIndex(double degrees) {
+        return (long) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long pack(long row, long col) {
+        return (row << 32) ^ (col & 0xffffffffL);
+    }
+
+    private static final class Snapshot {
+        final String[] unitids;
+        final double[] lats;
+        final double[] lons;
+        final double[] lengths;
+        final Map<String, Integer> ordinals;
+        final Map<Long, int[]> cells;
+
+        Snapshot(String[] unitids, double[] lats, double[] lons, double[] lengths,
+                 Map<String, Integer> ordinals, Map<Long, int[]> cells) {
+            this.unitids = unitids;
+            this.lats = lats;
+            this.lons = lons;
+            this.lengths = lengths;
+            this.ordinals = ordinals;
+            this.cells = cells;
+        }
+
+        int size() {
+            return unitids.length;
+        }
+    }
+}
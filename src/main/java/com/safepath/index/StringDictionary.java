@@ -0,0 +1,60 @@
+package com.safepath.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Dictionary encoding of a string column into dense short codes.
+ * Values are trimmed and compared case-insensitively; the first spelling seen is kept for display.
+ * Not thread safe while being filled; read-only once the owning snapshot is published.
+ */
+public final class StringDictionary {
+
+    /** Code of null or blank values. */
+    public static final short NONE = -1;
+
+    private final Map<String, Short> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * @return the code of the value, adding it if it is new; {@link #NONE} for null or blank values
+     */
+    public short encode(String value) {
+        if (value == null || value.isBlank()) {
+            return NONE;
+        }
+        String key = value.trim().toUpperCase(Locale.ROOT);
+        Short code = codes.get(key);
+        if (code == null) {
+            if (values.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("more than " + (Short.MAX_VALUE + 1) + " distinct values");
+            }
+            code = (short) values.size();
+            codes.put(key, code);
+            values.add(value.trim());
+        }
+        return code;
+    }
+
+    /**
+     * @return the code of the value, or {@link #NONE} if it was never encoded
+     */
+    public short codeOf(String value) {
+        if (value == null || value.isBlank()) {
+            return NONE;
+        }
+        Short code = codes.get(value.trim().toUpperCase(Locale.ROOT));
+        return code == null ? NONE : code;
+    }
+
+    public String decode(short code) {
+        return code < 0 ? null : values.get(code);
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
@@ -5,7 +5,12 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "crime_reports")
+@Table(name = "crime_reports", indexes = {
+    // keyset pagination order, see CrimeReportRepository
+    @Index(name = "idx_crime_reports_datetime_number", columnList = "report_datetime, report_number"),
+    // per-segment aggregation, see SegmentAssignmentService
+    @Index(name = "idx_crime_reports_unitid_datetime", columnList = "unitid, report_datetime")
+})
 public class CrimeReport {
 
     @Id
@@ -36,6 +41,14 @@ public class CrimeReport {
     @Column(name = "blurred_longitude")
     private Double blurredLongitude;
 
+    // nearest street segment, assigned on save or by the backfill job
+    @Column(name = "unitid", length = 50)
+    private String unitid;
+
+    // distance to the segment midpoint; NULL = not matched yet, -1 = no segment within the match radius
+    @Column(name = "snapped_distance_m")
+    private Double snappedDistanceM;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "etl_id")
     private EtlRun etlRun;
@@ -115,6 +128,22 @@ public class CrimeReport {
         this.blurredLongitude = blurredLongitude;
     }
 
+    public String getUnitid() {
+        return unitid;
+    }
+
+    public void setUnitid(String unitid) {
+        this.unitid = unitid;
+    }
+
+    public Double getSnappedDistanceM() {
+        return snappedDistanceM;
+    }
+
+    public void setSnappedDistanceM(Double snappedDistanceM) {
+        this.snappedDistanceM = snappedDistanceM;
+    }
+
     public EtlRun getEtlRun() {
         return etlRun;
     }
@@ -5,9 +5,21 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "etl_runs")
+@Table(name = "etl_runs", indexes = {
+    // last successful run of a source, see EtlRunRepository
+    @Index(name = "idx_etl_runs_source_status", columnList = "source_id, status, etl_id")
+})
 public class EtlRun {
 
+    public enum Mode {
+        FULL,           // every record of the source
+        INCREMENTAL     // only records past the watermark of the last successful run
+    }
+
+    public enum Status {
+        RUNNING, SUCCEEDED, FAILED
+    }
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "etl_id")
@@ -26,6 +38,25 @@ public class EtlRun {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "mode", length = 20)
+    private Mode mode;
+
+    // null for runs recorded by the Python scripts
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20)
+    private Status status;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    // high-water marks of the source after this run: latest record time and highest record id seen
+    @Column(name = "watermark_datetime")
+    private LocalDateTime watermarkDatetime;
+
+    @Column(name = "watermark_record_id")
+    private Long watermarkRecordId;
+
     public EtlRun() {
     }
 
@@ -69,6 +100,46 @@ public class EtlRun {
         this.createdAt = createdAt;
     }
 
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public LocalDateTime getWatermarkDatetime() {
+        return watermarkDatetime;
+    }
+
+    public void setWatermarkDatetime(LocalDateTime watermarkDatetime) {
+        this.watermarkDatetime = watermarkDatetime;
+    }
+
+    public Long getWatermarkRecordId() {
+        return watermarkRecordId;
+    }
+
+    public void setWatermarkRecordId(Long watermarkRecordId) {
+        this.watermarkRecordId = watermarkRecordId;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
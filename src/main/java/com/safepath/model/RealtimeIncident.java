@@ -5,7 +5,10 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "realtime_incidents")
+@Table(name = "realtime_incidents", indexes = {
+    // recent incidents, e.g. seeding the dedupe window of the realtime ingestion
+    @Index(name = "idx_realtime_incidents_event_datetime", columnList = "event_datetime")
+})
 public class RealtimeIncident {
 
     @Id
@@ -5,7 +5,10 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "report_offenses")
+@Table(name = "report_offenses", uniqueConstraints = {
+    // natural key the ETL deduplicates on
+    @UniqueConstraint(name = "uk_report_offenses_natural", columnNames = {"report_number", "offense_code", "offense_date"})
+})
 public class ReportOffense {
 
     @Id
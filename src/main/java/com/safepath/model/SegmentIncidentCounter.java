@@ -0,0 +1,97 @@
+package com.safepath.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Side table mirroring the in-memory per-segment incident counters that feed
+ * incremental risk updates.
+ */
+@Entity
+@Table(name = "segment_incident_counters")
+public class SegmentIncidentCounter {
+
+    @Id
+    @Column(name = "unitid", length = 50)
+    private String unitid;
+
+    @Column(name = "incidents_90d", nullable = false)
+    private Integer incidents90d;
+
+    @Column(name = "night_incidents", nullable = false)
+    private Integer nightIncidents;
+
+    @Column(name = "recent_incidents", nullable = false)
+    private Integer recentIncidents;
+
+    @Column(name = "previous_incidents", nullable = false)
+    private Integer previousIncidents;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public SegmentIncidentCounter() {
+    }
+
+    public String getUnitid() {
+        return unitid;
+    }
+
+    public void setUnitid(String unitid) {
+        this.unitid = unitid;
+    }
+
+    public Integer getIncidents90d() {
+        return incidents90d;
+    }
+
+    public void setIncidents90d(Integer incidents90d) {
+        this.incidents90d = incidents90d;
+    }
+
+    public Integer getNightIncidents() {
+        return nightIncidents;
+    }
+
+    public void setNightIncidents(Integer nightIncidents) {
+        this.nightIncidents = nightIncidents;
+    }
+
+    public Integer getRecentIncidents() {
+        return recentIncidents;
+    }
+
+    public void setRecentIncidents(Integer recentIncidents) {
+        this.recentIncidents = recentIncidents;
+    }
+
+    public Integer getPreviousIncidents() {
+        return previousIncidents;
+    }
+
+    public void setPreviousIncidents(Integer previousIncidents) {
+        this.previousIncidents = previousIncidents;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SegmentIncidentCounter)) return false;
+        SegmentIncidentCounter that = (SegmentIncidentCounter) o;
+        return Objects.equals(unitid, that.unitid);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(unitid);
+    }
+}
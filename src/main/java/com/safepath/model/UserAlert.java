@@ -9,6 +9,14 @@ import java.util.Objects;
 @Table(name = "user_alerts")
 public class UserAlert {
 
+    /**
+     * How matches of an alert reach the user: one push per incident, or collected into an hourly
+     * or daily digest.
+     */
+    public enum DigestMode {
+        IMMEDIATE, HOURLY, DAILY
+    }
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "alert_id")
@@ -34,6 +42,10 @@ public class UserAlert {
     @Column(name = "active_flag")
     private Boolean activeFlag = Boolean.TRUE;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "digest_mode", length = 10)
+    private DigestMode digestMode = DigestMode.IMMEDIATE;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -99,6 +111,14 @@ public class UserAlert {
         this.activeFlag = activeFlag;
     }
 
+    public DigestMode getDigestMode() {
+        return digestMode;
+    }
+
+    public void setDigestMode(DigestMode digestMode) {
+        this.digestMode = digestMode;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
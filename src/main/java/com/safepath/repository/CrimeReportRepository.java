@@ -1,9 +1,75 @@
 package com.safepath.repository;
 
 import com.safepath.model.CrimeReport;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keyset queries walk the reports newest first on (report_datetime DESC, report_number DESC),
+ * backed by idx_crime_reports_datetime_number. Reports without a datetime come last, ordered by
+ * report_number DESC.
+ */
 @Repository
 public interface CrimeReportRepository extends JpaRepository<CrimeReport, String> {
+
+    @Query("SELECT c FROM CrimeReport c WHERE c.reportDatetime IS NOT NULL "
+        + "ORDER BY c.reportDatetime DESC, c.reportNumber DESC")
+    List<CrimeReport> findFirstDated(Limit limit);
+
+    @Query("SELECT c FROM CrimeReport c WHERE c.reportDatetime < :datetime "
+        + "OR (c.reportDatetime = :datetime AND c.reportNumber < :reportNumber) "
+        + "ORDER BY c.reportDatetime DESC, c.reportNumber DESC")
+    List<CrimeReport> findDatedAfter(@Param("datetime") LocalDateTime datetime,
+                                     @Param("reportNumber") String reportNumber,
+                                     Limit limit);
+
+    @Query("SELECT c FROM CrimeReport c WHERE c.reportDatetime IS NULL ORDER BY c.reportNumber DESC")
+    List<CrimeReport> findFirstUndated(Limit limit);
+
+    @Query("SELECT c FROM CrimeReport c WHERE c.reportDatetime IS NULL AND c.reportNumber < :reportNumber "
+        + "ORDER BY c.reportNumber DESC")
+    List<CrimeReport> findUndatedAfter(@Param("reportNumber") String reportNumber, Limit limit);
+
+    /**
+     * Located, dated reports as [reportNumber, reportDatetime, latitude, longitude] rows,
+     * walked in report_number order for chunked loading of the in-memory indexes.
+     */
+    @Query("SELECT c.reportNumber, c.reportDatetime, c.blurredLatitude, c.blurredLongitude FROM CrimeReport c "
+        + "WHERE c.reportNumber > :after AND c.reportDatetime >= :since "
+        + "AND c.blurredLatitude IS NOT NULL AND c.blurredLongitude IS NOT NULL "
+        + "ORDER BY c.reportNumber")
+    List<Object[]> findLocatedAfter(@Param("after") String after,
+                                    @Param("since") LocalDateTime since,
+                                    Limit limit);
+
+    /**
+     * All reports as [reportNumber, reportDatetime, latitude, longitude, precinct, mcppNeighborhood]
+     * rows in report_number order, for chunked loading of the columnar snapshot.
+     */
+    @Query("SELECT c.reportNumber, c.reportDatetime, c.blurredLatitude, c.blurredLongitude, c.precinct, "
+        + "c.mcppNeighborhood FROM CrimeReport c WHERE c.reportNumber > :after ORDER BY c.reportNumber")
+    List<Object[]> findColumnsAfter(@Param("after") String after, Limit limit);
+
+    /**
+     * Located reports not yet snapped to a street segment as [reportNumber, latitude, longitude] rows,
+     * in report_number order for the chunked segment backfill.
+     */
+    @Query("SELECT c.reportNumber, c.blurredLatitude, c.blurredLongitude FROM CrimeReport c "
+        + "WHERE c.reportNumber > :after AND c.snappedDistanceM IS NULL "
+        + "AND c.blurredLatitude IS NOT NULL AND c.blurredLongitude IS NOT NULL "
+        + "ORDER BY c.reportNumber")
+    List<Object[]> findUnsnappedAfter(@Param("after") String after, Limit limit);
+
+    /**
+     * [row count, highest etl_id] of crime_reports, compared by the in-memory indexes to notice
+     * writes of other applications.
+     */
+    @Query("SELECT COUNT(c), MAX(e.etlId) FROM CrimeReport c LEFT JOIN c.etlRun e")
+    List<Object[]> findWatermark();
 }
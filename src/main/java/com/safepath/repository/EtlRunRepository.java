@@ -1,9 +1,35 @@
 package com.safepath.repository;
 
 import com.safepath.model.EtlRun;
+import com.safepath.model.Source;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
 
 @Repository
 public interface EtlRunRepository extends JpaRepository<EtlRun, Integer> {
+
+    /**
+     * Latest run of a source with the given status, e.g. the one holding the current watermark.
+     */
+    Optional<EtlRun> findFirstBySourceAndStatusOrderByEtlIdDesc(Source source, EtlRun.Status status);
+
+    Optional<EtlRun> findFirstBySourceOrderByEtlIdDesc(Source source);
+
+    /**
+     * Marks the RUNNING runs of a source FAILED, for runs whose node died.
+     *
+     * @return number of runs marked
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE EtlRun r SET r.status = com.safepath.model.EtlRun.Status.FAILED, r.finishedAt = :now "
+        + "WHERE r.source = :source AND r.status = com.safepath.model.EtlRun.Status.RUNNING")
+    int failRunning(@Param("source") Source source, @Param("now") LocalDateTime now);
 }
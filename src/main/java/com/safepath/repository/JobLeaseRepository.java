@@ -0,0 +1,48 @@
+package com.safepath.repository;
+
+import com.safepath.model.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+    /**
+     * Takes the lease if it is free or expired. The row lock of the conditional
+     * UPDATE makes this safe across nodes.
+     *
+     * @return 1 if the lease was acquired, 0 otherwise
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLease l SET l.ownerId = :owner, l.leaseUntil = :until "
+        + "WHERE l.jobName = :job AND (l.leaseUntil IS NULL OR l.leaseUntil < :now)")
+    int tryAcquire(@Param("job") String job, @Param("owner") String owner,
+                   @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    /**
+     * Extends a lease held by the given owner.
+     *
+     * @return 1 if the lease was extended, 0 if it is no longer held
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLease l SET l.leaseUntil = :until WHERE l.jobName = :job AND l.ownerId = :owner")
+    int renew(@Param("job") String job, @Param("owner") String owner, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLease l SET l.leaseUntil = NULL WHERE l.jobName = :job AND l.ownerId = :owner")
+    int release(@Param("job") String job, @Param("owner") String owner);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLease l SET l.lastSuccessAt = :at WHERE l.jobName = :job")
+    int recordSuccess(@Param("job") String job, @Param("at") LocalDateTime at);
+}
@@ -2,8 +2,51 @@ package com.safepath.repository;
 
 import com.safepath.model.ReportOffense;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ReportOffenseRepository extends JpaRepository<ReportOffense, Long> {
+
+    /**
+     * Located offenses since the given time as [offenseDate, latitude, longitude, unitid, reportNumber]
+     * rows, the same incident set the clustering job reads; unitid is null for reports not snapped yet.
+     */
+    @Query("SELECT ro.offenseDate, cr.blurredLatitude, cr.blurredLongitude, cr.unitid, cr.reportNumber "
+            + "FROM ReportOffense ro JOIN ro.crimeReport cr "
+            + "WHERE cr.blurredLatitude IS NOT NULL AND cr.blurredLongitude IS NOT NULL "
+            + "AND ro.offenseDate >= :since")
+    List<Object[]> findLocatedOffensesSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Located offenses of the given reports since the given time, in the shape of
+     * {@link #findLocatedOffensesSince(LocalDateTime)}.
+     */
+    @Query("SELECT ro.offenseDate, cr.blurredLatitude, cr.blurredLongitude, cr.unitid, cr.reportNumber "
+            + "FROM ReportOffense ro JOIN ro.crimeReport cr "
+            + "WHERE cr.reportNumber IN :reportNumbers "
+            + "AND cr.blurredLatitude IS NOT NULL AND cr.blurredLongitude IS NOT NULL "
+            + "AND ro.offenseDate >= :since")
+    List<Object[]> findLocatedOffensesOf(@Param("reportNumbers") Collection<String> reportNumbers,
+                                         @Param("since") LocalDateTime since);
+
+    /**
+     * Offense parent groups of the given reports as [reportNumber, offenseParentGroup] rows.
+     */
+    @Query("SELECT ro.crimeReport.reportNumber, ot.offenseParentGroup "
+            + "FROM ReportOffense ro JOIN ro.offenseType ot "
+            + "WHERE ro.crimeReport.reportNumber IN :reportNumbers")
+    List<Object[]> findOffenseGroups(@Param("reportNumbers") Collection<String> reportNumbers);
+
+    /**
+     * [row count, highest offense_id] of report_offenses, compared by the in-memory indexes to
+     * notice writes of other applications.
+     */
+    @Query("SELECT COUNT(ro), MAX(ro.offenseId) FROM ReportOffense ro")
+    List<Object[]> findWatermark();
 }
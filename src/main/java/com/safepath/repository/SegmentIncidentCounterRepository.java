@@ -0,0 +1,9 @@
+package com.safepath.repository;
+
+import com.safepath.model.SegmentIncidentCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SegmentIncidentCounterRepository extends JpaRepository<SegmentIncidentCounter, String> {
+}
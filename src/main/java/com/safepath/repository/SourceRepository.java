@@ -4,6 +4,10 @@ import com.safepath.model.Source;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface SourceRepository extends JpaRepository<Source, Integer> {
+
+    Optional<Source> findFirstBySourceNameOrderBySourceId(String sourceName);
 }
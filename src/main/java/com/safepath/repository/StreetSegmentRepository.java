@@ -2,8 +2,20 @@ package com.safepath.repository;
 
 import com.safepath.model.StreetSegment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface StreetSegmentRepository extends JpaRepository<StreetSegment, String> {
+
+    /**
+     * Loads the midpoint coordinates of every located segment as
+     * [unitid, latitude, longitude, seglength] rows for the in-memory spatial index.
+     */
+    @Query("SELECT s.unitid, s.gisMidY, s.gisMidX, s.seglength FROM StreetSegment s "
+            + "WHERE s.gisMidX IS NOT NULL AND s.gisMidY IS NOT NULL "
+            + "ORDER BY s.unitid")
+    List<Object[]> findAllCoordinates();
 }
@@ -8,16 +8,12 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.safepath.dto.StreetSegmentRiskDto;
 import com.safepath.model.StreetSegmentRisk;
 
 @Repository
 public interface StreetSegmentRiskRepository extends JpaRepository<StreetSegmentRisk, String> {
 
-    @Query("SELECT r FROM StreetSegmentRisk r "
-            + "JOIN FETCH r.streetSegment s "
-            + "WHERE r.unitid = :unitid")
-    Optional<StreetSegmentRisk> findByUnitidWithSegment(@Param("unitid") String unitid);
-
     @Query("SELECT r FROM StreetSegmentRisk r "
             + "JOIN FETCH r.streetSegment s "
             + "WHERE s.gisMidX BETWEEN :west AND :east "
@@ -28,6 +24,65 @@ public interface StreetSegmentRiskRepository extends JpaRepository<StreetSegment
             @Param("east") double east,
             @Param("north") double north);
 
+    /**
+     * Position, score and label of every scored segment as
+     * [latitude, longitude, riskScore, riskLabel, modelVersion] rows, ordered by unitid.
+     */
+    @Query("SELECT s.gisMidY, s.gisMidX, r.riskScore, r.riskLabel, r.modelVersion "
+            + "FROM StreetSegmentRisk r JOIN r.streetSegment s "
+            + "WHERE s.gisMidX IS NOT NULL AND s.gisMidY IS NOT NULL "
+            + "ORDER BY r.unitid")
+    List<Object[]> findAllForTiles();
+
+    /**
+     * Aggregates the scored segments in a bounding box into Web Mercator grid cells, numbered like
+     * map tiles (rows from the north). One row per cell and risk label:
+     * [cellX, cellY, riskLabel, segmentCount, maxRiskScore, sumRiskScore, sumLatitude, sumLongitude]
+     *
+     * @param cells cells per side of the world, 2^zoom of the tiles used as cells
+     */
+    @Query(value = "SELECT FLOOR((s.gis_mid_x + 180) / 360 * :cells) AS cell_x, "
+            + "FLOOR((1 - LN(TAN(RADIANS(s.gis_mid_y)) + 1 / COS(RADIANS(s.gis_mid_y))) / PI()) / 2 * :cells) AS cell_y, "
+            + "r.risk_label AS risk_label, COUNT(*) AS segment_count, "
+            + "MAX(r.risk_score) AS max_score, SUM(r.risk_score) AS sum_score, "
+            + "SUM(s.gis_mid_y) AS sum_lat, SUM(s.gis_mid_x) AS sum_lon "
+            + "FROM street_segment_risk r "
+            + "JOIN street_segments s ON r.unitid = s.unitid "
+            + "WHERE s.gis_mid_x BETWEEN :west AND :east "
+            + "AND s.gis_mid_y BETWEEN :south AND :north "
+            + "GROUP BY cell_x, cell_y, risk_label", nativeQuery = true)
+    List<Object[]> aggregateWithinBounds(
+            @Param("west") double west,
+            @Param("south") double south,
+            @Param("east") double east,
+            @Param("north") double north,
+            @Param("cells") long cells);
+
+    String DTO_PROJECTION = "SELECT new com.safepath.dto.StreetSegmentRiskDto("
+            + "r.unitid, s.onstreet, r.riskLabel, r.riskScore, r.clusterId, r.incidentDensity, "
+            + "r.nightFraction, r.last90dIncidents, r.modelVersion, r.overrideReason, r.updatedAt, "
+            + "s.gisMidY, s.gisMidX) "
+            + "FROM StreetSegmentRisk r JOIN r.streetSegment s ";
+
+    /**
+     * One segment's risk with its street data, selected as DTO columns instead of managed entities.
+     */
+    @Query(DTO_PROJECTION + "WHERE r.unitid = :unitid")
+    Optional<StreetSegmentRiskDto> findDtoByUnitid(@Param("unitid") String unitid);
+
+    /**
+     * Read-only variant of {@link #findWithinBounds(double, double, double, double)} that selects
+     * the DTO columns directly instead of loading managed entities.
+     */
+    @Query(DTO_PROJECTION
+            + "WHERE s.gisMidX BETWEEN :west AND :east "
+            + "AND s.gisMidY BETWEEN :south AND :north")
+    List<StreetSegmentRiskDto> findDtosWithinBounds(
+            @Param("west") double west,
+            @Param("south") double south,
+            @Param("east") double east,
+            @Param("north") double north);
+
     /**
      * Finds the nearest street segment to a given coordinate using Haversine
      * distance.
@@ -54,4 +109,11 @@ public interface StreetSegmentRiskRepository extends JpaRepository<StreetSegment
             + "  )"
             + ") LIMIT 1", nativeQuery = true)
     Optional<StreetSegmentRisk> findNearestSegment(@Param("lat") double lat, @Param("lon") double lon);
+
+    /**
+     * Current cluster assignment of every scored segment as
+     * [unitid, clusterId, riskLabel, modelVersion] rows.
+     */
+    @Query("SELECT r.unitid, r.clusterId, r.riskLabel, r.modelVersion FROM StreetSegmentRisk r")
+    List<Object[]> findAllClusterAssignments();
 }
@@ -1,12 +1,40 @@
 package com.safepath.repository;
 
 import com.safepath.model.UserAlert;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface UserAlertRepository extends JpaRepository<UserAlert, Integer> {
     List<UserAlert> findByUser_UserId(Integer userId);
+
+    /**
+     * Active alerts with a center as [alertId, userId, centerLat, centerLon, radiusM, crimeTypeFilter,
+     * digestMode] rows, in alert id order for keyset paging.
+     */
+    @Query("SELECT a.alertId, a.user.userId, a.centerLat, a.centerLon, a.radiusM, a.crimeTypeFilter, a.digestMode "
+            + "FROM UserAlert a WHERE a.activeFlag = true AND a.centerLat IS NOT NULL AND a.centerLon IS NOT NULL "
+            + "AND a.alertId > :after ORDER BY a.alertId")
+    List<Object[]> findActiveAfter(@Param("after") Integer after, Limit limit);
+
+    /**
+     * Alerts updated at or after {@code since} as [alertId, userId, centerLat, centerLon, radiusM,
+     * crimeTypeFilter, digestMode, activeFlag] rows, inactive ones and ones without a center included.
+     */
+    @Query("SELECT a.alertId, u.userId, a.centerLat, a.centerLon, a.radiusM, a.crimeTypeFilter, a.digestMode, "
+            + "a.activeFlag FROM UserAlert a LEFT JOIN a.user u WHERE a.updatedAt >= :since")
+    List<Object[]> findUpdatedSince(@Param("since") LocalDateTime since);
+
+    /**
+     * [count, max alertId, max updatedAt] of all alerts as a single row; moves with every insert,
+     * delete and update of user_alerts, whoever made it.
+     */
+    @Query("SELECT COUNT(a), MAX(a.alertId), MAX(a.updatedAt) FROM UserAlert a")
+    List<Object[]> findWatermark();
 }
@@ -0,0 +1,30 @@
+package com.safepath.service;
+
+import java.util.List;
+
+import com.safepath.event.AlertsMatchedEvent;
+
+/**
+ * Collects the matches of alerts in hourly or daily digest mode and delivers them as one batch
+ * per user when the digest is due.
+ */
+public interface AlertDigestService {
+
+    /**
+     * Buffers the matches of digest alerts.
+     * @return the matches of immediate alerts, to be pushed right away
+     */
+    List<AlertsMatchedEvent.Match> defer(List<AlertsMatchedEvent.Match> matches);
+
+    /**
+     * Delivers every digest due at or before the given time; digests of users without a stream are
+     * kept and retried later.
+     * @return number of users a digest was sent to
+     */
+    int flushDue(long nowMillis);
+
+    /**
+     * Number of alerts with buffered matches.
+     */
+    int pendingCount();
+}
@@ -0,0 +1,31 @@
+package com.safepath.service;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.safepath.event.AlertsMatchedEvent;
+import com.safepath.model.CrimeReport;
+import com.safepath.model.RealtimeIncident;
+
+/**
+ * Evaluates the active user alerts against incoming incidents using the in-memory
+ * {@link com.safepath.index.AlertGeofenceIndex}, and publishes the matches as an
+ * {@link AlertsMatchedEvent}.
+ */
+public interface AlertMatchService {
+
+    /**
+     * Matches new crime reports; reports without coordinates are skipped. Crime type filters are
+     * checked against the offense parent groups of the reports.
+     *
+     * @return the matches, also published when not empty
+     */
+    List<AlertsMatchedEvent.Match> matchReports(Collection<CrimeReport> reports);
+
+    /**
+     * Matches new realtime 911 incidents; crime type filters are checked against the incident type.
+     *
+     * @return the matches, also published when not empty
+     */
+    List<AlertsMatchedEvent.Match> matchIncidents(Collection<RealtimeIncident> incidents);
+}
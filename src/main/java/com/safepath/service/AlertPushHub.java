@@ -0,0 +1,49 @@
+package com.safepath.service;
+
+import java.util.List;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.safepath.dto.AlertDigestDto;
+import com.safepath.event.AlertsMatchedEvent;
+
+/**
+ * Pushes alert matches to the connected clients of each user over Server-Sent Events.
+ * Each event carries an id; a client that reconnects with the Last-Event-ID header gets the
+ * events it missed from a short per-user replay log, or a "reset" event if they are gone.
+ */
+public interface AlertPushHub {
+
+    /**
+     * Opens a stream for a user.
+     * @param lastEventId id of the last event the client received, null for a new stream
+     * @return emitter that receives "alert" and "digest" events, "dropped" events when the client fell behind,
+     *         and periodic heartbeat comments
+     */
+    SseEmitter subscribe(int userId, Long lastEventId);
+
+    /**
+     * Queues matches for the users that have a stream on this node; never blocks on a client.
+     */
+    void publish(List<AlertsMatchedEvent.Match> matches);
+
+    /**
+     * Queues a digest for a user as one "digest" event if the user has a stream open on this node.
+     * @return false if the user has none; the digest is not queued and the caller keeps it
+     */
+    boolean publishDigest(int userId, AlertDigestDto digest);
+
+    /**
+     * Sends a heartbeat comment to idle streams and forgets replay logs of users gone for longer
+     * than the replay window.
+     */
+    void heartbeat();
+
+    /**
+     * Closes streams whose current write has been blocked for longer than the send timeout and
+     * gives the sender a thread for each of them until the write returns.
+     */
+    void closeStalled();
+
+    int connectionCount();
+}
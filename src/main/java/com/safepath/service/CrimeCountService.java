@@ -0,0 +1,47 @@
+package com.safepath.service;
+
+import java.util.List;
+
+import com.safepath.dto.CrimeCountSummary;
+import com.safepath.model.UserAlert;
+
+/**
+ * Crime counts for map widgets and alert previews, answered from a summed-area table
+ * over (day, lat/lon cell, offense group) instead of counting rows.
+ */
+public interface CrimeCountService {
+
+    /**
+     * Rebuilds the count cube from the crime index.
+     */
+    void rebuild();
+
+    /**
+     * Rebuilds the cube if the crime index changed or the day rolled over since the last build.
+     *
+     * @return true if the cube was rebuilt
+     */
+    boolean refreshIfStale();
+
+    /**
+     * Counts in a bounding box over the last {@code days} days.
+     *
+     * @param offenseGroups offense parent groups for {@link CrimeCountSummary#getMatching()}; null or empty for none
+     */
+    CrimeCountSummary summarize(double west, double south, double east, double north, int days,
+                                List<String> offenseGroups);
+
+    /**
+     * Counts inside a circle over the last {@code days} days, read from the crime index at the
+     * exact radius rather than from the cube; the returned bounds are the circle's bounding box.
+     * A report in several of the requested offense groups counts once for {@code matching}.
+     */
+    CrimeCountSummary summarizeNearby(double lat, double lon, double radiusMeters, int days,
+                                      List<String> offenseGroups);
+
+    /**
+     * What an alert would have matched over the last {@code days} days: its circle, with the
+     * crime type filter resolved against the known offense groups.
+     */
+    CrimeCountSummary previewAlert(UserAlert alert, int days);
+}
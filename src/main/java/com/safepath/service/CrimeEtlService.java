@@ -0,0 +1,38 @@
+package com.safepath.service;
+
+import com.safepath.dto.TaskStatusResponse;
+import com.safepath.model.EtlRun;
+
+/**
+ * Java ingestion of the SPD Crime Data CSV export, replacing etl_spd_crime.py.
+ * Every run is recorded as one {@code etl_runs} row; its id is the task id of the run.
+ * An incremental run only writes the rows past the watermarks of the last successful run
+ * (offense id and report time); a full run writes every row. Both insert new reports and
+ * offenses and update reports whose values changed.
+ */
+public interface CrimeEtlService {
+
+    String SPD_SOURCE_NAME = "SPD Crime Data";
+
+    /**
+     * Starts ingesting the configured CSV file in the background.
+     *
+     * @param mode FULL or INCREMENTAL; incremental falls back to full for the first run
+     * @return the status of the new run
+     * @throws IllegalStateException if a run is already in progress
+     * @throws IllegalArgumentException if the file does not exist
+     */
+    TaskStatusResponse startSpdCrimeIngest(EtlRun.Mode mode);
+
+    /**
+     * Ingests the configured CSV file on the calling thread.
+     *
+     * @return the final status of the run
+     */
+    TaskStatusResponse runSpdCrimeIngest(EtlRun.Mode mode);
+
+    /**
+     * @return the status of a run started by this node, or null if unknown
+     */
+    TaskStatusResponse getStatus(String taskId);
+}
@@ -0,0 +1,26 @@
+package com.safepath.service;
+
+import java.util.List;
+
+import com.safepath.dto.NearbyCrimeDto;
+
+/**
+ * Radius + time window queries over crime reports, answered from the in-memory
+ * spatio-temporal index instead of the database.
+ */
+public interface CrimeQueryService {
+
+    /**
+     * Reports within the radius in the last {@code days} days, newest first.
+     *
+     * @param offenseGroups offense parent groups to match (any of them); null or empty for all reports
+     * @param limit maximum number of reports returned
+     */
+    List<NearbyCrimeDto> findNearby(double lat, double lon, double radiusMeters, int days,
+                                    List<String> offenseGroups, int limit);
+
+    /**
+     * Number of reports the same query would match, without the limit.
+     */
+    int countNearby(double lat, double lon, double radiusMeters, int days, List<String> offenseGroups);
+}
@@ -0,0 +1,64 @@
+package com.safepath.service;
+
+import com.safepath.model.CrimeReport;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the newest-first crime report listing, exchanged with clients as an opaque string
+ * Reports with a datetime are listed first; a cursor without datetime points into the trailing undated reports
+ */
+public final class CrimeReportCursor {
+
+    private static final String UNDATED = "-";
+
+    private final LocalDateTime reportDatetime;
+    private final String reportNumber;
+
+    public CrimeReportCursor(LocalDateTime reportDatetime, String reportNumber) {
+        this.reportDatetime = reportDatetime;
+        this.reportNumber = reportNumber;
+    }
+
+    /**
+     * Cursor pointing just past the given report
+     */
+    public static CrimeReportCursor after(CrimeReport report) {
+        return new CrimeReportCursor(report.getReportDatetime(), report.getReportNumber());
+    }
+
+    public LocalDateTime getReportDatetime() {
+        return reportDatetime;
+    }
+
+    public String getReportNumber() {
+        return reportNumber;
+    }
+
+    public String encode() {
+        String raw = (reportDatetime == null ? UNDATED : reportDatetime.toString()) + "|" + reportNumber;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value was not produced by {@link #encode()}
+     */
+    public static CrimeReportCursor decode(String value) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            if (sep <= 0 || sep == raw.length() - 1) {
+                throw new IllegalArgumentException("invalid cursor");
+            }
+            String datetime = raw.substring(0, sep);
+            return new CrimeReportCursor(
+                UNDATED.equals(datetime) ? null : LocalDateTime.parse(datetime),
+                raw.substring(sep + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("invalid cursor", e);
+        }
+    }
+}
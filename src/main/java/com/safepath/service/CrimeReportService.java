@@ -4,10 +4,24 @@ import com.safepath.model.CrimeReport;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface CrimeReportService {
     List<CrimeReport> findAll();
 
+    /**
+     * Keyset page of reports, newest first
+     * @param cursor position to continue from, null for the first page
+     * @param size maximum number of reports
+     */
+    List<CrimeReport> findPage(CrimeReportCursor cursor, int size);
+
+    /**
+     * All reports newest first, fetched lazily in keyset chunks and detached from the persistence context,
+     * so memory use does not grow with the table size. The stream must be consumed or closed.
+     */
+    Stream<CrimeReport> streamAll();
+
     Optional<CrimeReport> findById(String reportNumber);
 
     CrimeReport save(CrimeReport crimeReport);
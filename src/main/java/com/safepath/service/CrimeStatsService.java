@@ -0,0 +1,31 @@
+package com.safepath.service;
+
+import java.util.List;
+
+import com.safepath.dto.CrimeBreakdownDto;
+import com.safepath.dto.CrimeTrendDto;
+import com.safepath.index.CrimeColumnStore.Dimension;
+import com.safepath.index.CrimeColumnStore.Filter;
+
+/**
+ * Analytical crime statistics served from the in-memory columnar snapshot instead of GROUP BY queries.
+ */
+public interface CrimeStatsService {
+
+    /**
+     * Reloads the columnar snapshot from the database.
+     */
+    void reload();
+
+    /**
+     * Report counts per key of the dimension. Hour based dimensions list every key;
+     * the others list the keys with reports, largest first.
+     */
+    CrimeBreakdownDto breakdown(Dimension dimension, Filter filter);
+
+    /**
+     * Report counts per key in the last {@code recentDays} days against the {@code recentDays} days before,
+     * largest increase first. The time range of the filter is ignored.
+     */
+    List<CrimeTrendDto> trend(Dimension dimension, int recentDays, Filter filter);
+}
@@ -0,0 +1,45 @@
+package com.safepath.service;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import com.safepath.model.EtlRun;
+import com.safepath.model.Source;
+
+/**
+ * Bookkeeping of the Java ETL runs in {@code sources} / {@code etl_runs}.
+ * A successful run stores the high-water marks of its source; an incremental run only processes
+ * records past the marks of the last successful run.
+ */
+public interface EtlRunService {
+
+    /**
+     * Finds the source by name, creating it with the given url and refresh interval if needed.
+     */
+    Source findOrCreateSource(String sourceName, String url, int refreshIntervalMinutes);
+
+    /**
+     * Records a new RUNNING run. An incremental run without a previous successful run of the
+     * source (nothing to be incremental to) is recorded and executed as a full run.
+     * Callers hold the source's job lease, so runs of the source still RUNNING were abandoned by
+     * a node that died; they are marked FAILED first.
+     */
+    EtlRun start(Source source, EtlRun.Mode mode);
+
+    /**
+     * The run holding the current watermarks of the source.
+     */
+    Optional<EtlRun> lastSuccessful(Source source);
+
+    /**
+     * Marks the run SUCCEEDED and stores the watermarks reached; null marks keep the previous ones.
+     */
+    void succeed(EtlRun run, long recordCount, LocalDateTime watermarkDatetime, Long watermarkRecordId);
+
+    void fail(EtlRun run, long recordCount);
+
+    /**
+     * @return true if the source has a refresh interval and no run started within it
+     */
+    boolean isDue(String sourceName);
+}
@@ -0,0 +1,35 @@
+package com.safepath.service;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.safepath.index.HeatmapTile;
+import com.safepath.model.CrimeReport;
+
+/**
+ * Server-side crime heatmap tiles in the XYZ scheme, computed by kernel density estimation over
+ * the crime index and cached per (tile, time window, offense filter).
+ */
+public interface HeatmapTileService {
+
+    /**
+     * Returns the cached tile or renders it.
+     *
+     * @param days time window ending now
+     * @param offenseGroups offense parent groups to include (any of them); null or empty for all reports
+     * @return the tile, or null outside the served zoom levels
+     */
+    HeatmapTile getTile(int z, int x, int y, int days, List<String> offenseGroups);
+
+    /**
+     * Drops the cached tiles whose density the given reports contribute to.
+     *
+     * @return number of cache entries removed
+     */
+    int invalidate(Collection<CrimeReport> reports);
+
+    /**
+     * Drops every cached tile.
+     */
+    void clear();
+}
@@ -0,0 +1,41 @@
+package com.safepath.service;
+
+import java.util.Collection;
+
+import com.safepath.model.CrimeReport;
+
+/**
+ * Keeps segment risk scores fresh between batch clustering runs by updating
+ * per-segment incident counters as reports arrive and re-scoring only the
+ * affected segments against the current cluster centroids.
+ */
+public interface IncrementalRiskService {
+
+    /**
+     * Rebuilds the in-memory counters from the crime data in the lookback window
+     * and reloads the cluster centroids.
+     */
+    void rebuild();
+
+    /**
+     * Recomputes the cluster centroids from the latest batch run, keeping the counters.
+     * Does nothing before the first {@link #rebuild()}.
+     */
+    void reloadModel();
+
+    /**
+     * Adds the stored offenses of new reports to the counters and re-scores the segments they
+     * fall on; reports that were counted already are skipped.
+     * Reports arriving before the first {@link #rebuild()} are picked up by the rebuild itself.
+     *
+     * @return number of segments whose risk row was updated
+     */
+    int applyReports(Collection<CrimeReport> reports);
+
+    /**
+     * Expires counts that have left the lookback window and re-scores the segments that changed.
+     *
+     * @return number of segments whose risk row was updated
+     */
+    int expireWindow();
+}
@@ -0,0 +1,71 @@
+package com.safepath.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Cluster-wide leases for background jobs, backed by the job_leases table.
+ */
+public interface JobLeaseService {
+
+    /**
+     * A lease kept alive by a heartbeat until it is closed
+     */
+    interface Lease extends AutoCloseable {
+
+        /**
+         * @return false once a renewal found the lease taken over by another node
+         */
+        boolean isHeld();
+
+        /**
+         * Stop the heartbeat and release the lease
+         */
+        @Override
+        void close();
+    }
+
+    /**
+     * Try to take the lease for a job
+     * @param jobName job name
+     * @param ttl how long the lease is held before other nodes may take it over
+     * @return true if this node now holds the lease
+     */
+    boolean tryAcquire(String jobName, Duration ttl);
+
+    /**
+     * Take the lease for a job and renew it every third of the ttl from a scheduled heartbeat,
+     * independent of the job's progress, until the returned lease is closed
+     * @param jobName job name
+     * @param ttl how long the lease survives a node that stopped renewing it
+     * @return the held lease, or empty if another node holds it
+     */
+    Optional<Lease> hold(String jobName, Duration ttl);
+
+    /**
+     * Extend a lease held by this node
+     * @return false if the lease was lost in the meantime
+     */
+    boolean renew(String jobName, Duration ttl);
+
+    /**
+     * Release a lease held by this node
+     */
+    void release(String jobName);
+
+    /**
+     * Record a successful run of a job
+     */
+    void recordSuccess(String jobName, LocalDateTime at);
+
+    /**
+     * Get the last successful run of a job, shared by all nodes
+     */
+    Optional<LocalDateTime> getLastSuccess(String jobName);
+
+    /**
+     * @return identifier of this node in the lease table
+     */
+    String getOwnerId();
+}
@@ -0,0 +1,38 @@
+package com.safepath.service;
+
+import java.util.Collection;
+
+import com.safepath.model.RealtimeIncident;
+
+/**
+ * Live risk overlay on top of the model scores in street_segment_risk: recent realtime 911
+ * incidents are added to exponentially decayed per-segment counters as they are ingested, so a
+ * cluster of incidents raises the score of the segments around it right away and fades out
+ * again without waiting for the next clustering run.
+ */
+public interface LiveRiskService {
+
+    /**
+     * Resets the counters and seeds them from the recent rows of realtime_incidents.
+     */
+    void rebuild();
+
+    /**
+     * Adds newly ingested incidents to the counters of their nearest segments.
+     * Incidents arriving before the first {@link #rebuild()} are picked up by the rebuild itself.
+     *
+     * @return number of incidents matched to a segment
+     */
+    int applyIncidents(Collection<RealtimeIncident> incidents);
+
+    /**
+     * Current live score of a segment between 0 and 1; 0 for unknown segments, before the first
+     * {@link #rebuild()} and when the overlay is disabled. Never blocks.
+     */
+    double liveScore(String unitid);
+
+    /**
+     * Model score raised towards 1 by the live score; equal to the model score without live incidents.
+     */
+    double blend(double modelScore, double liveScore);
+}
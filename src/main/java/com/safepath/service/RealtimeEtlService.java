@@ -0,0 +1,34 @@
+package com.safepath.service;
+
+import com.safepath.dto.TaskStatusResponse;
+import com.safepath.model.EtlRun;
+
+/**
+ * Java ingestion of the Seattle Fire Real-Time 911 feed, replacing etl_realtime.py.
+ * An incremental run asks the feed only for incidents after the watermark of the last
+ * successful run; runs are recorded in {@code etl_runs} like the crime ETL.
+ */
+public interface RealtimeEtlService {
+
+    String REALTIME_SOURCE_NAME = "Seattle Fire Real-Time 911";
+
+    /**
+     * Starts fetching the feed in the background.
+     *
+     * @param mode FULL or INCREMENTAL; incremental falls back to full for the first run
+     * @throws IllegalStateException if a run is already in progress
+     */
+    TaskStatusResponse startRealtimeIngest(EtlRun.Mode mode);
+
+    /**
+     * Fetches the feed on the calling thread.
+     *
+     * @return the final status of the run
+     */
+    TaskStatusResponse runRealtimeIngest(EtlRun.Mode mode);
+
+    /**
+     * @return the status of a run started by this node, or null if unknown
+     */
+    TaskStatusResponse getStatus(String taskId);
+}
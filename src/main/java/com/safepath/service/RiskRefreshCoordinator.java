@@ -0,0 +1,21 @@
+package com.safepath.service;
+
+/**
+ * Entry point for all automatic risk score refreshes (startup, cron, fixed rate, new incidents)
+ * Overlapping requests are coalesced: while a refresh runs, any number of new requests
+ * result in at most one follow-up run
+ */
+public interface RiskRefreshCoordinator {
+
+    /**
+     * Request a refresh
+     * @param reason trigger name, used for logging
+     * @return true if a new run was started, false if the request was merged into a running one
+     */
+    boolean requestRefresh(String reason);
+
+    /**
+     * Check if a coordinated refresh is running on this node
+     */
+    boolean isRunning();
+}
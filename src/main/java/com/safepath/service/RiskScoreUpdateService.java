@@ -18,6 +18,12 @@ public interface RiskScoreUpdateService {
      * @return task ID
      */
     String triggerUpdateForce();
+
+    /**
+     * Run the update in the calling thread and wait for it to finish
+     * @return the final task status
+     */
+    TaskStatusResponse runUpdate();
     
     /**
      * Check if there is a task running
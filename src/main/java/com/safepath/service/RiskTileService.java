@@ -0,0 +1,20 @@
+package com.safepath.service;
+
+import com.safepath.index.RiskTilePyramid;
+
+/**
+ * Serves pre-encoded segment risk map tiles, see {@link com.safepath.index.RiskTilePyramid} for the format
+ */
+public interface RiskTileService {
+
+    /**
+     * Get the current pyramid; tiles and version of one pyramid always belong together
+     * @return the pyramid, built on first use
+     */
+    RiskTilePyramid getPyramid();
+
+    /**
+     * Rebuild the pyramid from the current risk scores
+     */
+    void rebuild();
+}
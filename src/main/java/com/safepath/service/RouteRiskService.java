@@ -10,8 +10,9 @@ public interface RouteRiskService {
      * for each step and overall route based on historical crime data.
      *
      * @param request Google Directions API response containing routes/legs/steps
+     * @param live whether to blend the live overlay of recent 911 incidents into the model scores
      * @return RouteRiskResponse with risk scores per route and step
      */
-    RouteRiskResponse analyzeRoutes(GoogleRouteRequest request);
+    RouteRiskResponse analyzeRoutes(GoogleRouteRequest request, boolean live);
 }
 
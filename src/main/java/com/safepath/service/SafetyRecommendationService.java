@@ -1,18 +1,36 @@
 package com.safepath.service;
 
 import com.safepath.dto.StreetSegmentRiskDto;
+import com.safepath.dto.ViewportRiskResponse;
 import java.util.List;
 import java.util.Optional;
 
 public interface SafetyRecommendationService {
 
-    Optional<StreetSegmentRiskDto> getRiskBySegment(String unitid);
+    /**
+     * @param live blend the live overlay of recent 911 incidents into the risk score
+     */
+    Optional<StreetSegmentRiskDto> getRiskBySegment(String unitid, boolean live);
 
     List<StreetSegmentRiskDto> getRisksByBoundingBox(
         double west,
         double south,
         double east,
-        double north
+        double north,
+        boolean live
     );
-}
 
+    /**
+     * Risk data sized for a map viewport: grid cells below the segment zoom level, individual segments above it.
+     * The live overlay only applies to segments; cells are aggregated from the model scores, which the
+     * response reports with {@code live=false}.
+     */
+    ViewportRiskResponse getRisksForViewport(
+        double west,
+        double south,
+        double east,
+        double north,
+        int zoom,
+        boolean live
+    );
+}
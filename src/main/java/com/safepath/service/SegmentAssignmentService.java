@@ -0,0 +1,32 @@
+package com.safepath.service;
+
+import com.safepath.model.CrimeReport;
+
+/**
+ * Stores the nearest street segment on each crime report ({@code unitid}, {@code snapped_distance_m}),
+ * so risk computations and per-segment statistics group by a column instead of re-matching
+ * coordinates every time.
+ */
+public interface SegmentAssignmentService {
+
+    /**
+     * Marks a report as not matched to any segment within the match radius.
+     */
+    double NO_SEGMENT = -1.0;
+
+    /**
+     * Sets the nearest segment and the distance to it on the report, without saving it.
+     * Reports without coordinates are cleared; nothing is changed while no segments are loaded.
+     *
+     * @return true if a segment was found
+     */
+    boolean assign(CrimeReport report);
+
+    /**
+     * Matches every located report that has not been matched yet (for example rows loaded by the
+     * Python ETL) and writes the results in batches.
+     *
+     * @return the number of reports updated
+     */
+    int backfill();
+}
@@ -0,0 +1,25 @@
+package com.safepath.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.safepath.dto.TaskStatusResponse;
+
+/**
+ * Pushes task status changes to subscribed clients over Server-Sent Events
+ */
+public interface TaskProgressStream {
+
+    /**
+     * Subscribe to a task, the current status is sent immediately
+     * @param current the task's status object, the same instance that is updated and passed to
+     *                {@link #publish} while the task runs
+     * @return emitter that receives "progress" events and is completed when the task finishes
+     */
+    SseEmitter subscribe(TaskStatusResponse current);
+
+    /**
+     * Send a status update to all subscribers of the task
+     * Subscribers are completed once the task reached COMPLETED or FAILED
+     */
+    void publish(TaskStatusResponse status);
+}
@@ -11,4 +11,17 @@ public interface UserAlertService {
     List<UserAlert> findByUserId(Integer userId);
 
     Optional<UserAlert> findById(Integer id);
+
+    /**
+     * Applies the non-null fields of the changes (center, radius, crime type filter, active flag,
+     * digest mode) to an existing alert.
+     *
+     * @return the updated alert, empty if it does not exist
+     */
+    Optional<UserAlert> update(Integer id, UserAlert changes);
+
+    /**
+     * @return the deactivated alert, empty if it does not exist
+     */
+    Optional<UserAlert> deactivate(Integer id);
 }
@@ -0,0 +1,308 @@
+package com.safepath.service.impl;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.safepath.dto.AlertDigestDto;
+import com.safepath.dto.AlertNotificationDto;
+import com.safepath.event.AlertsMatchedEvent;
+import com.safepath.model.UserAlert;
+import com.safepath.service.AlertDigestService;
+import com.safepath.service.AlertPushHub;
+
+/**
+ * Digest buffers on a timing wheel.
+ * The first match of a digest alert opens a buffer holding only counters and the few most recent
+ * matches, and files it in the wheel slot of the minute it is due; later matches just update the
+ * counters. A single scheduled tick walks the slots of the minutes that passed since the last tick
+ * and delivers what is due there, so the cost of a tick does not depend on how many alerts wait.
+ * Due times are spread over the hour by user id (hourly at minute userId % 60, daily at that minute
+ * past the configured hour), which puts all digests of a user in the same slot: they go out as one
+ * batch per user. A buffer keeps the schedule it was opened with if the alert's mode changes.
+ * <p>
+ * A digest is only handed over when the user has a stream open. Otherwise it is filed again
+ * {@code retry-minutes} later and keeps collecting matches, merged with any buffer the alert opened
+ * meanwhile; digests of users who stay away longer than {@code max-hold-hours} are dropped and counted.
+ */
+@Service
+public class AlertDigestServiceImpl implements AlertDigestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertDigestServiceImpl.class);
+
+    // one slot per minute of a day; digests due later share slots and wait for their turn
+    private static final int WHEEL_SLOTS = 24 * 60;
+    private static final int MAX_CATEGORIES = 16;
+    private static final String OTHER_CATEGORY = "OTHER";
+    private static final String UNKNOWN_CATEGORY = "UNKNOWN";
+
+    private final AlertPushHub hub;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final List<List<Digest>> wheel = new ArrayList<>(WHEEL_SLOTS);
+    private final Map<Integer, Digest> pending = new HashMap<>();
+    private long lastTickMinute;
+    private long droppedDigests;
+
+    @Value("${safepath.alerts.digest.daily-hour:8}")
+    private int dailyHour;
+
+    @Value("${safepath.alerts.digest.sample-size:5}")
+    private int sampleSize;
+
+    @Value("${safepath.alerts.digest.retry-minutes:5}")
+    private int retryMinutes;
+
+    @Value("${safepath.alerts.digest.max-hold-hours:24}")
+    private int maxHoldHours;
+
+    public AlertDigestServiceImpl(AlertPushHub hub) {
+        this.hub = hub;
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel.add(new ArrayList<>(0));
+        }
+        this.lastTickMinute = Math.floorDiv(System.currentTimeMillis(), 60_000L);
+    }
+
+    @Override
+    public List<AlertsMatchedEvent.Match> defer(List<AlertsMatchedEvent.Match> matches) {
+        List<AlertsMatchedEvent.Match> immediate = new ArrayList<>(matches.size());
+        long nowMinute = Math.floorDiv(System.currentTimeMillis(), 60_000L);
+        synchronized (this) {
+            for (AlertsMatchedEvent.Match m : matches) {
+                UserAlert.DigestMode mode = m.getDigestMode();
+                if (mode == null || mode == UserAlert.DigestMode.IMMEDIATE) {
+                    immediate.add(m);
+                    continue;
+                }
+                Digest digest = pending.get(m.getAlertId());
+                if (digest == null) {
+                    digest = new Digest(m.getAlertId(), m.getUserId(), mode, nowMinute,
+                        dueMinute(mode, m.getUserId(), nowMinute));
+                    pending.put(digest.alertId, digest);
+                    wheel.get(slot(digest.dueMinute)).add(digest);
+                }
+                digest.add(m);
+            }
+        }
+        return immediate;
+    }
+
+    @Override
+    public int flushDue(long nowMillis) {
+        long nowMinute = Math.floorDiv(nowMillis, 60_000L);
+        List<Digest> due = new ArrayList<>();
+        synchronized (this) {
+            if (nowMinute < lastTickMinute) {
+                // clock moved back
+                lastTickMinute = nowMinute - 1;
+            }
+            long from = Math.max(lastTickMinute + 1, nowMinute - WHEEL_SLOTS + 1);
+            for (long minute = from; minute <= nowMinute; minute++) {
+                List<Digest> slot = wheel.get(slot(minute));
+                if (slot.isEmpty()) {
+                    continue;
+                }
+                int kept = 0;
+                for (Digest d : slot) {
+                    if (d.dueMinute <= nowMinute) {
+                        due.add(d);
+                        pending.remove(d.alertId);
+                    } else {
+                        slot.set(kept++, d);
+                    }
+                }
+                slot.subList(kept, slot.size()).clear();
+            }
+            lastTickMinute = Math.max(lastTickMinute, nowMinute);
+        }
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        Map<Integer, List<Digest>> byUser = new LinkedHashMap<>();
+        for (Digest d : due) {
+            byUser.computeIfAbsent(d.userId, k -> new ArrayList<>()).add(d);
+        }
+        LocalDateTime generatedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(nowMillis), zone);
+        List<Digest> undelivered = new ArrayList<>();
+        int delivered = 0;
+        for (Map.Entry<Integer, List<Digest>> e : byUser.entrySet()) {
+            AlertDigestDto dto = new AlertDigestDto();
+            dto.setGeneratedAt(generatedAt);
+            e.getValue().sort(Comparator.comparingInt(d -> d.alertId));
+            for (Digest d : e.getValue()) {
+                dto.getAlerts().add(d.toSummary());
+                dto.setTotalMatches(dto.getTotalMatches() + d.count);
+            }
+            if (hub.publishDigest(e.getKey(), dto)) {
+                delivered++;
+            } else {
+                undelivered.addAll(e.getValue());
+            }
+        }
+        if (!undelivered.isEmpty()) {
+            hold(undelivered, nowMinute);
+        }
+        logger.debug("Flushed alert digests to {} users, {} users without a stream", delivered,
+            byUser.size() - delivered);
+        return delivered;
+    }
+
+    /**
+     * Files digests that found no stream again for a later tick, or drops them once they are older
+     * than the hold limit.
+     */
+    private void hold(List<Digest> undelivered, long nowMinute) {
+        int dropped = 0;
+        long total;
+        synchronized (this) {
+            for (Digest d : undelivered) {
+                Digest newer = pending.get(d.alertId);
+                if (nowMinute - Math.min(d.openedMinute, newer != null ? newer.openedMinute : d.openedMinute)
+                        >= maxHoldHours * 60L) {
+                    dropped++;
+                } else if (newer != null) {
+                    // matches that came in while this one was out; goes with the newer schedule
+                    newer.absorb(d);
+                } else {
+                    d.dueMinute = nowMinute + Math.max(1, retryMinutes);
+                    pending.put(d.alertId, d);
+                    wheel.get(slot(d.dueMinute)).add(d);
+                }
+            }
+            droppedDigests += dropped;
+            total = droppedDigests;
+        }
+        if (dropped > 0) {
+            logger.warn("Dropped {} alert digests of users without a stream for {} hours ({} dropped so far)",
+                dropped, maxHoldHours, total);
+        }
+    }
+
+    @Override
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    private long dueMinute(UserAlert.DigestMode mode, int userId, long nowMinute) {
+        int phase = Math.floorMod(userId, 60);
+        if (mode == UserAlert.DigestMode.HOURLY) {
+            long due = Math.floorDiv(nowMinute, 60) * 60 + phase;
+            return due > nowMinute ? due : due + 60;
+        }
+        ZonedDateTime now = Instant.ofEpochSecond(nowMinute * 60).atZone(zone);
+        ZonedDateTime due = now.toLocalDate().atTime(dailyHour, phase).atZone(zone);
+        if (!due.isAfter(now)) {
+            due = due.plusDays(1);
+        }
+        return due.toEpochSecond() / 60;
+    }
+
+    private static int slot(long minute) {
+        return (int) Math.floorMod(minute, (long) WHEEL_SLOTS);
+    }
+
+    /**
+     * Pending digest of one alert: counters plus the most recent matches.
+     */
+    private final class Digest {
+        final int alertId;
+        final int userId;
+        final UserAlert.DigestMode mode;
+        long openedMinute;
+        long dueMinute;
+        int count;
+        LocalDateTime first;
+        LocalDateTime last;
+        double nearest = Double.MAX_VALUE;
+        final Map<String, Integer> categories = new LinkedHashMap<>();
+        final ArrayDeque<AlertsMatchedEvent.Match> latest = new ArrayDeque<>();
+
+        Digest(int alertId, int userId, UserAlert.DigestMode mode, long openedMinute, long dueMinute) {
+            this.alertId = alertId;
+            this.userId = userId;
+            this.mode = mode;
+            this.openedMinute = openedMinute;
+            this.dueMinute = dueMinute;
+        }
+
+        void add(AlertsMatchedEvent.Match m) {
+            count++;
+            LocalDateTime at = m.getOccurredAt();
+            if (at != null) {
+                first = first == null || at.isBefore(first) ? at : first;
+                last = last == null || at.isAfter(last) ? at : last;
+            }
+            nearest = Math.min(nearest, m.getDistanceMeters());
+            String category = m.getCategory() != null ? m.getCategory() : UNKNOWN_CATEGORY;
+            if (!categories.containsKey(category) && categories.size() >= MAX_CATEGORIES) {
+                category = OTHER_CATEGORY;
+            }
+            categories.merge(category, 1, Integer::sum);
+            latest.addFirst(m);
+            if (latest.size() > sampleSize) {
+                latest.pollLast();
+            }
+        }
+
+        /**
+         * Takes over the counters and samples of an older digest of the same alert.
+         */
+        void absorb(Digest older) {
+            count += older.count;
+            openedMinute = Math.min(openedMinute, older.openedMinute);
+            first = first == null || older.first != null && older.first.isBefore(first) ? older.first : first;
+            last = last == null || older.last != null && older.last.isAfter(last) ? older.last : last;
+            nearest = Math.min(nearest, older.nearest);
+            for (Map.Entry<String, Integer> e : older.categories.entrySet()) {
+                String category = e.getKey();
+                if (!categories.containsKey(category) && categories.size() >= MAX_CATEGORIES) {
+                    category = OTHER_CATEGORY;
+                }
+                categories.merge(category, e.getValue(), Integer::sum);
+            }
+            for (AlertsMatchedEvent.Match m : older.latest) {
+                if (latest.size() >= sampleSize) {
+                    break;
+                }
+                latest.addLast(m);
+            }
+        }
+
+        AlertDigestDto.AlertSummary toSummary() {
+            AlertDigestDto.AlertSummary s = new AlertDigestDto.AlertSummary();
+            s.setAlertId(alertId);
+            s.setDigestMode(mode.name());
+            s.setMatchCount(count);
+            s.setFirstOccurredAt(first);
+            s.setLastOccurredAt(last);
+            s.setNearestMeters(nearest);
+            s.setCategories(categories);
+            for (AlertsMatchedEvent.Match m : latest) {
+                AlertNotificationDto n = new AlertNotificationDto();
+                n.setSource(m.getSource().name());
+                n.setIncidentId(m.getIncidentId());
+                n.setCategory(m.getCategory());
+                n.setOccurredAt(m.getOccurredAt());
+                n.setLatitude(m.getLatitude());
+                n.setLongitude(m.getLongitude());
+                n.setDistanceMeters(m.getDistanceMeters());
+                s.getLatest().add(n);
+            }
+            return s;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.safepath.service.impl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import com.safepath.event.AlertsMatchedEvent;
+import com.safepath.index.AlertGeofenceIndex;
+import com.safepath.model.CrimeReport;
+import com.safepath.model.RealtimeIncident;
+import com.safepath.repository.ReportOffenseRepository;
+import com.safepath.service.AlertMatchService;
+
+/**
+ * Matches incidents against the alert geofence index. Each incident costs one grid cell lookup;
+ * the offense groups needed for crime type filters are only loaded for reports that fell inside
+ * at least one alert, in one query per chunk. Incidents older than the age window, or without a
+ * time, are not news to anyone and are skipped, so that a backfill of old data does not notify.
+ */
+@Service
+public class AlertMatchServiceImpl implements AlertMatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertMatchServiceImpl.class);
+
+    private static final int GROUP_QUERY_CHUNK = 1000;
+
+    private final AlertGeofenceIndex index;
+    private final ReportOffenseRepository offenseRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // 0 matches incidents of any age
+    @Value("${safepath.alerts.max-incident-age-hours:72}")
+    private long maxIncidentAgeHours;
+
+    public AlertMatchServiceImpl(AlertGeofenceIndex index,
+                                 ReportOffenseRepository offenseRepository,
+                                 ApplicationEventPublisher eventPublisher) {
+        this.index = index;
+        this.offenseRepository = offenseRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public List<AlertsMatchedEvent.Match> matchReports(Collection<CrimeReport> reports) {
+        long started = System.nanoTime();
+        Map<CrimeReport, List<AlertGeofenceIndex.Match>> hits = new LinkedHashMap<>();
+        LocalDateTime oldest = oldest();
+        for (CrimeReport report : reports) {
+            if (report.getBlurredLatitude() == null || report.getBlurredLongitude() == null
+                    || !isRecent(report.getReportDatetime(), oldest)) {
+                continue;
+            }
+            List<AlertGeofenceIndex.Match> geo = index.match(report.getBlurredLatitude(), report.getBlurredLongitude());
+            if (!geo.isEmpty()) {
+                hits.put(report, geo);
+            }
+        }
+        Map<String, Set<String>> groups = offenseGroups(hits.keySet());
+
+        List<AlertsMatchedEvent.Match> matches = new ArrayList<>();
+        for (Map.Entry<CrimeReport, List<AlertGeofenceIndex.Match>> e : hits.entrySet()) {
+            CrimeReport report = e.getKey();
+            Set<String> reportGroups = groups.getOrDefault(report.getReportNumber(), Set.of());
+            String category = reportGroups.isEmpty() ? null : String.join(", ", reportGroups);
+            for (AlertGeofenceIndex.Match m : e.getValue()) {
+                if (m.accepts(reportGroups)) {
+                    matches.add(new AlertsMatchedEvent.Match(m.alertId, m.userId,
+                        AlertsMatchedEvent.Source.CRIME_REPORT, report.getReportNumber(), category,
+                        report.getReportDatetime(), report.getBlurredLatitude(), report.getBlurredLongitude(),
+                        m.distanceMeters, m.digestMode));
+                }
+            }
+        }
+        return publish(matches, reports.size(), started);
+    }
+
+    @Override
+    public List<AlertsMatchedEvent.Match> matchIncidents(Collection<RealtimeIncident> incidents) {
+        long started = System.nanoTime();
+        List<AlertsMatchedEvent.Match> matches = new ArrayList<>();
+        LocalDateTime oldest = oldest();
+        for (RealtimeIncident incident : incidents) {
+            if (incident.getLatitude() == null || incident.getLongitude() == null
+                    || !isRecent(incident.getEventDatetime(), oldest)) {
+                continue;
+            }
+            List<String> categories = incident.getIncidentType() == null
+                ? List.of() : List.of(incident.getIncidentType());
+            for (AlertGeofenceIndex.Match m : index.match(incident.getLatitude(), incident.getLongitude())) {
+                if (m.accepts(categories)) {
+                    matches.add(new AlertsMatchedEvent.Match(m.alertId, m.userId,
+                        AlertsMatchedEvent.Source.REALTIME_INCIDENT, incident.getIncidentId(),
+                        incident.getIncidentType(), incident.getEventDatetime(), incident.getLatitude(),
+                        incident.getLongitude(), m.distanceMeters, m.digestMode));
+                }
+            }
+        }
+        return publish(matches, incidents.size(), started);
+    }
+
+    private List<AlertsMatchedEvent.Match> publish(List<AlertsMatchedEvent.Match> matches, int incidents,
+                                                   long startedNanos) {
+        if (!matches.isEmpty()) {
+            eventPublisher.publishEvent(new AlertsMatchedEvent(matches));
+        }
+        logger.debug("Matched {} incidents against {} alerts: {} matches in {} us",
+            incidents, index.size(), matches.size(), (System.nanoTime() - startedNanos) / 1000);
+        return matches;
+    }
+
+    private LocalDateTime oldest() {
+        return maxIncidentAgeHours > 0 ? LocalDateTime.now().minusHours(maxIncidentAgeHours) : null;
+    }
+
+    private static boolean isRecent(LocalDateTime when, LocalDateTime oldest) {
+        return oldest == null || (when != null && !when.isBefore(oldest));
+    }
+
+    private Map<String, Set<String>> offenseGroups(Collection<CrimeReport> reports) {
+        Map<String, Set<String>> groups = new LinkedHashMap<>();
+        List<String> numbers = reports.stream().map(CrimeReport::getReportNumber).toList();
+        for (int from = 0; from < numbers.size(); from += GROUP_QUERY_CHUNK) {
+            List<String> chunk = numbers.subList(from, Math.min(numbers.size(), from + GROUP_QUERY_CHUNK));
+            for (Object[] row : offenseRepository.findOffenseGroups(chunk)) {
+                if (row[1] != null) {
+                    groups.computeIfAbsent((String) row[0], k -> new LinkedHashSet<>()).add((String) row[1]);
+                }
+            }
+        }
+        return groups;
+    }
+}
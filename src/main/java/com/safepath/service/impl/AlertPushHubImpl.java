@@ -0,0 +1,453 @@
+package com.safepath.service.impl;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.safepath.dto.AlertDigestDto;
+import com.safepath.dto.AlertNotificationDto;
+import com.safepath.event.AlertsMatchedEvent;
+import com.safepath.service.AlertPushHub;
+
+/**
+ * Server-Sent Events hub for alert matches.
+ * Streams are async servlet responses, so an idle stream holds a socket on the connector but no
+ * thread. Publishing never writes to a socket: every connection has a small bounded queue, and a
+ * drain task on the alertPushExecutor is started when a queue goes from empty to non-empty. If a
+ * client falls behind, the oldest queued events are dropped and replaced by a single "dropped"
+ * event with their count. Event ids increase across restarts (they start at the node's start time
+ * in microseconds), so a Last-Event-ID from before a restart or older than the replay log is
+ * answered with a "reset" event, telling the client to reload instead of trusting the stream.
+ * <p>
+ * A write to a client that stopped reading blocks its sender thread until the connector's write
+ * timeout. {@link #closeStalled()} closes a stream whose write is older than the send timeout to
+ * new events and adds a thread to the executor for as long as the write stays blocked, so stalled
+ * clients cannot take all sender threads from the others.
+ */
+@Service
+public class AlertPushHubImpl implements AlertPushHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertPushHubImpl.class);
+
+    private static final String EVENT_ALERT = "alert";
+    private static final String EVENT_DIGEST = "digest";
+    private static final String EVENT_DROPPED = "dropped";
+    private static final String EVENT_RESET = "reset";
+
+    private final ThreadPoolTaskExecutor sender;
+    private final int baseThreads;
+    // sender threads lent to blocked writes, guarded by the executor
+    private int stalledThreads;
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final ConcurrentMap<Integer, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    @Value("${safepath.alerts.push.timeout-minutes:30}")
+    private long timeoutMinutes;
+
+    @Value("${safepath.alerts.push.queue-size:64}")
+    private int queueSize;
+
+    @Value("${safepath.alerts.push.replay-size:100}")
+    private int replaySize;
+
+    @Value("${safepath.alerts.push.replay-minutes:60}")
+    private long replayMinutes;
+
+    @Value("${safepath.alerts.push.max-connections-per-user:5}")
+    private int maxConnectionsPerUser;
+
+    @Value("${safepath.alerts.push.send-timeout-seconds:10}")
+    private long sendTimeoutSeconds;
+
+    @Value("${safepath.alerts.push.max-sender-threads:32}")
+    private int maxSenderThreads;
+
+    public AlertPushHubImpl(@Qualifier("alertPushExecutor") ThreadPoolTaskExecutor sender) {
+        this.sender = sender;
+        this.baseThreads = sender.getCorePoolSize();
+    }
+
+    @Override
+    public SseEmitter subscribe(int userId, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMinutes * 60_000L);
+        Connection connection;
+        Connection evicted = null;
+        while (true) {
+            Channel channel = channels.computeIfAbsent(userId, Channel::new);
+            synchronized (channel) {
+                if (channel.removed) {
+                    continue;
+                }
+                connection = new Connection(channel, emitter);
+                if (channel.connections.size() >= maxConnectionsPerUser) {
+                    evicted = channel.connections.remove(0);
+                    connections.decrementAndGet();
+                }
+                channel.connections.add(connection);
+                connections.incrementAndGet();
+                if (lastEventId != null) {
+                    if (lastEventId < channel.missedUpTo) {
+                        connection.offer(new Outgoing(-1, EVENT_RESET, lastEventId));
+                    }
+                    for (Outgoing o : channel.replay) {
+                        if (o.id > lastEventId) {
+                            connection.offer(o);
+                        }
+                    }
+                }
+                // flushes the response headers, so the client sees the stream as open
+                connection.offer(Outgoing.comment("connected"));
+                break;
+            }
+        }
+        Connection registered = connection;
+        emitter.onCompletion(() -> remove(registered));
+        emitter.onTimeout(() -> remove(registered));
+        emitter.onError(e -> remove(registered));
+        if (evicted != null) {
+            evicted.close();
+        }
+        sender.execute(registered);
+        return emitter;
+    }
+
+    @Override
+    public void publish(List<AlertsMatchedEvent.Match> matches) {
+        // one notification per user and incident, listing all of the user's alerts it matched
+        Map<Integer, Map<String, AlertNotificationDto>> byUser = new LinkedHashMap<>();
+        for (AlertsMatchedEvent.Match m : matches) {
+            if (!channels.containsKey(m.getUserId())) {
+                continue;
+            }
+            AlertNotificationDto dto = byUser.computeIfAbsent(m.getUserId(), k -> new LinkedHashMap<>())
+                .computeIfAbsent(m.getSource() + ":" + m.getIncidentId(), k -> {
+                    AlertNotificationDto d = new AlertNotificationDto();
+                    d.setSource(m.getSource().name());
+                    d.setIncidentId(m.getIncidentId());
+                    d.setCategory(m.getCategory());
+                    d.setOccurredAt(m.getOccurredAt());
+                    d.setLatitude(m.getLatitude());
+                    d.setLongitude(m.getLongitude());
+                    d.setDistanceMeters(m.getDistanceMeters());
+                    return d;
+                });
+            dto.getAlertIds().add(m.getAlertId());
+            dto.setDistanceMeters(Math.min(dto.getDistanceMeters(), m.getDistanceMeters()));
+        }
+
+        List<Connection> toDrain = new ArrayList<>();
+        for (Map.Entry<Integer, Map<String, AlertNotificationDto>> e : byUser.entrySet()) {
+            Channel channel = channels.get(e.getKey());
+            if (channel == null) {
+                continue;
+            }
+            synchronized (channel) {
+                for (AlertNotificationDto dto : e.getValue().values()) {
+                    dto.setEventId(sequence.incrementAndGet());
+                    append(channel, new Outgoing(dto.getEventId(), EVENT_ALERT, dto), toDrain);
+                }
+            }
+        }
+        for (Connection c : toDrain) {
+            sender.execute(c);
+        }
+    }
+
+    @Override
+    public boolean publishDigest(int userId, AlertDigestDto digest) {
+        Channel channel = channels.get(userId);
+        if (channel == null) {
+            return false;
+        }
+        List<Connection> toDrain = new ArrayList<>(1);
+        synchronized (channel) {
+            if (channel.connections.isEmpty()) {
+                return false;
+            }
+            digest.setEventId(sequence.incrementAndGet());
+            append(channel, new Outgoing(digest.getEventId(), EVENT_DIGEST, digest), toDrain);
+        }
+        for (Connection c : toDrain) {
+            sender.execute(c);
+        }
+        return true;
+    }
+
+    @Override
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        List<Connection> toDrain = new ArrayList<>();
+        for (Channel channel : channels.values()) {
+            synchronized (channel) {
+                if (channel.connections.isEmpty()) {
+                    if (now - channel.lastActive > replayMinutes * 60_000L) {
+                        channel.removed = true;
+                        channels.remove(channel.userId, channel);
+                    }
+                    continue;
+                }
+                for (Connection c : channel.connections) {
+                    if (c.offerHeartbeat()) {
+                        toDrain.add(c);
+                    }
+                }
+            }
+        }
+        for (Connection c : toDrain) {
+            sender.execute(c);
+        }
+    }
+
+    @Override
+    public void closeStalled() {
+        long deadline = System.currentTimeMillis() - sendTimeoutSeconds * 1000L;
+        List<Connection> stalled = new ArrayList<>();
+        for (Channel channel : channels.values()) {
+            synchronized (channel) {
+                for (Connection c : channel.connections) {
+                    if (c.markStalled(deadline)) {
+                        stalled.add(c);
+                    }
+                }
+            }
+        }
+        for (Connection c : stalled) {
+            logger.warn("Alert stream of user {} did not take a write for {} s, closing it", c.channel.userId,
+                sendTimeoutSeconds);
+            remove(c);
+            resizeSender(1);
+        }
+    }
+
+    @Override
+    public int connectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * Lends a sender thread to a blocked write, or takes it back once the write returned.
+     */
+    private void resizeSender(int delta) {
+        synchronized (sender) {
+            stalledThreads += delta;
+            int size = Math.max(baseThreads, Math.min(maxSenderThreads, baseThreads + stalledThreads));
+            // the maximum may never drop below the core size
+            if (size > sender.getMaxPoolSize()) {
+                sender.setMaxPoolSize(size);
+                sender.setCorePoolSize(size);
+            } else {
+                sender.setCorePoolSize(size);
+                sender.setMaxPoolSize(size);
+            }
+        }
+    }
+
+    /**
+     * Adds an event to the replay log and the queue of every connection; caller holds the channel.
+     */
+    private void append(Channel channel, Outgoing o, List<Connection> toDrain) {
+        channel.replay.addLast(o);
+        if (channel.replay.size() > replaySize) {
+            channel.missedUpTo = channel.replay.pollFirst().id;
+        }
+        for (Connection c : channel.connections) {
+            if (c.offer(o)) {
+                toDrain.add(c);
+            }
+        }
+        channel.lastActive = System.currentTimeMillis();
+    }
+
+    private void remove(Connection connection) {
+        Channel channel = connection.channel;
+        synchronized (channel) {
+            connection.closed = true;
+            if (channel.connections.remove(connection)) {
+                connections.decrementAndGet();
+            }
+            channel.lastActive = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Per-user state: open connections and the replay log, guarded by the channel's monitor.
+     */
+    private final class Channel {
+        final int userId;
+        final List<Connection> connections = new ArrayList<>(1);
+        final ArrayDeque<Outgoing> replay = new ArrayDeque<>();
+        // events up to this id are not in the replay log; before the channel existed nothing was kept
+        long missedUpTo = sequence.get();
+        long lastActive = System.currentTimeMillis();
+        boolean removed;
+
+        Channel(int userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static final class Outgoing {
+        // -1 for events that must not move the client's Last-Event-ID
+        final long id;
+        final String name;
+        final Object data;
+
+        Outgoing(long id, String name, Object data) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+
+        static Outgoing comment(String text) {
+            return new Outgoing(-1, null, text);
+        }
+    }
+
+    /**
+     * One open stream. Runs as its own drain task: at most one drain per connection is queued or
+     * running at any time, so events are written in order. A blocked write holds its sender thread
+     * until it returns; see {@link #closeStalled()}.
+     */
+    private final class Connection implements Runnable {
+        final Channel channel;
+        final SseEmitter emitter;
+        final ArrayDeque<Outgoing> queue = new ArrayDeque<>();
+        int dropped;
+        boolean scheduled;
+        // start of the write in progress, 0 between writes
+        long sendingSince;
+        boolean stalled;
+        volatile boolean closed;
+
+        Connection(Channel channel, SseEmitter emitter) {
+            this.channel = channel;
+            this.emitter = emitter;
+        }
+
+        /**
+         * @return true if the caller has to start a drain
+         */
+        synchronized boolean offer(Outgoing o) {
+            if (closed) {
+                return false;
+            }
+            if (queue.size() >= queueSize) {
+                queue.pollFirst();
+                dropped++;
+            }
+            queue.addLast(o);
+            if (scheduled) {
+                return false;
+            }
+            scheduled = true;
+            return true;
+        }
+
+        /**
+         * Marks the connection stalled if its write started before the deadline.
+         */
+        synchronized boolean markStalled(long deadline) {
+            if (sendingSince == 0 || sendingSince >= deadline || stalled) {
+                return false;
+            }
+            stalled = true;
+            closed = true;
+            return true;
+        }
+
+        synchronized boolean offerHeartbeat() {
+            if (closed || scheduled) {
+                return false;
+            }
+            queue.addLast(Outgoing.comment("heartbeat"));
+            scheduled = true;
+            return true;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Outgoing next;
+                int lost;
+                synchronized (this) {
+                    lost = dropped;
+                    dropped = 0;
+                    next = lost > 0 ? null : queue.pollFirst();
+                    if (closed || (lost == 0 && next == null)) {
+                        scheduled = false;
+                        return;
+                    }
+                    sendingSince = System.currentTimeMillis();
+                }
+                try {
+                    if (lost > 0) {
+                        emitter.send(SseEmitter.event().name(EVENT_DROPPED).data(lost));
+                    } else if (next.name == null) {
+                        emitter.send(SseEmitter.event().comment((String) next.data));
+                    } else if (next.id < 0) {
+                        emitter.send(SseEmitter.event().name(next.name).data(next.data));
+                    } else {
+                        emitter.send(SseEmitter.event().id(Long.toString(next.id)).name(next.name).data(next.data));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // client went away
+                    logger.debug("Dropping alert stream of user {}: {}", channel.userId, e.getMessage());
+                    synchronized (this) {
+                        closed = true;
+                    }
+                    finishSend();
+                    emitter.completeWithError(e);
+                    return;
+                }
+                if (finishSend()) {
+                    // closed while the write was blocked
+                    emitter.complete();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Ends the write in progress and gives back the thread lent to it if it had stalled.
+         * @return true if the write had stalled
+         */
+        private boolean finishSend() {
+            boolean wasStalled;
+            synchronized (this) {
+                sendingSince = 0;
+                wasStalled = stalled;
+                stalled = false;
+                if (wasStalled || closed) {
+                    scheduled = false;
+                }
+            }
+            if (wasStalled) {
+                resizeSender(-1);
+            }
+            return wasStalled;
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+            }
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.safepath.service.impl;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import com.safepath.dto.CrimeCountSummary;
+import com.safepath.index.CrimeCountCube;
+import com.safepath.index.CrimeSpatioTemporalIndex;
+import com.safepath.index.OffenseGroupDictionary;
+import com.safepath.model.UserAlert;
+import com.safepath.service.CrimeCountService;
+import com.safepath.util.GeoUtils;
+
+@Service
+public class CrimeCountServiceImpl implements CrimeCountService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrimeCountServiceImpl.class);
+
+    private final CrimeSpatioTemporalIndex index;
+
+    @Value("${safepath.crime-counts.south:47.48}")
+    private double south;
+
+    @Value("${safepath.crime-counts.west:-122.46}")
+    private double west;
+
+    @Value("${safepath.crime-counts.north:47.76}")
+    private double north;
+
+    @Value("${safepath.crime-counts.east:-122.22}")
+    private double east;
+
+    @Value("${safepath.crime-counts.cell-degrees:0.01}")
+    private double cellDegrees;
+
+    @Value("${safepath.crime-counts.days:365}")
+    private int windowDays;
+
+    @Value("${safepath.crime-counts.default-alert-radius-m:500}")
+    private int defaultAlertRadius;
+
+    private volatile CrimeCountCube cube;
+
+    public CrimeCountServiceImpl(CrimeSpatioTemporalIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        cube = CrimeCountCube.build(index, south, west, north, east, cellDegrees, LocalDate.now(), windowDays);
+        logger.info("Crime count cube built over {} days with {} offense group layers in {} ms",
+            windowDays, cube.groupIds().length, System.currentTimeMillis() - started);
+    }
+
+    @Override
+    public boolean refreshIfStale() {
+        CrimeCountCube c = cube;
+        if (c != null && c.getSourceVersion() == index.version() && c.getLastDay().equals(LocalDate.now())) {
+            return false;
+        }
+        rebuild();
+        return true;
+    }
+
+    @Override
+    public CrimeCountSummary summarize(double west, double south, double east, double north, int days,
+                                       List<String> offenseGroups) {
+        Assert.isTrue(south <= north && west <= east, "invalid bounding box");
+        Assert.isTrue(days > 0, "days must be positive");
+        CrimeCountCube c = current();
+        OffenseGroupDictionary dictionary = index.getDictionary();
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusDays(days - 1L);
+
+        CrimeCountSummary summary = new CrimeCountSummary();
+        summary.setSouth(c.snapSouth(south));
+        summary.setWest(c.snapWest(west));
+        summary.setNorth(c.snapNorth(north));
+        summary.setEast(c.snapEast(east));
+        summary.setFrom(from);
+        summary.setTo(to);
+        summary.setAsOf(c.getBuiltAt());
+        summary.setTotal(c.count(south, west, north, east, from, to, -1));
+        for (int id : c.groupIds()) {
+            int n = c.count(south, west, north, east, from, to, id);
+            if (n > 0) {
+                summary.getByOffenseGroup().put(dictionary.namesOf(1L << id).get(0), n);
+            }
+        }
+        if (offenseGroups != null && !offenseGroups.isEmpty()) {
+            // a report with offenses in several of the groups is counted once per group
+            int matching = 0;
+            for (String group : new LinkedHashSet<>(offenseGroups)) {
+                int id = dictionary.idOf(group);
+                if (id >= 0) {
+                    matching += c.count(south, west, north, east, from, to, id);
+                }
+            }
+            summary.setMatching(matching);
+        }
+        return summary;
+    }
+
+    @Override
+    public CrimeCountSummary summarizeNearby(double lat, double lon, double radiusMeters, int days,
+                                             List<String> offenseGroups) {
+        Assert.isTrue(radiusMeters > 0 && radiusMeters <= 10_000, "radius must be between 0 and 10000 meters");
+        Assert.isTrue(days > 0, "days must be positive");
+        OffenseGroupDictionary dictionary = index.getDictionary();
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusDays(days - 1L);
+        boolean filtered = offenseGroups != null && !offenseGroups.isEmpty();
+        long requested = filtered ? dictionary.maskOf(offenseGroups) : 0L;
+
+        // one pass over the circle; cube cells would count everything in the cells its bounding box touches
+        int[] counts = new int[2];
+        int[] byGroup = new int[Long.SIZE];
+        index.forEachNearby(lat, lon, radiusMeters, from.atStartOfDay(), to.atTime(LocalTime.MAX), 0L,
+            (reportLat, reportLon, epochSecond, mask) -> {
+                counts[0]++;
+                if ((mask & requested) != 0) {
+                    counts[1]++;
+                }
+                for (long m = mask; m != 0; m &= m - 1) {
+                    byGroup[Long.numberOfTrailingZeros(m)]++;
+                }
+            });
+
+        double dLat = GeoUtils.metersToLatDegrees(radiusMeters);
+        double dLon = GeoUtils.metersToLonDegrees(radiusMeters, lat);
+        CrimeCountSummary summary = new CrimeCountSummary();
+        summary.setSouth(lat - dLat);
+        summary.setWest(lon - dLon);
+        summary.setNorth(lat + dLat);
+        summary.setEast(lon + dLon);
+        summary.setFrom(from);
+        summary.setTo(to);
+        summary.setAsOf(LocalDateTime.now());
+        summary.setTotal(counts[0]);
+        for (int id = 0; id < byGroup.length; id++) {
+            if (byGroup[id] > 0) {
+                summary.getByOffenseGroup().put(dictionary.namesOf(1L << id).get(0), byGroup[id]);
+            }
+        }
+        if (filtered) {
+            summary.setMatching(counts[1]);
+        }
+        return summary;
+    }
+
+    @Override
+    public CrimeCountSummary previewAlert(UserAlert alert, int days) {
+        Assert.isTrue(alert.getCenterLat() != null && alert.getCenterLon() != null, "alert has no center");
+        int radius = alert.getRadiusM() != null && alert.getRadiusM() > 0 ? alert.getRadiusM() : defaultAlertRadius;
+        return summarizeNearby(alert.getCenterLat(), alert.getCenterLon(), radius, days,
+            resolveCrimeTypes(alert.getCrimeTypeFilter()));
+    }
+
+    /**
+     * Offense groups matching a comma separated crime type filter: a group matches a token
+     * that equals or is contained in its name, ignoring case.
+     */
+    private List<String> resolveCrimeTypes(String filter) {
+        if (filter == null || filter.isBlank()) {
+            return null;
+        }
+        Set<String> groups = new LinkedHashSet<>();
+        List<String> names = index.getDictionary().names();
+        for (String token : filter.split(",")) {
+            String t = token.trim().toUpperCase(Locale.ROOT);
+            if (t.isEmpty()) {
+                continue;
+            }
+            for (String name : names) {
+                if (name.contains(t)) {
+                    groups.add(name);
+                }
+            }
+        }
+        // a filter that matches nothing still yields matching = 0 rather than no filter
+        return groups.isEmpty() ? List.of(filter) : new ArrayList<>(groups);
+    }
+
+    private CrimeCountCube current() {
+        CrimeCountCube c = cube;
+        if (c == null) {
+            rebuild();
+            c = cube;
+        }
+        return c;
+    }
+}
@@ -0,0 +1,489 @@
+package com.safepath.service.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import com.safepath.dto.TaskStatusResponse;
+import com.safepath.etl.CrimeStaging;
+import com.safepath.etl.MappedCsvReader;
+import com.safepath.etl.SpdCrimeRecord;
+import com.safepath.event.CrimeReportsChangedEvent;
+import com.safepath.event.CrimeReportsIngestedEvent;
+import com.safepath.model.CrimeReport;
+import com.safepath.model.EtlRun;
+import com.safepath.model.Source;
+import com.safepath.service.CrimeEtlService;
+import com.safepath.service.EtlRunService;
+import com.safepath.service.JobLeaseService;
+import com.safepath.service.SegmentAssignmentService;
+
+/**
+ * Streams the SPD CSV through {@link MappedCsvReader}: while one window of the file is staged,
+ * the next one is already being parsed in parallel slices. Windows are appended to the unindexed
+ * staging table ({@link CrimeStaging}), and once the whole file is staged the run is merged into the
+ * real tables with a few set-based statements, so memory stays bounded by two windows and indexes
+ * and locks are touched once per run.
+ * <p>
+ * Reports are upserted: new ones are inserted, existing ones are only updated when a value changed
+ * (a moved report is snapped again). Offenses are deduplicated on (report number, offense code,
+ * offense date), so re-running a file or overlapping incremental runs do not duplicate them.
+ * <p>
+ * An incremental run still reads the whole export, which has no order to seek by, but only stages
+ * rows with an offense id above the last watermark or a report time within {@code overlap-hours}
+ * before it; the overlap picks up reports that were edited or arrived late.
+ */
+@Service
+public class CrimeEtlServiceImpl implements CrimeEtlService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrimeEtlServiceImpl.class);
+
+    private static final String SPD_SOURCE_URL = "https://data.seattle.gov/Public-Safety/SPD-Crime-Data-2008-Present";
+    private static final int SPD_REFRESH_INTERVAL_MINUTES = 1440;
+
+    private static final String SELECT_REPORTS = "SELECT report_number, report_datetime, precinct, sector, beat, "
+        + "mcpp_neighborhood, blurred_address, blurred_latitude, blurred_longitude FROM crime_reports ";
+    private static final String SELECT_RUN_REPORTS = SELECT_REPORTS + "WHERE etl_id = ?";
+    private static final int SELECT_CHUNK = 1000;
+
+    // inserted reports are published in events of this size
+    private static final int EVENT_BATCH = 10000;
+
+    // report times further in the future are typos and must not move the watermark
+    private static final int MAX_FUTURE_DAYS = 1;
+
+    private final EtlRunService etlRunService;
+    private final JdbcTemplate jdbcTemplate;
+    private final SegmentAssignmentService segmentAssignmentService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JobLeaseService jobLeaseService;
+    private final TaskExecutor taskExecutor;
+
+    private final ConcurrentMap<String, TaskStatusResponse> statuses = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean loadDataRefused;
+
+    // renewed by a heartbeat while the run lasts, bounds how long a crashed node blocks the others
+    @Value("${safepath.etl.lease-minutes:10}")
+    private long leaseMinutes;
+
+    @Value("${safepath.etl.spd-crime.csv-path:data/spd_crime_data.csv}")
+    private String csvPath;
+
+    // bytes mapped and parsed at a time; two windows are in memory while one is written
+    @Value("${safepath.etl.window-mb:32}")
+    private int windowMb;
+
+    // rows per multi-row INSERT statement
+    @Value("${safepath.etl.insert-rows:1000}")
+    private int insertRows;
+
+    // stage with LOAD DATA LOCAL INFILE on MySQL (needs allowLoadLocalInfile on the JDBC URL)
+    @Value("${safepath.etl.load-data-local-infile:true}")
+    private boolean loadDataLocalInfile;
+
+    @Value("${safepath.etl.parse-parallelism:0}")
+    private int parseParallelism;
+
+    // incremental runs also write rows whose report time is up to this much before the watermark
+    @Value("${safepath.etl.spd-crime.overlap-hours:48}")
+    private int overlapHours;
+
+    public CrimeEtlServiceImpl(EtlRunService etlRunService,
+                               JdbcTemplate jdbcTemplate,
+                               SegmentAssignmentService segmentAssignmentService,
+                               ApplicationEventPublisher eventPublisher,
+                               JobLeaseService jobLeaseService,
+                               @Qualifier("taskExecutor") TaskExecutor taskExecutor) {
+        this.etlRunService = etlRunService;
+        this.jobLeaseService = jobLeaseService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.segmentAssignmentService = segmentAssignmentService;
+        this.eventPublisher = eventPublisher;
+        this.taskExecutor = taskExecutor;
+    }
+
+    @Override
+    public TaskStatusResponse startSpdCrimeIngest(EtlRun.Mode mode) {
+        Path csv = csvFile();
+        JobLeaseService.Lease lease = acquire();
+        try {
+            EtlRun run = createRun(mode);
+            TaskStatusResponse status = newStatus(run);
+            taskExecutor.execute(() -> {
+                try {
+                    ingest(csv, run, status);
+                } finally {
+                    release(lease);
+                }
+            });
+            return status;
+        } catch (RuntimeException e) {
+            release(lease);
+            throw e;
+        }
+    }
+
+    @Override
+    public TaskStatusResponse runSpdCrimeIngest(EtlRun.Mode mode) {
+        Path csv = csvFile();
+        JobLeaseService.Lease lease = acquire();
+        try {
+            EtlRun run = createRun(mode);
+            TaskStatusResponse status = newStatus(run);
+            ingest(csv, run, status);
+            return status;
+        } finally {
+            release(lease);
+        }
+    }
+
+    /**
+     * Claims the run on this node and, through the job lease, in the cluster; the lease is
+     * renewed by a heartbeat for as long as the run takes.
+     */
+    private JobLeaseService.Lease acquire() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An SPD crime ingestion is already running");
+        }
+        try {
+            return jobLeaseService.hold("etl:" + SPD_SOURCE_NAME, Duration.ofMinutes(leaseMinutes))
+                .orElseThrow(() -> new IllegalStateException("An SPD crime ingestion is running on another node"));
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    private void release(JobLeaseService.Lease lease) {
+        try {
+            lease.close();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Override
+    public TaskStatusResponse getStatus(String taskId) {
+        return statuses.get(taskId);
+    }
+
+    private Path csvFile() {
+        Path csv = Paths.get(csvPath);
+        if (!Files.isRegularFile(csv)) {
+            throw new IllegalArgumentException("SPD crime CSV not found: " + csv.toAbsolutePath());
+        }
+        return csv;
+    }
+
+    private EtlRun createRun(EtlRun.Mode mode) {
+        Source source = etlRunService.findOrCreateSource(SPD_SOURCE_NAME, SPD_SOURCE_URL,
+            SPD_REFRESH_INTERVAL_MINUTES);
+        return etlRunService.start(source, mode);
+    }
+
+    private TaskStatusResponse newStatus(EtlRun run) {
+        TaskStatusResponse status = new TaskStatusResponse(String.valueOf(run.getEtlId()),
+            TaskStatusResponse.TaskStatus.PENDING);
+        status.setMessage("ETL run created, waiting to be executed...");
+        statuses.put(status.getTaskId(), status);
+        return status;
+    }
+
+    private void ingest(Path csv, EtlRun run, TaskStatusResponse status) {
+        long started = System.currentTimeMillis();
+        Counters counters = new Counters();
+        Delta delta = new Delta(run, overlapHours);
+        Path loadFile = null;
+        status.setStatus(TaskStatusResponse.TaskStatus.RUNNING);
+        status.setStage("stage");
+        logger.info("SPD crime ETL run {} ({}) started for {}, watermarks {} / {}", run.getEtlId(), run.getMode(),
+            csv.toAbsolutePath(), run.getWatermarkDatetime(), run.getWatermarkRecordId());
+        try (MappedCsvReader reader = new MappedCsvReader(csv, windowMb * 1024 * 1024)) {
+            SpdCrimeRecord.Columns columns = new SpdCrimeRecord.Columns(reader.header());
+            int parts = parseParallelism > 0 ? parseParallelism : Runtime.getRuntime().availableProcessors();
+            CrimeStaging.Dialect dialect = dialect();
+            if (dialect == CrimeStaging.Dialect.MYSQL && loadDataLocalInfile && !loadDataRefused) {
+                loadFile = Files.createTempFile("crime_staging", ".tsv");
+            }
+            jdbcTemplate.execute(CrimeStaging.CREATE_TABLE);
+            CrimeStaging staging = new CrimeStaging(jdbcTemplate, dialect, run.getEtlId(), insertRows, loadFile);
+            staging.clearStale();
+
+            CompletableFuture<ParsedWindow> next = parseNext(reader, columns, parts);
+            ParsedWindow window;
+            while ((window = join(next)) != null) {
+                // read ahead: the next window is parsed while this one is staged
+                next = parseNext(reader, columns, parts);
+                staging.stage(delta(window, delta, counters));
+                status.setRowsProcessed(counters.rows);
+                status.setProgress((int) (80 * window.endPosition / Math.max(1, reader.size())));
+                status.setMessage(counters.toString());
+            }
+            if (staging.isLoadDataRefused()) {
+                loadDataRefused = true;
+                logger.warn("LOAD DATA LOCAL INFILE was refused, staging with INSERT statements from now on; "
+                    + "enable local_infile on the server and allowLoadLocalInfile on the JDBC URL to use it");
+            }
+
+            status.setStage("merge");
+            status.setProgress(80);
+            CrimeStaging.Result merged = staging.merge();
+            counters.offenseTypes = merged.offenseTypes;
+            counters.reports = merged.reports;
+            counters.updated = merged.updatedReports;
+            counters.offenses = merged.offenses;
+            status.setMessage(counters.toString());
+            if (merged.reports > 0) {
+                publishInserted(run.getEtlId());
+            }
+            if (!merged.updatedReportNumbers.isEmpty()) {
+                publishUpdated(merged.updatedReportNumbers);
+            }
+
+            status.setStage("snap");
+            status.setProgress(95);
+            segmentAssignmentService.backfill();
+
+            etlRunService.succeed(run, counters.rows, counters.maxReportDatetime, counters.maxOffenseId);
+            status.setStatus(TaskStatusResponse.TaskStatus.COMPLETED);
+            status.setStage("done");
+            status.setProgress(100);
+            status.setMessage(counters.toString());
+            logger.info("SPD crime ETL run {} finished in {} ms: {}", run.getEtlId(),
+                System.currentTimeMillis() - started, counters);
+        } catch (Exception e) {
+            etlRunService.fail(run, counters.rows);
+            status.setStatus(TaskStatusResponse.TaskStatus.FAILED);
+            status.setErrorMessage(e.getMessage());
+            status.setMessage(counters.toString());
+            logger.error("SPD crime ETL run {} failed after {}", run.getEtlId(), counters, e);
+        } finally {
+            if (loadFile != null) {
+                try {
+                    Files.deleteIfExists(loadFile);
+                } catch (IOException e) {
+                    logger.warn("Could not delete {}", loadFile, e);
+                }
+            }
+            status.setEndTime(LocalDateTime.now());
+        }
+    }
+
+    private CompletableFuture<ParsedWindow> parseNext(MappedCsvReader reader, SpdCrimeRecord.Columns columns,
+                                                      int parts) {
+        return CompletableFuture.supplyAsync(() -> {
+            MappedCsvReader.Window window;
+            try {
+                window = reader.next(parts);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (window == null) {
+                return null;
+            }
+            List<List<String[]>> slices = IntStream.range(0, window.slices()).parallel()
+                .mapToObj(i -> {
+                    List<String[]> rows = new ArrayList<>();
+                    window.parse(i, rows);
+                    return rows;
+                })
+                .collect(Collectors.toList());
+            List<SpdCrimeRecord> records = new ArrayList<>();
+            int rows = 0;
+            for (List<String[]> slice : slices) {
+                for (String[] fields : slice) {
+                    rows++;
+                    SpdCrimeRecord record = SpdCrimeRecord.of(fields, columns);
+                    if (record != null) {
+                        records.add(record);
+                    }
+                }
+            }
+            return new ParsedWindow(records, rows, reader.position());
+        });
+    }
+
+    private static ParsedWindow join(CompletableFuture<ParsedWindow> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Counts the window and returns the records the run stages.
+     */
+    private static List<SpdCrimeRecord> delta(ParsedWindow window, Delta delta, Counters counters) {
+        counters.rows += window.rows;
+        counters.skipped += window.rows - window.records.size();
+        List<SpdCrimeRecord> records = new ArrayList<>(window.records.size());
+        for (SpdCrimeRecord r : window.records) {
+            counters.track(r);
+            if (delta.includes(r)) {
+                records.add(r);
+            } else {
+                counters.loaded++;
+            }
+        }
+        return records;
+    }
+
+    private CrimeStaging.Dialect dialect() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        return product != null && product.toLowerCase(Locale.ROOT).contains("mysql")
+            ? CrimeStaging.Dialect.MYSQL : CrimeStaging.Dialect.STANDARD;
+    }
+
+    /**
+     * Publishes the reports inserted by the run in batches, for the in-memory indexes.
+     */
+    private void publishInserted(Integer etlId) {
+        List<CrimeReport> batch = new ArrayList<>();
+        jdbcTemplate.query(SELECT_RUN_REPORTS, rs -> {
+            batch.add(mapReport(rs));
+            if (batch.size() == EVENT_BATCH) {
+                eventPublisher.publishEvent(new CrimeReportsIngestedEvent(batch));
+                batch.clear();
+            }
+        }, etlId);
+        if (!batch.isEmpty()) {
+            eventPublisher.publishEvent(new CrimeReportsIngestedEvent(batch));
+        }
+    }
+
+    /**
+     * Publishes the current values of the reports the run updated in batches, for the in-memory indexes.
+     */
+    private void publishUpdated(List<String> reportNumbers) {
+        List<CrimeReport> batch = new ArrayList<>();
+        for (int from = 0; from < reportNumbers.size(); from += SELECT_CHUNK) {
+            List<String> chunk = reportNumbers.subList(from, Math.min(reportNumbers.size(), from + SELECT_CHUNK));
+            String placeholders = chunk.stream().map(n -> "?").collect(Collectors.joining(", "));
+            jdbcTemplate.query(SELECT_REPORTS + "WHERE report_number IN (" + placeholders + ")",
+                (RowCallbackHandler) rs -> batch.add(mapReport(rs)), chunk.toArray());
+            if (batch.size() >= EVENT_BATCH) {
+                eventPublisher.publishEvent(CrimeReportsChangedEvent.updated(batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            eventPublisher.publishEvent(CrimeReportsChangedEvent.updated(batch));
+        }
+    }
+
+    private static CrimeReport mapReport(ResultSet rs) throws SQLException {
+        CrimeReport report = new CrimeReport();
+        report.setReportNumber(rs.getString(1));
+        Timestamp datetime = rs.getTimestamp(2);
+        report.setReportDatetime(datetime == null ? null : datetime.toLocalDateTime());
+        report.setPrecinct(rs.getString(3));
+        report.setSector(rs.getString(4));
+        report.setBeat(rs.getString(5));
+        report.setMcppNeighborhood(rs.getString(6));
+        report.setBlurredAddress(rs.getString(7));
+        report.setBlurredLatitude(rs.getObject(8, Double.class));
+        report.setBlurredLongitude(rs.getObject(9, Double.class));
+        return report;
+    }
+
+    private static final class ParsedWindow {
+        final List<SpdCrimeRecord> records;
+        final int rows;
+        final long endPosition;
+
+        ParsedWindow(List<SpdCrimeRecord> records, int rows, long endPosition) {
+            this.records = records;
+            this.rows = rows;
+            this.endPosition = endPosition;
+        }
+    }
+
+    /**
+     * Decides which rows an incremental run writes; a full run writes all of them.
+     */
+    private static final class Delta {
+        final LocalDateTime since;
+        final Long afterOffenseId;
+
+        Delta(EtlRun run, int overlapHours) {
+            boolean incremental = run.getMode() == EtlRun.Mode.INCREMENTAL;
+            this.since = incremental && run.getWatermarkDatetime() != null
+                ? run.getWatermarkDatetime().minusHours(overlapHours) : null;
+            this.afterOffenseId = incremental ? run.getWatermarkRecordId() : null;
+        }
+
+        boolean includes(SpdCrimeRecord r) {
+            if (since == null && afterOffenseId == null) {
+                return true;
+            }
+            if (afterOffenseId != null && r.offenseId != null && r.offenseId > afterOffenseId) {
+                return true;
+            }
+            return since != null && r.reportDatetime != null && r.reportDatetime.isAfter(since);
+        }
+    }
+
+    private static final class Counters {
+        long rows;
+        long skipped;
+        long loaded;
+        long offenseTypes;
+        long reports;
+        long updated;
+        long offenses;
+        LocalDateTime maxReportDatetime;
+        Long maxOffenseId;
+        final LocalDateTime futureLimit = LocalDateTime.now().plusDays(MAX_FUTURE_DAYS);
+
+        void track(SpdCrimeRecord r) {
+            if (r.offenseId != null && (maxOffenseId == null || r.offenseId > maxOffenseId)) {
+                maxOffenseId = r.offenseId;
+            }
+            LocalDateTime t = r.reportDatetime;
+            if (t != null && (maxReportDatetime == null || t.isAfter(maxReportDatetime))
+                    && t.isBefore(futureLimit)) {
+                maxReportDatetime = t;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows read, %d skipped, %d before the watermark, "
+                    + "%d offense types, %d reports and %d offenses inserted, %d reports updated",
+                rows, skipped, loaded, offenseTypes, reports, offenses, updated);
+        }
+    }
+}
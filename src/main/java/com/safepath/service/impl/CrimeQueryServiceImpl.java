@@ -0,0 +1,75 @@
+package com.safepath.service.impl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import com.safepath.dto.NearbyCrimeDto;
+import com.safepath.index.CrimeSpatioTemporalIndex;
+import com.safepath.service.CrimeQueryService;
+
+@Service
+public class CrimeQueryServiceImpl implements CrimeQueryService {
+
+    private final CrimeSpatioTemporalIndex index;
+
+    public CrimeQueryServiceImpl(CrimeSpatioTemporalIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public List<NearbyCrimeDto> findNearby(double lat, double lon, double radiusMeters, int days,
+                                           List<String> offenseGroups, int limit) {
+        validate(lat, lon, radiusMeters, days);
+        Assert.isTrue(limit > 0, "limit must be positive");
+        long mask = groupMask(offenseGroups);
+        if (mask < 0) {
+            return new ArrayList<>();
+        }
+        LocalDateTime to = LocalDateTime.now();
+        List<NearbyCrimeDto> result = new ArrayList<>();
+        for (CrimeSpatioTemporalIndex.Hit hit : index.query(lat, lon, radiusMeters, to.minusDays(days), to, mask, limit)) {
+            NearbyCrimeDto dto = new NearbyCrimeDto();
+            dto.setReportNumber(hit.reportNumber);
+            dto.setReportDatetime(hit.reportDatetime);
+            dto.setLatitude(hit.latitude);
+            dto.setLongitude(hit.longitude);
+            dto.setDistanceMeters(Math.round(hit.distanceMeters * 10) / 10.0);
+            dto.setOffenseGroups(index.getDictionary().namesOf(hit.groupMask));
+            result.add(dto);
+        }
+        return result;
+    }
+
+    @Override
+    public int countNearby(double lat, double lon, double radiusMeters, int days, List<String> offenseGroups) {
+        validate(lat, lon, radiusMeters, days);
+        long mask = groupMask(offenseGroups);
+        if (mask < 0) {
+            return 0;
+        }
+        LocalDateTime to = LocalDateTime.now();
+        return index.count(lat, lon, radiusMeters, to.minusDays(days), to, mask);
+    }
+
+    private static void validate(double lat, double lon, double radiusMeters, int days) {
+        Assert.isTrue(lat >= -90 && lat <= 90, "lat must be between -90 and 90");
+        Assert.isTrue(lon >= -180 && lon <= 180, "lon must be between -180 and 180");
+        Assert.isTrue(radiusMeters > 0 && radiusMeters <= 10_000, "radius must be between 0 and 10000 meters");
+        Assert.isTrue(days > 0, "days must be positive");
+    }
+
+    /**
+     * @return 0 to match everything, -1 if groups were requested but none of them is known
+     */
+    private long groupMask(List<String> offenseGroups) {
+        if (offenseGroups == null || offenseGroups.isEmpty()) {
+            return 0L;
+        }
+        long mask = index.getDictionary().maskOf(offenseGroups);
+        return mask == 0L ? -1L : mask;
+    }
+}
@@ -1,20 +1,47 @@
 package com.safepath.service.impl;
 
+import com.safepath.event.CrimeReportsChangedEvent;
+import com.safepath.event.CrimeReportsIngestedEvent;
 import com.safepath.model.CrimeReport;
 import com.safepath.repository.CrimeReportRepository;
+import com.safepath.service.CrimeReportCursor;
 import com.safepath.service.CrimeReportService;
+import com.safepath.service.SegmentAssignmentService;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 public class CrimeReportServiceImpl implements CrimeReportService {
 
     private final CrimeReportRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final SegmentAssignmentService segmentAssignmentService;
 
-    public CrimeReportServiceImpl(CrimeReportRepository repository) {
+    @Value("${safepath.crime-reports.stream-chunk-size:1000}")
+    private int streamChunkSize;
+
+    public CrimeReportServiceImpl(CrimeReportRepository repository, ApplicationEventPublisher eventPublisher,
+                                  EntityManager entityManager, SegmentAssignmentService segmentAssignmentService) {
         this.repository = repository;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        this.segmentAssignmentService = segmentAssignmentService;
     }
 
     @Override
@@ -22,6 +49,56 @@ public class CrimeReportServiceImpl implements CrimeReportService {
         return repository.findAll();
     }
 
+    @Override
+    public List<CrimeReport> findPage(CrimeReportCursor cursor, int size) {
+        Assert.isTrue(size > 0, "size must be positive");
+        if (cursor != null && cursor.getReportDatetime() == null) {
+            return repository.findUndatedAfter(cursor.getReportNumber(), Limit.of(size));
+        }
+        List<CrimeReport> page = new ArrayList<>(size);
+        page.addAll(cursor == null
+            ? repository.findFirstDated(Limit.of(size))
+            : repository.findDatedAfter(cursor.getReportDatetime(), cursor.getReportNumber(), Limit.of(size)));
+        if (page.size() < size) {
+            // dated reports exhausted, continue with the undated ones
+            page.addAll(repository.findFirstUndated(Limit.of(size - page.size())));
+        }
+        return page;
+    }
+
+    @Override
+    public Stream<CrimeReport> streamAll() {
+        Iterator<CrimeReport> iterator = new Iterator<>() {
+            private Iterator<CrimeReport> chunk = Collections.emptyIterator();
+            private CrimeReportCursor cursor;
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (!chunk.hasNext() && !exhausted) {
+                    List<CrimeReport> next = findPage(cursor, streamChunkSize);
+                    // an open-in-view EntityManager would otherwise keep every streamed entity
+                    next.forEach(entityManager::detach);
+                    exhausted = next.size() < streamChunkSize;
+                    if (!next.isEmpty()) {
+                        cursor = CrimeReportCursor.after(next.get(next.size() - 1));
+                    }
+                    chunk = next.iterator();
+                }
+                return chunk.hasNext();
+            }
+
+            @Override
+            public CrimeReport next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return chunk.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+
     @Override
     public Optional<CrimeReport> findById(String reportNumber) {
         return repository.findById(reportNumber);
@@ -29,11 +106,21 @@ public class CrimeReportServiceImpl implements CrimeReportService {
 
     @Override
     public CrimeReport save(CrimeReport crimeReport) {
-        return repository.save(crimeReport);
+        boolean existed = crimeReport.getReportNumber() != null && repository.existsById(crimeReport.getReportNumber());
+        segmentAssignmentService.assign(crimeReport);
+        CrimeReport saved = repository.save(crimeReport);
+        eventPublisher.publishEvent(existed
+            ? CrimeReportsChangedEvent.updated(List.of(saved))
+            : new CrimeReportsIngestedEvent(List.of(saved)));
+        return saved;
     }
 
     @Override
     public void deleteById(String reportNumber) {
+        if (!repository.existsById(reportNumber)) {
+            return;
+        }
         repository.deleteById(reportNumber);
+        eventPublisher.publishEvent(CrimeReportsChangedEvent.deleted(List.of(reportNumber)));
     }
 }
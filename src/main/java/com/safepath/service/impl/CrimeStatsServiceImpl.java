@@ -0,0 +1,85 @@
+package com.safepath.service.impl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import com.safepath.dto.CrimeBreakdownDto;
+import com.safepath.dto.CrimeTrendDto;
+import com.safepath.index.CrimeColumnStore;
+import com.safepath.index.CrimeColumnStore.Breakdown;
+import com.safepath.index.CrimeColumnStore.Dimension;
+import com.safepath.index.CrimeColumnStore.Filter;
+import com.safepath.index.CrimeColumnStore.Snapshot;
+import com.safepath.service.CrimeStatsService;
+
+@Service
+public class CrimeStatsServiceImpl implements CrimeStatsService {
+
+    private final CrimeColumnStore store;
+
+    public CrimeStatsServiceImpl(CrimeColumnStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void reload() {
+        store.reload();
+    }
+
+    @Override
+    public CrimeBreakdownDto breakdown(Dimension dimension, Filter filter) {
+        Breakdown b = store.aggregate(filter, dimension);
+        CrimeBreakdownDto dto = new CrimeBreakdownDto();
+        dto.setDimension(dimension.name());
+        dto.setFrom(filter.from);
+        dto.setTo(filter.to);
+        dto.setTotal(b.total);
+        dto.setRowsScanned(b.rowsScanned);
+        dto.setSnapshotAt(b.snapshotAt);
+        if (dimension == Dimension.HOUR || dimension == Dimension.WEEKDAY_HOUR) {
+            for (int i = 0; i < b.keys.length; i++) {
+                dto.getCounts().put(b.keys[i], b.counts[i]);
+            }
+        } else {
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < b.keys.length; i++) {
+                if (b.counts[i] > 0) {
+                    order.add(i);
+                }
+            }
+            order.sort(Comparator.comparingLong((Integer i) -> b.counts[i]).reversed());
+            for (int i : order) {
+                dto.getCounts().put(b.keys[i], b.counts[i]);
+            }
+        }
+        return dto;
+    }
+
+    @Override
+    public List<CrimeTrendDto> trend(Dimension dimension, int recentDays, Filter filter) {
+        Assert.isTrue(recentDays > 0, "recentDays must be positive");
+        Assert.isTrue(dimension != Dimension.HOUR && dimension != Dimension.WEEKDAY_HOUR,
+            "trends are computed per neighborhood, precinct or offense group");
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime split = now.minusDays(recentDays);
+        // both windows on one snapshot: a reload builds new dictionaries, so keys would not line up
+        Snapshot snapshot = store.snapshot();
+        Breakdown recent = snapshot.aggregate(filter.withTimes(split, now), dimension);
+        Breakdown previous = snapshot.aggregate(filter.withTimes(split.minusDays(recentDays), split.minusNanos(1)), dimension);
+
+        List<CrimeTrendDto> out = new ArrayList<>();
+        for (int i = 0; i < recent.keys.length; i++) {
+            if (recent.counts[i] > 0 || previous.counts[i] > 0) {
+                out.add(new CrimeTrendDto(recent.keys[i], recent.counts[i], previous.counts[i]));
+            }
+        }
+        out.sort(Comparator.comparingLong((CrimeTrendDto t) -> t.getRecent() - t.getPrevious()).reversed()
+            .thenComparing(CrimeTrendDto::getKey));
+        return out;
+    }
+}
@@ -0,0 +1,112 @@
+package com.safepath.service.impl;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.safepath.model.EtlRun;
+import com.safepath.model.Source;
+import com.safepath.repository.EtlRunRepository;
+import com.safepath.repository.SourceRepository;
+import com.safepath.service.EtlRunService;
+
+@Service
+public class EtlRunServiceImpl implements EtlRunService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EtlRunServiceImpl.class);
+
+    private final SourceRepository sourceRepository;
+    private final EtlRunRepository etlRunRepository;
+
+    public EtlRunServiceImpl(SourceRepository sourceRepository, EtlRunRepository etlRunRepository) {
+        this.sourceRepository = sourceRepository;
+        this.etlRunRepository = etlRunRepository;
+    }
+
+    @Override
+    public synchronized Source findOrCreateSource(String sourceName, String url, int refreshIntervalMinutes) {
+        return sourceRepository.findFirstBySourceNameOrderBySourceId(sourceName).orElseGet(() -> {
+            Source s = new Source();
+            s.setSourceName(sourceName);
+            s.setUrl(url);
+            s.setRefreshInterval(refreshIntervalMinutes);
+            s.setCreatedAt(LocalDateTime.now());
+            return sourceRepository.save(s);
+        });
+    }
+
+    @Override
+    public EtlRun start(Source source, EtlRun.Mode mode) {
+        int abandoned = etlRunRepository.failRunning(source, LocalDateTime.now());
+        if (abandoned > 0) {
+            logger.warn("Marked {} abandoned runs of {} as failed", abandoned, source.getSourceName());
+        }
+        EtlRun.Mode effective = mode;
+        Optional<EtlRun> previous = lastSuccessful(source);
+        if (mode == EtlRun.Mode.INCREMENTAL && previous.isEmpty()) {
+            effective = EtlRun.Mode.FULL;
+        }
+        EtlRun run = new EtlRun();
+        run.setSource(source);
+        run.setMode(effective);
+        run.setStatus(EtlRun.Status.RUNNING);
+        run.setRunTime(LocalDateTime.now());
+        run.setRecordCount(0);
+        run.setCreatedAt(LocalDateTime.now());
+        // start from the previous marks, the run only moves them forward
+        previous.ifPresent(p -> {
+            run.setWatermarkDatetime(p.getWatermarkDatetime());
+            run.setWatermarkRecordId(p.getWatermarkRecordId());
+        });
+        return etlRunRepository.save(run);
+    }
+
+    @Override
+    public Optional<EtlRun> lastSuccessful(Source source) {
+        return etlRunRepository.findFirstBySourceAndStatusOrderByEtlIdDesc(source, EtlRun.Status.SUCCEEDED);
+    }
+
+    @Override
+    public void succeed(EtlRun run, long recordCount, LocalDateTime watermarkDatetime, Long watermarkRecordId) {
+        if (watermarkDatetime != null
+                && (run.getWatermarkDatetime() == null || watermarkDatetime.isAfter(run.getWatermarkDatetime()))) {
+            run.setWatermarkDatetime(watermarkDatetime);
+        }
+        if (watermarkRecordId != null
+                && (run.getWatermarkRecordId() == null || watermarkRecordId > run.getWatermarkRecordId())) {
+            run.setWatermarkRecordId(watermarkRecordId);
+        }
+        finish(run, EtlRun.Status.SUCCEEDED, recordCount);
+    }
+
+    @Override
+    public void fail(EtlRun run, long recordCount) {
+        finish(run, EtlRun.Status.FAILED, recordCount);
+    }
+
+    @Override
+    public boolean isDue(String sourceName) {
+        Optional<Source> source = sourceRepository.findFirstBySourceNameOrderBySourceId(sourceName);
+        if (source.isEmpty()) {
+            // never ingested by this application yet
+            return true;
+        }
+        Integer interval = source.get().getRefreshInterval();
+        if (interval == null || interval <= 0) {
+            return false;
+        }
+        return etlRunRepository.findFirstBySourceOrderByEtlIdDesc(source.get())
+            .map(last -> !last.getRunTime().plusMinutes(interval).isAfter(LocalDateTime.now()))
+            .orElse(true);
+    }
+
+    private void finish(EtlRun run, EtlRun.Status status, long recordCount) {
+        run.setStatus(status);
+        run.setRecordCount((int) Math.min(Integer.MAX_VALUE, recordCount));
+        run.setFinishedAt(LocalDateTime.now());
+        etlRunRepository.save(run);
+    }
+}
@@ -0,0 +1,217 @@
+package com.safepath.service.impl;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import com.safepath.index.CrimeSpatioTemporalIndex;
+import com.safepath.index.HeatmapRaster;
+import com.safepath.index.HeatmapTile;
+import com.safepath.model.CrimeReport;
+import com.safepath.service.HeatmapTileService;
+import com.safepath.util.GeoUtils;
+
+@Service
+public class HeatmapTileServiceImpl implements HeatmapTileService {
+
+    private final CrimeSpatioTemporalIndex index;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Map<TileKey, CachedTile> cache;
+
+    @Value("${safepath.heatmap.min-zoom:10}")
+    private int minZoom;
+
+    @Value("${safepath.heatmap.max-zoom:18}")
+    private int maxZoom;
+
+    @Value("${safepath.heatmap.max-days:365}")
+    private int maxDays;
+
+    @Value("${safepath.heatmap.radius-px:20}")
+    private int radiusPx;
+
+    @Value("${safepath.heatmap.saturation:8}")
+    private double saturation;
+
+    public HeatmapTileServiceImpl(CrimeSpatioTemporalIndex index,
+                                  @Value("${safepath.heatmap.cache-size:2000}") int cacheSize) {
+        this.index = index;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TileKey, CachedTile> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    @Override
+    public HeatmapTile getTile(int z, int x, int y, int days, List<String> offenseGroups) {
+        if (z < minZoom || z > maxZoom || x < 0 || y < 0 || x >= (1L << z) || y >= (1L << z)) {
+            return null;
+        }
+        Assert.isTrue(days > 0 && days <= maxDays, "days must be between 1 and " + maxDays);
+        String groups = normalizeGroups(offenseGroups);
+        TileKey key = new TileKey(z, x, y, days, groups);
+        LocalDate today = LocalDate.now();
+        CachedTile cached = cache.get(key);
+        if (cached != null && cached.day.equals(today)) {
+            return cached.tile;
+        }
+        long seenInvalidations = invalidations.get();
+        HeatmapTile tile = render(z, x, y, days, offenseGroups);
+        // a tile rendered while reports were being invalidated may miss them, serve it but do not cache it
+        if (invalidations.get() == seenInvalidations) {
+            cache.put(key, new CachedTile(tile, today));
+        }
+        return tile;
+    }
+
+    @Override
+    public int invalidate(Collection<CrimeReport> reports) {
+        Set<TileKey> affected = new HashSet<>();
+        for (CrimeReport report : reports) {
+            if (report.getBlurredLatitude() == null || report.getBlurredLongitude() == null) {
+                continue;
+            }
+            for (int z = minZoom; z <= maxZoom; z++) {
+                double px = GeoUtils.lonToTileX(report.getBlurredLongitude(), z) * HeatmapRaster.SIZE;
+                double py = GeoUtils.latToTileY(report.getBlurredLatitude(), z) * HeatmapRaster.SIZE;
+                // the kernel reaches into the neighbouring tiles near the edges
+                for (long tx = tile(px - radiusPx); tx <= tile(px + radiusPx); tx++) {
+                    for (long ty = tile(py - radiusPx); ty <= tile(py + radiusPx); ty++) {
+                        affected.add(new TileKey(z, (int) tx, (int) ty, 0, null));
+                    }
+                }
+            }
+        }
+        if (affected.isEmpty()) {
+            return 0;
+        }
+        invalidations.incrementAndGet();
+        int removed = 0;
+        synchronized (cache) {
+            var it = cache.keySet().iterator();
+            while (it.hasNext()) {
+                TileKey key = it.next();
+                if (affected.contains(new TileKey(key.z, key.x, key.y, 0, null))) {
+                    it.remove();
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        invalidations.incrementAndGet();
+        cache.clear();
+    }
+
+    private HeatmapTile render(int z, int x, int y, int days, List<String> offenseGroups) {
+        long mask = 0L;
+        if (offenseGroups != null && !offenseGroups.isEmpty()) {
+            mask = index.getDictionary().maskOf(offenseGroups);
+            if (mask == 0L) {
+                return newTile(HeatmapRaster.compute(new double[0], new double[0], 0, radiusPx, saturation,
+                    ForkJoinPool.commonPool()));
+            }
+        }
+        double pad = (double) radiusPx / HeatmapRaster.SIZE;
+        double west = GeoUtils.tileXToLon(x - pad, z);
+        double east = GeoUtils.tileXToLon(x + 1 + pad, z);
+        double north = GeoUtils.tileYToLat(y - pad, z);
+        double south = GeoUtils.tileYToLat(y + 1 + pad, z);
+        LocalDateTime to = LocalDateTime.now();
+
+        double[][] points = {new double[64], new double[64]};
+        int[] count = new int[1];
+        index.forEachInBounds(south, west, north, east, to.minusDays(days), to, mask, (lat, lon, t, groups) -> {
+            if (count[0] == points[0].length) {
+                points[0] = Arrays.copyOf(points[0], count[0] * 2);
+                points[1] = Arrays.copyOf(points[1], count[0] * 2);
+            }
+            points[0][count[0]] = (GeoUtils.lonToTileX(lon, z) - x) * HeatmapRaster.SIZE;
+            points[1][count[0]] = (GeoUtils.latToTileY(lat, z) - y) * HeatmapRaster.SIZE;
+            count[0]++;
+        });
+        return newTile(HeatmapRaster.compute(points[0], points[1], count[0], radiusPx, saturation,
+            ForkJoinPool.commonPool()));
+    }
+
+    private HeatmapTile newTile(HeatmapRaster raster) {
+        return new HeatmapTile("hm-" + Long.toHexString(generation.incrementAndGet()), raster);
+    }
+
+    private static long tile(double pixel) {
+        return (long) Math.floor(pixel / HeatmapRaster.SIZE);
+    }
+
+    private static String normalizeGroups(List<String> offenseGroups) {
+        if (offenseGroups == null || offenseGroups.isEmpty()) {
+            return "";
+        }
+        return offenseGroups.stream()
+            .map(g -> g.trim().toUpperCase(Locale.ROOT))
+            .distinct()
+            .sorted()
+            .reduce((a, b) -> a + "," + b)
+            .orElse("");
+    }
+
+    private static final class TileKey {
+        final int z;
+        final int x;
+        final int y;
+        final int days;
+        final String groups;
+
+        TileKey(int z, int x, int y, int days, String groups) {
+            this.z = z;
+            this.x = x;
+            this.y = y;
+            this.days = days;
+            this.groups = groups;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TileKey)) {
+                return false;
+            }
+            TileKey k = (TileKey) o;
+            return z == k.z && x == k.x && y == k.y && days == k.days && Objects.equals(groups, k.groups);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(z, x, y, days, groups);
+        }
+    }
+
+    private static final class CachedTile {
+        final HeatmapTile tile;
+        final LocalDate day;
+
+        CachedTile(HeatmapTile tile, LocalDate day) {
+            this.tile = tile;
+            this.day = day;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.safepath.service.impl;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.safepath.index.SegmentIncidentCounters;
+import com.safepath.index.SegmentSpatialIndex;
+import com.safepath.model.CrimeReport;
+import com.safepath.model.SegmentIncidentCounter;
+import com.safepath.model.StreetSegmentRisk;
+import com.safepath.repository.ReportOffenseRepository;
+import com.safepath.repository.SegmentIncidentCounterRepository;
+import com.safepath.repository.StreetSegmentRepository;
+import com.safepath.repository.StreetSegmentRiskRepository;
+import com.safepath.service.IncrementalRiskService;
+
+/**
+ * Incremental risk updates between batch clustering runs.
+ * The feature engineering follows {@code build_feature_frame} and the scoring
+ * follows {@code cluster_segments} in segment_risk_clustering.py: features are
+ * standardised with the statistics of the current segment population and each
+ * segment is assigned to the nearest centroid of the clusters produced by the
+ * last batch run. Like the batch job, the counters count located offenses by
+ * offense_date, so a report adds one incident per offense and none without
+ * offenses; reports already counted in the window are not counted again.
+ */
+@Service
+public class IncrementalRiskServiceImpl implements IncrementalRiskService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalRiskServiceImpl.class);
+
+    private static final int FEATURES = 3;
+    private static final int OFFENSE_QUERY_CHUNK = 1000;
+
+    private final SegmentSpatialIndex segmentIndex;
+    private final StreetSegmentRepository segmentRepository;
+    private final StreetSegmentRiskRepository riskRepository;
+    private final ReportOffenseRepository offenseRepository;
+    private final SegmentIncidentCounterRepository counterRepository;
+    private final SegmentIncidentCounters counters;
+
+    // reports whose offenses are in the counters, with their latest offense date
+    private final Map<String, LocalDateTime> countedReports = new HashMap<>();
+    private volatile ClusterModel model;
+    private volatile boolean ready = false;
+
+    public IncrementalRiskServiceImpl(SegmentSpatialIndex segmentIndex,
+                                      StreetSegmentRepository segmentRepository,
+                                      StreetSegmentRiskRepository riskRepository,
+                                      ReportOffenseRepository offenseRepository,
+                                      SegmentIncidentCounterRepository counterRepository,
+                                      @Value("${safepath.risk-score.incremental.lookback-days:90}") int lookbackDays,
+                                      @Value("${safepath.risk-score.incremental.recent-days:30}") int recentDays) {
+        this.segmentIndex = segmentIndex;
+        this.segmentRepository = segmentRepository;
+        this.riskRepository = riskRepository;
+        this.offenseRepository = offenseRepository;
+        this.counterRepository = counterRepository;
+        this.counters = new SegmentIncidentCounters(lookbackDays, recentDays);
+    }
+
+    @Override
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        segmentIndex.reload();
+        LocalDate today = LocalDate.now();
+        counters.reset(segmentIndex.size(), today);
+
+        countedReports.clear();
+        List<Object[]> rows = offenseRepository.findLocatedOffensesSince(windowStart());
+        BitSet affected = new BitSet();
+        int matched = count(rows, affected);
+        logger.info("Incremental risk counters rebuilt: {}/{} incidents matched to segments in {} ms",
+            matched, rows.size(), System.currentTimeMillis() - started);
+
+        model = buildModel();
+        ready = true;
+
+        persistCounters(affected);
+    }
+
+    @Override
+    public synchronized void reloadModel() {
+        if (!ready) {
+            return;
+        }
+        model = buildModel();
+    }
+
+    @Override
+    public synchronized int applyReports(Collection<CrimeReport> reports) {
+        if (!ready) {
+            // the initial rebuild reads these reports from the database
+            return 0;
+        }
+        List<String> numbers = reports.stream().map(CrimeReport::getReportNumber)
+            .filter(n -> n != null && !countedReports.containsKey(n)).distinct().toList();
+        LocalDateTime since = windowStart();
+        BitSet affected = new BitSet();
+        for (int from = 0; from < numbers.size(); from += OFFENSE_QUERY_CHUNK) {
+            List<String> chunk = numbers.subList(from, Math.min(numbers.size(), from + OFFENSE_QUERY_CHUNK));
+            count(offenseRepository.findLocatedOffensesOf(chunk, since), affected);
+        }
+        if (affected.isEmpty()) {
+            return 0;
+        }
+        persistCounters(affected);
+        return rescore(affected);
+    }
+
+    @Override
+    public synchronized int expireWindow() {
+        if (!ready) {
+            return 0;
+        }
+        BitSet changed = counters.advanceTo(LocalDate.now());
+        LocalDateTime since = windowStart();
+        countedReports.values().removeIf(latest -> latest.isBefore(since));
+        if (changed.isEmpty()) {
+            return 0;
+        }
+        persistCounters(changed);
+        int updated = rescore(changed);
+        logger.info("Expired incident window, re-scored {} segments", updated);
+        return updated;
+    }
+
+    /**
+     * Adds located offense rows to the counters and records their reports as counted.
+     *
+     * @return number of offenses matched to a segment
+     */
+    private int count(List<Object[]> rows, BitSet affected) {
+        int matched = 0;
+        for (Object[] row : rows) {
+            LocalDateTime when = (LocalDateTime) row[0];
+            if (when == null) {
+                continue;
+            }
+            countedReports.merge((String) row[4], when, (a, b) -> a.isAfter(b) ? a : b);
+            int ordinal = segmentOrdinal((String) row[3], ((Number) row[1]).doubleValue(), ((Number) row[2]).doubleValue());
+            if (ordinal >= 0 && counters.add(ordinal, when)) {
+                affected.set(ordinal);
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    private LocalDateTime windowStart() {
+        return LocalDate.now().minusDays(counters.getLookbackDays() - 1L).atStartOfDay();
+    }
+
+    /**
+     * Ordinal of the segment stored on the report, matching the coordinates only for reports
+     * that were not snapped yet.
+     *
+     * @return the ordinal, or -1 if no segment is close enough
+     */
+    private int segmentOrdinal(String unitid, double lat, double lon) {
+        if (unitid != null) {
+            int ordinal = segmentIndex.ordinalOf(unitid);
+            if (ordinal >= 0) {
+                return ordinal;
+            }
+        }
+        SegmentSpatialIndex.Match match = segmentIndex.nearest(lat, lon);
+        return match == null ? -1 : match.ordinal;
+    }
+
+    private int rescore(BitSet ordinals) {
+        ClusterModel m = model;
+        if (m == null) {
+            logger.debug("No cluster model loaded yet; counters updated without re-scoring");
+            return 0;
+        }
+        List<String> unitids = new ArrayList<>(ordinals.cardinality());
+        for (int i = ordinals.nextSetBit(0); i >= 0; i = ordinals.nextSetBit(i + 1)) {
+            unitids.add(segmentIndex.unitidAt(i));
+        }
+        Map<String, StreetSegmentRisk> existing = riskRepository.findAllById(unitids).stream()
+            .collect(Collectors.toMap(StreetSegmentRisk::getUnitid, Function.identity()));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<StreetSegmentRisk> changed = new ArrayList<>(unitids.size());
+        for (int i = ordinals.nextSetBit(0); i >= 0; i = ordinals.nextSetBit(i + 1)) {
+            String unitid = segmentIndex.unitidAt(i);
+            SegmentIncidentCounters.Totals totals = counters.totals(i);
+            double[] features = features(i, totals);
+            int clusterId = m.nearestCluster(features);
+
+            StreetSegmentRisk risk = existing.get(unitid);
+            if (risk == null) {
+                risk = new StreetSegmentRisk();
+                risk.setStreetSegment(segmentRepository.getReferenceById(unitid));
+                risk.setModelVersion(m.modelVersion);
+            }
+            risk.setClusterId(clusterId);
+            risk.setRiskLabel(m.labels.getOrDefault(clusterId, "UNKNOWN"));
+            risk.setRiskScore(m.score(features[0]));
+            risk.setIncidentDensity(features[0]);
+            risk.setNightFraction(features[1]);
+            risk.setLast90dIncidents(totals.incidents);
+            risk.setOverrideReason(String.format("%d incidents in %dd, night %.0f%%, trend x%.2f",
+                totals.incidents, counters.getLookbackDays(), features[1] * 100, features[2]));
+            risk.setUpdatedAt(now);
+            changed.add(risk);
+        }
+        riskRepository.saveAll(changed);
+        return changed.size();
+    }
+
+    private void persistCounters(BitSet ordinals) {
+        LocalDateTime now = LocalDateTime.now();
+        List<SegmentIncidentCounter> rows = new ArrayList<>(ordinals.cardinality());
+        for (int i = ordinals.nextSetBit(0); i >= 0; i = ordinals.nextSetBit(i + 1)) {
+            SegmentIncidentCounters.Totals totals = counters.totals(i);
+            SegmentIncidentCounter row = new SegmentIncidentCounter();
+            row.setUnitid(segmentIndex.unitidAt(i));
+            row.setIncidents90d(totals.incidents);
+            row.setNightIncidents(totals.nightIncidents);
+            row.setRecentIncidents(totals.recentIncidents);
+            row.setPreviousIncidents(totals.previousIncidents);
+            row.setUpdatedAt(now);
+            rows.add(row);
+        }
+        counterRepository.saveAll(rows);
+    }
+
+    /**
+     * [incident_density, night_fraction, trend_ratio] as in build_feature_frame.
+     */
+    private double[] features(int ordinal, SegmentIncidentCounters.Totals totals) {
+        double length = segmentIndex.lengthAt(ordinal);
+        double effectiveLength = Math.max(Double.isNaN(length) ? 100.0 : length, 50.0);
+        double density = totals.incidents / effectiveLength;
+        double nightFraction = totals.incidents > 0 ? (double) totals.nightIncidents / totals.incidents : 0.0;
+        double trendRatio = (totals.recentIncidents + 1.0) / (totals.previousIncidents + 1.0);
+        return new double[] {density, nightFraction, trendRatio};
+    }
+
+    /**
+     * Derives scaler statistics, centroids and labels from the clusters written
+     * by the last batch run and the current counters.
+     */
+    private ClusterModel buildModel() {
+        List<Object[]> assignments = riskRepository.findAllClusterAssignments();
+        if (assignments.isEmpty()) {
+            logger.info("No batch risk scores found; incremental re-scoring waits for the first clustering run");
+            return null;
+        }
+        int n = counters.segmentCount();
+        double[][] features = new double[n][];
+        double[] mean = new double[FEATURES];
+        double densityMin = Double.MAX_VALUE;
+        double densityMax = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            features[i] = features(i, counters.totals(i));
+            for (int f = 0; f < FEATURES; f++) {
+                mean[f] += features[i][f] / n;
+            }
+            densityMin = Math.min(densityMin, features[i][0]);
+            densityMax = Math.max(densityMax, features[i][0]);
+        }
+        double[] std = new double[FEATURES];
+        for (int i = 0; i < n; i++) {
+            for (int f = 0; f < FEATURES; f++) {
+                double d = features[i][f] - mean[f];
+                std[f] += d * d / n;
+            }
+        }
+        for (int f = 0; f < FEATURES; f++) {
+            // StandardScaler leaves zero-variance features unscaled
+            std[f] = std[f] > 0 ? Math.sqrt(std[f]) : 1.0;
+        }
+
+        Map<Integer, double[]> sums = new HashMap<>();
+        Map<Integer, Integer> sizes = new HashMap<>();
+        Map<Integer, String> labels = new HashMap<>();
+        String modelVersion = null;
+        for (Object[] row : assignments) {
+            if (modelVersion == null) {
+                modelVersion = (String) row[3];
+            }
+            int ordinal = segmentIndex.ordinalOf((String) row[0]);
+            Integer clusterId = (Integer) row[1];
+            if (ordinal < 0 || ordinal >= n || clusterId == null) {
+                continue;
+            }
+            labels.putIfAbsent(clusterId, (String) row[2]);
+            double[] sum = sums.computeIfAbsent(clusterId, k -> new double[FEATURES]);
+            for (int f = 0; f < FEATURES; f++) {
+                sum[f] += (features[ordinal][f] - mean[f]) / std[f];
+            }
+            sizes.merge(clusterId, 1, Integer::sum);
+        }
+        Map<Integer, double[]> centroids = new HashMap<>();
+        for (Map.Entry<Integer, double[]> e : sums.entrySet()) {
+            double[] c = e.getValue();
+            int size = sizes.get(e.getKey());
+            for (int f = 0; f < FEATURES; f++) {
+                c[f] /= size;
+            }
+            centroids.put(e.getKey(), c);
+        }
+        logger.info("Loaded {} cluster centroids for incremental re-scoring", centroids.size());
+        return new ClusterModel(mean, std, centroids, labels, densityMin, densityMax, modelVersion);
+    }
+
+    private static final class ClusterModel {
+        final double[] mean;
+        final double[] std;
+        final Map<Integer, double[]> centroids;
+        final Map<Integer, String> labels;
+        final double densityMin;
+        final double densityMax;
+        final String modelVersion;
+
+        ClusterModel(double[] mean, double[] std, Map<Integer, double[]> centroids, Map<Integer, String> labels,
+                     double densityMin, double densityMax, String modelVersion) {
+            this.mean = mean;
+            this.std = std;
+            this.centroids = centroids;
+            this.labels = labels;
+            this.densityMin = densityMin;
+            this.densityMax = densityMax;
+            this.modelVersion = modelVersion;
+        }
+
+        int nearestCluster(double[] features) {
+            int best = -1;
+            double bestDistance = Double.MAX_VALUE;
+            for (Map.Entry<Integer, double[]> e : centroids.entrySet()) {
+                double d = 0;
+                for (int f = 0; f < FEATURES; f++) {
+                    double diff = (features[f] - mean[f]) / std[f] - e.getValue()[f];
+                    d += diff * diff;
+                }
+                if (d < bestDistance) {
+                    bestDistance = d;
+                    best = e.getKey();
+                }
+            }
+            return best;
+        }
+
+        double score(double density) {
+            if (densityMax - densityMin < 1e-9) {
+                return 0.0;
+            }
+            return Math.min(1.0, Math.max(0.0, (density - densityMin) / (densityMax - densityMin)));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.safepath.service.impl;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import com.safepath.model.JobLease;
+import com.safepath.repository.JobLeaseRepository;
+import com.safepath.service.JobLeaseService;
+
+@Service
+public class JobLeaseServiceImpl implements JobLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobLeaseServiceImpl.class);
+
+    private final JobLeaseRepository repository;
+    private final TaskScheduler taskScheduler;
+    private final String ownerId;
+
+    public JobLeaseServiceImpl(JobLeaseRepository repository, TaskScheduler taskScheduler) {
+        this.repository = repository;
+        this.taskScheduler = taskScheduler;
+        this.ownerId = hostName() + ":" + UUID.randomUUID();
+    }
+
+    @Override
+    public boolean tryAcquire(String jobName, Duration ttl) {
+        ensureRow(jobName);
+        LocalDateTime now = LocalDateTime.now();
+        boolean acquired = repository.tryAcquire(jobName, ownerId, now, now.plus(ttl)) == 1;
+        if (!acquired) {
+            logger.info("Lease for {} is held by another run, skipping", jobName);
+        }
+        return acquired;
+    }
+
+    @Override
+    public Optional<Lease> hold(String jobName, Duration ttl) {
+        if (!tryAcquire(jobName, ttl)) {
+            return Optional.empty();
+        }
+        HeldLease lease = new HeldLease(jobName, ttl);
+        Duration every = ttl.dividedBy(3);
+        lease.heartbeat = taskScheduler.scheduleAtFixedRate(lease::renew, Instant.now().plus(every), every);
+        return Optional.of(lease);
+    }
+
+    @Override
+    public boolean renew(String jobName, Duration ttl) {
+        return repository.renew(jobName, ownerId, LocalDateTime.now().plus(ttl)) == 1;
+    }
+
+    @Override
+    public void release(String jobName) {
+        repository.release(jobName, ownerId);
+    }
+
+    @Override
+    public void recordSuccess(String jobName, LocalDateTime at) {
+        ensureRow(jobName);
+        repository.recordSuccess(jobName, at);
+    }
+
+    @Override
+    public Optional<LocalDateTime> getLastSuccess(String jobName) {
+        return repository.findById(jobName).map(JobLease::getLastSuccessAt);
+    }
+
+    @Override
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    private void ensureRow(String jobName) {
+        if (repository.existsById(jobName)) {
+            return;
+        }
+        try {
+            repository.saveAndFlush(new JobLease(jobName));
+        } catch (DataIntegrityViolationException e) {
+            // another node created the row first
+            logger.debug("Lease row for {} already created", jobName);
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown-host";
+        }
+    }
+
+    private final class HeldLease implements Lease {
+
+        private final String jobName;
+        private final Duration ttl;
+        private volatile ScheduledFuture<?> heartbeat;
+        private volatile boolean held = true;
+
+        HeldLease(String jobName, Duration ttl) {
+            this.jobName = jobName;
+            this.ttl = ttl;
+        }
+
+        void renew() {
+            try {
+                if (!JobLeaseServiceImpl.this.renew(jobName, ttl)) {
+                    held = false;
+                    heartbeat.cancel(false);
+                    logger.warn("Lost the lease for {}", jobName);
+                }
+            } catch (Exception e) {
+                // the next beat tries again, the ttl covers a few failures
+                logger.warn("Failed to renew the lease for {}: {}", jobName, e.getMessage());
+            }
+        }
+
+        @Override
+        public boolean isHeld() {
+            return held;
+        }
+
+        @Override
+        public void close() {
+            heartbeat.cancel(false);
+            try {
+                release(jobName);
+            } catch (Exception e) {
+                logger.warn("Failed to release the lease for {}: {}", jobName, e.getMessage());
+            }
+        }
+    }
+}
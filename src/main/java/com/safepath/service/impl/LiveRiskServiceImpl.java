@@ -0,0 +1,116 @@
+package com.safepath.service.impl;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.safepath.index.LiveRiskOverlay;
+import com.safepath.index.SegmentSpatialIndex;
+import com.safepath.model.RealtimeIncident;
+import com.safepath.service.LiveRiskService;
+
+/**
+ * Live risk overlay backed by {@link LiveRiskOverlay}. Incidents are matched to segments with
+ * the {@link SegmentSpatialIndex}; a segment's decayed incident count c is turned into a live
+ * score c / (c + saturation), and blending moves the model score towards 1 by weight x live score.
+ * Reads only touch the index snapshot and one overlay cell, so scoring APIs can call
+ * {@link #liveScore(String)} per point without adding a query.
+ */
+@Service
+public class LiveRiskServiceImpl implements LiveRiskService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveRiskServiceImpl.class);
+
+    private final SegmentSpatialIndex segmentIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final LiveRiskOverlay overlay;
+
+    @Value("${safepath.live-risk.enabled:true}")
+    private boolean enabled;
+
+    @Value("${safepath.live-risk.saturation:3}")
+    private double saturation;
+
+    @Value("${safepath.live-risk.weight:0.5}")
+    private double weight;
+
+    @Value("${safepath.live-risk.seed-hours:12}")
+    private int seedHours;
+
+    private volatile boolean ready = false;
+
+    public LiveRiskServiceImpl(SegmentSpatialIndex segmentIndex,
+                               JdbcTemplate jdbcTemplate,
+                               @Value("${safepath.live-risk.half-life-minutes:60}") double halfLifeMinutes) {
+        this.segmentIndex = segmentIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.overlay = new LiveRiskOverlay(halfLifeMinutes);
+    }
+
+    @Override
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        overlay.reset(segmentIndex.size(), Instant.now().getEpochSecond());
+        LocalDateTime since = LocalDateTime.now().minusHours(seedHours);
+        int[] counts = new int[2];
+        jdbcTemplate.query("SELECT latitude, longitude, event_datetime FROM realtime_incidents "
+                + "WHERE event_datetime > ? AND latitude IS NOT NULL AND longitude IS NOT NULL", rs -> {
+            counts[0]++;
+            Timestamp t = rs.getTimestamp(3);
+            if (add(rs.getDouble(1), rs.getDouble(2), t.toLocalDateTime())) {
+                counts[1]++;
+            }
+        }, since);
+        ready = true;
+        logger.info("Live risk overlay seeded: {}/{} incidents since {} matched to segments in {} ms",
+            counts[1], counts[0], since, System.currentTimeMillis() - started);
+    }
+
+    @Override
+    public int applyIncidents(Collection<RealtimeIncident> incidents) {
+        if (!ready) {
+            return 0;
+        }
+        int matched = 0;
+        for (RealtimeIncident incident : incidents) {
+            if (incident.getLatitude() != null && incident.getLongitude() != null
+                    && incident.getEventDatetime() != null
+                    && add(incident.getLatitude(), incident.getLongitude(), incident.getEventDatetime())) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Override
+    public double liveScore(String unitid) {
+        if (!ready || unitid == null) {
+            return 0.0;
+        }
+        double count = overlay.value(segmentIndex.ordinalOf(unitid), Instant.now().getEpochSecond());
+        return count > 0 ? count / (count + saturation) : 0.0;
+    }
+
+    @Override
+    public double blend(double modelScore, double liveScore) {
+        double model = Math.min(1.0, Math.max(0.0, modelScore));
+        return model + weight * liveScore * (1.0 - model);
+    }
+
+    private boolean add(double lat, double lon, LocalDateTime when) {
+        SegmentSpatialIndex.Match match = segmentIndex.nearest(lat, lon);
+        return match != null
+            && overlay.add(match.ordinal, when.atZone(ZoneId.systemDefault()).toEpochSecond(), 1.0);
+    }
+}
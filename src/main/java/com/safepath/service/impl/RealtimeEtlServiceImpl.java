@@ -0,0 +1,458 @@
+package com.safepath.service.impl;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLConnection;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.safepath.dto.TaskStatusResponse;
+import com.safepath.etl.IncidentIdWindow;
+import com.safepath.etl.MultiRowInsert;
+import com.safepath.etl.RealtimeIncidentRecord;
+import com.safepath.event.RealtimeIncidentsIngestedEvent;
+import com.safepath.model.EtlRun;
+import com.safepath.model.RealtimeIncident;
+import com.safepath.model.Source;
+import com.safepath.service.EtlRunService;
+import com.safepath.service.JobLeaseService;
+import com.safepath.service.RealtimeEtlService;
+import com.safepath.util.RingBuffer;
+
+/**
+ * Fetches the 911 feed and inserts the incidents it does not have yet. Against the Socrata API an
+ * incremental run sends a {@code $where datetime > watermark} query, so only the delta is
+ * transferred; the same filter is applied locally for feeds without query support (files).
+ * <p>
+ * The response is parsed as it streams in and handed to a writer thread of the run through a small
+ * {@link RingBuffer}; a full buffer holds the fetcher back, and a writer that takes nothing for
+ * {@code writer-timeout-seconds} fails the run. The writer drops incident ids seen within the dedupe
+ * window (kept in memory, seeded from the table on the first run), checks the remaining ones against
+ * the table, writes the new ones in multi-row INSERTs and publishes them as a
+ * {@link RealtimeIncidentsIngestedEvent} for in-process consumers. Incidents are immutable in the
+ * feed, so known ones are left as they are.
+ */
+@Service
+public class RealtimeEtlServiceImpl implements RealtimeEtlService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RealtimeEtlServiceImpl.class);
+
+    private static final String DEFAULT_URL = "https://data.seattle.gov/resource/kzjm-xkqj.csv";
+    private static final int REFRESH_INTERVAL_MINUTES = 5;
+    private static final DateTimeFormatter SOQL_DATETIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private static final String INSERT_INCIDENTS = "INSERT IGNORE INTO realtime_incidents "
+        + "(incident_id, incident_type, event_datetime, address, latitude, longitude, report_location, source_id)";
+
+    private final EtlRunService etlRunService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JobLeaseService jobLeaseService;
+    private final TaskExecutor taskExecutor;
+
+    private final ConcurrentMap<String, TaskStatusResponse> statuses = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final IncidentIdWindow seenIds;
+    // writer of the last run; a failed run does not wait for it
+    private volatile Writer lastWriter;
+
+    // Socrata resource, or any URL returning the feed as CSV
+    @Value("${safepath.etl.realtime.url:" + DEFAULT_URL + "}")
+    private String url;
+
+    // incremental runs also fetch incidents up to this much before the watermark, they are published late
+    @Value("${safepath.etl.realtime.overlap-minutes:30}")
+    private int overlapMinutes;
+
+    // most incidents requested per run; a full run takes the latest ones
+    @Value("${safepath.etl.realtime.max-rows:50000}")
+    private int maxRows;
+
+    @Value("${safepath.etl.realtime.timeout-seconds:30}")
+    private int timeoutSeconds;
+
+    @Value("${safepath.etl.insert-rows:1000}")
+    private int insertRows;
+
+    // incidents between fetcher and writer
+    @Value("${safepath.etl.realtime.buffer-size:1024}")
+    private int bufferSize;
+
+    // most incidents the writer takes from the buffer per INSERT
+    @Value("${safepath.etl.realtime.write-batch:500}")
+    private int writeBatch;
+
+    // renewed by a heartbeat while the run lasts, bounds how long a crashed node blocks the others
+    @Value("${safepath.etl.lease-minutes:10}")
+    private long leaseMinutes;
+
+    // a run fails once the writer has not taken an incident from a full buffer for this long
+    @Value("${safepath.etl.realtime.writer-timeout-seconds:120}")
+    private int writerTimeoutSeconds;
+
+    private final long dedupeWindowHours;
+
+    public RealtimeEtlServiceImpl(EtlRunService etlRunService,
+                                  JdbcTemplate jdbcTemplate,
+                                  ApplicationEventPublisher eventPublisher,
+                                  JobLeaseService jobLeaseService,
+                                  @Qualifier("taskExecutor") TaskExecutor taskExecutor,
+                                  @Value("${safepath.etl.realtime.dedupe-window-hours:48}") long dedupeWindowHours,
+                                  @Value("${safepath.etl.realtime.dedupe-max-ids:200000}") int dedupeMaxIds) {
+        this.etlRunService = etlRunService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.jobLeaseService = jobLeaseService;
+        this.taskExecutor = taskExecutor;
+        this.dedupeWindowHours = dedupeWindowHours;
+        this.seenIds = new IncidentIdWindow(TimeUnit.HOURS.toMinutes(dedupeWindowHours), dedupeMaxIds);
+    }
+
+    @Override
+    public TaskStatusResponse startRealtimeIngest(EtlRun.Mode mode) {
+        JobLeaseService.Lease lease = acquire();
+        try {
+            EtlRun run = createRun(mode);
+            TaskStatusResponse status = newStatus(run);
+            taskExecutor.execute(() -> {
+                try {
+                    ingest(run, status);
+                } finally {
+                    release(lease);
+                }
+            });
+            return status;
+        } catch (RuntimeException e) {
+            release(lease);
+            throw e;
+        }
+    }
+
+    @Override
+    public TaskStatusResponse runRealtimeIngest(EtlRun.Mode mode) {
+        JobLeaseService.Lease lease = acquire();
+        try {
+            EtlRun run = createRun(mode);
+            TaskStatusResponse status = newStatus(run);
+            ingest(run, status);
+            return status;
+        } finally {
+            release(lease);
+        }
+    }
+
+    /**
+     * Claims the run on this node and, through the job lease, in the cluster; the lease is
+     * renewed by a heartbeat for as long as the run takes.
+     */
+    private JobLeaseService.Lease acquire() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A realtime ingestion is already running");
+        }
+        try {
+            return jobLeaseService.hold("etl:" + REALTIME_SOURCE_NAME, Duration.ofMinutes(leaseMinutes))
+                .orElseThrow(() -> new IllegalStateException("A realtime ingestion is running on another node"));
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    private void release(JobLeaseService.Lease lease) {
+        try {
+            lease.close();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Override
+    public TaskStatusResponse getStatus(String taskId) {
+        return statuses.get(taskId);
+    }
+
+    private EtlRun createRun(EtlRun.Mode mode) {
+        Source source = etlRunService.findOrCreateSource(REALTIME_SOURCE_NAME, DEFAULT_URL, REFRESH_INTERVAL_MINUTES);
+        return etlRunService.start(source, mode);
+    }
+
+    private TaskStatusResponse newStatus(EtlRun run) {
+        TaskStatusResponse status = new TaskStatusResponse(String.valueOf(run.getEtlId()),
+            TaskStatusResponse.TaskStatus.PENDING);
+        status.setMessage("ETL run created, waiting to be executed...");
+        statuses.put(status.getTaskId(), status);
+        return status;
+    }
+
+    private void ingest(EtlRun run, TaskStatusResponse status) {
+        long started = System.currentTimeMillis();
+        LocalDateTime since = run.getMode() == EtlRun.Mode.INCREMENTAL && run.getWatermarkDatetime() != null
+            ? run.getWatermarkDatetime().minusMinutes(overlapMinutes) : null;
+        LocalDateTime futureLimit = LocalDateTime.now().plusDays(1);
+        status.setStatus(TaskStatusResponse.TaskStatus.RUNNING);
+        status.setStage("fetch");
+        long[] rows = new long[1];
+        long[] delta = new long[1];
+        LocalDateTime[] watermark = new LocalDateTime[1];
+        RingBuffer<RealtimeIncidentRecord> ring = new RingBuffer<>(bufferSize);
+        Writer writer = new Writer(ring, run.getSource());
+        try {
+            Writer previous = lastWriter;
+            if (previous != null && !previous.done.isDone()) {
+                throw new IllegalStateException("The writer of the previous run is still busy");
+            }
+            // not on the shared executor, the fetcher must never wait for a writer queued behind other tasks
+            Thread thread = new Thread(writer, "realtime-etl-writer-" + run.getEtlId());
+            thread.setDaemon(true);
+            lastWriter = writer;
+            thread.start();
+            URLConnection connection = feedUri(since).toURL().openConnection();
+            connection.setConnectTimeout(timeoutSeconds * 1000);
+            connection.setReadTimeout(timeoutSeconds * 1000);
+            try (InputStream in = connection.getInputStream()) {
+                rows[0] = RealtimeIncidentRecord.read(in, r -> {
+                    if (since != null && (r.eventDatetime == null || !r.eventDatetime.isAfter(since))) {
+                        return;
+                    }
+                    if (r.eventDatetime != null && r.eventDatetime.isBefore(futureLimit)
+                            && (watermark[0] == null || r.eventDatetime.isAfter(watermark[0]))) {
+                        watermark[0] = r.eventDatetime;
+                    }
+                    delta[0]++;
+                    if (!ring.offer(r, writerTimeoutSeconds, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("The writer took no incidents for "
+                            + writerTimeoutSeconds + " seconds");
+                    }
+                });
+            } catch (IllegalStateException e) {
+                // the writer failed and closed the buffer, its error is reported below
+                if (!writer.done.isCompletedExceptionally()) {
+                    throw e;
+                }
+            } finally {
+                ring.close();
+            }
+            writer.await();
+
+            etlRunService.succeed(run, rows[0], watermark[0], null);
+            String message = String.format("%d incidents fetched, %d in the delta, %d duplicates, %d inserted",
+                rows[0], delta[0], writer.duplicates, writer.inserted);
+            status.setRowsProcessed(rows[0]);
+            status.setStatus(TaskStatusResponse.TaskStatus.COMPLETED);
+            status.setStage("done");
+            status.setProgress(100);
+            status.setMessage(message);
+            logger.info("Realtime ETL run {} ({}) finished in {} ms: {}", run.getEtlId(), run.getMode(),
+                System.currentTimeMillis() - started, message);
+        } catch (Exception e) {
+            writer.cancelled = true;
+            ring.close();
+            etlRunService.fail(run, rows[0]);
+            status.setStatus(TaskStatusResponse.TaskStatus.FAILED);
+            status.setErrorMessage(e.getMessage());
+            logger.error("Realtime ETL run {} failed", run.getEtlId(), e);
+        } finally {
+            status.setEndTime(LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Consumer side of the ring buffer: takes whatever the fetcher has buffered, drops incidents
+     * already seen, writes the rest with one multi-row INSERT and publishes them.
+     */
+    private final class Writer implements Runnable {
+
+        final RingBuffer<RealtimeIncidentRecord> ring;
+        final Source source;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        // the run failed, what is still buffered is left for the next run
+        volatile boolean cancelled;
+        volatile long duplicates;
+        volatile long inserted;
+
+        Writer(RingBuffer<RealtimeIncidentRecord> ring, Source source) {
+            this.ring = ring;
+            this.source = source;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!seenIds.isSeeded()) {
+                    seedSeenIds();
+                }
+                List<RealtimeIncidentRecord> batch = new ArrayList<>(writeBatch);
+                while (!cancelled && ring.drainTo(batch, writeBatch, 1, TimeUnit.SECONDS) >= 0) {
+                    if (!batch.isEmpty() && !cancelled) {
+                        write(batch);
+                        batch.clear();
+                    }
+                }
+                done.complete(null);
+            } catch (Throwable e) {
+                // release the fetcher, it must not block on a buffer nobody drains
+                ring.close();
+                done.completeExceptionally(e);
+            }
+        }
+
+        void await() throws Exception {
+            try {
+                done.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        private void write(List<RealtimeIncidentRecord> batch) {
+            seenIds.expire(LocalDateTime.now());
+            Map<String, RealtimeIncidentRecord> fresh = new LinkedHashMap<>();
+            long dropped = 0;
+            for (RealtimeIncidentRecord r : batch) {
+                if (seenIds.contains(r.incidentId) || fresh.containsKey(r.incidentId)) {
+                    dropped++;
+                    continue;
+                }
+                fresh.put(r.incidentId, r);
+            }
+            // incidents older than the id window, or stored by another writer, are in the table already;
+            // INSERT IGNORE would skip them, but the event must only carry incidents this run stored
+            for (String id : storedIds(new ArrayList<>(fresh.keySet()), null)) {
+                RealtimeIncidentRecord r = fresh.remove(id);
+                if (r != null) {
+                    seenIds.add(id, r.eventDatetime);
+                    dropped++;
+                }
+            }
+            duplicates += dropped;
+            if (fresh.isEmpty()) {
+                return;
+            }
+
+            List<Object[]> rows = new ArrayList<>(fresh.size());
+            for (RealtimeIncidentRecord r : fresh.values()) {
+                rows.add(new Object[] {r.incidentId, r.incidentType, r.eventDatetime, r.address,
+                    r.latitude, r.longitude, r.reportLocation, source.getSourceId()});
+            }
+            int affected = MultiRowInsert.insert(jdbcTemplate, INSERT_INCIDENTS, 8, rows, insertRows);
+            inserted += affected;
+            // only remembered once stored, a failed write is retried by the next run
+            for (RealtimeIncidentRecord r : fresh.values()) {
+                seenIds.add(r.incidentId, r.eventDatetime);
+            }
+            Collection<RealtimeIncidentRecord> stored = fresh.values();
+            if (affected < rows.size()) {
+                // another writer stored some of them since the check above; the lease keeps other runs
+                // of this source out, so the rows carrying its source id are the ones this run stored
+                Set<String> ours = new HashSet<>(storedIds(new ArrayList<>(fresh.keySet()), source.getSourceId()));
+                stored = fresh.values().stream().filter(r -> ours.contains(r.incidentId)).toList();
+                duplicates += rows.size() - stored.size();
+                logger.warn("{} of {} new realtime incidents were stored concurrently by another writer",
+                    rows.size() - stored.size(), rows.size());
+                if (stored.isEmpty()) {
+                    return;
+                }
+            }
+            List<RealtimeIncident> incidents = new ArrayList<>(stored.size());
+            for (RealtimeIncidentRecord r : stored) {
+                incidents.add(toIncident(r, source));
+            }
+            eventPublisher.publishEvent(new RealtimeIncidentsIngestedEvent(incidents));
+        }
+    }
+
+    private void seedSeenIds() {
+        LocalDateTime from = LocalDateTime.now().minusHours(dedupeWindowHours);
+        jdbcTemplate.query("SELECT incident_id, event_datetime FROM realtime_incidents WHERE event_datetime > ? "
+                + "ORDER BY event_datetime", rs -> {
+            Timestamp t = rs.getTimestamp(2);
+            seenIds.add(rs.getString(1), t == null ? null : t.toLocalDateTime());
+        }, from);
+        seenIds.seeded(from);
+        logger.info("Realtime incident dedupe seeded with {} ids since {}", seenIds.size(), from);
+    }
+
+    /**
+     * @param sourceId only ids stored by this source, null for any
+     */
+    private List<String> storedIds(List<String> ids, Integer sourceId) {
+        List<String> stored = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += insertRows) {
+            List<Object> args = new ArrayList<>(ids.subList(from, Math.min(ids.size(), from + insertRows)));
+            String sql = "SELECT incident_id FROM realtime_incidents WHERE incident_id IN ("
+                + String.join(",", Collections.nCopies(args.size(), "?")) + ")";
+            if (sourceId != null) {
+                sql += " AND source_id = ?";
+                args.add(sourceId);
+            }
+            stored.addAll(jdbcTemplate.queryForList(sql, String.class, args.toArray()));
+        }
+        return stored;
+    }
+
+    private static RealtimeIncident toIncident(RealtimeIncidentRecord r, Source source) {
+        RealtimeIncident incident = new RealtimeIncident();
+        incident.setIncidentId(r.incidentId);
+        incident.setIncidentType(r.incidentType);
+        incident.setEventDatetime(r.eventDatetime);
+        incident.setAddress(r.address);
+        incident.setLatitude(r.latitude);
+        incident.setLongitude(r.longitude);
+        incident.setReportLocation(r.reportLocation);
+        incident.setSource(source);
+        return incident;
+    }
+
+    /**
+     * The feed URL with a SoQL delta query; only http(s) feeds get query parameters.
+     */
+    private URI feedUri(LocalDateTime since) {
+        URI base = URI.create(url);
+        if (base.getScheme() == null || !base.getScheme().startsWith("http")) {
+            return base;
+        }
+        StringBuilder query = new StringBuilder(url).append(url.contains("?") ? '&' : '?');
+        if (since != null) {
+            query.append("$where=").append(encode("datetime > '" + SOQL_DATETIME.format(since) + "'"))
+                .append("&$order=").append(encode("datetime ASC"));
+        } else {
+            query.append("$order=").append(encode("datetime DESC"));
+        }
+        query.append("&$limit=").append(maxRows);
+        return URI.create(query.toString());
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,123 @@
+package com.safepath.service.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.safepath.dto.TaskStatusResponse;
+import com.safepath.event.CrimeReportsIngestedEvent;
+import com.safepath.service.RiskRefreshCoordinator;
+import com.safepath.service.RiskScoreUpdateService;
+
+@Service
+public class RiskRefreshCoordinatorImpl implements RiskRefreshCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(RiskRefreshCoordinatorImpl.class);
+
+    private final RiskScoreUpdateService updateService;
+    private final TaskExecutor taskExecutor;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+    private final AtomicInteger incidentsSinceLastRun = new AtomicInteger();
+
+    @Value("${safepath.risk-score.auto-update.min-interval-hours:1}")
+    private int minIntervalHours;
+
+    // 0 disables the new incident trigger
+    @Value("${safepath.risk-score.schedule.new-incident-threshold:0}")
+    private int newIncidentThreshold;
+
+    public RiskRefreshCoordinatorImpl(RiskScoreUpdateService updateService,
+                                      @Qualifier("taskExecutor") TaskExecutor taskExecutor) {
+        this.updateService = updateService;
+        this.taskExecutor = taskExecutor;
+    }
+
+    @Override
+    public boolean requestRefresh(String reason) {
+        if (!running.compareAndSet(false, true)) {
+            pending.set(true);
+            logger.info("Risk refresh requested by {} while a refresh is running, coalesced into a follow-up run", reason);
+            return false;
+        }
+        logger.info("Risk refresh requested by {}", reason);
+        try {
+            taskExecutor.execute(this::runLoop);
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @EventListener
+    public void onCrimeReportsIngested(CrimeReportsIngestedEvent event) {
+        if (newIncidentThreshold <= 0) {
+            return;
+        }
+        int count = incidentsSinceLastRun.addAndGet(event.getReports().size());
+        if (count >= newIncidentThreshold) {
+            requestRefresh(count + " new incidents");
+        }
+    }
+
+    private void runLoop() {
+        try {
+            do {
+                pending.set(false);
+                runOnce();
+            } while (pending.get());
+        } finally {
+            running.set(false);
+        }
+        // a request that arrived between the last check and clearing the flag
+        if (pending.getAndSet(false)) {
+            requestRefresh("coalesced request");
+        }
+    }
+
+    private void runOnce() {
+        if (updateService.hasRunningTask()) {
+            logger.info("There is a task running, skip the automatic update");
+            return;
+        }
+
+        LocalDateTime lastUpdate = updateService.getLastSuccessfulUpdateTime();
+        if (lastUpdate != null) {
+            long hoursSinceLastUpdate = Duration.between(lastUpdate, LocalDateTime.now()).toHours();
+            if (hoursSinceLastUpdate < minIntervalHours) {
+                logger.info("Only {} hours since the last successful update (minimum {}), skip the automatic update",
+                    hoursSinceLastUpdate, minIntervalHours);
+                return;
+            }
+        }
+
+        int incidents = incidentsSinceLastRun.getAndSet(0);
+        try {
+            TaskStatusResponse status = updateService.runUpdate();
+            logger.info("Automatic risk score update {} finished with status {}",
+                status.getTaskId(), status.getStatus());
+            if (status.getStatus() != TaskStatusResponse.TaskStatus.COMPLETED) {
+                incidentsSinceLastRun.addAndGet(incidents);
+            }
+        } catch (Exception e) {
+            incidentsSinceLastRun.addAndGet(incidents);
+            logger.error("Failed to run the automatic risk score update", e);
+        }
+    }
+}
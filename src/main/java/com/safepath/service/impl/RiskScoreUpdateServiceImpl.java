@@ -3,28 +3,45 @@ package com.safepath.service.impl;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.InputStreamReader;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import com.safepath.dto.TaskStatusResponse;
+import com.safepath.event.RiskModelRefreshedEvent;
+import com.safepath.service.JobLeaseService;
 import com.safepath.service.RiskScoreUpdateService;
+import com.safepath.service.TaskProgressStream;
+import com.safepath.util.BoundedLineBuffer;
 
 /**
  * Risk score update service implementation
  * Asynchronously execute the Python script to update the segment risk score
+ * Only one node in the cluster runs the script at a time (job_leases table)
  */
 @Service
 public class RiskScoreUpdateServiceImpl implements RiskScoreUpdateService {
 
     private static final Logger logger = LoggerFactory.getLogger(RiskScoreUpdateServiceImpl.class);
+
+    public static final String JOB_NAME = "risk-score-update";
+
+    // prefix of the structured progress lines printed by segment_risk_clustering.py
+    private static final String PROGRESS_PREFIX = "PROGRESS ";
     
     // store the task status (in actual project, can use Redis or database)
     private final ConcurrentMap<String, TaskStatusResponse> taskStatusMap = new ConcurrentHashMap<>();
@@ -37,9 +54,39 @@ public class RiskScoreUpdateServiceImpl implements RiskScoreUpdateService {
     
     @Value("${safepath.project.root:}")
     private String projectRoot;
+
+    // the lease is renewed by a heartbeat while the script runs, so this only bounds how long a crashed node blocks others
+    @Value("${safepath.risk-score.lease-minutes:30}")
+    private long leaseMinutes;
+
+    // finished tasks are dropped from the status map after this long, except the latest one
+    @Value("${safepath.risk-score.task-ttl-minutes:60}")
+    private long taskTtlMinutes;
+
+    // only the last lines of the script output are kept for the error message
+    @Value("${safepath.risk-score.output-buffer-lines:200}")
+    private int outputBufferLines;
     
-    // record the last successful update time
-    private LocalDateTime lastSuccessfulUpdateTime = null;
+    // last successful update seen by this node, used when the lease table cannot be read
+    private volatile LocalDateTime lastSuccessfulUpdateTime = null;
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final JobLeaseService jobLeaseService;
+    private final TaskExecutor taskExecutor;
+    private final TaskProgressStream progressStream;
+    private final ObjectMapper objectMapper;
+
+    public RiskScoreUpdateServiceImpl(ApplicationEventPublisher eventPublisher,
+                                      JobLeaseService jobLeaseService,
+                                      @Qualifier("taskExecutor") TaskExecutor taskExecutor,
+                                      TaskProgressStream progressStream,
+                                      ObjectMapper objectMapper) {
+        this.eventPublisher = eventPublisher;
+        this.jobLeaseService = jobLeaseService;
+        this.taskExecutor = taskExecutor;
+        this.progressStream = progressStream;
+        this.objectMapper = objectMapper;
+    }
 
     @Override
     public String triggerUpdate() {
@@ -54,19 +101,39 @@ public class RiskScoreUpdateServiceImpl implements RiskScoreUpdateService {
     
     @Override
     public String triggerUpdateForce() {
+        String taskId = createTask();
+        
+        // asynchronously execute (submitted to the executor, a self-invoked @Async method would run inline)
+        taskExecutor.execute(() -> executeUpdate(taskId));
+        
+        return taskId;
+    }
+
+    @Override
+    public TaskStatusResponse runUpdate() {
+        String taskId = createTask();
+        executeUpdate(taskId);
+        return taskStatusMap.get(taskId);
+    }
+
+    private String createTask() {
+        evictFinishedTasks();
         String taskId = UUID.randomUUID().toString();
         TaskStatusResponse status = new TaskStatusResponse(taskId, TaskStatusResponse.TaskStatus.PENDING);
         status.setMessage("Task created, waiting to be executed...");
         taskStatusMap.put(taskId, status);
         
         logger.info("Trigger the risk score update task: {}", taskId);
-        
-        // asynchronously execute
-        executeUpdateAsync(taskId);
-        
         return taskId;
     }
     
+    private void evictFinishedTasks() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(taskTtlMinutes);
+        TaskStatusResponse latest = getLatestTaskStatus();
+        taskStatusMap.values().removeIf(task -> task != latest
+            && task.getEndTime() != null && task.getEndTime().isBefore(cutoff));
+    }
+
     @Override
     public boolean hasRunningTask() {
         return taskStatusMap.values().stream()
@@ -78,21 +145,36 @@ public class RiskScoreUpdateServiceImpl implements RiskScoreUpdateService {
     
     @Override
     public LocalDateTime getLastSuccessfulUpdateTime() {
-        return lastSuccessfulUpdateTime;
+        try {
+            return jobLeaseService.getLastSuccess(JOB_NAME).orElse(lastSuccessfulUpdateTime);
+        } catch (Exception e) {
+            logger.warn("Could not read the last successful update time from the database: {}", e.getMessage());
+            return lastSuccessfulUpdateTime;
+        }
     }
 
-    @Async
-    public void executeUpdateAsync(String taskId) {
+    private void executeUpdate(String taskId) {
         TaskStatusResponse status = taskStatusMap.get(taskId);
         if (status == null) {
             logger.error("Task not found: {}", taskId);
             return;
         }
+
+        Optional<JobLeaseService.Lease> lease = jobLeaseService.hold(JOB_NAME, Duration.ofMinutes(leaseMinutes));
+        if (lease.isEmpty()) {
+            status.setStatus(TaskStatusResponse.TaskStatus.FAILED);
+            status.setMessage("Another risk score update is running, skipped");
+            status.setEndTime(LocalDateTime.now());
+            progressStream.publish(status);
+            return;
+        }
         
         status.setStatus(TaskStatusResponse.TaskStatus.RUNNING);
         status.setMessage("Executing Python script...");
-        status.setProgress(10);
+        status.setProgress(0);
+        status.setStage("start");
         status.setStartTime(LocalDateTime.now());
+        progressStream.publish(status);
         
         logger.info("Executing the risk score update task: {}", taskId);
         
@@ -125,19 +207,17 @@ public class RiskScoreUpdateServiceImpl implements RiskScoreUpdateService {
             );
             
             String line;
-            int progress = 10;
-            StringBuilder output = new StringBuilder();
+            BoundedLineBuffer output = new BoundedLineBuffer(outputBufferLines);
             
             while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-                logger.info("[Python] {}", line);
-                
-                // simple progress update (can parse more precise progress based on the script output)
-                if (progress < 90) {
-                    progress += 5;
-                    status.setProgress(progress);
-                    status.setMessage("Processing: " + line);
+                if (line.startsWith(PROGRESS_PREFIX)) {
+                    applyProgress(status, line.substring(PROGRESS_PREFIX.length()));
+                    progressStream.publish(status);
+                    continue;
                 }
+                output.add(line);
+                logger.info("[Python] {}", line);
+                status.setMessage("Processing: " + line);
             }
             
             int exitCode = process.waitFor();
@@ -146,10 +226,14 @@ public class RiskScoreUpdateServiceImpl implements RiskScoreUpdateService {
                 status.setStatus(TaskStatusResponse.TaskStatus.COMPLETED);
                 status.setMessage("Risk score update completed!");
                 status.setProgress(100);
+                status.setStage("done");
+                status.setEtaSeconds(0L);
                 status.setEndTime(LocalDateTime.now());
                 // record the last successful update time
                 lastSuccessfulUpdateTime = LocalDateTime.now();
+                jobLeaseService.recordSuccess(JOB_NAME, lastSuccessfulUpdateTime);
                 logger.info("Risk score update task completed: {}", taskId);
+                eventPublisher.publishEvent(new RiskModelRefreshedEvent(taskId, lastSuccessfulUpdateTime));
             } else {
                 status.setStatus(TaskStatusResponse.TaskStatus.FAILED);
                 status.setMessage("Script execution failed, exit code: " + exitCode);
@@ -164,6 +248,31 @@ public class RiskScoreUpdateServiceImpl implements RiskScoreUpdateService {
             status.setErrorMessage(e.getClass().getName() + ": " + e.getMessage());
             status.setEndTime(LocalDateTime.now());
             logger.error("Error executing the risk score update task: {}", taskId, e);
+        } finally {
+            lease.get().close();
+            progressStream.publish(status);
+        }
+    }
+
+    /**
+     * Apply one structured progress line, e.g. {"stage": "persist", "percent": 70, "rows": 5000, "total": 24000}
+     * The ETA is extrapolated linearly from the elapsed time and the reported percentage
+     */
+    private void applyProgress(TaskStatusResponse status, String json) {
+        try {
+            JsonNode node = objectMapper.readTree(json);
+            int percent = Math.max(0, Math.min(100, node.path("percent").asInt(0)));
+            status.setStage(node.path("stage").asText(status.getStage()));
+            status.setProgress(percent);
+            status.setRowsProcessed(node.hasNonNull("rows") ? node.get("rows").asLong() : null);
+            status.setTotalRows(node.hasNonNull("total") ? node.get("total").asLong() : null);
+            status.setMessage("Processing: " + status.getStage());
+            if (percent > 0 && status.getStartTime() != null) {
+                long elapsed = Duration.between(status.getStartTime(), LocalDateTime.now()).getSeconds();
+                status.setEtaSeconds(elapsed * (100 - percent) / percent);
+            }
+        } catch (Exception e) {
+            logger.debug("Ignoring malformed progress line: {}", json);
         }
     }
 
@@ -0,0 +1,85 @@
+package com.safepath.service.impl;
+
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.safepath.index.RiskTilePyramid;
+import com.safepath.repository.StreetSegmentRiskRepository;
+import com.safepath.service.RiskTileService;
+
+@Service
+public class RiskTileServiceImpl implements RiskTileService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RiskTileServiceImpl.class);
+
+    private final StreetSegmentRiskRepository repository;
+
+    @Value("${safepath.tiles.min-zoom:10}")
+    private int minZoom;
+
+    @Value("${safepath.tiles.max-zoom:17}")
+    private int maxZoom;
+
+    // same threshold as the viewport endpoint: individual segments from this zoom on
+    @Value("${safepath.safety.viewport.segment-zoom:15}")
+    private int detailZoom;
+
+    private volatile RiskTilePyramid pyramid;
+
+    public RiskTileServiceImpl(StreetSegmentRiskRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public RiskTilePyramid getPyramid() {
+        RiskTilePyramid p = pyramid;
+        if (p == null) {
+            rebuild();
+            p = pyramid;
+        }
+        return p;
+    }
+
+    @Override
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        List<Object[]> rows = repository.findAllForTiles();
+        int n = rows.size();
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        double[] scores = new double[n];
+        byte[] labels = new byte[n];
+        String modelVersion = null;
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < n; i++) {
+            Object[] row = rows.get(i);
+            lats[i] = ((Number) row[0]).doubleValue();
+            lons[i] = ((Number) row[1]).doubleValue();
+            scores[i] = row[2] == null ? 0.0 : ((Number) row[2]).doubleValue();
+            labels[i] = RiskTilePyramid.labelCode((String) row[3]);
+            if (modelVersion == null) {
+                modelVersion = (String) row[4];
+            }
+            crc.update(Double.toString(lats[i]).getBytes());
+            crc.update(Double.toString(lons[i]).getBytes());
+            crc.update(Double.toString(scores[i]).getBytes());
+            crc.update(labels[i]);
+        }
+        // the model version alone does not change between runs, the checksum covers the data itself
+        String version = (modelVersion == null ? "none" : modelVersion) + "-" + Long.toHexString(crc.getValue());
+
+        RiskTilePyramid current = pyramid;
+        if (current != null && current.getVersion().equals(version)) {
+            logger.debug("Risk tiles unchanged ({})", version);
+            return;
+        }
+        pyramid = RiskTilePyramid.build(version, lats, lons, scores, labels, minZoom, maxZoom, detailZoom);
+        logger.info("Risk tile pyramid {} built: {} segments, {} tiles, {} KB in {} ms", version, n,
+            pyramid.tileCount(), pyramid.byteSize() / 1024, System.currentTimeMillis() - started);
+    }
+}
@@ -10,24 +10,28 @@ import org.springframework.stereotype.Service;
 import com.safepath.dto.GoogleRouteRequest;
 import com.safepath.dto.RouteRiskResponse;
 import com.safepath.repository.StreetSegmentRiskRepository;
+import com.safepath.service.LiveRiskService;
 import com.safepath.service.RouteRiskService;
 import com.safepath.util.PolylineDecoder;
 
 /**
  * Implements route risk scoring by decoding Google polylines and mapping
- * each coordinate to the nearest street segment risk score.
+ * each coordinate to the nearest street segment risk score, optionally blended
+ * with the live overlay of recent realtime incidents.
  */
 @Service
 public class RouteRiskServiceImpl implements RouteRiskService {
 
     private final StreetSegmentRiskRepository riskRepository;
+    private final LiveRiskService liveRiskService;
 
-    public RouteRiskServiceImpl(StreetSegmentRiskRepository riskRepository) {
+    public RouteRiskServiceImpl(StreetSegmentRiskRepository riskRepository, LiveRiskService liveRiskService) {
         this.riskRepository = riskRepository;
+        this.liveRiskService = liveRiskService;
     }
 
     @Override
-    public RouteRiskResponse analyzeRoutes(GoogleRouteRequest request) {
+    public RouteRiskResponse analyzeRoutes(GoogleRouteRequest request, boolean live) {
         List<RouteRiskResponse.RouteRisk> routeRisks = new ArrayList<>();
 
         if (request.getRoutes() == null) {
@@ -52,7 +56,7 @@ public class RouteRiskServiceImpl implements RouteRiskService {
                 for (GoogleRouteRequest.Leg leg : route.getLegs()) {
                     if (leg.getSteps() != null) {
                         for (GoogleRouteRequest.Step step : leg.getSteps()) {
-                            RouteRiskResponse.StepRisk stepRisk = analyzeStep(step);
+                            RouteRiskResponse.StepRisk stepRisk = analyzeStep(step, live);
                             stepRisks.add(stepRisk);
                             totalRouteRisk += stepRisk.getAverageRiskScore();
                             totalSteps++;
@@ -78,7 +82,7 @@ public class RouteRiskServiceImpl implements RouteRiskService {
     /**
      * Analyzes a single step by decoding its polyline and sampling risk at each point.
      */
-    private RouteRiskResponse.StepRisk analyzeStep(GoogleRouteRequest.Step step) {
+    private RouteRiskResponse.StepRisk analyzeStep(GoogleRouteRequest.Step step, boolean live) {
         RouteRiskResponse.StepRisk stepRisk = new RouteRiskResponse.StepRisk();
 
         // Decode polyline into lat/lng coordinates
@@ -111,6 +115,7 @@ public class RouteRiskServiceImpl implements RouteRiskService {
 
         // Query nearest segment for each point and collect risk scores
         List<Double> riskScores = new ArrayList<>();
+        double[] liveSum = {0.0};
         Map<String, Integer> labelCounts = new HashMap<>();
         final int totalPoints = points.size();
         final int[] matchedPoints = {0}; // Use array to allow modification in lambda
@@ -136,7 +141,13 @@ public class RouteRiskServiceImpl implements RouteRiskService {
         
         for (PolylineDecoder.LatLng point : points) {
             riskRepository.findNearestSegment(point.lat, point.lng).ifPresent(risk -> {
-                riskScores.add(risk.getRiskScore());
+                if (live) {
+                    double liveScore = liveRiskService.liveScore(risk.getUnitid());
+                    liveSum[0] += liveScore;
+                    riskScores.add(liveRiskService.blend(risk.getRiskScore(), liveScore));
+                } else {
+                    riskScores.add(risk.getRiskScore());
+                }
                 String label = risk.getRiskLabel() != null ? risk.getRiskLabel() : "UNKNOWN";
                 labelCounts.put(label, labelCounts.getOrDefault(label, 0) + 1);
                 matchedPoints[0]++;
@@ -220,6 +231,9 @@ public class RouteRiskServiceImpl implements RouteRiskService {
             }
         }
         stepRisk.setAverageRiskScore(avgRisk);
+        if (live) {
+            stepRisk.setLiveRiskScore(riskScores.isEmpty() ? 0.0 : liveSum[0] / riskScores.size());
+        }
         
         logger.info("Step average risk score: {} (from {} matched points out of {} total points)", 
             avgRisk, riskScores.size(), totalPoints);
@@ -1,29 +1,49 @@
 package com.safepath.service.impl;
 
+import com.safepath.dto.RiskCellDto;
 import com.safepath.dto.StreetSegmentRiskDto;
-import com.safepath.model.StreetSegment;
-import com.safepath.model.StreetSegmentRisk;
+import com.safepath.dto.ViewportRiskResponse;
 import com.safepath.repository.StreetSegmentRiskRepository;
+import com.safepath.service.LiveRiskService;
 import com.safepath.service.SafetyRecommendationService;
+import com.safepath.util.GeoUtils;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 
 @Service
+@Transactional(readOnly = true)
 public class SafetyRecommendationServiceImpl implements SafetyRecommendationService {
 
+    // 8x8 cells per 256px map tile, ~32px per cell on screen
+    private static final int CELL_ZOOM_OFFSET = 3;
+
     private final StreetSegmentRiskRepository repository;
+    private final LiveRiskService liveRiskService;
+
+    // from this zoom level on individual segments are returned instead of cells
+    @Value("${safepath.safety.viewport.segment-zoom:15}")
+    private int segmentZoom;
 
-    public SafetyRecommendationServiceImpl(StreetSegmentRiskRepository repository) {
+    public SafetyRecommendationServiceImpl(StreetSegmentRiskRepository repository, LiveRiskService liveRiskService) {
         this.repository = repository;
+        this.liveRiskService = liveRiskService;
     }
 
     @Override
-    public Optional<StreetSegmentRiskDto> getRiskBySegment(String unitid) {
+    public Optional<StreetSegmentRiskDto> getRiskBySegment(String unitid, boolean live) {
         Assert.hasText(unitid, "unitid must not be blank");
-        return repository.findByUnitidWithSegment(unitid).map(this::toDto);
+        Optional<StreetSegmentRiskDto> dto = repository.findDtoByUnitid(unitid);
+        if (live) {
+            dto.ifPresent(this::applyLiveScore);
+        }
+        return dto;
     }
 
     @Override
@@ -31,35 +51,99 @@ public class SafetyRecommendationServiceImpl implements SafetyRecommendationServ
         double west,
         double south,
         double east,
-        double north
+        double north,
+        boolean live
     ) {
         Assert.isTrue(east >= west, "east must be greater than or equal to west");
         Assert.isTrue(north >= south, "north must be greater than or equal to south");
-        return repository.findWithinBounds(west, south, east, north).stream()
-            .map(this::toDto)
-            .collect(Collectors.toList());
+        List<StreetSegmentRiskDto> dtos = repository.findDtosWithinBounds(west, south, east, north);
+        if (live) {
+            dtos.forEach(this::applyLiveScore);
+        }
+        return dtos;
     }
 
-    private StreetSegmentRiskDto toDto(StreetSegmentRisk risk) {
-        StreetSegmentRiskDto dto = new StreetSegmentRiskDto();
-        dto.setUnitid(risk.getUnitid());
-        dto.setRiskLabel(risk.getRiskLabel());
-        dto.setRiskScore(risk.getRiskScore());
-        dto.setClusterId(risk.getClusterId());
-        dto.setIncidentDensity(risk.getIncidentDensity());
-        dto.setNightFraction(risk.getNightFraction());
-        dto.setLast90dIncidents(risk.getLast90dIncidents());
-        dto.setModelVersion(risk.getModelVersion());
-        dto.setOverrideReason(risk.getOverrideReason());
-        dto.setUpdatedAt(risk.getUpdatedAt());
-
-        StreetSegment segment = risk.getStreetSegment();
-        if (segment != null) {
-            dto.setStreetName(segment.getOnstreet());
-            dto.setLatitude(segment.getGisMidY());
-            dto.setLongitude(segment.getGisMidX());
+    @Override
+    public ViewportRiskResponse getRisksForViewport(
+        double west,
+        double south,
+        double east,
+        double north,
+        int zoom,
+        boolean live
+    ) {
+        Assert.isTrue(zoom >= 0 && zoom <= 22, "zoom must be between 0 and 22");
+        ViewportRiskResponse response = new ViewportRiskResponse();
+        response.setZoom(zoom);
+        if (zoom >= segmentZoom) {
+            response.setMode(ViewportRiskResponse.Mode.SEGMENTS);
+            response.setSegments(getRisksByBoundingBox(west, south, east, north, live));
+            response.setLive(live);
+            return response;
         }
-        return dto;
+
+        Assert.isTrue(east >= west, "east must be greater than or equal to west");
+        Assert.isTrue(north >= south, "north must be greater than or equal to south");
+        // cells are the Web Mercator tiles a few zoom levels down, so they line up with the map tiles
+        // and panning does not change cell boundaries
+        int cellZoom = zoom + CELL_ZOOM_OFFSET;
+        response.setMode(ViewportRiskResponse.Mode.CELLS);
+        response.setCellSizeDegrees(360.0 / (1L << cellZoom));
+        response.setCells(aggregateCells(west, south, east, north, cellZoom));
+        // cells are aggregated from the model scores, there is no live overlay for them
+        response.setLive(false);
+        return response;
+    }
+
+    private void applyLiveScore(StreetSegmentRiskDto dto) {
+        double liveScore = liveRiskService.liveScore(dto.getUnitid());
+        dto.setLiveRiskScore(liveScore);
+        if (dto.getRiskScore() != null) {
+            dto.setRiskScore(liveRiskService.blend(dto.getRiskScore(), liveScore));
+        }
+    }
+
+    private List<RiskCellDto> aggregateCells(double west, double south, double east, double north, int cellZoom) {
+        // one row per cell and label, merged into one cell with a label histogram
+        Map<Long, RiskCellDto> cells = new LinkedHashMap<>();
+        Map<Long, double[]> sums = new LinkedHashMap<>();
+        for (Object[] row : repository.aggregateWithinBounds(west, south, east, north, 1L << cellZoom)) {
+            long cellX = ((Number) row[0]).longValue();
+            long cellY = ((Number) row[1]).longValue();
+            String label = (String) row[2];
+            int count = ((Number) row[3]).intValue();
+            double maxScore = ((Number) row[4]).doubleValue();
+            long key = (cellX << 32) ^ (cellY & 0xffffffffL);
+
+            RiskCellDto dto = cells.computeIfAbsent(key, k -> {
+                RiskCellDto c = new RiskCellDto();
+                // tile rows count from the north
+                c.setWest(GeoUtils.tileXToLon(cellX, cellZoom));
+                c.setSouth(GeoUtils.tileYToLat(cellY + 1, cellZoom));
+                c.setEast(GeoUtils.tileXToLon(cellX + 1, cellZoom));
+                c.setNorth(GeoUtils.tileYToLat(cellY, cellZoom));
+                return c;
+            });
+            double[] sum = sums.computeIfAbsent(key, k -> new double[3]);
+            sum[0] += ((Number) row[5]).doubleValue();
+            sum[1] += ((Number) row[6]).doubleValue();
+            sum[2] += ((Number) row[7]).doubleValue();
+
+            dto.setSegmentCount(dto.getSegmentCount() + count);
+            dto.setMaxRiskScore(dto.getMaxRiskScore() == null ? maxScore : Math.max(dto.getMaxRiskScore(), maxScore));
+            dto.getLabelCounts().merge(label, count, Integer::sum);
+        }
+
+        List<RiskCellDto> result = new ArrayList<>(cells.size());
+        for (Map.Entry<Long, RiskCellDto> e : cells.entrySet()) {
+            RiskCellDto dto = e.getValue();
+            double[] sum = sums.get(e.getKey());
+            dto.setMeanRiskScore(sum[0] / dto.getSegmentCount());
+            dto.setLatitude(sum[1] / dto.getSegmentCount());
+            dto.setLongitude(sum[2] / dto.getSegmentCount());
+            result.add(dto);
+        }
+        return result;
     }
 }
 
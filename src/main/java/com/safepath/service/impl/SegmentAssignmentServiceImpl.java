@@ -0,0 +1,108 @@
+package com.safepath.service.impl;
+
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.safepath.index.SegmentSpatialIndex;
+import com.safepath.model.CrimeReport;
+import com.safepath.repository.CrimeReportRepository;
+import com.safepath.service.SegmentAssignmentService;
+
+@Service
+public class SegmentAssignmentServiceImpl implements SegmentAssignmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentAssignmentServiceImpl.class);
+
+    // only rows still unmatched are written, so a report saved while the backfill runs keeps its own match
+    private static final String UPDATE_SQL = "UPDATE crime_reports SET unitid = ?, snapped_distance_m = ? "
+        + "WHERE report_number = ? AND snapped_distance_m IS NULL";
+
+    private final SegmentSpatialIndex segmentIndex;
+    private final CrimeReportRepository crimeReportRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${safepath.segments.backfill-chunk-size:5000}")
+    private int chunkSize;
+
+    public SegmentAssignmentServiceImpl(SegmentSpatialIndex segmentIndex,
+                                        CrimeReportRepository crimeReportRepository,
+                                        JdbcTemplate jdbcTemplate) {
+        this.segmentIndex = segmentIndex;
+        this.crimeReportRepository = crimeReportRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean assign(CrimeReport report) {
+        if (report.getBlurredLatitude() == null || report.getBlurredLongitude() == null) {
+            report.setUnitid(null);
+            report.setSnappedDistanceM(null);
+            return false;
+        }
+        if (segmentIndex.size() == 0) {
+            // leave the report for the backfill instead of marking it unmatched
+            return false;
+        }
+        SegmentSpatialIndex.Match match = segmentIndex.nearest(report.getBlurredLatitude(), report.getBlurredLongitude());
+        report.setUnitid(match == null ? null : match.unitid);
+        report.setSnappedDistanceM(match == null ? NO_SEGMENT : match.distanceMeters);
+        return match != null;
+    }
+
+    @Override
+    public synchronized int backfill() {
+        if (segmentIndex.size() == 0) {
+            logger.info("No street segments loaded, segment backfill skipped");
+            return 0;
+        }
+        long started = System.currentTimeMillis();
+        int updated = 0;
+        int matched = 0;
+        String after = "";
+        while (true) {
+            List<Object[]> rows = crimeReportRepository.findUnsnappedAfter(after, Limit.of(chunkSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+            // the lookups only read the index snapshot, so the chunk is matched in parallel
+            Object[][] args = new Object[rows.size()][];
+            IntStream.range(0, rows.size()).parallel().forEach(i -> {
+                Object[] row = rows.get(i);
+                SegmentSpatialIndex.Match match = segmentIndex.nearest(
+                    ((Number) row[1]).doubleValue(), ((Number) row[2]).doubleValue());
+                args[i] = new Object[] {
+                    match == null ? null : match.unitid,
+                    match == null ? NO_SEGMENT : match.distanceMeters,
+                    row[0]
+                };
+            });
+            for (Object[] a : args) {
+                if (a[0] != null) {
+                    matched++;
+                }
+            }
+            for (int n : jdbcTemplate.batchUpdate(UPDATE_SQL, Arrays.asList(args))) {
+                // drivers may report SUCCESS_NO_INFO for rewritten batches
+                updated += n == Statement.SUCCESS_NO_INFO ? 1 : n;
+            }
+            after = (String) rows.get(rows.size() - 1)[0];
+            if (rows.size() < chunkSize) {
+                break;
+            }
+        }
+        if (updated > 0) {
+            logger.info("Segment backfill: {} reports updated, {} matched to a segment in {} ms",
+                updated, matched, System.currentTimeMillis() - started);
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,98 @@
+package com.safepath.service.impl;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.safepath.dto.TaskStatusResponse;
+import com.safepath.service.TaskProgressStream;
+
+@Service
+public class TaskProgressStreamImpl implements TaskProgressStream {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskProgressStreamImpl.class);
+
+    private static final String EVENT_NAME = "progress";
+
+    private final ConcurrentMap<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    // registration and the removal of finished tasks happen under it, sending does not
+    private final Object registrationLock = new Object();
+
+    @Value("${safepath.risk-score.stream-timeout-minutes:60}")
+    private long timeoutMinutes;
+
+    @Override
+    public SseEmitter subscribe(TaskStatusResponse current) {
+        String taskId = current.getTaskId();
+        SseEmitter emitter = new SseEmitter(timeoutMinutes * 60_000L);
+        boolean registered = false;
+        synchronized (registrationLock) {
+            // a final publish either ran before this check and is seen here, or runs after the
+            // registration and completes the emitter
+            if (!isFinished(current)) {
+                subscribers.computeIfAbsent(taskId, k -> new CopyOnWriteArrayList<>()).add(emitter);
+                registered = true;
+            }
+        }
+        if (!registered) {
+            send(emitter, current);
+            emitter.complete();
+            return emitter;
+        }
+
+        emitter.onCompletion(() -> remove(taskId, emitter));
+        emitter.onTimeout(() -> remove(taskId, emitter));
+        emitter.onError(e -> remove(taskId, emitter));
+        send(emitter, current);
+        return emitter;
+    }
+
+    @Override
+    public void publish(TaskStatusResponse status) {
+        boolean finished = isFinished(status);
+        List<SseEmitter> emitters;
+        synchronized (registrationLock) {
+            emitters = finished ? subscribers.remove(status.getTaskId()) : subscribers.get(status.getTaskId());
+        }
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            if (send(emitter, status) && finished) {
+                emitter.complete();
+            }
+        }
+    }
+
+    private boolean send(SseEmitter emitter, TaskStatusResponse status) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).data(status));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // client went away
+            logger.debug("Dropping progress subscriber of task {}: {}", status.getTaskId(), e.getMessage());
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void remove(String taskId, SseEmitter emitter) {
+        List<SseEmitter> emitters = subscribers.get(taskId);
+        if (emitters != null) {
+            emitters.remove(emitter);
+        }
+    }
+
+    private static boolean isFinished(TaskStatusResponse status) {
+        return status.getStatus() == TaskStatusResponse.TaskStatus.COMPLETED
+            || status.getStatus() == TaskStatusResponse.TaskStatus.FAILED;
+    }
+}
@@ -1,5 +1,6 @@
 package com.safepath.service.impl;
 
+import com.safepath.index.AlertGeofenceIndex;
 import com.safepath.model.AppUser;
 import com.safepath.model.UserAlert;
 import com.safepath.repository.AppUserRepository;
@@ -8,6 +9,7 @@ import com.safepath.service.UserAlertService;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,10 +18,13 @@ public class UserAlertServiceImpl implements UserAlertService {
 
     private final UserAlertRepository repository;
     private final AppUserRepository userRepository;
+    private final AlertGeofenceIndex geofenceIndex;
 
-    public UserAlertServiceImpl(UserAlertRepository repository, AppUserRepository userRepository) {
+    public UserAlertServiceImpl(UserAlertRepository repository, AppUserRepository userRepository,
+                                AlertGeofenceIndex geofenceIndex) {
         this.repository = repository;
         this.userRepository = userRepository;
+        this.geofenceIndex = geofenceIndex;
     }
 
     @Override
@@ -30,9 +35,11 @@ public class UserAlertServiceImpl implements UserAlertService {
             AppUser u = userRepository.findById(uid).orElse(null);
             alert.setUser(u);
         }
-        alert.setCreatedAt(LocalDateTime.now());
-        alert.setUpdatedAt(LocalDateTime.now());
-        return repository.save(alert);
+        alert.setCreatedAt(now());
+        alert.setUpdatedAt(alert.getCreatedAt());
+        UserAlert saved = repository.save(alert);
+        geofenceIndex.put(saved);
+        return saved;
     }
 
     @Override
@@ -44,4 +51,52 @@ public class UserAlertServiceImpl implements UserAlertService {
     public Optional<UserAlert> findById(Integer id) {
         return repository.findById(id);
     }
+
+    @Override
+    public Optional<UserAlert> update(Integer id, UserAlert changes) {
+        return repository.findById(id).map(alert -> {
+            if (changes.getCenterLat() != null) {
+                alert.setCenterLat(changes.getCenterLat());
+            }
+            if (changes.getCenterLon() != null) {
+                alert.setCenterLon(changes.getCenterLon());
+            }
+            if (changes.getRadiusM() != null) {
+                alert.setRadiusM(changes.getRadiusM());
+            }
+            if (changes.getCrimeTypeFilter() != null) {
+                // an empty filter clears it
+                alert.setCrimeTypeFilter(changes.getCrimeTypeFilter().isBlank() ? null : changes.getCrimeTypeFilter());
+            }
+            if (changes.getActiveFlag() != null) {
+                alert.setActiveFlag(changes.getActiveFlag());
+            }
+            if (changes.getDigestMode() != null) {
+                alert.setDigestMode(changes.getDigestMode());
+            }
+            alert.setUpdatedAt(now());
+            UserAlert saved = repository.save(alert);
+            geofenceIndex.put(saved);
+            return saved;
+        });
+    }
+
+    @Override
+    public Optional<UserAlert> deactivate(Integer id) {
+        return repository.findById(id).map(alert -> {
+            alert.setActiveFlag(Boolean.FALSE);
+            alert.setUpdatedAt(now());
+            UserAlert saved = repository.save(alert);
+            geofenceIndex.put(saved);
+            return saved;
+        });
+    }
+
+    /**
+     * In the precision of the DATETIME columns, so the geofence index sees the update time it stores
+     * as the one the table reports
+     */
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
 }
@@ -0,0 +1,62 @@
+package com.safepath.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-capacity ring buffer of text lines.
+ * Keeps only the most recent lines of a long running process output, so memory
+ * stays bounded no matter how much the process prints.
+ */
+public class BoundedLineBuffer {
+
+    private final String[] lines;
+    private int next;
+    private long total;
+
+    public BoundedLineBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.lines = new String[capacity];
+    }
+
+    public synchronized void add(String line) {
+        lines[next] = line;
+        next = (next + 1) % lines.length;
+        total++;
+    }
+
+    /**
+     * @return the retained lines, oldest first
+     */
+    public synchronized List<String> toList() {
+        int size = (int) Math.min(total, lines.length);
+        List<String> result = new ArrayList<>(size);
+        int start = total > lines.length ? next : 0;
+        for (int i = 0; i < size; i++) {
+            result.add(lines[(start + i) % lines.length]);
+        }
+        return result;
+    }
+
+    /**
+     * @return number of lines added, including the ones that were dropped
+     */
+    public synchronized long getTotalLines() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        long dropped = getTotalLines() - lines.length;
+        if (dropped > 0) {
+            sb.append("... ").append(dropped).append(" earlier lines omitted\n");
+        }
+        for (String line : toList()) {
+            sb.append(line).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package com.safepath.util;
+
+/**
+ * Small geographic helpers shared by the in-memory spatial indexes.
+ * All distances are in meters and all angles in decimal degrees.
+ */
+public final class GeoUtils {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_000.0;
+
+    /** Approximate length of one degree of latitude in meters. */
+    public static final double METERS_PER_DEGREE_LAT = 111_320.0;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Great-circle distance between two coordinates using the Haversine formula.
+     */
+    public static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+            * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * Converts a distance in meters into degrees of latitude.
+     */
+    public static double metersToLatDegrees(double meters) {
+        return meters / METERS_PER_DEGREE_LAT;
+    }
+
+    /**
+     * Converts a distance in meters into degrees of longitude at the given latitude.
+     */
+    public static double metersToLonDegrees(double meters, double atLat) {
+        double cos = Math.cos(Math.toRadians(atLat));
+        return meters / (METERS_PER_DEGREE_LAT * Math.max(cos, 1e-6));
+    }
+
+    /**
+     * Returns true when the local hour falls in the night window used by the
+     * clustering job (22:00 - 05:59).
+     */
+    public static boolean isNightHour(int hour) {
+        return hour >= 22 || hour <= 5;
+    }
+
+    /**
+     * Web Mercator (XYZ / slippy map) tile column of a longitude, with the
+     * fractional part giving the position inside the tile.
+     */
+    public static double lonToTileX(double lon, int zoom) {
+        return (lon + 180.0) / 360.0 * (1L << zoom);
+    }
+
+    /**
+     * Web Mercator (XYZ / slippy map) tile row of a latitude, counted from the
+     * north, with the fractional part giving the position inside the tile.
+     */
+    public static double latToTileY(double lat, int zoom) {
+        double rad = Math.toRadians(lat);
+        return (1.0 - Math.log(Math.tan(rad) + 1.0 / Math.cos(rad)) / Math.PI) / 2.0 * (1L << zoom);
+    }
+
+    /**
+     * Longitude of the western edge of a tile column (inverse of {@link #lonToTileX}).
+     */
+    public static double tileXToLon(double x, int zoom) {
+        return x / (1L << zoom) * 360.0 - 180.0;
+    }
+
+    /**
+     * Latitude of the northern edge of a tile row (inverse of {@link #latToTileY}).
+     */
+    public static double tileYToLat(double y, int zoom) {
+        double n = Math.PI - 2.0 * Math.PI * y / (1L << zoom);
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+}
@@ -0,0 +1,141 @@
+package com.safepath.util;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed-capacity blocking ring buffer between one producer and one consumer.
+ * The producer blocks while the buffer is full, so a slow consumer slows the producer down
+ * instead of letting memory grow; the consumer takes everything available at once, which turns
+ * bursts into batches. Either side can close the buffer to end the stream.
+ */
+public class RingBuffer<T> {
+
+    private final Object[] items;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int head;
+    private int size;
+    private boolean closed;
+
+    public RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.items = new Object[capacity];
+    }
+
+    /**
+     * Appends an item, waiting while the buffer is full.
+     *
+     * @throws IllegalStateException if the buffer was closed
+     */
+    public void put(T item) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == items.length && !closed) {
+                notFull.await();
+            }
+            if (closed) {
+                throw new IllegalStateException("Ring buffer is closed");
+            }
+            items[(head + size) % items.length] = item;
+            size++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends an item, waiting up to the timeout while the buffer is full.
+     *
+     * @return false if the buffer stayed full for the whole timeout
+     * @throws IllegalStateException if the buffer was closed
+     */
+    public boolean offer(T item, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == items.length && !closed) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            if (closed) {
+                throw new IllegalStateException("Ring buffer is closed");
+            }
+            items[(head + size) % items.length] = item;
+            size++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves up to {@code max} items to {@code out}, waiting up to the timeout for the first one.
+     *
+     * @return the number of items moved, or -1 once the buffer is closed and empty
+     */
+    @SuppressWarnings("unchecked")
+    public int drainTo(List<T> out, int max, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (closed) {
+                    return -1;
+                }
+                if (nanos <= 0) {
+                    return 0;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            int n = Math.min(max, size);
+            for (int i = 0; i < n; i++) {
+                out.add((T) items[head]);
+                items[head] = null;
+                head = (head + 1) % items.length;
+            }
+            size -= n;
+            notFull.signalAll();
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends the stream: the consumer still receives the buffered items, further puts fail and
+     * waiting producers are released.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return items.length;
+    }
+}
@@ -0,0 +1,106 @@
+package com.safepath.integration;
+
+import com.safepath.dto.CrimeReportDto;
+import com.safepath.dto.TaskStatusResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "safepath.etl.spd-crime.overlap-hours=0")
+@ActiveProfiles("h2")
+public class CrimeEtlIntegrationTest {
+
+    // copy of the sample, the test appends the rows of a later export to it
+    private static Path csv;
+
+    @DynamicPropertySource
+    static void csvPath(DynamicPropertyRegistry registry) throws IOException {
+        csv = Files.createTempFile("spd_crime_sample", ".csv");
+        csv.toFile().deleteOnExit();
+        Files.copy(Paths.get("src/test/resources/etl/spd_crime_sample.csv"), csv,
+            StandardCopyOption.REPLACE_EXISTING);
+        registry.add("safepath.etl.spd-crime.csv-path", csv::toString);
+    }
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Test
+    void ingestSpdCrimeCsv() throws Exception {
+        // the first incremental run has no watermark and loads everything
+        TaskStatusResponse first = runToCompletion("incremental");
+        assertEquals(5L, first.getRowsProcessed());
+        assertTrue(first.getMessage().contains("1 skipped"), first.getMessage());
+        assertTrue(first.getMessage().contains("3 reports and 3 offenses inserted"), first.getMessage());
+
+        ResponseEntity<CrimeReportDto> report = rest.getForEntity("/api/crime-reports/ETL-2024-000002", CrimeReportDto.class);
+        assertEquals(HttpStatus.OK, report.getStatusCode());
+        assertEquals("3XX BLOCK OF 1ST AVE, S", report.getBody().getBlurredAddress());
+        assertEquals(LocalDateTime.of(2024, 3, 2, 8, 0), report.getBody().getReportDatetime());
+
+        // next to SEG001, snapped at the end of the run
+        ResponseEntity<CrimeReportDto> snapped = rest.getForEntity("/api/crime-reports/ETL-2024-000001", CrimeReportDto.class);
+        assertEquals("SEG001", snapped.getBody().getUnitid());
+
+        // nothing is past the watermark on a second run of the same file
+        TaskStatusResponse second = runToCompletion("incremental");
+        assertTrue(second.getMessage().contains("4 before the watermark"), second.getMessage());
+        assertTrue(second.getMessage().contains("0 offense types, 0 reports and 0 offenses inserted"), second.getMessage());
+
+        // a later export: a new report, and a new offense that moves report 1 to another block
+        Files.write(csv, String.join("\n",
+            "ETL-2024-000004,2024 Mar 05 11:00:00 AM,91006,2024 Mar 05 10:45:00 AM,A,PROPERTY,BURGLARY,-,"
+                + "2XX BLOCK OF PINE ST,47.6105,-122.3390,M2,WEST,M,DOWNTOWN COMMERCIAL,1,"
+                + "BURGLARY/BREAKING&ENTERING,Burglary/Breaking & Entering,220",
+            "ETL-2024-000001,2024 Mar 01 10:15:00 PM,91007,2024 Mar 01 09:50:00 PM,A,PROPERTY,BURGLARY,-,"
+                + "1XX BLOCK OF PINE ST,47.6100,-122.3400,M2,WEST,M,DOWNTOWN COMMERCIAL,1,"
+                + "BURGLARY/BREAKING&ENTERING,Burglary/Breaking & Entering,220", "")
+            .getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        TaskStatusResponse delta = runToCompletion("incremental");
+        assertTrue(delta.getMessage().contains("4 before the watermark"), delta.getMessage());
+        assertTrue(delta.getMessage().contains("1 reports and 2 offenses inserted, 1 reports updated"), delta.getMessage());
+        ResponseEntity<CrimeReportDto> moved = rest.getForEntity("/api/crime-reports/ETL-2024-000001", CrimeReportDto.class);
+        assertEquals("1XX BLOCK OF PINE ST", moved.getBody().getBlurredAddress());
+
+        // a full run of the whole file finds nothing new or changed
+        TaskStatusResponse full = runToCompletion("full");
+        assertTrue(full.getMessage().contains("0 before the watermark"), full.getMessage());
+        assertTrue(full.getMessage().contains("0 reports and 0 offenses inserted, 0 reports updated"), full.getMessage());
+    }
+
+    private TaskStatusResponse runToCompletion(String mode) throws InterruptedException {
+        ResponseEntity<TaskStatusResponse> started = rest.postForEntity("/api/admin/etl/spd-crime?mode=" + mode, null,
+            TaskStatusResponse.class);
+        assertEquals(HttpStatus.ACCEPTED, started.getStatusCode());
+        String taskId = started.getBody().getTaskId();
+        TaskStatusResponse status = started.getBody();
+        for (int attempt = 0; attempt < 100; attempt++) {
+            status = rest.getForEntity("/api/admin/etl/runs/" + taskId, TaskStatusResponse.class).getBody();
+            if (status.getStatus() == TaskStatusResponse.TaskStatus.COMPLETED
+                    || status.getStatus() == TaskStatusResponse.TaskStatus.FAILED) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        assertEquals(TaskStatusResponse.TaskStatus.COMPLETED, status.getStatus(), status.getErrorMessage());
+        return status;
+    }
+}
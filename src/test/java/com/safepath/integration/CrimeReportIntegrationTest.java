@@ -1,16 +1,33 @@
 package com.safepath.integration;
 
 import com.safepath.dto.CreateCrimeReportRequest;
+import com.safepath.dto.CrimeBreakdownDto;
+import com.safepath.dto.CrimeReportDto;
+import com.safepath.dto.CrimeReportPage;
+import com.safepath.dto.NearbyCrimeDto;
+import com.safepath.event.CrimeReportsIngestedEvent;
+import com.safepath.index.CrimeSpatioTemporalIndex;
 import com.safepath.model.CrimeReport;
+import com.safepath.model.OffenseType;
+import com.safepath.model.ReportOffense;
+import com.safepath.repository.CrimeReportRepository;
+import com.safepath.repository.OffenseTypeRepository;
+import com.safepath.repository.ReportOffenseRepository;
+import com.safepath.service.CrimeStatsService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -21,6 +38,24 @@ public class CrimeReportIntegrationTest {
     @Autowired
     private TestRestTemplate rest;
 
+    @Autowired
+    private CrimeReportRepository crimeReportRepository;
+
+    @Autowired
+    private OffenseTypeRepository offenseTypeRepository;
+
+    @Autowired
+    private ReportOffenseRepository reportOffenseRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CrimeStatsService crimeStatsService;
+
+    @Autowired
+    private CrimeSpatioTemporalIndex crimeIndex;
+
     @Test
     public void createAndRetrieveCrimeReport() {
         CreateCrimeReportRequest req = new CreateCrimeReportRequest();
@@ -40,4 +75,278 @@ public class CrimeReportIntegrationTest {
         assertNotNull(fetched);
         assertEquals(created.getReportNumber(), fetched.getReportNumber());
     }
+
+    @Test
+    public void pageThroughCrimeReportsWithCursor() {
+        for (int i = 0; i < 3; i++) {
+            CreateCrimeReportRequest req = new CreateCrimeReportRequest();
+            req.setReportNumber("IT-PAGE-" + i);
+            req.setReportDatetime(i == 2 ? null : LocalDateTime.now().minusHours(i));
+            rest.postForEntity("/api/crime-reports", req, CrimeReport.class);
+        }
+
+        List<CrimeReportDto> all = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            String url = "/api/crime-reports/page?size=2" + (cursor == null ? "" : "&cursor=" + cursor);
+            ResponseEntity<CrimeReportPage> page = rest.getForEntity(url, CrimeReportPage.class);
+            assertEquals(HttpStatus.OK, page.getStatusCode());
+            assertNotNull(page.getBody());
+            assertTrue(page.getBody().getItems().size() <= 2);
+            all.addAll(page.getBody().getItems());
+            cursor = page.getBody().getNextCursor();
+            pages++;
+        } while (cursor != null && pages < 100);
+
+        Set<String> numbers = new HashSet<>();
+        for (CrimeReportDto dto : all) {
+            assertTrue(numbers.add(dto.getReportNumber()), "duplicate " + dto.getReportNumber());
+        }
+        assertTrue(numbers.contains("IT-PAGE-0"));
+        assertTrue(numbers.contains("IT-PAGE-2"));
+        // newest first, undated reports last
+        int newest = all.indexOf(all.stream().filter(d -> d.getReportNumber().equals("IT-PAGE-0")).findFirst().get());
+        int older = all.indexOf(all.stream().filter(d -> d.getReportNumber().equals("IT-PAGE-1")).findFirst().get());
+        int undated = all.indexOf(all.stream().filter(d -> d.getReportNumber().equals("IT-PAGE-2")).findFirst().get());
+        assertTrue(newest < older && older < undated);
+
+        ResponseEntity<CrimeReportDto[]> streamed = rest.getForEntity("/api/crime-reports", CrimeReportDto[].class);
+        assertEquals(HttpStatus.OK, streamed.getStatusCode());
+        assertNotNull(streamed.getBody());
+        assertEquals(all.size(), streamed.getBody().length);
+    }
+
+    @Test
+    public void rejectInvalidCursor() {
+        ResponseEntity<String> response = rest.getForEntity("/api/crime-reports/page?cursor=not-a-cursor", String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void findNearbyCrimeReportsFromIndex() throws InterruptedException {
+        CreateCrimeReportRequest req = new CreateCrimeReportRequest();
+        req.setReportNumber("IT-NEAR-1");
+        req.setReportDatetime(LocalDateTime.now().minusDays(1));
+        req.setBlurredLatitude(47.6012);
+        req.setBlurredLongitude(-122.3301);
+        assertEquals(HttpStatus.CREATED, rest.postForEntity("/api/crime-reports", req, CrimeReport.class).getStatusCode());
+
+        // the index picks up new reports asynchronously
+        boolean found = false;
+        for (int attempt = 0; attempt < 50 && !found; attempt++) {
+            ResponseEntity<NearbyCrimeDto[]> response = rest.getForEntity(
+                "/api/crime-reports/nearby?lat=47.6&lon=-122.33&radius=500&days=7", NearbyCrimeDto[].class);
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertNotNull(response.getBody());
+            for (NearbyCrimeDto dto : response.getBody()) {
+                if (dto.getReportNumber().equals("IT-NEAR-1")) {
+                    assertTrue(dto.getDistanceMeters() < 500);
+                    found = true;
+                }
+            }
+            if (!found) {
+                Thread.sleep(100);
+            }
+        }
+        assertTrue(found);
+
+        ResponseEntity<NearbyCrimeDto[]> far = rest.getForEntity(
+            "/api/crime-reports/nearby?lat=47.7&lon=-122.33&radius=500&days=7", NearbyCrimeDto[].class);
+        assertNotNull(far.getBody());
+        for (NearbyCrimeDto dto : far.getBody()) {
+            assertNotEquals("IT-NEAR-1", dto.getReportNumber());
+        }
+
+        ResponseEntity<String> invalid = rest.getForEntity(
+            "/api/crime-reports/nearby?lat=47.6&lon=-122.33&radius=-1", String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+    }
+
+    @Test
+    public void findNewReportByOffenseGroupNearby() throws InterruptedException {
+        // load the index first, so the report can only get there as an addition
+        assertEquals(HttpStatus.OK, rest.getForEntity(
+            "/api/crime-reports/nearby?lat=47.61&lon=-122.34&radius=500&days=7", NearbyCrimeDto[].class).getStatusCode());
+
+        CrimeReport report = saveWithOffenses("IT-NEAR-GROUP-1", 47.6102, -122.3401, null, "IT NEARBY GROUP");
+
+        // the way the ETL announces reports once their offenses are stored
+        eventPublisher.publishEvent(new CrimeReportsIngestedEvent(List.of(report)));
+
+        boolean found = false;
+        for (int attempt = 0; attempt < 50 && !found; attempt++) {
+            ResponseEntity<NearbyCrimeDto[]> response = rest.getForEntity(
+                "/api/crime-reports/nearby?lat=47.61&lon=-122.34&radius=500&days=7&group=IT NEARBY GROUP",
+                NearbyCrimeDto[].class);
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertNotNull(response.getBody());
+            for (NearbyCrimeDto dto : response.getBody()) {
+                if (dto.getReportNumber().equals("IT-NEAR-GROUP-1")) {
+                    assertEquals(List.of("IT NEARBY GROUP"), dto.getOffenseGroups());
+                    found = true;
+                }
+            }
+            if (!found) {
+                Thread.sleep(100);
+            }
+        }
+        assertTrue(found);
+    }
+
+    @Test
+    public void movedAndDeletedReportsLeaveTheIndex() throws InterruptedException {
+        CreateCrimeReportRequest req = new CreateCrimeReportRequest();
+        req.setReportNumber("IT-NEAR-MOVE-1");
+        req.setReportDatetime(LocalDateTime.now().minusDays(1));
+        req.setBlurredLatitude(47.6312);
+        req.setBlurredLongitude(-122.3601);
+        assertEquals(HttpStatus.CREATED, rest.postForEntity("/api/crime-reports", req, CrimeReport.class).getStatusCode());
+        assertTrue(awaitNearby(47.631, -122.36, "IT-NEAR-MOVE-1", true));
+
+        // saving an existing report number updates it
+        req.setBlurredLatitude(47.6612);
+        assertEquals(HttpStatus.CREATED, rest.postForEntity("/api/crime-reports", req, CrimeReport.class).getStatusCode());
+        assertTrue(awaitNearby(47.661, -122.36, "IT-NEAR-MOVE-1", true));
+        assertTrue(awaitNearby(47.631, -122.36, "IT-NEAR-MOVE-1", false));
+
+        rest.delete("/api/crime-reports/IT-NEAR-MOVE-1");
+        assertTrue(awaitNearby(47.661, -122.36, "IT-NEAR-MOVE-1", false));
+    }
+
+    @Test
+    public void reportsWrittenOutsideTheAppAreIndexedAfterTheCheck() throws InterruptedException {
+        assertEquals(HttpStatus.OK, rest.getForEntity(
+            "/api/crime-reports/nearby?lat=47.64&lon=-122.38&radius=500&days=7", NearbyCrimeDto[].class).getStatusCode());
+
+        // the way the Python ETL writes, without an event
+        saveWithOffenses("IT-NEAR-FOREIGN-1", 47.6402, -122.3801, null, "IT NEARBY GROUP");
+        crimeIndex.reloadIfChanged();
+
+        assertTrue(awaitNearby(47.64, -122.38, "IT-NEAR-FOREIGN-1", true));
+    }
+
+    @Test
+    public void crimeStatsBreakdownFromColumnarSnapshot() {
+        // TEST-1 from the H2 data loader: Precinct A / Neighborhood, one day old
+        ResponseEntity<CrimeBreakdownDto> byNeighborhood = rest.getForEntity(
+            "/api/crime-stats/by-neighborhood?days=7&precinct=Precinct A", CrimeBreakdownDto.class);
+        assertEquals(HttpStatus.OK, byNeighborhood.getStatusCode());
+        assertNotNull(byNeighborhood.getBody());
+        assertTrue(byNeighborhood.getBody().getCounts().getOrDefault("Neighborhood", 0L) >= 1);
+
+        ResponseEntity<CrimeBreakdownDto> byHour = rest.getForEntity(
+            "/api/crime-stats/by-hour?days=7&south=47.59&west=-122.34&north=47.61&east=-122.32", CrimeBreakdownDto.class);
+        assertEquals(HttpStatus.OK, byHour.getStatusCode());
+        assertNotNull(byHour.getBody());
+        assertEquals(24, byHour.getBody().getCounts().size());
+        long sum = byHour.getBody().getCounts().values().stream().mapToLong(Long::longValue).sum();
+        assertTrue(sum >= 1);
+
+        ResponseEntity<CrimeBreakdownDto> unknownPrecinct = rest.getForEntity(
+            "/api/crime-stats/by-precinct?precinct=NOWHERE", CrimeBreakdownDto.class);
+        assertEquals(HttpStatus.OK, unknownPrecinct.getStatusCode());
+        assertEquals(0, unknownPrecinct.getBody().getTotal());
+
+        assertEquals(HttpStatus.BAD_REQUEST,
+            rest.getForEntity("/api/crime-stats/by-color", String.class).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST,
+            rest.getForEntity("/api/crime-stats/trend?by=hour", String.class).getStatusCode());
+    }
+
+    @Test
+    public void offenseGroupBreakdownCountsEveryGroupOfAReport() {
+        saveWithOffenses("IT-GROUPS-1", 47.62, -122.35, "IT-GROUPS", "IT GROUP A", "IT GROUP B");
+        saveWithOffenses("IT-GROUPS-2", 47.62, -122.35, "IT-GROUPS", "IT GROUP A");
+        crimeStatsService.reload();
+
+        ResponseEntity<CrimeBreakdownDto> byGroup = rest.getForEntity(
+            "/api/crime-stats/by-offense-group?days=7&precinct=IT-GROUPS", CrimeBreakdownDto.class);
+        assertEquals(HttpStatus.OK, byGroup.getStatusCode());
+        assertNotNull(byGroup.getBody());
+        assertEquals(2L, byGroup.getBody().getCounts().get("IT GROUP A"));
+        assertEquals(1L, byGroup.getBody().getCounts().get("IT GROUP B"));
+        assertEquals(2, byGroup.getBody().getTotal());
+
+        ResponseEntity<CrimeBreakdownDto> byPrecinct = rest.getForEntity(
+            "/api/crime-stats/by-precinct?days=7&precinct=IT-GROUPS", CrimeBreakdownDto.class);
+        assertNotNull(byPrecinct.getBody());
+        assertEquals(2L, byPrecinct.getBody().getCounts().get("IT-GROUPS"));
+    }
+
+    @Test
+    public void crimeReportsAreSnappedToStreetSegments() throws InterruptedException {
+        // next to the midpoint of SEG001 from data.sql
+        CreateCrimeReportRequest req = new CreateCrimeReportRequest();
+        req.setReportNumber("IT-SNAP-1");
+        req.setReportDatetime(LocalDateTime.now().minusHours(2));
+        req.setBlurredLatitude(47.6091);
+        req.setBlurredLongitude(-122.3405);
+        ResponseEntity<CrimeReportDto> created = rest.postForEntity("/api/crime-reports", req, CrimeReportDto.class);
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+        assertEquals("SEG001", created.getBody().getUnitid());
+        assertTrue(created.getBody().getSnappedDistanceM() < 50);
+
+        // TEST-1 is inserted directly by the data loader and snapped by the startup backfill
+        Double distance = null;
+        for (int attempt = 0; attempt < 50 && distance == null; attempt++) {
+            distance = rest.getForEntity("/api/crime-reports/TEST-1", CrimeReportDto.class).getBody().getSnappedDistanceM();
+            if (distance == null) {
+                Thread.sleep(100);
+            }
+        }
+        assertNotNull(distance);
+    }
+
+    /**
+     * Waits until the report is, or is no longer, within 500 m of the point.
+     */
+    private boolean awaitNearby(double lat, double lon, String reportNumber, boolean present)
+            throws InterruptedException {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            ResponseEntity<NearbyCrimeDto[]> response = rest.getForEntity(
+                "/api/crime-reports/nearby?lat=" + lat + "&lon=" + lon + "&radius=500&days=7", NearbyCrimeDto[].class);
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            boolean found = false;
+            for (NearbyCrimeDto dto : response.getBody()) {
+                found |= dto.getReportNumber().equals(reportNumber);
+            }
+            if (found == present) {
+                return true;
+            }
+            Thread.sleep(100);
+        }
+        return false;
+    }
+
+    /**
+     * Stores a report one day old with one offense per group, bypassing the service so that
+     * nothing is announced yet.
+     */
+    private CrimeReport saveWithOffenses(String reportNumber, double lat, double lon, String precinct,
+                                         String... groups) {
+        CrimeReport report = new CrimeReport();
+        report.setReportNumber(reportNumber);
+        report.setReportDatetime(LocalDateTime.now().minusDays(1));
+        report.setPrecinct(precinct);
+        report.setBlurredLatitude(lat);
+        report.setBlurredLongitude(lon);
+        report = crimeReportRepository.save(report);
+        for (String group : groups) {
+            String code = "IT-" + Math.abs(group.hashCode() % 100000);
+            OffenseType type = offenseTypeRepository.findById(code).orElseGet(() -> {
+                OffenseType t = new OffenseType();
+                t.setOffenseCode(code);
+                t.setOffenseName(group);
+                t.setOffenseParentGroup(group);
+                return offenseTypeRepository.save(t);
+            });
+            ReportOffense offense = new ReportOffense();
+            offense.setCrimeReport(report);
+            offense.setOffenseType(type);
+            offense.setOffenseDate(report.getReportDatetime());
+            reportOffenseRepository.save(offense);
+        }
+        return report;
+    }
 }
@@ -0,0 +1,125 @@
+package com.safepath.integration;
+
+import com.safepath.etl.CrimeStaging;
+import com.safepath.etl.SpdCrimeRecord;
+import com.safepath.model.EtlRun;
+import com.safepath.model.Source;
+import com.safepath.service.EtlRunService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+public class CrimeStagingIntegrationTest {
+
+    private static final List<String> HEADER = List.of("Report Number", "Report DateTime", "Offense ID",
+        "Offense Date", "NIBRS_offense_code", "NIBRS Offense Code Description", "Offense Category",
+        "Block Address", "Latitude", "Longitude", "Precinct");
+    private static final SpdCrimeRecord.Columns COLUMNS = new SpdCrimeRecord.Columns(HEADER);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EtlRunService etlRunService;
+
+    @Test
+    void mergeStagedRunsIntoTheReportTables() throws Exception {
+        Source source = etlRunService.findOrCreateSource("IT staging merge", "file:staging", 0);
+        jdbcTemplate.execute(CrimeStaging.CREATE_TABLE);
+
+        CrimeStaging first = staging(etlRunService.start(source, EtlRun.Mode.FULL));
+        first.clearStale();
+        first.stage(List.of(
+            record("STG-1", "S1A", "Staged Assault", "STG ASSAULT", "1XX BLOCK OF STAGE ST", "47.6100"),
+            record("STG-1", "S2B", "Staged Theft", "STG THEFT", "1XX BLOCK OF STAGE ST", "47.6100"),
+            // the same offense twice in one export
+            record("STG-1", "S1A", "Staged Assault", "STG ASSAULT", "1XX BLOCK OF STAGE ST", "47.6100"),
+            record("STG-2", "S2B", "Staged Theft", "STG THEFT", "2XX BLOCK OF STAGE ST", "47.6200")));
+        // a later window corrects report 2; the last staged row wins
+        first.stage(List.of(
+            record("STG-2", "S2B", "Staged Theft", "STG THEFT", "3XX BLOCK OF STAGE ST", "47.6300")));
+        CrimeStaging.Result merged = first.merge();
+        assertEquals(2, merged.offenseTypes);
+        assertEquals(2, merged.reports);
+        assertEquals(0, merged.updatedReports);
+        assertEquals(3, merged.offenses);
+        assertEquals("3XX BLOCK OF STAGE ST", report("STG-2").get("blurred_address"));
+        assertEquals("STG ASSAULT", jdbcTemplate.queryForObject(
+            "SELECT offense_parent_group FROM offense_types WHERE offense_code = 'S1A'", String.class));
+        assertEquals(0, stagedRows());
+
+        // the next run: report 1 unchanged, report 2 moved and no longer snapped to its segment
+        jdbcTemplate.update("UPDATE crime_reports SET snapped_distance_m = 12.5 WHERE report_number = 'STG-2'");
+        CrimeStaging second = staging(etlRunService.start(source, EtlRun.Mode.FULL));
+        second.stage(List.of(
+            record("STG-1", "S1A", "Staged Assault", "STG ASSAULT", "1XX BLOCK OF STAGE ST", "47.6100"),
+            record("STG-2", "S2B", "Staged Theft", "STG THEFT", "4XX BLOCK OF STAGE ST", "47.6400")));
+        merged = second.merge();
+        assertEquals(0, merged.offenseTypes);
+        assertEquals(0, merged.reports);
+        assertEquals(1, merged.updatedReports);
+        assertEquals(0, merged.offenses);
+        Map<String, Object> moved = report("STG-2");
+        assertEquals("4XX BLOCK OF STAGE ST", moved.get("blurred_address"));
+        assertEquals(47.64, ((Number) moved.get("blurred_latitude")).doubleValue(), 1e-9);
+        assertNull(moved.get("snapped_distance_m"));
+        assertEquals(3, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM report_offenses WHERE report_number IN ('STG-1', 'STG-2')", Integer.class));
+        assertEquals(0, stagedRows());
+    }
+
+    @Test
+    void clearStaleKeepsTheRowsOfRunningRuns() throws Exception {
+        jdbcTemplate.execute(CrimeStaging.CREATE_TABLE);
+        // a run of another node, still staging
+        EtlRun other = etlRunService.start(
+            etlRunService.findOrCreateSource("IT staging other node", "file:other", 0), EtlRun.Mode.FULL);
+        staging(other).stage(List.of(
+            record("STG-OTHER-1", "S1A", "Staged Assault", "STG ASSAULT", "1XX BLOCK OF STAGE ST", "47.6100")));
+
+        EtlRun run = etlRunService.start(
+            etlRunService.findOrCreateSource("IT staging this node", "file:this", 0), EtlRun.Mode.FULL);
+        staging(run).clearStale();
+        assertEquals(1, stagedRows(other));
+
+        // once the other run is over its rows are left behind and dropped
+        etlRunService.fail(other, 0);
+        staging(run).clearStale();
+        assertEquals(0, stagedRows(other));
+    }
+
+    private CrimeStaging staging(EtlRun run) {
+        return new CrimeStaging(jdbcTemplate, CrimeStaging.Dialect.STANDARD, run.getEtlId(), 2, null);
+    }
+
+    private Map<String, Object> report(String reportNumber) {
+        return jdbcTemplate.queryForMap("SELECT * FROM crime_reports WHERE report_number = ?", reportNumber);
+    }
+
+    private int stagedRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM crime_staging", Integer.class);
+    }
+
+    private int stagedRows(EtlRun run) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM crime_staging WHERE etl_id = ?", Integer.class,
+            run.getEtlId());
+    }
+
+    private static SpdCrimeRecord record(String reportNumber, String code, String name, String group,
+                                         String address, String lat) {
+        String[] fields = {reportNumber, "2024 Mar 03 08:00:00 AM", null, "2024 Mar 03 07:30:00 AM", code, name,
+            group, address, lat, "-122.3400", "WEST"};
+        assertEquals(HEADER.size(), fields.length, Arrays.toString(fields));
+        return SpdCrimeRecord.of(fields, COLUMNS);
+    }
+}
@@ -0,0 +1,103 @@
+package com.safepath.integration;
+
+import com.safepath.model.CrimeReport;
+import com.safepath.model.OffenseType;
+import com.safepath.model.ReportOffense;
+import com.safepath.model.SegmentIncidentCounter;
+import com.safepath.repository.CrimeReportRepository;
+import com.safepath.repository.OffenseTypeRepository;
+import com.safepath.repository.ReportOffenseRepository;
+import com.safepath.repository.SegmentIncidentCounterRepository;
+import com.safepath.service.IncrementalRiskService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("h2")
+public class IncrementalRiskIntegrationTest {
+
+    @Autowired
+    private IncrementalRiskService incrementalRiskService;
+
+    @Autowired
+    private CrimeReportRepository crimeReportRepository;
+
+    @Autowired
+    private OffenseTypeRepository offenseTypeRepository;
+
+    @Autowired
+    private ReportOffenseRepository reportOffenseRepository;
+
+    @Autowired
+    private SegmentIncidentCounterRepository counterRepository;
+
+    @Test
+    public void appliedReportsCountLikeARebuild() {
+        incrementalRiskService.rebuild();
+        int before = incidents();
+
+        // next to the midpoint of SEG002 from data.sql
+        LocalDateTime reported = LocalDate.now().minusDays(2).atTime(14, 0);
+        CrimeReport twoOffenses = save("IT-INC-1", reported,
+            reported.minusDays(1).withHour(23), LocalDate.now().minusDays(45).atTime(12, 0));
+        CrimeReport noOffenses = save("IT-INC-2", reported);
+
+        incrementalRiskService.applyReports(List.of(twoOffenses, noOffenses));
+        // published again, e.g. by a repeated event
+        incrementalRiskService.applyReports(List.of(twoOffenses));
+        SegmentIncidentCounter applied = counterRepository.findById("SEG002").orElseThrow();
+        assertEquals(before + 2, applied.getIncidents90d());
+
+        incrementalRiskService.rebuild();
+        SegmentIncidentCounter rebuilt = counterRepository.findById("SEG002").orElseThrow();
+        assertEquals(rebuilt.getIncidents90d(), applied.getIncidents90d());
+        assertEquals(rebuilt.getNightIncidents(), applied.getNightIncidents());
+        assertEquals(rebuilt.getRecentIncidents(), applied.getRecentIncidents());
+        assertEquals(rebuilt.getPreviousIncidents(), applied.getPreviousIncidents());
+
+        // counted by the rebuild, so not again
+        incrementalRiskService.applyReports(List.of(twoOffenses));
+        assertEquals(rebuilt.getIncidents90d(), counterRepository.findById("SEG002").orElseThrow().getIncidents90d());
+    }
+
+    private int incidents() {
+        return counterRepository.findById("SEG002").map(SegmentIncidentCounter::getIncidents90d).orElse(0);
+    }
+
+    /**
+     * Stores a report on SEG002 with one offense per date, bypassing the service so that nothing
+     * is announced.
+     */
+    private CrimeReport save(String reportNumber, LocalDateTime reported, LocalDateTime... offenseDates) {
+        CrimeReport report = new CrimeReport();
+        report.setReportNumber(reportNumber);
+        report.setReportDatetime(reported);
+        report.setBlurredLatitude(47.6100);
+        report.setBlurredLongitude(-122.3391);
+        report.setUnitid("SEG002");
+        report = crimeReportRepository.save(report);
+        OffenseType type = offenseTypeRepository.findById("IT-INC").orElseGet(() -> {
+            OffenseType t = new OffenseType();
+            t.setOffenseCode("IT-INC");
+            t.setOffenseName("IT INCREMENTAL");
+            t.setOffenseParentGroup("IT INCREMENTAL");
+            return offenseTypeRepository.save(t);
+        });
+        for (LocalDateTime date : offenseDates) {
+            ReportOffense offense = new ReportOffense();
+            offense.setCrimeReport(report);
+            offense.setOffenseType(type);
+            offense.setOffenseDate(date);
+            reportOffenseRepository.save(offense);
+        }
+        return report;
+    }
+}
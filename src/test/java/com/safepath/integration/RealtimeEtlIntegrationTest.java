@@ -0,0 +1,89 @@
+package com.safepath.integration;
+
+import com.safepath.dto.TaskStatusResponse;
+import com.safepath.event.RealtimeIncidentsIngestedEvent;
+import com.safepath.model.RealtimeIncident;
+import com.safepath.repository.RealtimeIncidentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("h2")
+public class RealtimeEtlIntegrationTest {
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private RealtimeIncidentRepository realtimeIncidentRepository;
+
+    @Autowired
+    private IncidentCollector collector;
+
+    // the fixture file stands in for the live 911 feed
+    @DynamicPropertySource
+    static void feed(DynamicPropertyRegistry registry) {
+        registry.add("safepath.etl.realtime.url",
+            () -> Paths.get("src/test/resources/etl/realtime_feed_sample.csv").toAbsolutePath().toUri().toString());
+    }
+
+    @TestConfiguration
+    static class IncidentCollector {
+        final List<RealtimeIncident> published = new CopyOnWriteArrayList<>();
+
+        @EventListener
+        public void onIngested(RealtimeIncidentsIngestedEvent event) {
+            published.addAll(event.getIncidents());
+        }
+    }
+
+    @Test
+    void ingestRealtimeFeed() throws InterruptedException {
+        // one repeated incident and one without coordinates
+        TaskStatusResponse first = runToCompletion();
+        assertEquals("5 incidents fetched, 4 in the delta, 1 duplicates, 3 inserted", first.getMessage());
+        assertTrue(realtimeIncidentRepository.existsById("F24000003"));
+        assertFalse(realtimeIncidentRepository.existsById("F24000004"));
+        assertEquals(List.of("F24000001", "F24000002", "F24000003"),
+            collector.published.stream().map(RealtimeIncident::getIncidentId).sorted().collect(Collectors.toList()));
+
+        // the overlap before the watermark is fetched again and dropped as duplicates
+        TaskStatusResponse second = runToCompletion();
+        assertEquals("5 incidents fetched, 2 in the delta, 2 duplicates, 0 inserted", second.getMessage());
+        assertEquals(3, collector.published.size());
+    }
+
+    private TaskStatusResponse runToCompletion() throws InterruptedException {
+        ResponseEntity<TaskStatusResponse> started = rest.postForEntity("/api/admin/etl/realtime", null,
+            TaskStatusResponse.class);
+        assertEquals(HttpStatus.ACCEPTED, started.getStatusCode());
+        String taskId = started.getBody().getTaskId();
+        TaskStatusResponse status = started.getBody();
+        for (int attempt = 0; attempt < 100; attempt++) {
+            status = rest.getForEntity("/api/admin/etl/runs/" + taskId, TaskStatusResponse.class).getBody();
+            if (status.getStatus() == TaskStatusResponse.TaskStatus.COMPLETED
+                    || status.getStatus() == TaskStatusResponse.TaskStatus.FAILED) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        assertEquals(TaskStatusResponse.TaskStatus.COMPLETED, status.getStatus(), status.getErrorMessage());
+        return status;
+    }
+}
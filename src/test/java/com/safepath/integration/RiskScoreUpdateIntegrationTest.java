@@ -0,0 +1,55 @@
+package com.safepath.integration;
+
+import com.safepath.dto.TaskStatusResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("h2")
+public class RiskScoreUpdateIntegrationTest {
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    // the task fails right away instead of running the clustering script
+    @DynamicPropertySource
+    static void scriptPath(DynamicPropertyRegistry registry) {
+        registry.add("safepath.python.script.path", () -> "does-not-exist/segment_risk_clustering.py");
+    }
+
+    @Test
+    public void progressStreamEndsWithTheTask() {
+        ResponseEntity<TaskStatusResponse> started = rest.postForEntity(
+            "/api/admin/risk-score/update", null, TaskStatusResponse.class);
+        assertEquals(HttpStatus.OK, started.getStatusCode());
+        assertNotNull(started.getBody());
+        String taskId = started.getBody().getTaskId();
+        assertNotNull(taskId);
+
+        // whether the task finishes before or after the subscription, the stream must end with it
+        String stream = assertTimeoutPreemptively(Duration.ofSeconds(30),
+            () -> rest.getForObject("/api/admin/risk-score/stream/" + taskId, String.class));
+        assertNotNull(stream);
+        assertTrue(stream.contains("event:progress"));
+        assertTrue(stream.contains("\"status\":\"FAILED\""), stream);
+
+        // subscribing to a finished task sends its final status and ends right away
+        String finished = assertTimeoutPreemptively(Duration.ofSeconds(10),
+            () -> rest.getForObject("/api/admin/risk-score/stream/" + taskId, String.class));
+        assertTrue(finished.contains("\"status\":\"FAILED\""), finished);
+
+        assertEquals(HttpStatus.NOT_FOUND,
+            rest.getForEntity("/api/admin/risk-score/stream/unknown-task", String.class).getStatusCode());
+    }
+}
@@ -1,14 +1,34 @@
 package com.safepath.integration;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.safepath.dto.CreateCrimeReportRequest;
+import com.safepath.dto.CrimeCountSummary;
+import com.safepath.dto.RiskCellDto;
 import com.safepath.dto.StreetSegmentRiskDto;
+import com.safepath.dto.ViewportRiskResponse;
+import com.safepath.event.RealtimeIncidentsIngestedEvent;
+import com.safepath.model.RealtimeIncident;
+import com.safepath.service.LiveRiskService;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
@@ -20,6 +40,12 @@ class SafetyRecommendationIntegrationTest {
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private LiveRiskService liveRiskService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Test
     void getSingleSegmentRisk() {
         ResponseEntity<StreetSegmentRiskDto> response =
@@ -46,5 +72,202 @@ class SafetyRecommendationIntegrationTest {
         assertNotNull(body);
         assertTrue(body.length >= 1);
     }
-}
 
+    @Test
+    void getViewportAggregatesCellsWhenZoomedOut() {
+        ResponseEntity<ViewportRiskResponse> response =
+            restTemplate.getForEntity(
+                "/api/safety/segments/viewport?west=-122.45&south=47.50&east=-122.20&north=47.75&zoom=10&live=true",
+                ViewportRiskResponse.class
+            );
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        ViewportRiskResponse body = response.getBody();
+        assertNotNull(body);
+        assertEquals(ViewportRiskResponse.Mode.CELLS, body.getMode());
+        assertNotNull(body.getCells());
+        assertTrue(body.getCells().size() >= 1);
+        int segments = body.getCells().stream().mapToInt(RiskCellDto::getSegmentCount).sum();
+        int labelled = body.getCells().stream()
+            .flatMap(c -> c.getLabelCounts().values().stream())
+            .mapToInt(Integer::intValue)
+            .sum();
+        assertEquals(segments, labelled);
+        // the live overlay does not apply to cells
+        assertFalse(body.isLive());
+        for (RiskCellDto cell : body.getCells()) {
+            assertTrue(cell.getMeanRiskScore() <= cell.getMaxRiskScore());
+            // Web Mercator cells: as wide as cellSizeDegrees, shorter in degrees of latitude this far north
+            assertEquals(body.getCellSizeDegrees(), cell.getEast() - cell.getWest(), 1e-9);
+            assertTrue(cell.getNorth() - cell.getSouth() < body.getCellSizeDegrees());
+            assertTrue(cell.getSouth() <= cell.getLatitude() && cell.getLatitude() <= cell.getNorth());
+            assertTrue(cell.getWest() <= cell.getLongitude() && cell.getLongitude() <= cell.getEast());
+        }
+    }
+
+    @Test
+    void getViewportReturnsSegmentsWhenZoomedIn() {
+        ResponseEntity<ViewportRiskResponse> response =
+            restTemplate.getForEntity(
+                "/api/safety/segments/viewport?west=-122.35&south=47.60&east=-122.33&north=47.62&zoom=17",
+                ViewportRiskResponse.class
+            );
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        ViewportRiskResponse body = response.getBody();
+        assertNotNull(body);
+        assertEquals(ViewportRiskResponse.Mode.SEGMENTS, body.getMode());
+        assertTrue(body.getSegments().size() >= 1);
+    }
+
+    @Test
+    void getRiskTileWithEtag() {
+        // tile 12/656/1430 contains the sample segments around 1st Ave & Pine
+        ResponseEntity<byte[]> response =
+            restTemplate.getForEntity("/api/safety/tiles/12/656/1430", byte[].class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        byte[] body = response.getBody();
+        assertNotNull(body);
+        assertArrayEquals(new byte[] {'S', 'P', 'R', 'T'}, Arrays.copyOf(body, 4));
+        ByteBuffer buf = ByteBuffer.wrap(body);
+        assertEquals(12, buf.get(5));
+        assertEquals(656, buf.getInt(6));
+        assertEquals(1430, buf.getInt(10));
+        assertTrue(buf.getInt(14) >= 1);
+
+        String etag = response.getHeaders().getETag();
+        assertNotNull(etag);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<byte[]> revalidated = restTemplate.exchange(
+            "/api/safety/tiles/12/656/1430", HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+        assertEquals(HttpStatus.NOT_MODIFIED, revalidated.getStatusCode());
+    }
+
+    @Test
+    void countCrimesInBoundingBox() {
+        ResponseEntity<CrimeCountSummary> response = restTemplate.getForEntity(
+            "/api/safety/crime-counts?west=-122.34&south=47.59&east=-122.32&north=47.61&days=30",
+            CrimeCountSummary.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        CrimeCountSummary summary = response.getBody();
+        assertNotNull(summary);
+        assertTrue(summary.getTotal() >= 1);
+        assertTrue(summary.getWest() <= -122.34 && summary.getEast() >= -122.32);
+
+        ResponseEntity<CrimeCountSummary> empty = restTemplate.getForEntity(
+            "/api/safety/crime-counts/near?lat=47.7&lon=-122.25&radius=200&days=30", CrimeCountSummary.class);
+        assertEquals(HttpStatus.OK, empty.getStatusCode());
+        assertEquals(0, empty.getBody().getTotal());
+
+        ResponseEntity<String> invalid = restTemplate.getForEntity(
+            "/api/safety/crime-counts?west=-122.32&south=47.59&east=-122.34&north=47.61", String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+    }
+
+    @Test
+    void countCrimesNearAPointWithinTheRadius() throws InterruptedException {
+        // one report at the center, one inside the circle's bounding box but ~250 m away
+        double[][] locations = {{47.72, -122.28}, {47.72162, -122.2776}};
+        for (int i = 0; i < locations.length; i++) {
+            CreateCrimeReportRequest req = new CreateCrimeReportRequest();
+            req.setReportNumber("IT-COUNT-NEAR-" + i);
+            req.setReportDatetime(LocalDateTime.now().minusHours(2));
+            req.setBlurredLatitude(locations[i][0]);
+            req.setBlurredLongitude(locations[i][1]);
+            assertEquals(HttpStatus.CREATED, restTemplate.postForEntity("/api/crime-reports", req, String.class).getStatusCode());
+        }
+
+        // the index picks the reports up asynchronously
+        String url = "/api/safety/crime-counts/near?lat=47.72&lon=-122.28&days=7&radius=";
+        int wide = 0;
+        for (int attempt = 0; attempt < 50 && wide < 2; attempt++) {
+            Thread.sleep(100);
+            wide = restTemplate.getForEntity(url + 300, CrimeCountSummary.class).getBody().getTotal();
+        }
+        assertEquals(2, wide);
+
+        CrimeCountSummary summary = restTemplate.getForEntity(url + 200, CrimeCountSummary.class).getBody();
+        assertNotNull(summary);
+        assertEquals(1, summary.getTotal());
+        assertTrue(summary.getNorth() > 47.72162 && summary.getEast() > -122.2776);
+    }
+
+    @Test
+    void renderHeatmapTileAndInvalidateOnNewReports() throws InterruptedException {
+        // tile 12/656/1430 contains the sample report TEST-1
+        String url = "/api/safety/heatmap/12/656/1430?days=7";
+        ResponseEntity<byte[]> raw = restTemplate.getForEntity(url + "&format=raw", byte[].class);
+        assertEquals(HttpStatus.OK, raw.getStatusCode());
+        assertNotNull(raw.getBody());
+        assertEquals(256 * 256, raw.getBody().length);
+        int max = 0;
+        for (byte b : raw.getBody()) {
+            max = Math.max(max, b & 0xff);
+        }
+        assertTrue(max > 0);
+
+        ResponseEntity<byte[]> png = restTemplate.getForEntity(url, byte[].class);
+        assertEquals(HttpStatus.OK, png.getStatusCode());
+        assertArrayEquals(new byte[] {(byte) 0x89, 'P', 'N', 'G'}, Arrays.copyOf(png.getBody(), 4));
+        String etag = png.getHeaders().getETag();
+        assertNotNull(etag);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<byte[]> revalidated = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+        assertEquals(HttpStatus.NOT_MODIFIED, revalidated.getStatusCode());
+
+        CreateCrimeReportRequest req = new CreateCrimeReportRequest();
+        req.setReportNumber("IT-HEAT-1");
+        req.setReportDatetime(LocalDateTime.now().minusHours(2));
+        req.setBlurredLatitude(47.603);
+        req.setBlurredLongitude(-122.335);
+        assertEquals(HttpStatus.CREATED, restTemplate.postForEntity("/api/crime-reports", req, String.class).getStatusCode());
+
+        // the tile is invalidated asynchronously
+        String renewed = etag;
+        for (int attempt = 0; attempt < 50 && renewed.equals(etag); attempt++) {
+            Thread.sleep(100);
+            renewed = restTemplate.getForEntity(url, byte[].class).getHeaders().getETag();
+        }
+        assertNotEquals(etag, renewed);
+
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity("/api/safety/heatmap/5/5/11", byte[].class).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(url + "&format=gif", byte[].class).getStatusCode());
+    }
+
+    @Test
+    void liveOverlayRaisesScoreOfSegmentWithRecentIncidents() {
+        liveRiskService.rebuild();
+        StreetSegmentRiskDto before = restTemplate.getForObject("/api/safety/segments/SEG003?live=true", StreetSegmentRiskDto.class);
+        assertEquals(0.10, before.getRiskScore(), 1e-9);
+        assertEquals(0.0, before.getLiveRiskScore());
+
+        // three incidents at the midpoint of SEG003, as published by the realtime ingestion
+        List<RealtimeIncident> incidents = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RealtimeIncident incident = new RealtimeIncident();
+            incident.setIncidentId("IT-LIVE-" + i);
+            incident.setEventDatetime(LocalDateTime.now().minusMinutes(i));
+            incident.setLatitude(47.6087);
+            incident.setLongitude(-122.3380);
+            incidents.add(incident);
+        }
+        eventPublisher.publishEvent(new RealtimeIncidentsIngestedEvent(incidents));
+
+        StreetSegmentRiskDto live = restTemplate.getForObject("/api/safety/segments/SEG003?live=true", StreetSegmentRiskDto.class);
+        assertTrue(live.getLiveRiskScore() > 0.45 && live.getLiveRiskScore() < 0.5);
+        assertTrue(live.getRiskScore() > 0.3 && live.getRiskScore() < 1.0);
+
+        StreetSegmentRiskDto model = restTemplate.getForObject("/api/safety/segments/SEG003", StreetSegmentRiskDto.class);
+        assertEquals(0.10, model.getRiskScore(), 1e-9);
+        assertNull(model.getLiveRiskScore());
+
+        StreetSegmentRiskDto[] box = restTemplate.getForObject(
+            "/api/safety/segments?west=-122.35&south=47.60&east=-122.33&north=47.62&live=true", StreetSegmentRiskDto[].class);
+        assertTrue(Arrays.stream(box).anyMatch(d -> "SEG003".equals(d.getUnitid()) && d.getLiveRiskScore() > 0.45));
+        assertTrue(Arrays.stream(box).anyMatch(d -> "SEG002".equals(d.getUnitid()) && d.getLiveRiskScore() == 0.0));
+    }
+}
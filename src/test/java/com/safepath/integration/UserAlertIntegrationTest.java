@@ -2,27 +2,70 @@ package com.safepath.integration;
 
 import com.safepath.dto.CreateUserAlertRequest;
 import com.safepath.dto.CreateUserRequest;
+import com.safepath.dto.CrimeCountSummary;
+import com.safepath.dto.UserAlertDto;
+import com.safepath.event.AlertsMatchedEvent;
+import com.safepath.index.AlertGeofenceIndex;
 import com.safepath.model.AppUser;
+import com.safepath.model.CrimeReport;
+import com.safepath.model.RealtimeIncident;
 import com.safepath.model.UserAlert;
+import com.safepath.service.AlertDigestService;
+import com.safepath.service.AlertMatchService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 
- 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+// the digest test moves the clock a day ahead and expects undelivered digests to be kept
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "safepath.alerts.digest.max-hold-hours=48")
 @ActiveProfiles("h2")
 public class UserAlertIntegrationTest {
 
     @Autowired
     private TestRestTemplate rest;
 
+    @Autowired
+    private AlertMatchService alertMatchService;
+
+    @Autowired
+    private AlertDigestService alertDigestService;
+
+    @Autowired
+    private AlertGeofenceIndex geofenceIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @LocalServerPort
+    private int port;
+
     @Test
     public void createUserAndAlert_thenListByUser() {
         // create user
@@ -60,4 +103,325 @@ public class UserAlertIntegrationTest {
         }
         assertTrue(found);
     }
+
+    @Test
+    public void previewAlertCountsTheAlertCircle() {
+        // sample report TEST-1 lies at the center of this alert
+        CreateUserAlertRequest draft = new CreateUserAlertRequest();
+        draft.setRadiusM(500);
+        draft.setCenterLat(47.6);
+        draft.setCenterLon(-122.33);
+        draft.setCrimeTypeFilter("NO SUCH OFFENSE");
+
+        ResponseEntity<CrimeCountSummary> preview =
+            rest.postForEntity("/api/user-alerts/preview?days=7", draft, CrimeCountSummary.class);
+        assertEquals(HttpStatus.OK, preview.getStatusCode());
+        assertNotNull(preview.getBody());
+        assertTrue(preview.getBody().getTotal() >= 1);
+        assertEquals(0, preview.getBody().getMatching());
+        assertTrue(preview.getBody().getSouth() <= 47.6 && preview.getBody().getNorth() >= 47.6);
+
+        ResponseEntity<CrimeCountSummary> missing = rest.getForEntity("/api/user-alerts/999999/preview", CrimeCountSummary.class);
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+    }
+
+    @Test
+    public void matchIncidentsAgainstAlertGeofences() {
+        CreateUserRequest ureq = new CreateUserRequest();
+        ureq.setEmail("geofence@example.com");
+        ureq.setPassword("pwd123");
+        AppUser user = rest.postForEntity("/api/users", ureq, AppUser.class).getBody();
+        assertNotNull(user);
+
+        CreateUserAlertRequest areq = new CreateUserAlertRequest();
+        areq.setUserId(user.getUserId());
+        areq.setRadiusM(300);
+        areq.setCenterLat(47.66);
+        areq.setCenterLon(-122.31);
+        areq.setCrimeTypeFilter("theft");
+        int filtered = rest.postForEntity("/api/user-alerts", areq, UserAlertDto.class).getBody().getAlertId();
+        areq.setCrimeTypeFilter(null);
+        areq.setRadiusM(5000);
+        int wide = rest.postForEntity("/api/user-alerts", areq, UserAlertDto.class).getBody().getAlertId();
+
+        // ~150m from the center: inside both circles, the filter only accepts the theft incident
+        assertEquals(Set.of(filtered, wide), alertIds(alertMatchService.matchIncidents(
+            List.of(incident("IT-GEO-1", "Theft Response", 47.6613, -122.31)))));
+        assertEquals(Set.of(wide), alertIds(alertMatchService.matchIncidents(
+            List.of(incident("IT-GEO-2", "Aid Response", 47.6613, -122.31)))));
+        // ~1km away: only the wide alert
+        assertEquals(Set.of(wide), alertIds(alertMatchService.matchIncidents(
+            List.of(incident("IT-GEO-3", "Theft Response", 47.669, -122.31)))));
+
+        // reports without offenses only match alerts without a filter
+        CrimeReport report = new CrimeReport();
+        report.setReportNumber("IT-GEO-R1");
+        report.setReportDatetime(LocalDateTime.now());
+        report.setBlurredLatitude(47.66);
+        report.setBlurredLongitude(-122.31);
+        List<AlertsMatchedEvent.Match> reportMatches = alertMatchService.matchReports(List.of(report));
+        assertEquals(Set.of(wide), alertIds(reportMatches));
+        assertEquals(AlertsMatchedEvent.Source.CRIME_REPORT, reportMatches.get(0).getSource());
+        assertEquals(user.getUserId().intValue(), reportMatches.get(0).getUserId());
+
+        // history, e.g. from a FULL ETL run, is not news
+        report.setReportNumber("IT-GEO-R2");
+        report.setReportDatetime(LocalDateTime.now().minusYears(3));
+        assertTrue(alertMatchService.matchReports(List.of(report)).isEmpty());
+
+        // moving the alert takes effect immediately
+        CreateUserAlertRequest move = new CreateUserAlertRequest();
+        move.setCenterLat(47.669);
+        move.setCenterLon(-122.31);
+        ResponseEntity<UserAlertDto> moved = rest.exchange("/api/user-alerts/" + filtered, HttpMethod.PUT,
+            new HttpEntity<>(move), UserAlertDto.class);
+        assertEquals(HttpStatus.OK, moved.getStatusCode());
+        assertEquals(300, moved.getBody().getRadiusM());
+        assertEquals(Boolean.TRUE, moved.getBody().getActiveFlag());
+        assertEquals(Set.of(filtered, wide), alertIds(alertMatchService.matchIncidents(
+            List.of(incident("IT-GEO-4", "Theft Response", 47.669, -122.31)))));
+        assertEquals(Set.of(wide), alertIds(alertMatchService.matchIncidents(
+            List.of(incident("IT-GEO-5", "Theft Response", 47.6613, -122.31)))));
+
+        ResponseEntity<UserAlertDto> deactivated =
+            rest.postForEntity("/api/user-alerts/" + wide + "/deactivate", null, UserAlertDto.class);
+        assertEquals(HttpStatus.OK, deactivated.getStatusCode());
+        assertEquals(Boolean.FALSE, deactivated.getBody().getActiveFlag());
+        assertEquals(Set.of(filtered), alertIds(alertMatchService.matchIncidents(
+            List.of(incident("IT-GEO-6", "Theft Response", 47.669, -122.31)))));
+
+        assertEquals(HttpStatus.NOT_FOUND,
+            rest.postForEntity("/api/user-alerts/999999/deactivate", null, UserAlertDto.class).getStatusCode());
+    }
+
+    @Test
+    public void alertsWrittenOutsideTheAppAreMatchedAfterTheCheck() {
+        CreateUserRequest ureq = new CreateUserRequest();
+        ureq.setEmail("jsp-alerts@example.com");
+        ureq.setPassword("pwd123");
+        AppUser user = rest.postForEntity("/api/users", ureq, AppUser.class).getBody();
+        assertNotNull(user);
+        geofenceIndex.size();
+        geofenceIndex.reloadIfChanged();
+        assertFalse(geofenceIndex.reloadIfChanged());
+
+        // writes of this app are applied as they happen and do not count as outside changes
+        CreateUserAlertRequest areq = new CreateUserAlertRequest();
+        areq.setUserId(user.getUserId());
+        areq.setRadiusM(300);
+        areq.setCenterLat(47.51);
+        areq.setCenterLon(-122.27);
+        UserAlert own = rest.postForEntity("/api/user-alerts", areq, UserAlert.class).getBody();
+        assertNotNull(own);
+        assertFalse(geofenceIndex.reloadIfChanged());
+        assertEquals(Set.of(own.getAlertId()), alertIds(alertMatchService.matchIncidents(
+            List.of(incident("IT-JSP-0", "Theft Response", 47.51, -122.27)))));
+
+        // the JSP app inserts and updates alerts with plain SQL
+        jdbcTemplate.update("INSERT INTO user_alerts (user_id, radius_m, center_lat, center_lon, active_flag, "
+            + "digest_mode, created_at, updated_at) VALUES (?, 300, 47.52, -122.27, TRUE, 'IMMEDIATE', ?, ?)",
+            user.getUserId(), LocalDateTime.now(), LocalDateTime.now());
+        int alertId = jdbcTemplate.queryForObject(
+            "SELECT MAX(alert_id) FROM user_alerts WHERE user_id = ?", Integer.class, user.getUserId());
+        assertTrue(alertIds(alertMatchService.matchIncidents(
+            List.of(incident("IT-JSP-1", "Theft Response", 47.52, -122.27)))).isEmpty());
+        assertTrue(geofenceIndex.reloadIfChanged());
+        assertEquals(Set.of(alertId), alertIds(alertMatchService.matchIncidents(
+            List.of(incident("IT-JSP-2", "Theft Response", 47.52, -122.27)))));
+
+        jdbcTemplate.update("UPDATE user_alerts SET active_flag = FALSE, updated_at = ? WHERE alert_id = ?",
+            LocalDateTime.now().plusSeconds(1), alertId);
+        assertTrue(geofenceIndex.reloadIfChanged());
+        assertTrue(alertIds(alertMatchService.matchIncidents(
+            List.of(incident("IT-JSP-3", "Theft Response", 47.52, -122.27)))).isEmpty());
+    }
+
+    @Test
+    public void pushMatchesOverSseAndResumeFromLastEventId() throws Exception {
+        CreateUserRequest ureq = new CreateUserRequest();
+        ureq.setEmail("stream@example.com");
+        ureq.setPassword("pwd123");
+        AppUser user = rest.postForEntity("/api/users", ureq, AppUser.class).getBody();
+        assertNotNull(user);
+        CreateUserAlertRequest areq = new CreateUserAlertRequest();
+        areq.setUserId(user.getUserId());
+        areq.setRadiusM(300);
+        areq.setCenterLat(47.70);
+        areq.setCenterLon(-122.28);
+        int alertId = rest.postForEntity("/api/user-alerts", areq, UserAlertDto.class).getBody().getAlertId();
+
+        String id1;
+        String id2;
+        try (SseClient stream = SseClient.open(port, user.getUserId(), null)) {
+            alertMatchService.matchIncidents(List.of(incident("IT-SSE-1", "Theft Response", 47.70, -122.28)));
+            Map<String, String> first = stream.nextEvent();
+            assertEquals("alert", first.get("event"));
+            assertTrue(first.get("data").contains("\"incidentId\":\"IT-SSE-1\""));
+            assertTrue(first.get("data").contains("\"alertIds\":[" + alertId + "]"));
+            id1 = first.get("id");
+
+            alertMatchService.matchIncidents(List.of(incident("IT-SSE-2", "Theft Response", 47.70, -122.28)));
+            Map<String, String> second = stream.nextEvent();
+            assertTrue(second.get("data").contains("IT-SSE-2"));
+            id2 = second.get("id");
+            assertTrue(Long.parseLong(id2) > Long.parseLong(id1));
+        }
+
+        // reconnecting after the first event replays the second one
+        try (SseClient resumed = SseClient.open(port, user.getUserId(), id1)) {
+            Map<String, String> replayed = resumed.nextEvent();
+            assertEquals(id2, replayed.get("id"));
+            assertTrue(replayed.get("data").contains("IT-SSE-2"));
+        }
+        // an id from before this node started cannot be resumed
+        try (SseClient stale = SseClient.open(port, user.getUserId(), "1")) {
+            assertEquals("reset", stale.nextEvent().get("event"));
+        }
+
+        assertEquals(HttpStatus.NOT_FOUND, rest.getForEntity("/api/user-alerts/stream/999999", String.class).getStatusCode());
+    }
+
+    @Test
+    public void digestAlertsAreBatchedPerUser() throws Exception {
+        CreateUserRequest ureq = new CreateUserRequest();
+        ureq.setEmail("digest@example.com");
+        ureq.setPassword("pwd123");
+        AppUser user = rest.postForEntity("/api/users", ureq, AppUser.class).getBody();
+        assertNotNull(user);
+        CreateUserAlertRequest areq = new CreateUserAlertRequest();
+        areq.setUserId(user.getUserId());
+        areq.setRadiusM(300);
+        areq.setCenterLat(47.72);
+        areq.setCenterLon(-122.29);
+        areq.setDigestMode(UserAlert.DigestMode.HOURLY);
+        UserAlertDto hourly = rest.postForEntity("/api/user-alerts", areq, UserAlertDto.class).getBody();
+        assertNotNull(hourly);
+        assertEquals(UserAlert.DigestMode.HOURLY, hourly.getDigestMode());
+        areq.setDigestMode(null);
+        int daily = rest.postForEntity("/api/user-alerts", areq, UserAlertDto.class).getBody().getAlertId();
+        CreateUserAlertRequest change = new CreateUserAlertRequest();
+        change.setDigestMode(UserAlert.DigestMode.DAILY);
+        ResponseEntity<UserAlertDto> changed = rest.exchange("/api/user-alerts/" + daily, HttpMethod.PUT,
+            new HttpEntity<>(change), UserAlertDto.class);
+        assertEquals(UserAlert.DigestMode.DAILY, changed.getBody().getDigestMode());
+
+        // a second user who has no stream open when the digest is due
+        ureq.setEmail("digest-offline@example.com");
+        AppUser offline = rest.postForEntity("/api/users", ureq, AppUser.class).getBody();
+        assertNotNull(offline);
+        areq.setUserId(offline.getUserId());
+        areq.setCenterLat(47.74);
+        areq.setDigestMode(UserAlert.DigestMode.HOURLY);
+        int offlineAlert = rest.postForEntity("/api/user-alerts", areq, UserAlertDto.class).getBody().getAlertId();
+        assertEquals(1, alertMatchService.matchIncidents(
+            List.of(incident("IT-DIG-OFF-1", "Theft Response", 47.74, -122.29))).size());
+
+        try (SseClient stream = SseClient.open(port, user.getUserId(), null)) {
+            for (int i = 1; i <= 3; i++) {
+                assertEquals(2, alertMatchService.matchIncidents(
+                    List.of(incident("IT-DIG-" + i, "Theft Response", 47.72, -122.29))).size());
+            }
+            assertTrue(alertDigestService.pendingCount() >= 2);
+            // nothing is due yet
+            assertEquals(0, alertDigestService.flushDue(System.currentTimeMillis()));
+
+            // a day later both digests are due and go out together, before any single alert event
+            assertEquals(1, alertDigestService.flushDue(System.currentTimeMillis() + Duration.ofHours(25).toMillis()));
+            Map<String, String> digest = stream.nextEvent();
+            assertEquals("digest", digest.get("event"));
+            assertNotNull(digest.get("id"));
+            assertTrue(digest.get("data").contains("\"totalMatches\":6"));
+            assertTrue(digest.get("data").contains("\"alertId\":" + hourly.getAlertId()));
+            assertTrue(digest.get("data").contains("\"alertId\":" + daily));
+            assertTrue(digest.get("data").contains("\"Theft Response\":3"));
+            assertTrue(digest.get("data").contains("IT-DIG-3"));
+            assertEquals(0, alertDigestService.flushDue(System.currentTimeMillis() + Duration.ofHours(26).toMillis()));
+        }
+
+        // the offline user's digest was kept through both flushes and goes out once a stream is open
+        assertTrue(alertDigestService.pendingCount() >= 1);
+        try (SseClient stream = SseClient.open(port, offline.getUserId(), null)) {
+            assertEquals(1, alertDigestService.flushDue(
+                System.currentTimeMillis() + Duration.ofHours(26).plusMinutes(10).toMillis()));
+            Map<String, String> digest = stream.nextEvent();
+            assertEquals("digest", digest.get("event"));
+            assertTrue(digest.get("data").contains("\"alertId\":" + offlineAlert));
+            assertTrue(digest.get("data").contains("\"totalMatches\":1"));
+            assertTrue(digest.get("data").contains("IT-DIG-OFF-1"));
+        }
+    }
+
+    /**
+     * Minimal EventSource: reads the stream on a background thread and hands out complete events.
+     */
+    private static final class SseClient implements AutoCloseable {
+        private final Stream<String> lines;
+        private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+
+        private SseClient(Stream<String> lines) {
+            this.lines = lines;
+            Thread reader = new Thread(() -> {
+                try {
+                    lines.forEach(queue::add);
+                } catch (RuntimeException e) {
+                    // closed by the test
+                }
+            });
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        static SseClient open(int port, int userId, String lastEventId) throws Exception {
+            HttpRequest.Builder request = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + port + "/api/user-alerts/stream/" + userId))
+                .header("Accept", "text/event-stream");
+            if (lastEventId != null) {
+                request.header("Last-Event-ID", lastEventId);
+            }
+            HttpResponse<Stream<String>> response = HttpClient.newHttpClient()
+                .sendAsync(request.build(), HttpResponse.BodyHandlers.ofLines())
+                .get(10, TimeUnit.SECONDS);
+            assertEquals(200, response.statusCode());
+            return new SseClient(response.body());
+        }
+
+        /**
+         * Next event with at least one field; comments (heartbeats) are skipped.
+         */
+        Map<String, String> nextEvent() throws InterruptedException {
+            Map<String, String> fields = new HashMap<>();
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (true) {
+                String line = queue.poll(Math.max(1, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                assertNotNull(line, "no event within 10 seconds");
+                if (line.isEmpty()) {
+                    if (!fields.isEmpty()) {
+                        return fields;
+                    }
+                } else if (!line.startsWith(":")) {
+                    int colon = line.indexOf(':');
+                    fields.merge(line.substring(0, colon), line.substring(colon + 1), (a, b) -> a + "\n" + b);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            lines.close();
+        }
+    }
+
+    private static RealtimeIncident incident(String id, String type, double lat, double lon) {
+        RealtimeIncident incident = new RealtimeIncident();
+        incident.setIncidentId(id);
+        incident.setIncidentType(type);
+        incident.setEventDatetime(LocalDateTime.now());
+        incident.setLatitude(lat);
+        incident.setLongitude(lon);
+        return incident;
+    }
+
+    private static Set<Integer> alertIds(List<AlertsMatchedEvent.Match> matches) {
+        return matches.stream().map(AlertsMatchedEvent.Match::getAlertId).collect(Collectors.toSet());
+    }
 }